@@ -0,0 +1,70 @@
+package com.github.t1.deployer.app;
+
+import static com.github.t1.deployer.tools.StatusDetails.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.*;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import lombok.extern.slf4j.Slf4j;
+
+import com.github.t1.deployer.model.*;
+import com.github.t1.deployer.repository.Repository;
+
+/** Compares artifacts from the repository. As an artifact never changes, the diffs are cached per pair of checksums. */
+@Slf4j
+@ApplicationScoped
+public class ArtifactDiffs {
+    private static final int CACHE_SIZE = 100;
+
+    @Inject
+    Repository repository;
+
+    @SuppressWarnings("serial")
+    private final Map<List<CheckSum>, ArchiveDiff> cache = new LinkedHashMap<List<CheckSum>, ArchiveDiff>(16, 0.75f,
+            true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<CheckSum>, ArchiveDiff> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    public ArchiveDiff diff(CheckSum from, CheckSum to) {
+        List<CheckSum> key = Arrays.asList(from, to);
+        synchronized (this) {
+            ArchiveDiff cached = cache.get(key);
+            if (cached != null)
+                return cached;
+        }
+        ArchiveDiff diff = compare(from, to);
+        log.debug("diff {} -> {}: {}", from, to, diff);
+        synchronized (this) {
+            cache.put(key, diff);
+        }
+        return diff;
+    }
+
+    private ArchiveDiff compare(CheckSum from, CheckSum to) {
+        File fromFile = null;
+        File toFile = null;
+        try {
+            fromFile = Downloads.download(repository, from);
+            toFile = Downloads.download(repository, to);
+            try (ZipFile fromArchive = new ZipFile(fromFile); ZipFile toArchive = new ZipFile(toFile)) {
+                return ArchiveDiff.between(fromArchive, toArchive);
+            }
+        } catch (ZipException e) {
+            throw badRequest("can't compare " + from + " and " + to + ": not an archive");
+        } catch (IOException e) {
+            throw new RuntimeException("can't compare " + from + " and " + to, e);
+        } finally {
+            if (fromFile != null)
+                Downloads.delete(fromFile);
+            if (toFile != null)
+                Downloads.delete(toFile);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.github.t1.deployer.app;
 
+import static com.github.t1.deployer.app.Pagination.*;
 import static com.github.t1.deployer.model.DataSourceConfig.*;
 
 import java.net.URI;
@@ -12,7 +13,7 @@ import javax.ws.rs.*;
 import javax.ws.rs.core.*;
 
 import com.github.t1.deployer.container.DataSourceContainer;
-import com.github.t1.deployer.model.DataSourceConfig;
+import com.github.t1.deployer.model.*;
 
 @Boundary
 @Path("/datasources")
@@ -39,10 +40,20 @@ public class DataSources {
     DataSourceContainer container;
     @Inject
     Instance<DataSourceResource> dataSourceResources;
+    @Context
+    UriInfo uriInfo;
+    @Context
+    HttpHeaders headers;
 
     @GET
-    public List<DataSourceConfig> getAllDataSources() {
-        return container.getDataSources();
+    public Response getAllDataSources( //
+            @QueryParam(FILTER) String filter, //
+            @QueryParam(SORT) String sort, //
+            @QueryParam(OFFSET) @DefaultValue("0") int offset, //
+            @QueryParam(LIMIT) Integer limit //
+    ) {
+        Slice<DataSourceConfig> slice = container.getDataSources(paging(headers, "name", filter, sort, offset, limit));
+        return response(uriInfo, slice, new GenericEntity<List<DataSourceConfig>>(slice.getElements()) {});
     }
 
     @GET
@@ -1,8 +1,10 @@
 package com.github.t1.deployer.app;
 
+import static java.util.concurrent.TimeUnit.*;
 import static javax.interceptor.Interceptor.Priority.*;
 
 import java.security.Principal;
+import java.util.*;
 
 import javax.annotation.Priority;
 import javax.inject.Inject;
@@ -10,16 +12,21 @@ import javax.interceptor.*;
 
 import lombok.extern.slf4j.Slf4j;
 
-import com.github.t1.deployer.app.file.DeploymentListFile;
+import com.github.t1.deployer.app.file.*;
 import com.github.t1.deployer.container.*;
-import com.github.t1.deployer.model.Deployment;
+import com.github.t1.deployer.model.*;
+import com.github.t1.deployer.tools.Tracing;
 
 /**
  * Cross cutting concerns for updating the deployment status in a container:
  * <ul>
  * <li>Check privileges of the current user.</li>
  * <li>Write autit log.</li>
- * <li>Update the list of deployments.</li>
+ * <li>Update the list of deployments; only once for all actions of a release.</li>
+ * <li>Record the operations in the {@link DeploymentHistory history}, with what was deployed before.</li>
+ * <li>{@link WarmUp Warm up} the applications before reporting the operation as done.</li>
+ * <li>Record how long the (re)deploys took in the {@link DeployDurations}, with the bytes transferred as traced.</li>
+ * <li>Keep a {@link Tracing trace} of the phases of the operations in the {@link OperationTraces}.</li>
  * </ul>
  */
 @Slf4j
@@ -27,21 +34,210 @@ import com.github.t1.deployer.model.Deployment;
 @DeploymentOperation
 @Priority(APPLICATION + 523)
 public class DeploymentOperationInterceptor {
+    /** the operations after which the application is {@link WarmUp warmed up} and their durations are recorded */
+    private static final List<String> DEPLOYING = Arrays.asList("deploy", "redeploy", "patch", "activate");
+
     @Inject
     Audit audit;
     @Inject
     DeploymentListFile deploymentsList;
     @Inject
     Principal principal;
+    @Inject
+    DeploymentHistory history;
+    @Inject
+    DeploymentContainer container;
+    @Inject
+    OperationTraces traces;
+    @Inject
+    WarmUp warmUp;
+    @Inject
+    DeployDurations durations;
 
     @AroundInvoke
     Object aroundInvoke(InvocationContext context) throws Exception {
-        Deployment deployment = (Deployment) context.getParameters()[0];
+        boolean traced = Tracing.begin(); // unless the request or the file watcher already did
+        try {
+            return intercept(context);
+        } finally {
+            if (traced)
+                Tracing.end();
+        }
+    }
+
+    private Object intercept(InvocationContext context) throws Exception {
         String operation = context.getMethod().getName();
-        log.debug("intercept {} of {} by {}", operation, deployment, principal.getName());
-        audit.allow(operation, deployment.getContextRoot(), deployment.getVersion());
+        Object[] parameters = context.getParameters();
+        Object target = (parameters.length == 0) ? null : parameters[0];
+        if (target instanceof Deployment) {
+            Deployment deployment = (Deployment) target;
+            allow(operation, deployment);
+            boolean stage = "stage".equals(operation); // nothing changes, yet
+            Deployment previous = stage ? null : previous(deployment.getContextRoot());
+            long start = System.currentTimeMillis();
+            String outcome = null;
+            List<WarmUpResult> warmUps = new ArrayList<>();
+            try {
+                Object result = proceed(context);
+                if (DEPLOYING.contains(operation))
+                    warmUp(Collections.singletonList(deployment.getContextRoot()), warmUps);
+                outcome = HistoryEntry.SUCCESS;
+                return result;
+            } catch (Exception | Error e) {
+                outcome = String.valueOf(e.getMessage());
+                throw e;
+            } finally {
+                if (!stage) {
+                    long duration = record(operation, previous, deployment, start, outcome);
+                    if (HistoryEntry.SUCCESS.equals(outcome) && DEPLOYING.contains(operation))
+                        durations.executed(deployment, duration, transferred());
+                }
+                trace(operation, Collections.singletonList(deployment.getContextRoot()), outcome, warmUps);
+            }
+        } else if (target instanceof List) {
+            @SuppressWarnings("unchecked")
+            List<ReleaseAction> actions = (List<ReleaseAction>) target;
+            Map<ReleaseAction, Deployment> previous = new LinkedHashMap<>();
+            List<ContextRoot> contextRoots = new ArrayList<>();
+            for (ReleaseAction action : actions) {
+                allow(action.getType().operation(), action.getDeployment());
+                previous.put(action, previous(action.getDeployment().getContextRoot()));
+                contextRoots.add(action.getDeployment().getContextRoot());
+            }
+            long start = System.currentTimeMillis();
+            String outcome = null;
+            List<WarmUpResult> warmUps = new ArrayList<>();
+            try {
+                Object result = proceed(context);
+                @SuppressWarnings("unchecked")
+                List<ReleaseAction> executed = (List<ReleaseAction>) result;
+                List<ContextRoot> warm = new ArrayList<>();
+                for (ReleaseAction action : executed)
+                    if (action.isExecuted() && DEPLOYING.contains(action.getType().operation()))
+                        warm.add(action.getDeployment().getContextRoot());
+                warmUp(warm, warmUps);
+                outcome = HistoryEntry.SUCCESS;
+                for (ReleaseAction action : executed) {
+                    String actionOutcome = action.isExecuted() ? HistoryEntry.SUCCESS
+                            : action.getOutcome() + ": " + action.getMessage();
+                    record(action.getType().operation(), previous.get(action), action.getDeployment(), start,
+                            actionOutcome);
+                    if (HistoryEntry.SUCCESS.equals(outcome))
+                        outcome = actionOutcome;
+                }
+                if (HistoryEntry.SUCCESS.equals(outcome))
+                    durations.executedRelease(deployed(executed), System.currentTimeMillis() - start);
+                return result;
+            } catch (Exception | Error e) {
+                outcome = String.valueOf(e.getMessage());
+                throw e;
+            } finally {
+                trace("release", contextRoots, outcome, warmUps);
+            }
+        } else {
+            throw new IllegalStateException("unsupported deployment operation " + context.getMethod()
+                    + ": the first parameter must be a Deployment or a List of ReleaseActions");
+        }
+    }
+
+    private Object proceed(InvocationContext context) throws Exception {
         Object result = context.proceed();
+        long start = System.nanoTime();
         deploymentsList.writeDeploymentsList();
+        Tracing.phase("list-rewrite", start);
         return result;
     }
+
+    /**
+     * Warming up fails nothing; it can only take some time. The {@link DeploymentContainer} doesn't run in a
+     * transaction, so this can't run into a transaction timeout.
+     */
+    private void warmUp(List<ContextRoot> contextRoots, List<WarmUpResult> results) {
+        if (contextRoots.isEmpty())
+            return;
+        try {
+            results.addAll(warmUp.warmUp(contextRoots));
+        } catch (RuntimeException e) {
+            log.warn("warm-up of {} failed", contextRoots, e);
+        }
+    }
+
+    private void allow(String operation, Deployment deployment) {
+        log.debug("intercept {} of {} by {}", operation, deployment, principal.getName());
+        audit.allow(operation, deployment.getContextRoot(), deployment.getVersion());
+    }
+
+    /** The history knows better than the container, as it still knows the version, but it may not go back far enough */
+    private Deployment previous(ContextRoot contextRoot) {
+        HistoryEntry latest = history.latest(contextRoot);
+        if (latest != null)
+            return latest.isDeployed()
+                    ? new Deployment(latest.getName(), contextRoot, latest.getNewCheckSum(), latest.getNewVersion())
+                    : null;
+        if (contextRoot != null && container.hasDeploymentWith(contextRoot))
+            return container.getDeploymentFor(contextRoot);
+        return null;
+    }
+
+    /** @return the milliseconds since the start */
+    private long record(String operation, Deployment previous, Deployment deployment, long start, String outcome) {
+        boolean undeploy = "undeploy".equals(operation);
+        long duration = System.currentTimeMillis() - start;
+        history.append(HistoryEntry.builder() //
+                .timestamp(start) //
+                .principal(principal.getName()) //
+                .operation(operation) //
+                .contextRoot(deployment.getContextRoot()) //
+                .name(deployment.getName()) //
+                .oldCheckSum((previous == null) ? null : previous.getCheckSum()) //
+                .oldVersion((previous == null) ? null : previous.getVersion()) //
+                .newCheckSum(undeploy ? null : deployment.getCheckSum()) //
+                .newVersion(undeploy ? null : deployment.getVersion()) //
+                .duration(duration) //
+                .outcome(outcome) //
+                .build());
+        return duration;
+    }
+
+    /** The size of the artifact, as downloaded or uploaded in this thread since the previous operation */
+    private static long transferred() {
+        Tracing tracing = Tracing.current();
+        return (tracing == null) ? 0 : Math.max(tracing.getDownloaded(), tracing.getUploaded());
+    }
+
+    private static List<ContextRoot> deployed(List<ReleaseAction> actions) {
+        List<ContextRoot> contextRoots = new ArrayList<>();
+        for (ReleaseAction action : actions)
+            if (DEPLOYING.contains(action.getType().operation()))
+                contextRoots.add(action.getDeployment().getContextRoot());
+        return contextRoots;
+    }
+
+    /** Everything traced in this thread since the previous operation, e.g. the download before the deploy */
+    private void trace(String operation, List<ContextRoot> contextRoots, String outcome,
+            List<WarmUpResult> warmUps) {
+        Tracing tracing = Tracing.take();
+        List<OperationTrace.Phase> phases = new ArrayList<>();
+        for (Tracing.Phase phase : tracing.getPhases())
+            phases.add(new OperationTrace.Phase(phase.getName(), micros(phase.getStart() - tracing.getStart()),
+                    micros(phase.getDuration()), phase.getBytes()));
+        long duration = NANOSECONDS.toMillis(System.nanoTime() - tracing.getStart());
+        OperationTrace trace = traces.add(OperationTrace.builder() //
+                .timestamp(System.currentTimeMillis() - duration) //
+                .principal(principal.getName()) //
+                .operation(operation) //
+                .contextRoots(contextRoots) //
+                .duration(duration) //
+                .bytesDownloaded(tracing.getDownloaded()) //
+                .bytesUploaded(tracing.getUploaded()) //
+                .outcome(outcome) //
+                .phases(phases) //
+                .warmUps(warmUps) //
+                .build());
+        log.debug("traced {}", trace);
+    }
+
+    private static long micros(long nanos) {
+        return NANOSECONDS.toMicros(nanos);
+    }
 }
@@ -2,6 +2,7 @@ package com.github.t1.deployer.app;
 
 import static com.github.t1.deployer.tools.StatusDetails.*;
 import static com.github.t1.log.LogLevel.*;
+import static javax.ws.rs.core.Response.Status.*;
 import io.swagger.annotations.Api;
 
 import java.io.*;
@@ -15,9 +16,10 @@ import javax.xml.bind.annotation.*;
 import lombok.extern.slf4j.Slf4j;
 
 import com.fasterxml.jackson.annotation.*;
-import com.github.t1.deployer.container.DeploymentContainer;
+import com.github.t1.deployer.app.file.DeploymentHistory;
+import com.github.t1.deployer.container.*;
 import com.github.t1.deployer.model.*;
-import com.github.t1.deployer.repository.Repository;
+import com.github.t1.deployer.repository.*;
 import com.github.t1.log.Logged;
 
 @Api(tags = "deployments")
@@ -28,10 +30,29 @@ import com.github.t1.log.Logged;
 @XmlType(propOrder = { "name", "contextRoot", "checkSum", "version", "availableVersions" })
 @JsonPropertyOrder({ "name", "contextRoot", "checkSum", "version", "availableVersions" })
 public class DeploymentResource implements Comparable<DeploymentResource> {
+    /** Clients can safely retry deployment operations with the same key; they are only executed once */
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     @Inject
     DeploymentContainer container;
     @Inject
+    DeploymentScheduler scheduler;
+    @Inject
     Repository repository;
+    @Inject
+    IncrementalRedeploy incrementalRedeploy;
+    @Inject
+    ArtifactInspector inspector;
+    @Inject
+    ArtifactDiffs artifactDiffs;
+    @Inject
+    DeploymentHistory history;
+    @Inject
+    DeployDurations durations;
+    @Inject
+    RegressionGate gate;
+    @Inject
+    RequestTimeSeries requestSeries;
     @Context
     UriInfo uriInfo;
 
@@ -47,6 +68,8 @@ public class DeploymentResource implements Comparable<DeploymentResource> {
     @Logged(level = TRACE)
     public Deployment deployment() {
         getAvailableVersions();
+        if (!isNew())
+            deployment = deployment.withRequests(requestSeries.trend(getName()));
         return deployment;
     }
 
@@ -61,7 +84,8 @@ public class DeploymentResource implements Comparable<DeploymentResource> {
             @FormParam("action") String action, //
             @FormParam("contextRoot") ContextRoot contextRoot, //
             @FormParam("name") DeploymentName name, //
-            @FormParam("checksum") CheckSum checkSum //
+            @FormParam("checksum") CheckSum checkSum, //
+            @HeaderParam(IDEMPOTENCY_KEY) String idempotencyKey //
     ) {
         if (action == null)
             throw badRequest("action form parameter is missing");
@@ -70,34 +94,59 @@ public class DeploymentResource implements Comparable<DeploymentResource> {
                 if (contextRoot != null || getContextRoot() != null)
                     throw badRequest("context root to deploy must be null, not " + contextRoot + " and "
                             + getContextRoot());
-                Deployment newDeployment = deploy(checkSum, name);
+                Deployment newDeployment = deploy(checkSum, name, idempotencyKey);
                 return Response.seeOther(Deployments.path(uriInfo, newDeployment.getContextRoot())).build();
             case "redeploy":
                 if (getContextRoot() != null)
                     check(contextRoot);
-                redeploy(checkSum);
+                redeploy(checkSum, idempotencyKey);
+                return Response.seeOther(Deployments.path(uriInfo, contextRoot)).build();
+            case "stage":
+                if (getContextRoot() != null)
+                    check(contextRoot);
+                stage(checkSum);
+                return Response.seeOther(Deployments.path(uriInfo, contextRoot)).build();
+            case "activate":
+                if (getContextRoot() != null)
+                    check(contextRoot);
+                activate(checkSum, idempotencyKey);
+                return Response.seeOther(Deployments.path(uriInfo, contextRoot)).build();
+            case "rollback":
+                if (getContextRoot() != null)
+                    check(contextRoot);
+                rollback(idempotencyKey);
                 return Response.seeOther(Deployments.path(uriInfo, contextRoot)).build();
             case "undeploy":
                 if (getContextRoot() != null)
                     check(contextRoot);
-                delete();
+                delete(idempotencyKey);
                 return Response.seeOther(Deployments.pathAll(uriInfo)).build();
             default:
                 throw badRequest("invalid action '" + action + "'");
         }
     }
 
+    /**
+     * @param incremental
+     *            only transfer the entries that differ from the running deployment; responds with the
+     *            {@link ArchiveDiff diff}.
+     */
     @PUT
-    public Response put(@Context UriInfo uriInfo, Deployment entity) {
+    public Response put(@Context UriInfo uriInfo, @HeaderParam(IDEMPOTENCY_KEY) String idempotencyKey,
+            @QueryParam("incremental") boolean incremental, Deployment entity) {
         check(entity.getContextRoot());
         CheckSum checkSum = entity.getCheckSum();
         if (checkSum == null)
             throw badRequest("checksum missing in " + entity);
         if (container.hasDeploymentWith(getContextRoot())) {
-            redeploy(checkSum);
+            if (incremental) {
+                ArchiveDiff diff = patch(checkSum, idempotencyKey);
+                return (diff == null) ? Response.noContent().build() : Response.ok(diff).build();
+            }
+            redeploy(checkSum, idempotencyKey);
             return Response.noContent().build();
         } else {
-            deploy(checkSum, entity.getName());
+            deploy(checkSum, entity.getName(), idempotencyKey);
             return created(uriInfo);
         }
     }
@@ -111,33 +160,223 @@ public class DeploymentResource implements Comparable<DeploymentResource> {
             throw badRequest("context roots don't match: " + contextRoot + " is not " + getContextRoot());
     }
 
-    private Deployment deploy(CheckSum checkSum, DeploymentName nameOverride) {
-        Deployment newDeployment = getDeploymentFromRepository(checkSum);
+    private Deployment deploy(final CheckSum checkSum, DeploymentName nameOverride, String idempotencyKey) {
+        Deployment fromRepository = getDeploymentFromRepository(checkSum);
         if (hasNameOverride(nameOverride)) {
-            log.info("overwrite deployment name {} with {}", newDeployment.getName(), nameOverride);
-            newDeployment = newDeployment.withName(nameOverride);
+            log.info("overwrite deployment name {} with {}", fromRepository.getName(), nameOverride);
+            fromRepository = fromRepository.withName(nameOverride);
         }
-        try (InputStream inputStream = repository.getArtifactInputStream(checkSum)) {
-            container.deploy(newDeployment, inputStream);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        try (final Artifact artifact = fetch(fromRepository)) {
+            scheduler.run(artifact.deployment.getContextRoot(), idempotencyKey, new Runnable() {
+                @Override
+                public void run() {
+                    install(artifact, false);
+                }
+            });
+            return artifact.deployment;
         }
-        return newDeployment;
     }
 
     private boolean hasNameOverride(DeploymentName name) {
         return name != null && name.getValue() != null && !name.getValue().isEmpty();
     }
 
-    private void redeploy(CheckSum checkSum) {
+    /**
+     * If the {@link RegressionGate} is on, it observes the new version after the redeploy, and rolls it back, if it
+     * regressed and is still deployed.
+     */
+    private void redeploy(final CheckSum checkSum, String idempotencyKey) {
+        try (final Artifact artifact = fetch(getDeploymentFromRepository(checkSum))) {
+            final Deployment newDeployment = artifact.deployment;
+            scheduler.run(newDeployment.getContextRoot(), idempotencyKey, new Runnable() {
+                @Override
+                public void run() {
+                    RequestStatistics baseline = gate.baseline(newDeployment);
+                    install(artifact, true);
+                    if (baseline != null)
+                        gate.observe(newDeployment, baseline, new Runnable() {
+                            @Override
+                            public void run() {
+                                rollbackRegressed(newDeployment);
+                            }
+                        });
+                }
+            });
+        }
+    }
+
+    private void rollbackRegressed(final Deployment regressed) {
+        scheduler.run(regressed.getContextRoot(), null, new Runnable() {
+            @Override
+            public void run() {
+                Deployment running = container.getDeploymentFor(regressed.getContextRoot());
+                if (!running.getCheckSum().equals(regressed.getCheckSum())) {
+                    log.info("don't roll back regressed {}: it was replaced by {}", regressed, running);
+                    return;
+                }
+                HistoryEntry latest = history.latest(regressed.getContextRoot());
+                log.warn("roll back regressed {} to {}", regressed, latest.getOldVersion());
+                install(previous(latest), latest.isDeployed());
+            }
+        });
+    }
+
+    /**
+     * Go back to what was deployed before the latest operation, as recorded in the {@link DeploymentHistory history}.
+     * The checksum is taken directly from there, so there is no need to search the repository.
+     */
+    private void rollback(String idempotencyKey) {
+        HistoryEntry latest = history.latest(getContextRoot());
+        if (latest == null || !latest.isRollbackPossible())
+            throw badRequest("no previous deployment of " + getContextRoot() + " in the history");
+        final Deployment previous = previous(latest);
+        final boolean replace = latest.isDeployed();
+        log.info("roll back {} to {}", getContextRoot(), previous);
+        scheduler.run(getContextRoot(), idempotencyKey, new Runnable() {
+            @Override
+            public void run() {
+                install(previous, replace);
+            }
+        });
+    }
+
+    private Deployment previous(HistoryEntry latest) {
+        return new Deployment(latest.getName(), latest.getContextRoot(), latest.getOldCheckSum(),
+                latest.getOldVersion());
+    }
+
+    /**
+     * The content for a deployment, fetched before the scheduler lane is taken: the container already has it, it's in
+     * the local mount of the repository, or it's downloaded to a temporary file, which is deleted when closed. If the
+     * artifact has been {@link ArtifactInspector inspected}, and it has exactly one context root, i.e. it's not an ear,
+     * the deployment gets that context root instead of the one the repository guesses from the path.
+     */
+    private static class Artifact implements Closeable {
+        private final Deployment deployment;
+        private final ArtifactInfo info;
+        /** <code>null</code>, if the container already has the content */
+        private final File file;
+        private final boolean temporary;
+
+        Artifact(Deployment deployment, ArtifactInfo info, File file, boolean temporary) {
+            this.deployment = (info == null || info.getContextRoots().size() != 1) ? deployment
+                    : deployment.withContextRoot(info.getContextRoots().get(0));
+            this.info = info;
+            this.file = file;
+            this.temporary = temporary;
+        }
+
+        @Override
+        public void close() {
+            if (temporary)
+                Downloads.delete(file);
+        }
+    }
+
+    private Artifact fetch(Deployment deployment) {
+        CheckSum checkSum = deployment.getCheckSum();
+        if (container.hasContent(checkSum))
+            return new Artifact(deployment, inspector.getCached(checkSum), null, false);
+        File local = Downloads.local(repository, checkSum);
+        if (local != null)
+            return new Artifact(deployment, inspector.inspect(checkSum, deployment.getName(), local), local, false);
+        File file;
+        try {
+            file = Downloads.download(repository, checkSum);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        try {
+            return new Artifact(deployment, inspector.inspect(checkSum, deployment.getName(), file), file, true);
+        } catch (RuntimeException e) {
+            Downloads.delete(file);
+            throw e;
+        }
+    }
+
+    /** Already within the lane, e.g. for a rollback */
+    private void install(Deployment deployment, boolean replace) {
+        try (Artifact artifact = fetch(deployment)) {
+            install(artifact, replace);
+        }
+    }
+
+    /** The context roots of the artifact are checked before anything is deployed, as far as it has been inspected */
+    private void install(Artifact artifact, boolean replace) {
+        Deployment newDeployment = artifact.deployment;
+        checkContextRoots(newDeployment, artifact.info);
+        if (artifact.file == null) {
+            if (replace)
+                container.redeploy(newDeployment);
+            else
+                container.deploy(newDeployment);
+        } else if (!artifact.temporary) {
+            if (replace)
+                container.redeploy(newDeployment, artifact.file.toPath());
+            else
+                container.deploy(newDeployment, artifact.file.toPath());
+        } else {
+            try (InputStream inputStream = new FileInputStream(artifact.file)) {
+                if (replace)
+                    container.redeploy(newDeployment, inputStream);
+                else
+                    container.deploy(newDeployment, inputStream);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private void checkContextRoots(Deployment newDeployment, ArtifactInfo info) {
+        if (info == null)
+            return;
+        for (Deployment other : container.getAllDeployments())
+            if (!other.getName().equals(newDeployment.getName())
+                    && info.getContextRoots().contains(other.getContextRoot()))
+                throw webException(CONFLICT, "context root " + other.getContextRoot() + " of " + newDeployment.getName()
+                        + " is already used by " + other.getName());
+    }
+
+    /** If the container already has the content, there is nothing to transfer, so it's simply redeployed */
+    private ArchiveDiff patch(CheckSum checkSum, String idempotencyKey) {
+        final Deployment running = container.getDeploymentFor(getContextRoot());
+        final List<ArchiveDiff> diff = new ArrayList<>();
+        try (final Artifact artifact = fetch(getDeploymentFromRepository(checkSum))) {
+            scheduler.run(artifact.deployment.getContextRoot(), idempotencyKey, new Runnable() {
+                @Override
+                public void run() {
+                    if (artifact.file == null) {
+                        install(artifact, true);
+                        return;
+                    }
+                    checkContextRoots(artifact.deployment, artifact.info);
+                    diff.add(incrementalRedeploy.redeploy(running, artifact.deployment, artifact.file));
+                }
+            });
+        }
+        return diff.isEmpty() ? null : diff.get(0);
+    }
+
+    /** Not scheduled, as uploading ahead of time must neither wait for nor delay other operations */
+    private void stage(CheckSum checkSum) {
         Deployment newDeployment = getDeploymentFromRepository(checkSum);
         try (InputStream inputStream = repository.getArtifactInputStream(checkSum)) {
-            container.redeploy(newDeployment, inputStream);
+            container.stage(newDeployment, inputStream);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    private void activate(CheckSum checkSum, String idempotencyKey) {
+        final Deployment newDeployment = getDeploymentFromRepository(checkSum);
+        scheduler.run(newDeployment.getContextRoot(), idempotencyKey, new Runnable() {
+            @Override
+            public void run() {
+                container.activate(newDeployment);
+            }
+        });
+    }
+
     private Deployment getDeploymentFromRepository(CheckSum checkSum) {
         if (checkSum == null)
             throw badRequest("checksum missing");
@@ -148,8 +387,13 @@ public class DeploymentResource implements Comparable<DeploymentResource> {
     }
 
     @DELETE
-    public void delete() {
-        container.undeploy(deployment);
+    public void delete(@HeaderParam(IDEMPOTENCY_KEY) String idempotencyKey) {
+        scheduler.run(getContextRoot(), idempotencyKey, new Runnable() {
+            @Override
+            public void run() {
+                container.undeploy(deployment);
+            }
+        });
     }
 
     @GET
@@ -175,18 +419,52 @@ public class DeploymentResource implements Comparable<DeploymentResource> {
 
     @PUT
     @Path("version")
-    public Response putVersion(Version newVersion) {
+    public Response putVersion(@HeaderParam(IDEMPOTENCY_KEY) String idempotencyKey, Version newVersion) {
         if (!container.hasDeploymentWith(getContextRoot()))
             throw badRequest("no context root: " + getContextRoot());
         for (VersionInfo available : getAvailableVersions()) {
             if (available.getVersion().equals(newVersion)) {
-                redeploy(available.getCheckSum());
+                redeploy(available.getCheckSum(), idempotencyKey);
                 return Response.noContent().build();
             }
         }
         throw notFound("no version " + newVersion + " for " + getContextRoot());
     }
 
+    /** What would change, if the running artifact was replaced by that version */
+    @GET
+    @Path("diff")
+    public ArchiveDiff diff(@QueryParam("version") Version version) {
+        if (version == null)
+            throw badRequest("version missing");
+        for (VersionInfo available : getAvailableVersions())
+            if (available.getVersion().equals(version))
+                return artifactDiffs.diff(getCheckSum(), available.getCheckSum());
+        throw notFound("no version " + version + " for " + getContextRoot());
+    }
+
+    /** How long the recent deploys and redeploys took, to predict the next one */
+    @GET
+    @Path("durations")
+    @JsonIgnore
+    public DurationStatistics getDurations() {
+        DurationStatistics statistics = durations.statistics(getContextRoot());
+        if (statistics == null)
+            throw notFound("no durations recorded for " + getContextRoot());
+        return statistics;
+    }
+
+    /** The request rates and times over the last hour */
+    @GET
+    @Path("requests")
+    @JsonIgnore
+    public RequestTrend getRequests() {
+        RequestTrend trend = requestSeries.trend(getName());
+        if (trend == null)
+            throw notFound("no request statistics sampled for " + getName());
+        return trend;
+    }
+
     @GET
     @Path("checksum")
     @XmlElement
@@ -200,7 +478,9 @@ public class DeploymentResource implements Comparable<DeploymentResource> {
     @XmlElementWrapper
     public List<VersionInfo> getAvailableVersions() {
         if (deployment.getAvailableVersions() == null) {
-            List<VersionInfo> availableVersions = repository.availableVersionsFor(deployment.getCheckSum());
+            List<VersionInfo> availableVersions = new ArrayList<>();
+            for (VersionInfo available : repository.availableVersionsFor(deployment.getCheckSum()))
+                availableVersions.add(available.withEta(durations.eta(getContextRoot(), available.getVersion())));
             deployment = deployment.withAvailableVersions(availableVersions);
         }
         return deployment.getAvailableVersions();
@@ -1,6 +1,8 @@
 package com.github.t1.deployer.app;
 
+import static com.github.t1.deployer.app.Pagination.*;
 import static com.github.t1.deployer.model.Deployment.*;
+import static com.github.t1.deployer.tools.StatusDetails.*;
 
 import java.net.URI;
 import java.util.*;
@@ -13,12 +15,27 @@ import javax.ws.rs.core.*;
 import com.github.t1.deployer.container.DeploymentContainer;
 import com.github.t1.deployer.model.*;
 import com.github.t1.deployer.repository.Repository;
+import com.github.t1.deployer.tools.MappedList;
 
 @Boundary
 @Path("/deployments")
 public class Deployments {
     public static final String CONTEXT_ROOT = "context-root";
 
+    private static final Comparator<Deployment> BY_NAME = new Comparator<Deployment>() {
+        @Override
+        public int compare(Deployment left, Deployment right) {
+            return left.compareTo(right);
+        }
+    };
+
+    private static final Comparator<Deployment> BY_CONTEXT_ROOT = new Comparator<Deployment>() {
+        @Override
+        public int compare(Deployment left, Deployment right) {
+            return left.getContextRoot().getValue().compareToIgnoreCase(right.getContextRoot().getValue());
+        }
+    };
+
     private static UriBuilder baseBuilder(UriInfo uriInfo) {
         return uriInfo.getBaseUriBuilder().path(Deployments.class);
     }
@@ -47,20 +64,52 @@ public class Deployments {
     Instance<DeploymentResource> deploymentResources;
     @Context
     UriInfo uriInfo;
+    @Context
+    HttpHeaders headers;
 
     @GET
     @Path("*")
-    public List<Deployment> getAllDeployments() {
-        return getAllDeploymentsWithVersions();
+    public Response getAllDeployments( //
+            @QueryParam(FILTER) String filter, //
+            @QueryParam(SORT) String sort, //
+            @QueryParam(OFFSET) @DefaultValue("0") int offset, //
+            @QueryParam(LIMIT) Integer limit //
+    ) {
+        Slice<Deployment> slice = getDeployments(paging(headers, "name", filter, sort, offset, limit));
+        return response(uriInfo, slice, new GenericEntity<List<Deployment>>(slice.getElements()) {});
+    }
+
+    /** Filter, sort, and page the deployments before looking up their versions in the repository */
+    Slice<Deployment> getDeployments(Paging paging) {
+        List<Deployment> deployments = new ArrayList<>();
+        for (Deployment deployment : container.getAllDeployments())
+            if (paging.matches(deployment.getContextRoot(), deployment.getName()))
+                deployments.add(deployment);
+        paging.sort(deployments, order(paging));
+        Slice<Deployment> slice = paging.slice(deployments);
+        return slice.with(withVersions(slice.getElements()));
+    }
+
+    private Comparator<Deployment> order(Paging paging) {
+        if (!paging.isSorted() || "name".equals(paging.getSortProperty()))
+            return BY_NAME;
+        if ("contextRoot".equals(paging.getSortProperty()) || CONTEXT_ROOT.equals(paging.getSortProperty()))
+            return BY_CONTEXT_ROOT;
+        throw badRequest("can't sort deployments by '" + paging.getSortProperty() + "'");
     }
 
     @javax.enterprise.inject.Produces
     List<Deployment> getAllDeploymentsWithVersions() {
-        List<Deployment> deployments = new ArrayList<>();
-        for (Deployment deployment : container.getAllDeployments()) {
-            deployments.add(withVersion(deployment));
-        }
-        return deployments;
+        return withVersions(container.getAllDeployments());
+    }
+
+    private List<Deployment> withVersions(List<Deployment> deployments) {
+        return new MappedList<Deployment, Deployment>(deployments) {
+            @Override
+            protected Deployment map(Deployment deployment) {
+                return withVersion(deployment);
+            }
+        };
     }
 
     private Deployment withVersion(Deployment deployment) {
@@ -0,0 +1,44 @@
+package com.github.t1.deployer.app;
+
+import static java.nio.file.StandardCopyOption.*;
+
+import java.io.*;
+import java.nio.file.*;
+
+import lombok.extern.slf4j.Slf4j;
+
+import com.github.t1.deployer.model.CheckSum;
+import com.github.t1.deployer.repository.Repository;
+import com.github.t1.deployer.tools.Tracing;
+
+/** Artifacts downloaded to temporary files, so they can be inspected or read more than once */
+@Slf4j
+class Downloads {
+    /** The artifact in the local mount of the repository, or <code>null</code>, if it has to be downloaded */
+    static File local(Repository repository, CheckSum checkSum) {
+        Path path = repository.getLocalArtifactPath(checkSum);
+        return (path == null) ? null : path.toFile();
+    }
+
+    static File download(Repository repository, CheckSum checkSum) throws IOException {
+        File file = File.createTempFile("deployer-", ".tmp");
+        long start = System.nanoTime();
+        try (InputStream inputStream = repository.getArtifactInputStream(checkSum)) {
+            long bytes = Files.copy(inputStream, file.toPath(), REPLACE_EXISTING);
+            Tracing.download("download", start, bytes);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file.toPath());
+            throw e;
+        }
+        log.debug("downloaded {} to {}", checkSum, file);
+        return file;
+    }
+
+    static void delete(File file) {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            log.warn("can't delete downloaded artifact {}: {}", file, e.toString());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.t1.deployer.app;
+
+import static com.github.t1.deployer.tools.StatusDetails.*;
+import static java.util.concurrent.TimeUnit.*;
+import io.swagger.annotations.Api;
+
+import java.net.URI;
+import java.util.*;
+
+import javax.inject.Inject;
+import javax.ws.rs.*;
+import javax.ws.rs.core.*;
+import javax.xml.bind.DatatypeConverter;
+
+import com.github.t1.deployer.app.file.DeploymentHistory;
+import com.github.t1.deployer.model.*;
+
+/**
+ * The {@link DeploymentHistory history} of deployment operations. Times are milliseconds since the epoch or ISO 8601,
+ * e.g. <code>2016-03-01T02:10:00Z</code>. To roll back, post the action <code>rollback</code> to the deployment.
+ */
+@Api(tags = "history")
+@Boundary
+@Path("/history")
+public class History {
+    public static final String CONTEXT_ROOT = "context-root";
+    static final long DEFAULT_RANGE = DAYS.toMillis(30);
+
+    private static UriBuilder baseBuilder(UriInfo uriInfo) {
+        return uriInfo.getBaseUriBuilder().path(History.class);
+    }
+
+    public static URI base(UriInfo uriInfo) {
+        return baseBuilder(uriInfo).build();
+    }
+
+    public static URI path(UriInfo uriInfo, ContextRoot contextRoot) {
+        return baseBuilder(uriInfo).queryParam(CONTEXT_ROOT, contextRoot).build();
+    }
+
+    @Inject
+    DeploymentHistory history;
+
+    /** The entries, oldest first; by default of all context roots during the last 30 days */
+    @GET
+    public Response getEntries( //
+            @QueryParam(CONTEXT_ROOT) ContextRoot contextRoot, //
+            @QueryParam("from") String from, //
+            @QueryParam("to") String to //
+    ) {
+        long toTime = (to == null) ? System.currentTimeMillis() : time(to);
+        long fromTime = (from == null) ? toTime - DEFAULT_RANGE : time(from);
+        List<HistoryEntry> entries = history.entries(fromTime, toTime, contextRoot);
+        return Response.ok(new GenericEntity<List<HistoryEntry>>(entries) {}).build();
+    }
+
+    /** The latest successful entries of all context roots that were deployed at that time */
+    @GET
+    @Path("running")
+    public Response getRunningAt(@QueryParam("at") String at) {
+        if (at == null)
+            throw badRequest("at query parameter is missing");
+        List<HistoryEntry> entries = new ArrayList<>(history.runningAt(time(at)).values());
+        return Response.ok(new GenericEntity<List<HistoryEntry>>(entries) {}).build();
+    }
+
+    static long time(String value) {
+        try {
+            if (value.matches("\\d+"))
+                return Long.parseLong(value);
+            return DatatypeConverter.parseDateTime(value).getTimeInMillis();
+        } catch (IllegalArgumentException e) {
+            throw badRequest("invalid time '" + value + "': expected millis or ISO 8601");
+        }
+    }
+}
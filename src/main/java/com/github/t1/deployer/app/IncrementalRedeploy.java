@@ -0,0 +1,79 @@
+package com.github.t1.deployer.app;
+
+import java.io.*;
+import java.util.zip.*;
+
+import javax.inject.Inject;
+
+import lombok.extern.slf4j.Slf4j;
+
+import com.github.t1.deployer.container.DeploymentContainer;
+import com.github.t1.deployer.model.*;
+import com.github.t1.deployer.repository.Repository;
+
+/**
+ * Redeploy only the entries that differ between the running and the new artifact. If more than
+ * {@link #MAX_RATIO} of the new artifact would have to be transferred, or if the artifacts can't be compared, the whole
+ * archive is replaced instead.
+ */
+@Slf4j
+public class IncrementalRedeploy {
+    static final double MAX_RATIO = Double.parseDouble(System.getProperty("deployer.incremental.max-ratio", "0.5"));
+
+    @Inject
+    DeploymentContainer container;
+    @Inject
+    Repository repository;
+
+    /**
+     * @param targetFile
+     *            the artifact of the target, as fetched and inspected by the caller, who owns the file
+     * @return the diff that was applied, or <code>null</code>, if the artifacts couldn't be compared
+     */
+    public ArchiveDiff redeploy(Deployment running, Deployment target, File targetFile) {
+        try {
+            ArchiveDiff diff = patch(running, target, targetFile);
+            if (diff != null && diff.isIncremental())
+                return diff;
+            try (InputStream inputStream = new FileInputStream(targetFile)) {
+                container.redeploy(target, inputStream);
+            }
+            return diff;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private ArchiveDiff patch(Deployment running, Deployment target, File targetFile) throws IOException {
+        File runningFile;
+        try {
+            runningFile = download(running.getCheckSum());
+        } catch (RuntimeException e) {
+            log.info("can't download running {}; replace the whole archive: {}", running, e.toString());
+            return null;
+        }
+        try (ZipFile from = new ZipFile(runningFile); ZipFile to = new ZipFile(targetFile)) {
+            ArchiveDiff diff = ArchiveDiff.between(from, to);
+            if (!diff.isSmallerThan(MAX_RATIO)) {
+                log.info("diff too large; replace the whole archive: {}", diff);
+                return diff.withIncremental(false);
+            }
+            log.info("patch {}: {}", target, diff);
+            container.patch(target, diff, to);
+            return diff;
+        } catch (ZipException e) {
+            log.info("can't compare archives; replace the whole archive: {}", e.toString());
+            return null;
+        } finally {
+            Downloads.delete(runningFile);
+        }
+    }
+
+    private File download(CheckSum checkSum) {
+        try {
+            return Downloads.download(repository, checkSum);
+        } catch (IOException e) {
+            throw new RuntimeException("can't download " + checkSum, e);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.github.t1.deployer.app;
 
+import static com.github.t1.deployer.app.Pagination.*;
 import static com.github.t1.deployer.model.LoggerConfig.*;
 import static com.github.t1.log.LogLevel.*;
 
@@ -13,7 +14,7 @@ import javax.ws.rs.*;
 import javax.ws.rs.core.*;
 
 import com.github.t1.deployer.container.LoggerContainer;
-import com.github.t1.deployer.model.LoggerConfig;
+import com.github.t1.deployer.model.*;
 import com.github.t1.log.LogLevel;
 
 @Boundary
@@ -43,10 +44,18 @@ public class Loggers {
     Instance<LoggerResource> loggerResources;
     @Context
     UriInfo uriInfo;
+    @Context
+    HttpHeaders headers;
 
     @GET
-    public List<LoggerConfig> getAllLoggers() {
-        return container.getLoggers();
+    public Response getAllLoggers( //
+            @QueryParam(FILTER) String filter, //
+            @QueryParam(SORT) String sort, //
+            @QueryParam(OFFSET) @DefaultValue("0") int offset, //
+            @QueryParam(LIMIT) Integer limit //
+    ) {
+        Slice<LoggerConfig> slice = container.getLoggers(paging(headers, "category", filter, sort, offset, limit));
+        return response(uriInfo, slice, new GenericEntity<List<LoggerConfig>>(slice.getElements()) {});
     }
 
     @GET
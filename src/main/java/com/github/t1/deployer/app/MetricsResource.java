@@ -0,0 +1,38 @@
+package com.github.t1.deployer.app;
+
+import javax.inject.Inject;
+import javax.ws.rs.*;
+
+import com.github.t1.deployer.container.*;
+import com.github.t1.deployer.tools.Metrics;
+
+/** The {@link Metrics} in the Prometheus text exposition format, plus the current state of the queues */
+@Boundary
+@Path("/metrics")
+public class MetricsResource {
+    static final String TEXT_FORMAT = "text/plain; version=0.0.4; charset=utf-8";
+
+    @Inject
+    DeploymentScheduler scheduler;
+    @Inject
+    AuditLog auditLog;
+
+    @GET
+    @Produces(TEXT_FORMAT)
+    public String getMetrics() {
+        StringBuilder out = new StringBuilder(Metrics.export());
+        Metrics.writeGauge(out, "deployer_scheduler_queue_depth", "operations waiting for their context root or a slot",
+                scheduler.getQueueDepth());
+        Metrics.writeGauge(out, "deployer_scheduler_running", "operations currently running", scheduler.getRunning());
+        Metrics.writeCounter(out, "deployer_scheduler_completed_total", "operations completed successfully",
+                scheduler.getCompleted());
+        Metrics.writeGauge(out, "deployer_audit_queue_depth", "audit events waiting to be written",
+                auditLog.getQueueDepth());
+        Metrics.writeGauge(out, "deployer_audit_queue_capacity", "maximum audit events waiting",
+                auditLog.getCapacity());
+        Metrics.writeCounter(out, "deployer_audit_written_total", "audit events written", auditLog.getWritten());
+        Metrics.writeCounter(out, "deployer_audit_dropped_total", "audit events dropped, as the queue was full",
+                auditLog.getDropped());
+        return out.toString();
+    }
+}
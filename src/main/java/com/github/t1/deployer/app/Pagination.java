@@ -0,0 +1,73 @@
+package com.github.t1.deployer.app;
+
+import static com.github.t1.deployer.tools.StatusDetails.*;
+import static javax.ws.rs.core.MediaType.*;
+
+import java.util.*;
+
+import javax.ws.rs.core.*;
+
+import com.github.t1.deployer.model.*;
+
+/**
+ * The query parameters for a {@link Paging} and the <code>Link</code> headers for the resulting {@link Slice}. HTML
+ * pages get a default limit and sort order, as people don't want to scroll through hundreds of unsorted entries.
+ */
+class Pagination {
+    static final String FILTER = "filter";
+    static final String SORT = "sort";
+    static final String OFFSET = "offset";
+    static final String LIMIT = "limit";
+
+    static final int HTML_PAGE_SIZE = 50;
+
+    static Paging paging(HttpHeaders headers, String defaultHtmlSort, String filter, String sort, int offset,
+            Integer limit) {
+        if (offset < 0)
+            throw badRequest("offset must not be negative: " + offset);
+        if (limit != null && limit < 1)
+            throw badRequest("limit must be positive: " + limit);
+        if (isHtml(headers)) {
+            if (sort == null)
+                sort = defaultHtmlSort;
+            if (limit == null)
+                limit = HTML_PAGE_SIZE;
+        }
+        return new Paging(filter, sort, offset, limit);
+    }
+
+    private static boolean isHtml(HttpHeaders headers) {
+        if (headers == null)
+            return false;
+        List<MediaType> acceptable = headers.getAcceptableMediaTypes();
+        return !acceptable.isEmpty() && !acceptable.get(0).isWildcardType()
+                && TEXT_HTML_TYPE.isCompatible(acceptable.get(0));
+    }
+
+    static <T> Response response(UriInfo uriInfo, Slice<T> slice, GenericEntity<List<T>> entity) {
+        List<Link> links = new ArrayList<>();
+        if (slice.hasPrevious()) {
+            links.add(link(uriInfo, slice, 0, "first"));
+            links.add(link(uriInfo, slice, Math.max(0, slice.getOffset() - limit(slice)), "prev"));
+        }
+        if (slice.hasNext()) {
+            links.add(link(uriInfo, slice, slice.getOffset() + slice.getLimit(), "next"));
+            links.add(link(uriInfo, slice, (slice.getTotal() - 1) / slice.getLimit() * slice.getLimit(), "last"));
+        }
+        return Response.ok(entity) //
+                .links(links.toArray(new Link[links.size()])) //
+                .header("X-Total-Count", slice.getTotal()) //
+                .build();
+    }
+
+    private static int limit(Slice<?> slice) {
+        return (slice.getLimit() == null) ? slice.getOffset() : slice.getLimit();
+    }
+
+    private static Link link(UriInfo uriInfo, Slice<?> slice, int offset, String rel) {
+        UriBuilder uri = uriInfo.getRequestUriBuilder().replaceQueryParam(OFFSET, offset);
+        if (slice.getLimit() != null)
+            uri.replaceQueryParam(LIMIT, slice.getLimit());
+        return Link.fromUriBuilder(uri).rel(rel).build();
+    }
+}
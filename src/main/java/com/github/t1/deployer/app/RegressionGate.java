@@ -0,0 +1,169 @@
+package com.github.t1.deployer.app;
+
+import java.security.Principal;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import com.github.t1.deployer.app.file.DeploymentHistory;
+import com.github.t1.deployer.container.StatisticsContainer;
+import com.github.t1.deployer.model.*;
+
+/**
+ * Watches a redeployed application for <code>deployer.regression-gate.window-seconds</code> (default 0, i.e. the gate
+ * is off), and decides if it regressed compared to the version running before:
+ * <ul>
+ * <li>if the mean request time is more than <code>deployer.regression-gate.latency-factor</code> (default 1.5) times
+ * the mean of the previous version, or</li>
+ * <li>only if <code>deployer.regression-gate.error-rate-increase</code> is set (e.g. 0.01, i.e. one percentage point):
+ * if the rate of server errors is more than that above the rate before. As the container counts server errors only
+ * for the whole server, other applications could fail the gate, so this criterion is off by default; the rates are
+ * recorded nonetheless.</li>
+ * </ul>
+ * With fewer than <code>deployer.regression-gate.min-requests</code> (default 20) requests before or within the
+ * window, there's nothing to compare, so it passes. The decision and the numbers are recorded in the
+ * {@link DeploymentHistory history} as a <code>regression-gate</code> entry.
+ * <p/>
+ * The window is {@link #observe(Deployment, RequestStatistics, Runnable) observed} in the managed executor, so the
+ * redeploy responds as soon as the new version is deployed, and the rollback runs later, if at all. Only redeploys
+ * of the {@link DeploymentResource} are gated: a rollback of a redeploy from the
+ * {@link com.github.t1.deployer.app.file.DeploymentListFile deployment list file} would be undone by the next check
+ * of the file, and a {@link Releases release} of several applications can't be rolled back for one of them alone.
+ * <p/>
+ * The statistics of the previous version are what the container counted since it was deployed, sampled just before
+ * it's replaced; the requests of the {@link WarmUp warm-up} are not counted in the window.
+ */
+@Slf4j
+@ApplicationScoped
+public class RegressionGate {
+    static final String OPERATION = "regression-gate";
+
+    @Value
+    static class Decision {
+        boolean regressed;
+        String numbers;
+    }
+
+    @Inject
+    StatisticsContainer container;
+    @Inject
+    DeploymentHistory history;
+    @Inject
+    Principal principal;
+    @Resource(lookup = "java:comp/DefaultManagedExecutorService")
+    ExecutorService executor;
+
+    long windowMillis = Long.getLong("deployer.regression-gate.window-seconds", 0) * 1000;
+    double latencyFactor = Double.parseDouble(System.getProperty("deployer.regression-gate.latency-factor", "1.5"));
+    /** <code>null</code> to not roll back on server errors */
+    Double errorRateIncrease = optionalDouble("deployer.regression-gate.error-rate-increase");
+    long minRequests = Long.getLong("deployer.regression-gate.min-requests", 20);
+
+    private static Double optionalDouble(String name) {
+        String value = System.getProperty(name);
+        return (value == null) ? null : Double.valueOf(value);
+    }
+
+    public boolean isEnabled() {
+        return windowMillis > 0;
+    }
+
+    /** @return the statistics before the redeploy, or <code>null</code>, if the gate is off or there are none */
+    public RequestStatistics baseline(Deployment deployment) {
+        return isEnabled() ? container.getRequestStatistics().get(deployment.getName()) : null;
+    }
+
+    /**
+     * Observe the freshly redeployed application for the window in the background, record the decision in the
+     * history, and run the rollback, if it regressed.
+     */
+    public void observe(final Deployment deployment, final RequestStatistics baseline, final Runnable rollback) {
+        final String principalName = principal.getName();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (regressed(deployment, baseline, principalName))
+                    rollback.run();
+            }
+        });
+    }
+
+    /** @return <code>true</code>, if it should be rolled back */
+    boolean regressed(Deployment deployment, RequestStatistics baseline, String principalName) {
+        long start = System.currentTimeMillis();
+        RequestStatistics from = container.getRequestStatistics().get(deployment.getName());
+        try {
+            Thread.sleep(windowMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("observation of {} interrupted; let it pass", deployment);
+            return false;
+        }
+        HistoryEntry previous = history.latest(deployment.getContextRoot());
+        if (previous != null && !deployment.getCheckSum().equals(previous.getNewCheckSum())) {
+            log.info("{} was replaced within the window; nothing to decide", deployment);
+            return false;
+        }
+        RequestStatistics to = container.getRequestStatistics().get(deployment.getName());
+        Decision decision = (from == null || to == null) //
+                ? new Decision(false, "no statistics for " + deployment.getName()) //
+                : decide(baseline, from, to);
+
+        boolean rollback = decision.isRegressed() && previous != null && previous.isRollbackPossible();
+        String outcome = (decision.isRegressed() ? "regressed" : "passed") + ": " + decision.getNumbers()
+                + (rollback ? "; roll back" : decision.isRegressed() ? "; nothing to roll back to" : "");
+        if (decision.isRegressed())
+            log.warn("{} {}", deployment, outcome);
+        else
+            log.info("{} {}", deployment, outcome);
+        history.append(HistoryEntry.builder() //
+                .timestamp(start) //
+                .principal(principalName) //
+                .operation(OPERATION) //
+                .contextRoot(deployment.getContextRoot()) //
+                .name(deployment.getName()) //
+                .oldCheckSum((previous == null) ? null : previous.getOldCheckSum()) //
+                .oldVersion((previous == null) ? null : previous.getOldVersion()) //
+                .newCheckSum(deployment.getCheckSum()) //
+                .newVersion(deployment.getVersion()) //
+                .duration(System.currentTimeMillis() - start) //
+                .outcome(outcome) //
+                .build());
+        return rollback;
+    }
+
+    /**
+     * @param baseline
+     *            the previous version, counted since it was deployed
+     * @param from
+     *            the new version, at the start of the window
+     * @param to
+     *            the new version, at the end of the window
+     */
+    Decision decide(RequestStatistics baseline, RequestStatistics from, RequestStatistics to) {
+        long requests = to.getRequestCount() - from.getRequestCount();
+        if (baseline.getRequestCount() < minRequests || requests < minRequests)
+            return new Decision(false, "too few requests to compare: " + baseline.getRequestCount() + " before, "
+                    + requests + " within " + windowMillis + " ms");
+        double meanBefore = (double) baseline.getTotalRequestTime() / baseline.getRequestCount();
+        double meanAfter = (double) (to.getTotalRequestTime() - from.getTotalRequestTime()) / requests;
+        double errorsBefore = rate(baseline.getServerErrorCount(), baseline.getServerRequestCount());
+        double errorsAfter = rate(to.getServerErrorCount() - from.getServerErrorCount(),
+                to.getServerRequestCount() - from.getServerRequestCount());
+        boolean slower = meanAfter > latencyFactor * Math.max(1, meanBefore);
+        boolean failing = errorRateIncrease != null && errorsAfter > errorsBefore + errorRateIncrease;
+        return new Decision(slower || failing, String.format(Locale.US,
+                "%d requests, mean %.1f ms (before %.1f ms), server errors %.2f%% (before %.2f%%)", //
+                requests, meanAfter, meanBefore, errorsAfter * 100, errorsBefore * 100));
+    }
+
+    private static double rate(long count, long total) {
+        return (total == 0) ? 0 : (double) count / total;
+    }
+}
@@ -0,0 +1,373 @@
+package com.github.t1.deployer.app;
+
+import static com.github.t1.deployer.model.ReleaseAction.Type.*;
+import static com.github.t1.deployer.tools.StatusDetails.*;
+import static javax.ws.rs.core.Response.Status.*;
+import io.swagger.annotations.Api;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.ws.rs.*;
+import javax.ws.rs.core.*;
+
+import lombok.extern.slf4j.Slf4j;
+
+import com.github.t1.deployer.container.*;
+import com.github.t1.deployer.model.*;
+import com.github.t1.deployer.repository.*;
+import com.github.t1.deployer.tools.Tracing;
+
+/**
+ * Deploy, redeploy, and undeploy several applications together. All artifacts are downloaded in parallel, before the
+ * whole release is executed as one plan: if one action fails, all are rolled back.
+ * <p/>
+ * If entries {@link ReleaseEntry#getDependsOn() depend on} others, the release is executed in levels: one plan per
+ * level, where the container starts all deployments of a level concurrently, and each level only after the previous
+ * one has succeeded. Undeploys run in the reverse order, so a context root is removed only after the ones that depend
+ * on it. Cycles are rejected before anything is done. If a level fails, the container rolls back that level, and we
+ * roll back the levels that had already succeeded, last first: the previous artifacts are downloaded and redeployed,
+ * and the added deployments are undeployed. Only if that fails, too, some actions remain executed.
+ * <p/>
+ * Every level takes the {@link DeploymentScheduler scheduler} lanes of all its context roots, so it runs neither
+ * concurrently with nor in between other operations on them.
+ */
+@Api(tags = "releases")
+@Slf4j
+@Boundary
+@Path("/releases")
+public class Releases {
+    @Inject
+    DeploymentContainer container;
+    @Inject
+    DeploymentScheduler scheduler;
+    @Inject
+    Repository repository;
+    @Inject
+    ArtifactInspector inspector;
+    @Resource(lookup = "java:comp/DefaultManagedExecutorService")
+    ExecutorService executor;
+
+    @POST
+    public Response release(List<ReleaseEntry> entries) {
+        List<List<ContextRoot>> order = order(entries);
+        Map<ContextRoot, Deployment> deployed = deployed();
+        Map<ContextRoot, ReleaseAction> actions = plan(entries, deployed);
+        List<ReleaseAction> results = new ArrayList<>();
+        if (!actions.isEmpty()) {
+            Map<CheckSum, File> downloads = download(actions.values());
+            try {
+                actions = inspect(actions, downloads);
+                List<List<ReleaseAction>> levels = levels(order, actions);
+                for (List<ReleaseAction> level : execute(levels, downloads, deployed))
+                    results.addAll(level);
+            } finally {
+                delete(downloads);
+            }
+        }
+        return Response.status(isExecuted(results) ? OK : CONFLICT) //
+                .entity(new GenericEntity<List<ReleaseAction>>(results) {}) //
+                .build();
+    }
+
+    /**
+     * Fail before anything is released, if the artifacts would take a context root of another deployment or of each
+     * other. Deployments that are replaced or undeployed by this release free their context roots.
+     *
+     * @return the actions with the context roots of the artifacts as inspected, instead of as guessed by the
+     *         repository, unless there is more than one, i.e. for ears
+     */
+    private Map<ContextRoot, ReleaseAction> inspect(Map<ContextRoot, ReleaseAction> actions,
+            Map<CheckSum, File> downloads) {
+        Set<DeploymentName> released = new HashSet<>();
+        for (ReleaseAction action : actions.values())
+            released.add(action.getDeployment().getName());
+        Map<ContextRoot, DeploymentName> owners = new HashMap<>();
+        for (Deployment deployment : container.getAllDeployments())
+            if (!released.contains(deployment.getName()))
+                owners.put(deployment.getContextRoot(), deployment.getName());
+        Map<ContextRoot, ReleaseAction> inspected = new LinkedHashMap<>();
+        for (Map.Entry<ContextRoot, ReleaseAction> entry : actions.entrySet()) {
+            ReleaseAction action = entry.getValue();
+            inspected.put(entry.getKey(), action);
+            if (action.getType() == UNDEPLOY)
+                continue;
+            Deployment deployment = action.getDeployment();
+            CheckSum checkSum = deployment.getCheckSum();
+            ArtifactInfo info = inspector.inspect(checkSum, deployment.getName(), downloads.get(checkSum));
+            if (info == null)
+                continue;
+            for (ContextRoot contextRoot : info.getContextRoots()) {
+                DeploymentName owner = owners.put(contextRoot, deployment.getName());
+                if (owner != null && !owner.equals(deployment.getName()))
+                    throw webException(CONFLICT, "context root " + contextRoot + " of " + deployment.getName()
+                            + " is already used by " + owner);
+            }
+            if (info.getContextRoots().size() == 1)
+                inspected.put(entry.getKey(), new ReleaseAction(action.getType(),
+                        deployment.withContextRoot(info.getContextRoots().get(0))));
+        }
+        return inspected;
+    }
+
+    private Map<ContextRoot, Deployment> deployed() {
+        Map<ContextRoot, Deployment> deployed = new HashMap<>();
+        for (Deployment deployment : container.getAllDeployments())
+            deployed.put(deployment.getContextRoot(), deployment);
+        return deployed;
+    }
+
+    Map<ContextRoot, ReleaseAction> plan(List<ReleaseEntry> entries) {
+        return plan(entries, deployed());
+    }
+
+    /** The actions required to get from the deployments in the container to the entries of the release */
+    private Map<ContextRoot, ReleaseAction> plan(List<ReleaseEntry> entries, Map<ContextRoot, Deployment> deployed) {
+        Set<ContextRoot> seen = new HashSet<>();
+        Map<ContextRoot, ReleaseAction> actions = new LinkedHashMap<>();
+        for (ReleaseEntry entry : entries) {
+            ContextRoot contextRoot = entry.getContextRoot();
+            if (contextRoot == null)
+                throw badRequest("context root missing in " + entry);
+            if (!seen.add(contextRoot))
+                throw badRequest("context root " + contextRoot + " is in the release more than once");
+            Deployment current = deployed.get(contextRoot);
+            if (entry.isUndeploy()) {
+                if (entry.getCheckSum() != null || entry.getVersion() != null)
+                    throw badRequest("undeploy together with checksum or version in " + entry);
+                if (current == null)
+                    throw notFound("no deployment with context root [" + contextRoot + "] to undeploy");
+                actions.put(contextRoot, new ReleaseAction(UNDEPLOY, current));
+                continue;
+            }
+            if (entry.getCheckSum() == null && entry.getVersion() == null)
+                throw badRequest("checksum, version, or undeploy missing in " + entry);
+            CheckSum checkSum = checkSum(entry, current);
+            if (current != null && checkSum.equals(current.getCheckSum())) {
+                log.debug("{} is already deployed -> skip", current);
+                continue;
+            }
+            Deployment deployment = repository.getByChecksum(checkSum);
+            if (deployment == null)
+                throw notFound("no deployment with checksum " + checkSum + " found in repository");
+            actions.put(contextRoot, new ReleaseAction((current == null) ? DEPLOY : REDEPLOY, deployment));
+        }
+        return actions;
+    }
+
+    /** The levels of the dependencies between all entries; without dependencies, that's just one level. */
+    private List<List<ContextRoot>> order(List<ReleaseEntry> entries) {
+        DependencyGraph<ContextRoot> graph = new DependencyGraph<>();
+        try {
+            for (ReleaseEntry entry : entries)
+                graph.node(entry.getContextRoot(), entry.getDependsOn());
+            return graph.levels();
+        } catch (IllegalArgumentException e) {
+            throw badRequest(e.getMessage());
+        }
+    }
+
+    /**
+     * The actions in that order, but the undeploys in the reverse order; levels of entries that need no action are
+     * skipped
+     */
+    private List<List<ReleaseAction>> levels(List<List<ContextRoot>> order, Map<ContextRoot, ReleaseAction> actions) {
+        List<List<ReleaseAction>> levels = new ArrayList<>();
+        for (int i = 0; i < order.size(); i++)
+            levels.add(new ArrayList<ReleaseAction>());
+        for (int i = 0; i < order.size(); i++) {
+            for (ContextRoot contextRoot : order.get(i)) {
+                ReleaseAction action = actions.get(contextRoot);
+                if (action != null)
+                    levels.get((action.getType() == UNDEPLOY) ? order.size() - 1 - i : i).add(action);
+            }
+        }
+        for (Iterator<List<ReleaseAction>> iterator = levels.iterator(); iterator.hasNext();)
+            if (iterator.next().isEmpty())
+                iterator.remove();
+        return levels;
+    }
+
+    private CheckSum checkSum(ReleaseEntry entry, Deployment current) {
+        if (entry.getCheckSum() != null)
+            return entry.getCheckSum();
+        if (current == null)
+            throw badRequest("no deployment with context root [" + entry.getContextRoot() + "] to look up version "
+                    + entry.getVersion() + "; use a checksum instead");
+        try {
+            return repository.getChecksumForVersion(current, entry.getVersion());
+        } catch (IllegalArgumentException e) {
+            throw notFound(e.getMessage());
+        }
+    }
+
+    /** The downloads run in other threads, so they are traced here as one phase */
+    private Map<CheckSum, File> download(Collection<ReleaseAction> actions) {
+        long start = System.nanoTime();
+        Map<CheckSum, Future<File>> futures = new LinkedHashMap<>();
+        for (ReleaseAction action : actions) {
+            final CheckSum checkSum = action.getDeployment().getCheckSum();
+            if (action.getType() != UNDEPLOY && !futures.containsKey(checkSum))
+                futures.put(checkSum, executor.submit(new Callable<File>() {
+                    @Override
+                    public File call() throws IOException {
+                        return Downloads.download(repository, checkSum);
+                    }
+                }));
+        }
+        Map<CheckSum, File> downloads = new LinkedHashMap<>();
+        RuntimeException failure = null;
+        for (Map.Entry<CheckSum, Future<File>> entry : futures.entrySet()) {
+            try {
+                downloads.put(entry.getKey(), entry.getValue().get());
+            } catch (ExecutionException e) {
+                if (failure == null)
+                    failure = new RuntimeException("failed to download " + entry.getKey(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (failure == null)
+                    failure = new RuntimeException("interrupted while downloading " + entry.getKey(), e);
+            }
+        }
+        long bytes = 0;
+        for (File file : downloads.values())
+            bytes += file.length();
+        Tracing.download("download", start, bytes);
+        if (failure != null) {
+            delete(downloads);
+            throw failure;
+        }
+        return downloads;
+    }
+
+    /** The levels with their outcomes; after a failure, the following levels are skipped, the previous rolled back */
+    private List<List<ReleaseAction>> execute(List<List<ReleaseAction>> levels, Map<CheckSum, File> downloads,
+            Map<ContextRoot, Deployment> deployed) {
+        List<List<ReleaseAction>> results = new ArrayList<>();
+        try {
+            for (List<ReleaseAction> level : levels) {
+                if (results.isEmpty() || isExecuted(results.get(results.size() - 1))) {
+                    results.add(scheduled(level, downloads));
+                } else {
+                    log.info("skip {} actions after failure", level.size());
+                    List<ReleaseAction> skipped = new ArrayList<>();
+                    for (ReleaseAction action : level)
+                        skipped.add(action.withOutcome("NOT_EXECUTED"));
+                    results.add(skipped);
+                }
+            }
+        } catch (RuntimeException e) {
+            rollBack(results, deployed);
+            throw e;
+        }
+        if (!isExecuted(results.get(results.size() - 1)))
+            rollBack(results, deployed);
+        return results;
+    }
+
+    /** Roll back the levels that have been executed, the last first */
+    private void rollBack(List<List<ReleaseAction>> results, Map<ContextRoot, Deployment> deployed) {
+        for (int i = results.size() - 1; i >= 0; i--)
+            if (isExecuted(results.get(i)))
+                results.set(i, rollBackLevel(results.get(i), deployed));
+    }
+
+    private List<ReleaseAction> rollBackLevel(List<ReleaseAction> level, Map<ContextRoot, Deployment> deployed) {
+        log.info("roll back {} actions", level.size());
+        List<ReleaseAction> inverse = new ArrayList<>();
+        for (ReleaseAction action : level)
+            inverse.add(inverse(action, deployed));
+        Map<CheckSum, File> downloads = new HashMap<>();
+        List<ReleaseAction> results = new ArrayList<>();
+        try {
+            for (ReleaseAction action : inverse) {
+                CheckSum checkSum = action.getDeployment().getCheckSum();
+                if (action.getType() != UNDEPLOY && !downloads.containsKey(checkSum))
+                    downloads.put(checkSum, Downloads.download(repository, checkSum));
+            }
+            List<ReleaseAction> rolledBack = scheduled(inverse, downloads);
+            for (int i = 0; i < level.size(); i++)
+                results.add(rolledBack.get(i).isExecuted() ? level.get(i).withOutcome("ROLLED_BACK") //
+                        : level.get(i).withMessage("rollback failed: " + rolledBack.get(i).getMessage()));
+        } catch (IOException | RuntimeException e) {
+            log.error("can't roll back " + level, e);
+            results.clear();
+            for (ReleaseAction action : level)
+                results.add(action.withMessage("rollback failed: " + e));
+        } finally {
+            delete(downloads);
+        }
+        return results;
+    }
+
+    /**
+     * The action that reverts the action to the deployment that was there before the release; a redeploy replaces the
+     * deployment with the same name, which may have had another context root.
+     */
+    private ReleaseAction inverse(ReleaseAction action, Map<ContextRoot, Deployment> deployed) {
+        Deployment previous = null;
+        for (Deployment deployment : deployed.values())
+            if (deployment.getName().equals(action.getDeployment().getName()))
+                previous = deployment;
+        switch (action.getType()) {
+            case DEPLOY:
+                return new ReleaseAction(UNDEPLOY, action.getDeployment());
+            case REDEPLOY:
+                return new ReleaseAction(REDEPLOY, previous);
+            case UNDEPLOY:
+                return new ReleaseAction(DEPLOY, previous);
+        }
+        throw new UnsupportedOperationException("can't roll back " + action.getType());
+    }
+
+    /** Take the lanes of all context roots of the level, so no other operation on them runs meanwhile */
+    private List<ReleaseAction> scheduled(final List<ReleaseAction> level, final Map<CheckSum, File> downloads) {
+        List<ContextRoot> contextRoots = new ArrayList<>();
+        for (ReleaseAction action : level)
+            contextRoots.add(action.getDeployment().getContextRoot());
+        final List<ReleaseAction> results = new ArrayList<>();
+        scheduler.run(contextRoots, new Runnable() {
+            @Override
+            public void run() {
+                results.addAll(release(level, downloads));
+            }
+        });
+        return results;
+    }
+
+    private List<ReleaseAction> release(List<ReleaseAction> actions, Map<CheckSum, File> downloads) {
+        Map<CheckSum, InputStream> artifacts = new HashMap<>();
+        try {
+            for (ReleaseAction action : actions) {
+                CheckSum checkSum = action.getDeployment().getCheckSum();
+                if (action.getType() != UNDEPLOY && !artifacts.containsKey(checkSum))
+                    artifacts.put(checkSum, new FileInputStream(downloads.get(checkSum)));
+            }
+            return container.release(actions, artifacts);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            for (InputStream artifact : artifacts.values())
+                try {
+                    artifact.close();
+                } catch (IOException e) {
+                    log.warn("can't close artifact: {}", e.toString());
+                }
+        }
+    }
+
+    private void delete(Map<CheckSum, File> downloads) {
+        for (File file : downloads.values())
+            Downloads.delete(file);
+    }
+
+    private boolean isExecuted(List<ReleaseAction> results) {
+        for (ReleaseAction result : results)
+            if (result.getOutcome() != null && !result.isExecuted())
+                return false;
+        return true;
+    }
+}
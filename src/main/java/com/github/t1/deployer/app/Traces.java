@@ -0,0 +1,57 @@
+package com.github.t1.deployer.app;
+
+import static com.github.t1.deployer.tools.StatusDetails.*;
+import io.swagger.annotations.Api;
+
+import java.net.URI;
+import java.util.*;
+
+import javax.inject.Inject;
+import javax.ws.rs.*;
+import javax.ws.rs.core.*;
+
+import com.github.t1.deployer.container.OperationTraces;
+import com.github.t1.deployer.model.*;
+
+/**
+ * The {@link OperationTraces traces} of the recent deployment operations, with the time and bytes of every phase,
+ * e.g. to find out afterwards why a deploy was slow. They are kept only in memory, so they are lost on restart.
+ */
+@Api(tags = "traces")
+@Boundary
+@Path("/traces")
+public class Traces {
+    private static UriBuilder baseBuilder(UriInfo uriInfo) {
+        return uriInfo.getBaseUriBuilder().path(Traces.class);
+    }
+
+    public static URI base(UriInfo uriInfo) {
+        return baseBuilder(uriInfo).build();
+    }
+
+    public static URI path(UriInfo uriInfo, long id) {
+        return baseBuilder(uriInfo).path(Long.toString(id)).build();
+    }
+
+    @Inject
+    OperationTraces traces;
+
+    /** Oldest first; optionally only those that involve that context root */
+    @GET
+    public Response getTraces(@QueryParam(History.CONTEXT_ROOT) ContextRoot contextRoot) {
+        List<OperationTrace> result = new ArrayList<>();
+        for (OperationTrace trace : traces.getAll())
+            if (contextRoot == null || trace.getContextRoots().contains(contextRoot))
+                result.add(trace);
+        return Response.ok(new GenericEntity<List<OperationTrace>>(result) {}).build();
+    }
+
+    @GET
+    @Path("{id}")
+    public OperationTrace getTrace(@PathParam("id") long id) {
+        OperationTrace trace = traces.get(id);
+        if (trace == null)
+            throw notFound("no trace " + id + "; only the last " + traces.getCapacity() + " are kept");
+        return trace;
+    }
+}
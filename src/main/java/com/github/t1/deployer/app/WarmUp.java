@@ -0,0 +1,212 @@
+package com.github.t1.deployer.app;
+
+import static java.util.concurrent.TimeUnit.*;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+
+import lombok.extern.slf4j.Slf4j;
+
+import com.github.t1.deployer.model.*;
+import com.github.t1.deployer.tools.Tracing;
+
+/**
+ * Sends requests to a freshly deployed application, so the class loading, JIT compiling, and lazy initialization are
+ * done before the deployment operation is reported as done, and not by the first users.
+ * <p/>
+ * Only context roots with the system property <code>deployer.warm-up.paths.&lt;context-root&gt;</code> are warmed up,
+ * e.g. <code>deployer.warm-up.paths.shop=/,/api/products</code>. Every round requests each path
+ * <code>deployer.warm-up.concurrency</code> (default 4) times concurrently from
+ * <code>deployer.warm-up.base-uri</code> (default <code>http://localhost:8080</code>). It stops, when the 95th
+ * percentile of a round is within <code>deployer.warm-up.tolerance</code> (default 0.1, i.e. 10%) of the previous
+ * round, after <code>deployer.warm-up.rounds</code> (default 20), or after <code>deployer.warm-up.budget-millis</code>
+ * (default 60000). A warm-up never fails the operation.
+ * <p/>
+ * The deployment is already active while it's warmed up, so users can reach the application then, too, and get the slow
+ * responses a warm-up is meant to spare them. It runs outside of any transaction, but still within the
+ * {@link com.github.t1.deployer.container.DeploymentScheduler scheduler} lane of the operation, so the next operation
+ * on the context root waits for it. The context roots of a release are warmed up concurrently within one budget.
+ */
+@Slf4j
+@ApplicationScoped
+public class WarmUp {
+    static final String PATHS_PROPERTY = "deployer.warm-up.paths.";
+
+    @Resource(lookup = "java:comp/DefaultManagedExecutorService")
+    ExecutorService executor;
+
+    URI baseUri = URI.create(System.getProperty("deployer.warm-up.base-uri", "http://localhost:8080"));
+    int concurrency = Integer.getInteger("deployer.warm-up.concurrency", 4);
+    int maxRounds = Integer.getInteger("deployer.warm-up.rounds", 20);
+    long budgetMillis = Long.getLong("deployer.warm-up.budget-millis", 60000);
+    double tolerance = Double.parseDouble(System.getProperty("deployer.warm-up.tolerance", "0.1"));
+
+    /** @return <code>null</code>, if there are no paths configured for that context root */
+    public WarmUpResult warmUp(ContextRoot contextRoot) {
+        List<WarmUpResult> results = warmUp(Collections.singletonList(contextRoot));
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    /**
+     * Warm up all context roots concurrently: every round sends the requests to all of them that haven't settled, yet.
+     * They share the one budget.
+     *
+     * @return the results of the context roots that have paths configured
+     */
+    public List<WarmUpResult> warmUp(List<ContextRoot> contextRoots) {
+        long start = System.nanoTime();
+        long deadline = start + MILLISECONDS.toNanos(budgetMillis);
+        List<Progress> all = new ArrayList<>();
+        for (ContextRoot contextRoot : contextRoots) {
+            List<URI> uris = uris(contextRoot);
+            if (!uris.isEmpty())
+                all.add(new Progress(contextRoot, uris));
+        }
+        List<Progress> open = new ArrayList<>(all);
+        while (!open.isEmpty() && System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+            Map<Progress, List<Future<Long>>> futures = new LinkedHashMap<>();
+            for (Progress progress : open)
+                futures.put(progress, submit(progress.uris, deadline));
+            for (Map.Entry<Progress, List<Future<Long>>> entry : futures.entrySet()) {
+                Progress progress = entry.getKey();
+                if (progress.add(collect(entry.getValue(), deadline))) {
+                    Tracing.phase("warm-up:" + progress.contextRoot, start);
+                    progress.duration = NANOSECONDS.toMillis(System.nanoTime() - start);
+                    open.remove(progress);
+                }
+            }
+        }
+        for (Progress progress : open) {
+            Tracing.phase("warm-up:" + progress.contextRoot, start);
+            progress.duration = NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+        List<WarmUpResult> results = new ArrayList<>();
+        for (Progress progress : all) {
+            WarmUpResult result = new WarmUpResult(progress.contextRoot, progress.p95s.size(), progress.requests,
+                    progress.errors, progress.p95s, progress.stable, progress.duration);
+            if (result.isStable())
+                log.info("warmed up {}: {}", progress.contextRoot, result);
+            else
+                log.warn("warm-up of {} didn't settle: {}", progress.contextRoot, result);
+            results.add(result);
+        }
+        return results;
+    }
+
+    /** The rounds of one context root, so far */
+    private class Progress {
+        private final ContextRoot contextRoot;
+        private final List<URI> uris;
+        private final List<Long> p95s = new ArrayList<>();
+        private int requests;
+        private int errors;
+        private boolean stable;
+        private long duration;
+
+        Progress(ContextRoot contextRoot, List<URI> uris) {
+            this.contextRoot = contextRoot;
+            this.uris = uris;
+        }
+
+        /** @return is it done, i.e. stable, out of rounds, or did all requests fail? */
+        boolean add(Round round) {
+            requests += round.latencies.length + round.errors;
+            errors += round.errors;
+            if (round.latencies.length == 0)
+                return true;
+            long p95 = round.p95();
+            stable = !p95s.isEmpty() && Math.abs(p95 - last(p95s)) <= tolerance * last(p95s);
+            p95s.add(p95);
+            return stable || p95s.size() >= maxRounds;
+        }
+    }
+
+    private List<URI> uris(ContextRoot contextRoot) {
+        List<URI> uris = new ArrayList<>();
+        String paths = System.getProperty(PATHS_PROPERTY + contextRoot);
+        if (paths == null)
+            return uris;
+        for (String path : paths.split(",")) {
+            path = path.trim();
+            if (!path.isEmpty())
+                uris.add(baseUri.resolve("/" + contextRoot + (path.startsWith("/") ? "" : "/") + path));
+        }
+        return uris;
+    }
+
+    private static long last(List<Long> list) {
+        return list.get(list.size() - 1);
+    }
+
+    private static class Round {
+        /** microseconds of the requests that succeeded */
+        private long[] latencies;
+        private int errors;
+
+        long p95() {
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            return sorted[Math.max(0, (int) Math.ceil(0.95 * sorted.length) - 1)];
+        }
+    }
+
+    private List<Future<Long>> submit(List<URI> uris, final long deadline) {
+        List<Future<Long>> futures = new ArrayList<>();
+        for (final URI uri : uris)
+            for (int i = 0; i < concurrency; i++)
+                futures.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws IOException {
+                        return request(uri, deadline);
+                    }
+                }));
+        return futures;
+    }
+
+    private Round collect(List<Future<Long>> futures, long deadline) {
+        Round round = new Round();
+        List<Long> latencies = new ArrayList<>();
+        for (Future<Long> future : futures) {
+            try {
+                latencies.add(future.get(Math.max(0, deadline - System.nanoTime()), NANOSECONDS));
+            } catch (ExecutionException e) {
+                log.debug("warm-up request failed: {}", e.getCause().toString());
+                round.errors++;
+            } catch (TimeoutException e) {
+                future.cancel(true);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+            }
+        }
+        round.latencies = new long[latencies.size()];
+        for (int i = 0; i < latencies.size(); i++)
+            round.latencies[i] = latencies.get(i);
+        return round;
+    }
+
+    /** @return the microseconds it took; server errors fail */
+    private static long request(URI uri, long deadline) throws IOException {
+        long start = System.nanoTime();
+        int timeout = (int) Math.max(1, NANOSECONDS.toMillis(deadline - start));
+        HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+        connection.setConnectTimeout(timeout);
+        connection.setReadTimeout(timeout);
+        int status = connection.getResponseCode();
+        try (InputStream body = (status >= 400) ? connection.getErrorStream() : connection.getInputStream()) {
+            if (body != null) { // read it all, so the connection can be reused
+                byte[] buffer = new byte[8192];
+                while (body.read(buffer) >= 0)
+                    continue;
+            }
+        }
+        if (status >= 500)
+            throw new IOException("status " + status + " from " + uri);
+        return NANOSECONDS.toMicros(System.nanoTime() - start);
+    }
+}
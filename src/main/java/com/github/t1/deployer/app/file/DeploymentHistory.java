@@ -0,0 +1,278 @@
+package com.github.t1.deployer.app.file;
+
+import static java.nio.file.StandardOpenOption.*;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.util.*;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+
+import com.github.t1.deployer.model.*;
+
+/**
+ * Append-only journal of all deployment operations, split into segment files of about
+ * <code>deployer.history.segment-bytes</code>, each named after the time of its first entry.
+ * <p/>
+ * Every segment starts with checkpoint lines holding the latest successful entry of every context root, so what was
+ * running at any time can be restored from one segment. For every {@value #INDEX_INTERVAL}th entry, the sparse index
+ * file of the segment gets a line with its timestamp and byte offset, so time range queries only read the relevant
+ * part of the relevant segments.
+ */
+@Slf4j
+@ApplicationScoped
+public class DeploymentHistory {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    static final int INDEX_INTERVAL = 64;
+
+    private static final String SEGMENT_PREFIX = "history-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final String CHECKPOINT = "=";
+    private static final String SEPARATOR = "\t";
+    private static final int FIELDS = 11;
+
+    private Path directory;
+    private long segmentBytes;
+
+    /** by the time of their first entry */
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+    /** the latest successful entry per context root */
+    private final Map<ContextRoot, HistoryEntry> latest = new LinkedHashMap<>();
+
+    private Path current;
+    private long currentSize;
+    private int currentEntries;
+    private long lastTimestamp;
+
+    public DeploymentHistory() {}
+
+    DeploymentHistory(Path directory, long segmentBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        open();
+    }
+
+    @PostConstruct
+    void init() {
+        this.directory = Paths.get(System.getProperty("jboss.server.data.dir", "."), "deployer-history");
+        this.segmentBytes = Long.getLong("deployer.history.segment-bytes", 1024 * 1024);
+        open();
+    }
+
+    @SneakyThrows(IOException.class)
+    private synchronized void open() {
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files)
+                segments.put(startOf(file), file);
+        }
+        if (segments.isEmpty())
+            return;
+        current = segments.lastEntry().getValue();
+        currentSize = Files.size(current);
+        for (String line : Files.readAllLines(current, UTF_8)) {
+            boolean checkpoint = line.startsWith(CHECKPOINT);
+            HistoryEntry entry = parse(checkpoint ? line.substring(CHECKPOINT.length()) : line);
+            if (!checkpoint)
+                currentEntries++;
+            if (entry.isSuccess())
+                latest.put(entry.getContextRoot(), entry);
+            lastTimestamp = Math.max(lastTimestamp, entry.getTimestamp());
+        }
+        log.info("opened history with {} segments; {} entries in {}", segments.size(), currentEntries, current);
+    }
+
+    private static long startOf(Path segment) {
+        String fileName = segment.getFileName().toString();
+        return Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static Path indexOf(Path segment) {
+        String fileName = segment.getFileName().toString();
+        return segment.resolveSibling(fileName.substring(0, fileName.length() - SEGMENT_SUFFIX.length())
+                + INDEX_SUFFIX);
+    }
+
+    /** The timestamps are kept strictly in order, even if the clock goes back */
+    @SneakyThrows(IOException.class)
+    public synchronized HistoryEntry append(HistoryEntry entry) {
+        if (entry.getTimestamp() < lastTimestamp)
+            entry = entry.withTimestamp(lastTimestamp);
+        if (current == null || currentSize >= segmentBytes)
+            startSegment(entry.getTimestamp());
+        if (currentEntries % INDEX_INTERVAL == 0)
+            write(indexOf(current), entry.getTimestamp() + SEPARATOR + currentSize);
+        currentSize += write(current, format(entry));
+        currentEntries++;
+        lastTimestamp = entry.getTimestamp();
+        if (entry.isSuccess())
+            latest.put(entry.getContextRoot(), entry);
+        return entry;
+    }
+
+    private void startSegment(long timestamp) throws IOException {
+        current = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, timestamp, SEGMENT_SUFFIX));
+        segments.put(timestamp, current);
+        currentSize = 0;
+        currentEntries = 0;
+        for (HistoryEntry entry : latest.values())
+            currentSize += write(current, CHECKPOINT + format(entry));
+        log.debug("started history segment {}", current);
+    }
+
+    private static int write(Path file, String line) throws IOException {
+        byte[] bytes = (line + "\n").getBytes(UTF_8);
+        Files.write(file, bytes, CREATE, APPEND);
+        return bytes.length;
+    }
+
+    /** @return the latest successful entry for that context root, or <code>null</code>, if there is none */
+    public synchronized HistoryEntry latest(ContextRoot contextRoot) {
+        return latest.get(contextRoot);
+    }
+
+    /**
+     * @param contextRoot
+     *            only the entries of this context root, or all, if <code>null</code>
+     * @return the entries between <code>from</code> and <code>to</code> (both inclusive), in the order they happened
+     */
+    @SneakyThrows(IOException.class)
+    public synchronized List<HistoryEntry> entries(long from, long to, ContextRoot contextRoot) {
+        List<HistoryEntry> result = new ArrayList<>();
+        for (Map.Entry<Long, Path> segment : segments.entrySet()) {
+            if (segment.getKey() > to)
+                break;
+            Long next = segments.higherKey(segment.getKey());
+            if (next != null && next < from)
+                continue;
+            try (BufferedReader reader = reader(segment.getValue(), offset(segment.getValue(), from))) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    if (line.startsWith(CHECKPOINT))
+                        continue;
+                    HistoryEntry entry = parse(line);
+                    if (entry.getTimestamp() > to)
+                        break;
+                    if (entry.getTimestamp() >= from
+                            && (contextRoot == null || contextRoot.equals(entry.getContextRoot())))
+                        result.add(entry);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** The offset of the last indexed entry before that time */
+    private long offset(Path segment, long from) throws IOException {
+        Path index = indexOf(segment);
+        if (!Files.exists(index))
+            return 0;
+        long offset = 0;
+        for (String line : Files.readAllLines(index, UTF_8)) {
+            String[] fields = line.split(SEPARATOR);
+            if (Long.parseLong(fields[0]) >= from)
+                break;
+            offset = Long.parseLong(fields[1]);
+        }
+        return offset;
+    }
+
+    private static BufferedReader reader(Path segment, long offset) throws IOException {
+        SeekableByteChannel channel = Files.newByteChannel(segment, READ);
+        channel.position(offset);
+        return new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), UTF_8));
+    }
+
+    /**
+     * What was deployed at that time, restored from the checkpoint and the entries of the segment that contains it.
+     *
+     * @return the latest successful entry of every context root that was deployed, by context root
+     */
+    @SneakyThrows(IOException.class)
+    public synchronized Map<ContextRoot, HistoryEntry> runningAt(long time) {
+        Map<ContextRoot, HistoryEntry> state = new LinkedHashMap<>();
+        Map.Entry<Long, Path> segment = segments.floorEntry(time);
+        if (segment == null)
+            return state;
+        try (BufferedReader reader = reader(segment.getValue(), 0)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                boolean checkpoint = line.startsWith(CHECKPOINT);
+                HistoryEntry entry = parse(checkpoint ? line.substring(CHECKPOINT.length()) : line);
+                if (!checkpoint && entry.getTimestamp() > time)
+                    break;
+                if (entry.isSuccess())
+                    state.put(entry.getContextRoot(), entry);
+            }
+        }
+        for (Iterator<HistoryEntry> i = state.values().iterator(); i.hasNext();)
+            if (!i.next().isDeployed())
+                i.remove();
+        return state;
+    }
+
+    static String format(HistoryEntry entry) {
+        return join(entry.getTimestamp(), entry.getPrincipal(), entry.getOperation(), entry.getContextRoot(),
+                entry.getName(), entry.getOldCheckSum(), entry.getOldVersion(), entry.getNewCheckSum(),
+                entry.getNewVersion(), entry.getDuration(), entry.getOutcome());
+    }
+
+    private static String join(Object... fields) {
+        StringBuilder out = new StringBuilder();
+        for (Object field : fields) {
+            if (out.length() > 0)
+                out.append(SEPARATOR);
+            if (field != null)
+                out.append(escape(field.toString()));
+        }
+        return out.toString();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    static HistoryEntry parse(String line) {
+        String[] fields = line.split(SEPARATOR, -1);
+        if (fields.length != FIELDS)
+            throw new IllegalArgumentException("expected " + FIELDS + " fields in history line [" + line + "]");
+        return HistoryEntry.builder() //
+                .timestamp(Long.parseLong(fields[0])) //
+                .principal(string(fields[1])) //
+                .operation(string(fields[2])) //
+                .contextRoot(isEmpty(fields[3]) ? null : new ContextRoot(string(fields[3]))) //
+                .name(isEmpty(fields[4]) ? null : new DeploymentName(string(fields[4]))) //
+                .oldCheckSum(isEmpty(fields[5]) ? null : CheckSum.fromString(fields[5])) //
+                .oldVersion(isEmpty(fields[6]) ? null : new Version(string(fields[6]))) //
+                .newCheckSum(isEmpty(fields[7]) ? null : CheckSum.fromString(fields[7])) //
+                .newVersion(isEmpty(fields[8]) ? null : new Version(string(fields[8]))) //
+                .duration(Long.parseLong(fields[9])) //
+                .outcome(string(fields[10])) //
+                .build();
+    }
+
+    private static boolean isEmpty(String field) {
+        return field.isEmpty();
+    }
+
+    private static String string(String field) {
+        if (field.isEmpty())
+            return null;
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '\\' && i + 1 < field.length()) {
+                char next = field.charAt(++i);
+                out.append((next == 't') ? '\t' : (next == 'n') ? '\n' : (next == 'r') ? '\r' : next);
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+}
@@ -17,9 +17,10 @@ import javax.inject.Inject;
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
 
-import com.github.t1.deployer.container.DeploymentContainer;
+import com.github.t1.deployer.container.*;
 import com.github.t1.deployer.model.*;
 import com.github.t1.deployer.repository.Repository;
+import com.github.t1.deployer.tools.*;
 
 @Slf4j
 @Startup
@@ -56,35 +57,58 @@ public class DeploymentListFile {
         }
     }
 
+    /** A line <code>context-root:version</code>, optionally followed by <code> after other-root,another-root</code> */
     @RequiredArgsConstructor
     private static class DeploymentInfo {
+        private static final String AFTER = " after ";
+
         private static DeploymentInfo parse(String line) {
+            List<ContextRoot> after = new ArrayList<>();
+            int hints = line.indexOf(AFTER);
+            if (hints >= 0) {
+                for (String contextRoot : line.substring(hints + AFTER.length()).split(","))
+                    if (!contextRoot.trim().isEmpty())
+                        after.add(new ContextRoot(contextRoot.trim()));
+                line = line.substring(0, hints);
+            }
             int i = line.lastIndexOf(':');
             if (i < 0)
                 throw new IllegalArgumentException("no ':' found in deployment info line [" + line + "]");
             ContextRoot contextRoot = new ContextRoot(line.substring(0, i));
-            Version version = new Version(line.substring(i + 1));
-            return new DeploymentInfo(contextRoot, version);
+            Version version = new Version(line.substring(i + 1).trim());
+            return new DeploymentInfo(contextRoot, version, after);
         }
 
         final ContextRoot contextRoot;
         final Version version;
+        final List<ContextRoot> after;
 
-        DeploymentInfo(Deployment deployment) {
+        DeploymentInfo(Deployment deployment, DeploymentInfo previous) {
             this.contextRoot = deployment.getContextRoot();
             this.version = deployment.getVersion();
+            this.after = (previous == null) ? Collections.<ContextRoot> emptyList() : previous.after;
         }
 
         @Override
         public String toString() {
-            return contextRoot + ":" + version;
+            StringBuilder out = new StringBuilder().append(contextRoot).append(":").append(version);
+            String delimiter = AFTER;
+            for (ContextRoot other : after) {
+                out.append(delimiter).append(other);
+                delimiter = ",";
+            }
+            return out.toString();
         }
     }
 
     @Inject
     DeploymentContainer container;
     @Inject
+    DeploymentScheduler scheduler;
+    @Inject
     Repository repository;
+    @Resource(lookup = "java:comp/DefaultManagedExecutorService")
+    ExecutorService levelExecutor;
 
     private final Path configDir = Paths.get(System.getProperty("jboss.server.config.dir", "."));
     private final Path deploymentsList = configDir.resolve("deployments.properties");
@@ -105,57 +129,168 @@ public class DeploymentListFile {
 
     private void updateFromList() {
         log.info("deployment list file has changed");
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            outcome = reconcile();
+        } finally {
+            Metrics.histogram("deployer_reconcile_seconds", "updates from the deployment list file", //
+                    "outcome", outcome) //
+                    .observeSince(start);
+        }
+    }
+
+    /** @return the outcome for the metrics */
+    private String reconcile() {
         try {
             // FIXME User.setCurrent(new User("-file").withPrivilege("deploy", "redeploy", "undeploy"));
 
-            Map<ContextRoot, Version> expected = readDeploymentsListFile();
-            for (Deployment actual : deployments()) {
+            Map<ContextRoot, DeploymentInfo> expected = readDeploymentsListFile();
+            Map<ContextRoot, Runnable> operations = new HashMap<>();
+            DependencyGraph<ContextRoot> graph = new DependencyGraph<>();
+            for (final Deployment actual : deployments()) {
                 ContextRoot contextRoot = actual.getContextRoot();
-                Version expectedVersion = expected.get(contextRoot);
-                if (expectedVersion == null) {
+                DeploymentInfo expectedInfo = expected.get(contextRoot);
+                if (expectedInfo == null) {
                     log.info("expected version of {} is null -> undeploy", contextRoot);
-                    container.undeploy(actual);
-                } else if (expectedVersion.equals(actual.getVersion())) {
-                    log.debug("expected version of {} equals actual {} -> skip", contextRoot, expectedVersion);
+                    operations.put(contextRoot, undeploy(actual));
+                    graph.node(contextRoot, null);
+                } else if (expectedInfo.version.equals(actual.getVersion())) {
+                    log.debug("expected version of {} equals actual {} -> skip", contextRoot, expectedInfo.version);
                     // already the expected version
                 } else {
                     log.info("version of {} changed from {} to {} -> redeploy", //
-                            contextRoot, actual.getVersion(), expectedVersion);
-                    CheckSum checksum = repository.getChecksumForVersion(actual, expectedVersion);
-                    redeploy(repository.getByChecksum(checksum));
+                            contextRoot, actual.getVersion(), expectedInfo.version);
+                    CheckSum checksum = repository.getChecksumForVersion(actual, expectedInfo.version);
+                    Deployment newDeployment = repository.getByChecksum(checksum);
+                    if (newDeployment == null) {
+                        log.error("no deployment with checksum {} found in repository", checksum);
+                        continue;
+                    }
+                    // the repository only guesses the context root from the path
+                    operations.put(contextRoot, redeploy(newDeployment.withContextRoot(contextRoot)));
+                }
+            }
+            for (DeploymentInfo info : expected.values())
+                graph.node(info.contextRoot, info.after);
+            List<List<ContextRoot>> levels;
+            try {
+                levels = graph.levels();
+            } catch (IllegalArgumentException e) {
+                log.error("can't update from deployment list: {}", e.getMessage());
+                return "invalid";
+            }
+            for (List<ContextRoot> level : levels) {
+                if (!runConcurrently(level, operations)) {
+                    log.error("stop updating from deployment list, as an operation failed");
+                    return "failure";
                 }
             }
+            return "success";
         } finally {
             // User.setCurrent(null);
         }
     }
 
+    /** Run the operations of one level concurrently and wait for all; <code>false</code> if one of them failed */
+    private boolean runConcurrently(List<ContextRoot> level, Map<ContextRoot, Runnable> operations) {
+        List<Future<?>> futures = new ArrayList<>();
+        for (ContextRoot contextRoot : level)
+            if (operations.containsKey(contextRoot))
+                futures.add(levelExecutor.submit(traced(operations.get(contextRoot))));
+        boolean succeeded = true;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                log.error("operation failed", e.getCause());
+                succeeded = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return succeeded;
+    }
+
+    /** Every operation has its own trace, including the download, as they run in the threads of the executor */
+    private static Runnable traced(final Runnable operation) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                boolean traced = Tracing.begin();
+                try {
+                    operation.run();
+                } finally {
+                    if (traced)
+                        Tracing.end();
+                }
+            }
+        };
+    }
+
     @SneakyThrows(IOException.class)
-    private Map<ContextRoot, Version> readDeploymentsListFile() {
-        Map<ContextRoot, Version> out = new HashMap<>();
+    private Map<ContextRoot, DeploymentInfo> readDeploymentsListFile() {
+        Map<ContextRoot, DeploymentInfo> out = new LinkedHashMap<>();
         for (String line : Files.readAllLines(deploymentsList, UTF_8)) {
             if (line.trim().isEmpty() || line.startsWith("#"))
                 continue;
             DeploymentInfo info = DeploymentInfo.parse(line);
-            out.put(info.contextRoot, info.version);
+            out.put(info.contextRoot, info);
         }
         log.trace("deployments list: {}", out);
         return out;
     }
 
-    private void redeploy(Deployment newDeployment) {
-        try (InputStream inputStream = repository.getArtifactInputStream(newDeployment.getCheckSum())) {
-            container.redeploy(newDeployment, inputStream);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+    private Runnable undeploy(final Deployment deployment) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                scheduler.run(deployment.getContextRoot(), null, new Runnable() {
+                    @Override
+                    public void run() {
+                        container.undeploy(deployment);
+                    }
+                });
+            }
+        };
+    }
+
+    private Runnable redeploy(final Deployment newDeployment) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                scheduler.run(newDeployment.getContextRoot(), null, new Runnable() {
+                    @Override
+                    public void run() {
+                        if (container.hasContent(newDeployment.getCheckSum())) {
+                            container.redeploy(newDeployment);
+                            return;
+                        }
+                        Path localPath = repository.getLocalArtifactPath(newDeployment.getCheckSum());
+                        if (localPath != null) {
+                            container.redeploy(newDeployment, localPath);
+                            return;
+                        }
+                        try (InputStream inputStream = repository.getArtifactInputStream(newDeployment.getCheckSum())) {
+                            container.redeploy(newDeployment, inputStream);
+                        } catch (IOException e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                });
+            }
+        };
     }
 
+    /** The ordering hints are kept from the current file */
     public void writeDeploymentsList() {
         log.info("write deployments list");
+        Map<ContextRoot, DeploymentInfo> previous = Files.exists(deploymentsList) ? readDeploymentsListFile()
+                : Collections.<ContextRoot, DeploymentInfo> emptyMap();
         try (Writer writer = Files.newBufferedWriter(deploymentsList, UTF_8)) {
             for (Deployment deployment : deployments()) {
-                writer.write(new DeploymentInfo(deployment) + "\n");
+                writer.write(new DeploymentInfo(deployment, previous.get(deployment.getContextRoot())) + "\n");
             }
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -5,26 +5,32 @@ import static com.github.t1.deployer.app.html.DeployerPage.*;
 import static com.github.t1.deployer.app.html.builder.ButtonGroup.*;
 import static com.github.t1.deployer.app.html.builder.Compound.*;
 import static com.github.t1.deployer.app.html.builder.HtmlList.*;
+import static com.github.t1.deployer.app.html.builder.Pager.*;
 import static com.github.t1.deployer.app.html.builder.SizeVariation.*;
 import static com.github.t1.deployer.app.html.builder.Static.*;
 import static com.github.t1.deployer.app.html.builder.Tags.*;
-import static java.util.Collections.*;
+import static java.util.Arrays.*;
 
 import java.net.URI;
-import java.util.List;
+import java.util.*;
 
 import javax.ws.rs.core.UriInfo;
 import javax.ws.rs.ext.Provider;
 
 import com.github.t1.deployer.app.*;
 import com.github.t1.deployer.app.html.builder.*;
-import com.github.t1.deployer.app.html.builder.Compound.CompoundBuilder;
 import com.github.t1.deployer.app.html.builder.HtmlList.HtmlListBuilder;
 import com.github.t1.deployer.app.html.builder.Tag.TagBuilder;
 import com.github.t1.deployer.model.DataSourceConfig;
 
 @Provider
 public class DataSourcesListHtmlWriter extends TextHtmlListMessageBodyWriter<DataSourceConfig> {
+    /**
+     * The items only depend on the name of the data source, its position, and the base uri; the key has only those, so
+     * it's immutable and keeps no passwords in memory
+     */
+    private static final FragmentCache ITEMS = new FragmentCache(1000);
+
     private static final DeployerPage PAGE = deployerPage() //
             .title(text("Data-Sources")) //
             .body(new Component() {
@@ -34,32 +40,40 @@ public class DataSourcesListHtmlWriter extends TextHtmlListMessageBodyWriter<Dat
 
                     @SuppressWarnings("unchecked")
                     List<DataSourceConfig> dataSources = out.get(List.class);
-                    sort(dataSources);
                     int i = 0;
                     UriInfo uriInfo = out.get(UriInfo.class);
                     for (DataSourceConfig dataSource : dataSources) {
-                        ul.item(dataSourceItem(dataSource, uriInfo, i++));
+                        ul.item(ITEMS.fragment(asList(dataSource.getName(), uriInfo.getBaseUri(), i), //
+                                dataSourceItem(dataSource, uriInfo, i)));
+                        i++;
                     }
                     ul.item(addDataSourceItem(uriInfo));
 
                     ul.build().writeTo(out);
                 }
 
-                private CompoundBuilder dataSourceItem(DataSourceConfig dataSource, UriInfo uriInfo, int i) {
-                    URI uri = DataSources.path(uriInfo, dataSource);
-                    String formId = "delete-" + i;
-                    return compound( //
-                            span().body(link(uri).body(text(dataSource.getName()))), //
-                            span().attr("style", "float: right") //
-                                    .body(deleteForm(uri, formId)) //
-                                    .body(buttonGroup().button(remove(formId, XS))) //
-                    );
+                private ComponentBuilder dataSourceItem(final DataSourceConfig dataSource, final UriInfo uriInfo,
+                        final int i) {
+                    return new ComponentBuilder() {
+                        @Override
+                        public Component build() {
+                            URI uri = DataSources.path(uriInfo, dataSource);
+                            String formId = "delete-" + i;
+                            return compound( //
+                                    span().body(link(uri).body(text(dataSource.getName()))), //
+                                    span().attr("style", "float: right") //
+                                            .body(deleteForm(uri, formId)) //
+                                            .body(buttonGroup().button(remove(formId, XS))) //
+                            ).build();
+                        }
+                    };
                 }
 
                 private TagBuilder addDataSourceItem(UriInfo uriInfo) {
                     return link(DataSources.newDataSource(uriInfo)).body(ADD_DATA_SOURCE).multiline();
                 }
             }) //
+            .body(pager()) //
             .build();
 
     @Override
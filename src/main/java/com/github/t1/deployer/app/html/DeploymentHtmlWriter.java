@@ -14,6 +14,7 @@ import static com.github.t1.deployer.app.html.builder.Table.*;
 import static com.github.t1.deployer.app.html.builder.Tags.*;
 
 import java.net.URI;
+import java.util.*;
 
 import javax.ws.rs.core.UriInfo;
 import javax.ws.rs.ext.Provider;
@@ -61,22 +62,24 @@ public class DeploymentHtmlWriter extends TextHtmlMessageBodyWriter<Deployment>
                         table.row( //
                                 cell().body(text(entry.getVersion().getVersion())), //
                                 cell().body(redeployButton("redeploy-" + i++, //
-                                        deployment.getContextRoot(), entry.getCheckSum(), //
+                                        deployment.getContextRoot(), entry.getCheckSum(), entry.getEta(), //
                                         uriInfo, isCurrent)) //
                         );
                     }
                     table.build().writeTo(out);
                 }
 
+                /** @param eta the expected milliseconds; shown on the button, if known */
                 private CompoundBuilder redeployButton(String id, ContextRoot contextRoot, CheckSum checkSum,
-                        UriInfo uriInfo, boolean isCurrent) {
+                        Long eta, UriInfo uriInfo, boolean isCurrent) {
                     FormBuilder form = form(id);
                     form.action(text(Deployments.path(uriInfo, contextRoot)));
                     form.input(hiddenInput("contextRoot", contextRoot.getValue()));
                     form.input(hiddenInput("checksum", checkSum.hexString()));
                     form.input(hiddenAction("redeploy"));
 
-                    Static deployLabel = text(isCurrent ? "Redeploy" : "Deploy");
+                    Static deployLabel = text((isCurrent ? "Redeploy" : "Deploy") + ((eta == null) ? "" //
+                            : String.format(Locale.ROOT, " (~%.0f s)", Math.ceil(eta / 1000.0))));
                     return compound( //
                             form, //
                             buttonGroup().button( //
@@ -85,6 +88,66 @@ public class DeploymentHtmlWriter extends TextHtmlMessageBodyWriter<Deployment>
                 }
             };
 
+    /** The rates and times of the last hour, each with a sparkline of the five minute intervals */
+    private static final Component REQUESTS = new Component() {
+        /** the unicode block elements as character references, as the page encoding is the platform default */
+        private final String[] bars = { "&#9601;", "&#9602;", "&#9603;", "&#9604;", "&#9605;", "&#9606;", "&#9607;",
+                "&#9608;" };
+
+        @Override
+        public void writeTo(BuildContext out) {
+            RequestTrend trend = out.get(Deployment.class).getRequests();
+            if (trend == null)
+                return;
+            out.appendln();
+            List<RequestTrend.Interval> intervals = trend.getIntervals();
+            double[] rates = new double[intervals.size()];
+            double[] times = new double[intervals.size()];
+            double[] errors = new double[intervals.size()];
+            for (int i = 0; i < intervals.size(); i++) {
+                rates[i] = intervals.get(i).getRequestRate();
+                times[i] = intervals.get(i).getMeanRequestTime();
+                errors[i] = intervals.get(i).getServerErrorRate();
+            }
+            DescriptionListBuilder description = descriptionList().horizontal();
+
+            description.title("Requests/s") //
+                    .description(text(format("%.2f", trend.getRequestRate()) + " " + sparkline(rates))).build();
+            description.nl();
+            description.title("Mean Time") //
+                    .description(text(format("%.1f ms", trend.getMeanRequestTime()) + " " + sparkline(times)))
+                    .build();
+            description.nl();
+            // the container only has the maximum since the deployment started, not over the trend
+            description.title("Max Time").description(text(trend.getMaxRequestTime() + " ms since deploy")).build();
+            description.nl();
+            // the container doesn't count the errors per deployment
+            description.title("Server Errors") //
+                    .description(text(format("%.2f%%", trend.getServerErrorRate() * 100) + " of all deployments "
+                            + sparkline(errors)))
+                    .build();
+            description.nl();
+            description.title("Sessions").description(text(trend.getActiveSessions())).build();
+
+            description.build().writeTo(out);
+        }
+
+        private String format(String format, double value) {
+            return String.format(Locale.ROOT, format, value);
+        }
+
+        /** relative to the maximum, so the trend shows, not the absolute value */
+        private String sparkline(double[] values) {
+            double max = 0;
+            for (double value : values)
+                max = Math.max(max, value);
+            StringBuilder out = new StringBuilder();
+            for (double value : values)
+                out.append(bars[(max == 0) ? 0 : (int) Math.round(value / max * (bars.length - 1))]);
+            return out.toString();
+        }
+    };
+
     private static final Component DEPLOYMENT_INFO = new Component() {
         @Override
         public void writeTo(BuildContext out) {
@@ -100,6 +163,7 @@ public class DeploymentHtmlWriter extends TextHtmlMessageBodyWriter<Deployment>
             description.title("CheckSum").description(text(deployment.getCheckSum())).build();
 
             description.build().writeTo(out);
+            REQUESTS.writeTo(out);
         }
     };
 
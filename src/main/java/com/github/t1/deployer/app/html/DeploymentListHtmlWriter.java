@@ -1,9 +1,12 @@
 package com.github.t1.deployer.app.html;
 
 import static com.github.t1.deployer.app.html.DeployerPage.*;
+import static com.github.t1.deployer.app.html.builder.Compound.*;
+import static com.github.t1.deployer.app.html.builder.Pager.*;
 import static com.github.t1.deployer.app.html.builder.Static.*;
 import static com.github.t1.deployer.app.html.builder.Table.*;
 import static com.github.t1.deployer.app.html.builder.Tags.*;
+import static java.util.Arrays.*;
 
 import java.net.URI;
 import java.util.*;
@@ -27,32 +30,44 @@ public class DeploymentListHtmlWriter extends TextHtmlListMessageBodyWriter<Depl
         }
     }).body(text("+"))).build();
 
+    /** The rows only depend on the deployment and the base uri, so we can reuse them for all requests */
+    private static final FragmentCache ROWS = new FragmentCache(1000);
+
     private static final Component TABLE = new Component() {
         @Override
         public void writeTo(BuildContext out) {
             TableBuilder table = table();
             @SuppressWarnings("unchecked")
             List<Deployment> deployments = out.get(List.class);
-            Collections.sort(deployments);
             UriInfo uriInfo = out.get(UriInfo.class);
             for (Deployment deployment : deployments) {
-                ContextRoot contextRoot = deployment.getContextRoot();
-                URI uri = Deployments.path(uriInfo, contextRoot);
-                String checksum = "SHA-1: " + deployment.getCheckSum();
-                table.row( //
-                        cell().body(link(uri).body(text(contextRoot))), //
-                        cell().body(text(deployment.getName())), //
-                        cell().title(checksum).body(textOr(deployment.getVersion(), "unknown")) //
-                );
+                table.row(ROWS.fragment(asList(deployment, uriInfo.getBaseUri()), row(deployment, uriInfo)));
             }
             table.row(ADD_DEPLOYMENT_ROW);
             table.build().writeTo(out);
         }
+
+        private ComponentBuilder row(final Deployment deployment, final UriInfo uriInfo) {
+            return new ComponentBuilder() {
+                @Override
+                public Component build() {
+                    ContextRoot contextRoot = deployment.getContextRoot();
+                    URI uri = Deployments.path(uriInfo, contextRoot);
+                    String checksum = "SHA-1: " + deployment.getCheckSum();
+                    return compound( //
+                            cell().body(link(uri).body(text(contextRoot))), //
+                            cell().body(text(deployment.getName())), //
+                            cell().title(checksum).body(textOr(deployment.getVersion(), "unknown")) //
+                    ).build();
+                }
+            };
+        }
     };
 
     private static final DeployerPage PAGE = deployerPage() //
             .title(text("Deployments")) //
             .body(TABLE) //
+            .body(pager()) //
             .build();
 
     @Override
@@ -0,0 +1,88 @@
+package com.github.t1.deployer.app.html;
+
+import static com.github.t1.deployer.app.html.DeployerPage.*;
+import static com.github.t1.deployer.app.html.builder.Button.*;
+import static com.github.t1.deployer.app.html.builder.ButtonGroup.*;
+import static com.github.t1.deployer.app.html.builder.Compound.*;
+import static com.github.t1.deployer.app.html.builder.Form.*;
+import static com.github.t1.deployer.app.html.builder.Input.*;
+import static com.github.t1.deployer.app.html.builder.SizeVariation.*;
+import static com.github.t1.deployer.app.html.builder.Static.*;
+import static com.github.t1.deployer.app.html.builder.StyleVariation.*;
+import static com.github.t1.deployer.app.html.builder.Table.*;
+import static com.github.t1.deployer.app.html.builder.Tags.*;
+
+import java.util.*;
+
+import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.ext.Provider;
+
+import com.github.t1.deployer.app.*;
+import com.github.t1.deployer.app.html.builder.*;
+import com.github.t1.deployer.app.html.builder.Table.TableBuilder;
+import com.github.t1.deployer.model.*;
+
+/**
+ * Newest first; the newest successful entry of every context root can be rolled back, if something else was running
+ * before
+ */
+@Provider
+public class HistoryHtmlWriter extends TextHtmlListMessageBodyWriter<HistoryEntry> {
+    private static final Component TABLE = new Component() {
+        @Override
+        public void writeTo(BuildContext out) {
+            TableBuilder table = table();
+            @SuppressWarnings("unchecked")
+            List<HistoryEntry> entries = out.get(List.class);
+            UriInfo uriInfo = out.get(UriInfo.class);
+            Set<ContextRoot> newest = new HashSet<>();
+            for (int i = entries.size() - 1; i >= 0; i--) {
+                HistoryEntry entry = entries.get(i);
+                boolean rollback = entry.isSuccess() && newest.add(entry.getContextRoot())
+                        && entry.isRollbackPossible();
+                table.row( //
+                        cell().body(text(String.format("%tF %<tT", new Date(entry.getTimestamp())))), //
+                        cell().body(link(History.path(uriInfo, entry.getContextRoot())) //
+                                .body(text(entry.getContextRoot()))), //
+                        cell().body(text(entry.getOperation())), //
+                        cell().body(textOr(entry.getOldVersion(), "-")), //
+                        cell().body(textOr(entry.getNewVersion(), "-")), //
+                        cell().body(textOr(entry.getPrincipal(), "-")), //
+                        cell().body(text(entry.getDuration() + " ms")), //
+                        cell().body(text(entry.getOutcome())), //
+                        cell().body(rollback ? rollbackButton("rollback-" + i, entry, uriInfo) : text("")) //
+                );
+            }
+            table.build().writeTo(out);
+        }
+
+        private Component rollbackButton(String id, HistoryEntry entry, UriInfo uriInfo) {
+            return compound( //
+                    form(id).action(text(Deployments.path(uriInfo, entry.getContextRoot()))) //
+                            .input(hiddenInput("contextRoot", entry.getContextRoot().getValue())) //
+                            .input(hiddenAction("rollback")), //
+                    buttonGroup().button(button().size(XS).style(warning).forForm(id) //
+                            .body(text("Roll back to " + textOf(entry.getOldVersion())))) //
+            ).build();
+        }
+
+        private String textOf(Version version) {
+            return (version == null) ? "previous" : version.getVersion();
+        }
+    };
+
+    private static final DeployerPage PAGE = deployerPage() //
+            .title(text("History")) //
+            .body(TABLE) //
+            .build();
+
+    @Override
+    protected void prepare(BuildContext buildContext) {
+        buildContext.put(Navigation.DEPLOYMENTS);
+    }
+
+    @Override
+    protected Component component() {
+        return PAGE;
+    }
+}
@@ -7,6 +7,7 @@ import static com.github.t1.deployer.app.html.builder.ButtonGroup.*;
 import static com.github.t1.deployer.app.html.builder.Compound.*;
 import static com.github.t1.deployer.app.html.builder.Form.*;
 import static com.github.t1.deployer.app.html.builder.Input.*;
+import static com.github.t1.deployer.app.html.builder.Pager.*;
 import static com.github.t1.deployer.app.html.builder.SizeVariation.*;
 import static com.github.t1.deployer.app.html.builder.Static.*;
 import static com.github.t1.deployer.app.html.builder.Table.*;
@@ -42,7 +43,6 @@ public class LoggerListHtmlWriter extends TextHtmlListMessageBodyWriter<LoggerCo
             TableBuilder table = table();
             @SuppressWarnings("unchecked")
             List<LoggerConfig> loggers = out.get(List.class);
-            Collections.sort(loggers);
             UriInfo uriInfo = out.get(UriInfo.class);
             int i = 0;
             for (LoggerConfig logger : loggers) {
@@ -73,6 +73,7 @@ public class LoggerListHtmlWriter extends TextHtmlListMessageBodyWriter<LoggerCo
     private static final DeployerPage PAGE = deployerPage() //
             .title(text("Loggers")) //
             .body(TABLE) //
+            .body(pager()) //
             .build();
 
     @Override
@@ -0,0 +1,101 @@
+package com.github.t1.deployer.app.html;
+
+import static com.github.t1.deployer.app.html.DeployerPage.*;
+import static com.github.t1.deployer.app.html.builder.HtmlList.*;
+import static com.github.t1.deployer.app.html.builder.Static.*;
+import static com.github.t1.deployer.app.html.builder.Table.*;
+import static com.github.t1.deployer.app.html.builder.Tags.*;
+
+import java.util.*;
+
+import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.ext.Provider;
+
+import com.github.t1.deployer.app.*;
+import com.github.t1.deployer.app.html.builder.*;
+import com.github.t1.deployer.app.html.builder.HtmlList.HtmlListBuilder;
+import com.github.t1.deployer.app.html.builder.Table.TableBuilder;
+import com.github.t1.deployer.model.*;
+
+/**
+ * Newest first, with the phases of every trace: when they started, how long they took, and the bytes transferred;
+ * and how the warm-ups went
+ */
+@Provider
+public class TracesHtmlWriter extends TextHtmlListMessageBodyWriter<OperationTrace> {
+    private static final Component TABLE = new Component() {
+        @Override
+        public void writeTo(BuildContext out) {
+            TableBuilder table = table();
+            @SuppressWarnings("unchecked")
+            List<OperationTrace> traces = out.get(List.class);
+            UriInfo uriInfo = out.get(UriInfo.class);
+            for (int i = traces.size() - 1; i >= 0; i--) {
+                OperationTrace trace = traces.get(i);
+                table.row( //
+                        cell().body(link(Traces.path(uriInfo, trace.getId())).body(text(trace.getId()))), //
+                        cell().body(text(String.format("%tF %<tT", new Date(trace.getTimestamp())))), //
+                        cell().body(text(trace.getOperation())), //
+                        cell().body(text(contextRoots(trace))), //
+                        cell().body(textOr(trace.getPrincipal(), "-")), //
+                        cell().body(text(trace.getDuration() + " ms")), //
+                        cell().body(text(bytes(trace.getBytesDownloaded()) + " down, " //
+                                + bytes(trace.getBytesUploaded()) + " up")), //
+                        cell().body(text(trace.getOutcome())), //
+                        cell().body(phases(trace)) //
+                );
+            }
+            table.build().writeTo(out);
+        }
+
+        private String contextRoots(OperationTrace trace) {
+            StringBuilder out = new StringBuilder();
+            for (ContextRoot contextRoot : trace.getContextRoots()) {
+                if (out.length() > 0)
+                    out.append(", ");
+                out.append(contextRoot);
+            }
+            return out.toString();
+        }
+
+        private Component phases(OperationTrace trace) {
+            HtmlListBuilder list = ol();
+            for (OperationTrace.Phase phase : trace.getPhases())
+                list.li(text(phase.getName() + " at " + millis(phase.getOffset()) + ": " + millis(phase.getDuration())
+                        + ((phase.getBytes() == 0) ? "" : " (" + bytes(phase.getBytes()) + ")")));
+            for (WarmUpResult warmUp : trace.getWarmUps())
+                list.li(text("warmed up " + warmUp.getContextRoot() + " with " + warmUp.getRequests() + " requests ("
+                        + warmUp.getErrors() + " failed) in " + warmUp.getRounds() + " rounds"
+                        + (warmUp.isStable() ? "" : " without settling") + "; p95 of the last round: "
+                        + (warmUp.getP95s().isEmpty() ? "-" : millis(warmUp.getP95s().get(warmUp.getRounds() - 1)))));
+            return list.build();
+        }
+
+        private String millis(long micros) {
+            return String.format(Locale.ROOT, "%.1f ms", micros / 1000.0);
+        }
+
+        private String bytes(long bytes) {
+            if (bytes < 1024)
+                return bytes + " B";
+            if (bytes < 1024 * 1024)
+                return String.format(Locale.ROOT, "%.1f KiB", bytes / 1024.0);
+            return String.format(Locale.ROOT, "%.1f MiB", bytes / (1024.0 * 1024));
+        }
+    };
+
+    private static final DeployerPage PAGE = deployerPage() //
+            .title(text("Traces")) //
+            .body(TABLE) //
+            .build();
+
+    @Override
+    protected void prepare(BuildContext buildContext) {
+        buildContext.put(Navigation.DEPLOYMENTS);
+    }
+
+    @Override
+    protected Component component() {
+        return PAGE;
+    }
+}
@@ -0,0 +1,24 @@
+package com.github.t1.deployer.app.html.builder;
+
+import static java.util.Arrays.*;
+
+import java.util.List;
+
+/** The paths, relative to the base uri, of the style sheets and scripts that every {@link Page} links to. */
+public interface Assets {
+    public static final Assets UNBUNDLED = new Assets() {
+        @Override
+        public List<String> styleSheets() {
+            return asList("bootstrap/css/bootstrap.css", "webapp/css/style.css");
+        }
+
+        @Override
+        public List<String> scripts() {
+            return asList("jquery/jquery.js", "bootstrap/js/bootstrap.js");
+        }
+    };
+
+    public List<String> styleSheets();
+
+    public List<String> scripts();
+}
@@ -61,6 +61,10 @@ public class BuildContext {
         return SPACES.substring(0, indent * 2);
     }
 
+    int depth() {
+        return indent;
+    }
+
     public BuildContext in() {
         ++indent;
         return this;
@@ -71,6 +75,16 @@ public class BuildContext {
         return this;
     }
 
+    /** Write the component into a string, with the current indentation and targets. */
+    public String render(Component component) {
+        StringWriter writer = new StringWriter();
+        BuildContext context = new BuildContext(component);
+        context.targets.putAll(this.targets);
+        context.indent = this.indent;
+        context.writeTo(writer);
+        return writer.toString();
+    }
+
     public BuildContext put(Object target) {
         this.targets.put(target.getClass(), target);
         return this;
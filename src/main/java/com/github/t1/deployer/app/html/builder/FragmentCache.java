@@ -0,0 +1,72 @@
+package com.github.t1.deployer.app.html.builder;
+
+import java.util.*;
+
+import lombok.Value;
+
+import com.github.t1.deployer.app.html.builder.Component.ComponentBuilder;
+
+/**
+ * A bounded, least-recently-used cache of rendered fragments, e.g. the rows of a list page, that depend only on the
+ * value object they show. The key has to contain everything the fragment depends on, so there is no explicit
+ * invalidation: when the value changes, the key changes, and the stale entry drops out eventually.
+ */
+public class FragmentCache {
+    @Value
+    private static class Key {
+        Object value;
+        int depth;
+    }
+
+    private final Map<Key, String> fragments;
+
+    public FragmentCache(final int maxSize) {
+        this.fragments = new LinkedHashMap<Key, String>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, String> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * A component that writes the fragment rendered for that key, and only builds and renders it, if it's not cached
+     * already. Fragments are always written as blocks, i.e. multi-line.
+     */
+    public Component fragment(final Object key, final ComponentBuilder builder) {
+        return new Component() {
+            @Override
+            public void writeTo(BuildContext out) {
+                out.appendRaw(rendered(new Key(key, out.depth()), builder, out));
+            }
+
+            @Override
+            public boolean isMultiLine() {
+                return true;
+            }
+        };
+    }
+
+    private String rendered(Key key, ComponentBuilder builder, BuildContext out) {
+        String fragment = get(key);
+        if (fragment == null) {
+            fragment = out.render(builder.build());
+            put(key, fragment);
+        }
+        return fragment;
+    }
+
+    private synchronized String get(Key key) {
+        return fragments.get(key);
+    }
+
+    private synchronized void put(Key key, String fragment) {
+        fragments.put(key, fragment);
+    }
+
+    public synchronized int size() {
+        return fragments.size();
+    }
+}
@@ -0,0 +1,29 @@
+package com.github.t1.deployer.app.html.builder;
+
+import java.util.*;
+
+import javax.ws.rs.core.Link;
+
+import lombok.Value;
+
+/** The <code>Link</code> headers of the response, e.g. for a {@link Pager} */
+@Value
+public class Links {
+    public static Links of(List<Object> headers) {
+        List<Link> links = new ArrayList<>();
+        if (headers != null)
+            for (Object header : headers)
+                links.add((header instanceof Link) ? (Link) header : Link.valueOf(header.toString()));
+        return new Links(links);
+    }
+
+    List<Link> links;
+
+    /** The first link with that relation type, or <code>null</code> if there is none */
+    public Link get(String rel) {
+        for (Link link : links)
+            if (link.getRels().contains(rel))
+                return link;
+        return null;
+    }
+}
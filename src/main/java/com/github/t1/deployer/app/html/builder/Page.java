@@ -27,18 +27,49 @@ public class Page extends Component {
                 tag("meta").attr("name", "viewport").attr("content", "width=device-width, initial-scale=1").build() //
                 );
 
-        private final List<Component> styleSheets = asList( //
-                styleSheet("bootstrap/css/bootstrap.css"), //
-                styleSheet("webapp/css/style.css") //
-                );
+        private static final Component STYLE_SHEETS = new Component() {
+            @Override
+            public void writeTo(BuildContext out) {
+                for (String path : out.get(Assets.class).styleSheets())
+                    styleSheet(path).writeTo(out);
+            }
+
+            @Override
+            public boolean isMultiLine() {
+                return true;
+            }
+        };
+
+        /** the scripts are at the end of the body, so let the browser know to fetch them early */
+        private static final Component PRELOADS = new Component() {
+            @Override
+            public void writeTo(BuildContext out) {
+                for (String path : out.get(Assets.class).scripts())
+                    preload(path, "script").writeTo(out);
+            }
+
+            @Override
+            public boolean isMultiLine() {
+                return true;
+            }
+        };
+
+        private static final Component SCRIPTS = new Component() {
+            @Override
+            public void writeTo(BuildContext out) {
+                for (String path : out.get(Assets.class).scripts())
+                    script(path).writeTo(out);
+            }
+
+            @Override
+            public boolean isMultiLine() {
+                return true;
+            }
+        };
 
         private Component title;
         private final CompoundBuilder body = compound("\n");
-        private final CompoundBuilder scripts = compound( //
-                nl(), //
-                script("jquery/jquery.js"), //
-                script("bootstrap/js/bootstrap.js") //
-                );
+        private final CompoundBuilder scripts = compound(nl(), SCRIPTS);
 
         public PageBuilder title(Component title) {
             this.title = title;
@@ -68,8 +99,8 @@ public class Page extends Component {
             if (title != null)
                 head.body(nl()).body(tag("title").body(title).build());
             head.body(nl());
-            for (Component styleSheet : styleSheets)
-                head.body(styleSheet);
+            head.body(STYLE_SHEETS);
+            head.body(PRELOADS);
             return head.build();
         }
 
@@ -0,0 +1,37 @@
+package com.github.t1.deployer.app.html.builder;
+
+import static com.github.t1.deployer.app.html.builder.HtmlList.*;
+import static com.github.t1.deployer.app.html.builder.Static.*;
+import static com.github.t1.deployer.app.html.builder.Tag.*;
+import static com.github.t1.deployer.app.html.builder.Tags.*;
+
+import javax.ws.rs.core.Link;
+
+import com.github.t1.deployer.app.html.builder.HtmlList.HtmlListBuilder;
+
+/** Links to the previous and next page of a list, if there are any in the {@link Links} of the response */
+public class Pager extends Component {
+    public static Pager pager() {
+        return new Pager();
+    }
+
+    @Override
+    public void writeTo(BuildContext out) {
+        Links links = out.get(Links.class);
+        Link previous = links.get("prev");
+        Link next = links.get("next");
+        if (previous == null && next == null)
+            return;
+        HtmlListBuilder pager = ul().classes("pager");
+        if (previous != null)
+            pager.li(link(previous.getUri()).body(text("Previous")).build(), text("previous"));
+        if (next != null)
+            pager.li(link(next.getUri()).body(text("Next")).build(), text("next"));
+        tag("nav").body(pager.build()).build().writeTo(out);
+    }
+
+    @Override
+    public boolean isMultiLine() {
+        return true;
+    }
+}
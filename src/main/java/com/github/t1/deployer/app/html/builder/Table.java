@@ -43,6 +43,11 @@ public class Table extends DelegateComponent {
             return this;
         }
 
+        public TableBuilder row(Component cells) {
+            tag.body(tag("tr").body(cells).build());
+            return this;
+        }
+
         public Table build() {
             return new Table(tag.build());
         }
@@ -54,6 +54,10 @@ public class Tags {
         return tag("link").attr("href", baseUri(href)).attr("rel", "stylesheet").build();
     }
 
+    public static Component preload(String href, String as) {
+        return tag("link").attr("href", baseUri(href)).attr("rel", "preload").attr("as", as).build();
+    }
+
     public static Component script(String href) {
         return tag("script").attr("src", baseUri(href)).build();
     }
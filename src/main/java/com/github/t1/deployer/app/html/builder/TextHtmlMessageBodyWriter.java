@@ -21,6 +21,8 @@ public abstract class TextHtmlMessageBodyWriter<T> implements MessageBodyWriter<
     UriInfo uriInfo;
     @Inject
     Principal principal;
+    @Inject
+    Assets assets;
 
     @Override
     public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
@@ -61,6 +63,8 @@ public abstract class TextHtmlMessageBodyWriter<T> implements MessageBodyWriter<
             context.put(target).put(uriInfo);
             if (principal != null)
                 context.put(principal);
+            context.put((assets == null) ? Assets.UNBUNDLED : assets);
+            context.put(Links.of(httpHeaders.get("Link")));
             prepare(context);
             context.writeTo(out);
             out.flush();
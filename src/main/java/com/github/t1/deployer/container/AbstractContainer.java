@@ -1,8 +1,11 @@
 package com.github.t1.deployer.container;
 
+import static com.github.t1.deployer.tools.ServerTiming.Category.*;
+import static com.github.t1.deployer.tools.StatusDetails.*;
 import static com.github.t1.log.LogLevel.*;
 
 import java.io.IOException;
+import java.util.*;
 
 import javax.inject.Inject;
 
@@ -10,8 +13,10 @@ import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 
 import org.jboss.as.controller.client.*;
-import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.*;
 
+import com.github.t1.deployer.model.Paging;
+import com.github.t1.deployer.tools.*;
 import com.github.t1.log.Logged;
 
 @Slf4j
@@ -33,17 +38,107 @@ abstract class AbstractContainer {
         }
     };
 
+    /**
+     * Only the first element of the address keeps its value, e.g. <code>subsystem=logging/logger=*</code>, so there
+     * are not too many of them. Not even that for deployments, e.g. <code>deployment=*</code>, as every staged
+     * deployment has a new name.
+     */
+    static String addressLabel(ModelNode operation) {
+        if (!operation.has("address"))
+            return "";
+        StringBuilder out = new StringBuilder();
+        for (Property element : operation.get("address").asPropertyList()) {
+            String value = (out.length() == 0 && !"deployment".equals(element.getName()))
+                    ? element.getValue().asString() : "*";
+            if (out.length() > 0)
+                out.append('/');
+            out.append(element.getName()).append('=').append(value);
+        }
+        return out.toString();
+    }
+
+    private static void record(ModelNode operation, long start) {
+        String name = operation.has("operation") ? operation.get("operation").asString() : "";
+        Metrics.histogram("deployer_management_operation_seconds", "management operations executed in the container", //
+                "operation", name, //
+                "address", addressLabel(operation)) //
+                .observeSince(start);
+        ServerTiming.record(mgmt, start);
+        Tracing.phase("mgmt:" + name, start);
+    }
+
     @Inject
     ModelControllerClient client;
 
     @SneakyThrows(IOException.class)
     protected ModelNode execute(ModelNode command) {
         log.debug("execute command {}", command);
-        ModelNode result = client.execute(command, LOGGING);
+        long start = System.nanoTime();
+        ModelNode result;
+        try {
+            result = client.execute(command, LOGGING);
+        } finally {
+            record(command, start);
+        }
+        log.trace("-> {}", result);
+        return result;
+    }
+
+    /** For operations with attached content */
+    @SneakyThrows(IOException.class)
+    protected ModelNode execute(Operation operation) {
+        log.debug("execute operation {} with {} attachments", operation.getOperation(),
+                operation.getInputStreams().size());
+        long start = System.nanoTime();
+        ModelNode result;
+        try {
+            result = client.execute(operation, LOGGING);
+        } finally {
+            record(operation.getOperation(), start);
+        }
         log.trace("-> {}", result);
         return result;
     }
 
+    /** The names of the children of that type; much cheaper than reading the children themselves */
+    protected List<String> readChildrenNames(ModelNode address, String childType) {
+        ModelNode node = new ModelNode();
+        node.get("address").set(address);
+        node.get("operation").set("read-children-names");
+        node.get("child-type").set(childType);
+        ModelNode result = execute(node);
+        checkOutcome(result);
+        List<String> names = new ArrayList<>();
+        for (ModelNode name : result.get("result").asList())
+            names.add(name.asString());
+        return names;
+    }
+
+    /** Execute all steps in one composite operation, i.e. one round trip, and return their results in order */
+    protected List<ModelNode> executeAll(List<ModelNode> steps) {
+        if (steps.isEmpty())
+            return Collections.emptyList();
+        ModelNode node = new ModelNode();
+        node.get("address").setEmptyList();
+        node.get("operation").set("composite");
+        for (ModelNode step : steps)
+            node.get("steps").add(step);
+        ModelNode result = execute(node);
+        checkOutcome(result);
+        List<ModelNode> results = new ArrayList<>();
+        for (int i = 1; i <= steps.size(); i++)
+            results.add(result.get("result").get("step-" + i).get("result"));
+        return results;
+    }
+
+    /** Names can only be sorted by one of these properties */
+    protected Comparator<String> nameOrder(Paging paging, String... properties) {
+        if (paging.isSorted() && !Arrays.asList(properties).contains(paging.getSortProperty()))
+            throw badRequest("can't sort by '" + paging.getSortProperty() + "'; only by "
+                    + Arrays.toString(properties));
+        return String.CASE_INSENSITIVE_ORDER;
+    }
+
     protected boolean isNotFoundMessage(ModelNode result) {
         String message = result.get("failure-description").toString();
         boolean jboss7start = message.startsWith("\"JBAS014807: Management resource");
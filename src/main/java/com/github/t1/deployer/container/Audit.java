@@ -1,7 +1,5 @@
 package com.github.t1.deployer.container;
 
-import static com.github.t1.log.LogLevel.*;
-
 import java.net.*;
 import java.security.Principal;
 
@@ -9,12 +7,15 @@ import javax.inject.Inject;
 
 import lombok.extern.slf4j.Slf4j;
 
+import org.slf4j.MDC;
+
 import com.github.t1.deployer.model.*;
-import com.github.t1.log.*;
 
+/** Collects the details of an operation and hands them over to the {@link AuditLog}, which writes them later */
 @Slf4j
-@SuppressWarnings("unused")
 public class Audit {
+    private static final String HOST = getLocalHost().getHostName();
+
     private static InetAddress getLocalHost() {
         try {
             return InetAddress.getLocalHost();
@@ -25,12 +26,13 @@ public class Audit {
     }
 
     @Inject
-    @LogContext
     Principal principal;
+    @Inject
+    AuditLog auditLog;
 
-    @LogContext
-    String host = getLocalHost().getHostName();
-
-    @Logged(value = "{principal};{client-ip};{operation};{contextRoot};{version};{host}", level = INFO)
-    public void allow(String operation, ContextRoot contextRoot, Version version) {}
+    public void allow(String operation, ContextRoot contextRoot, Version version) {
+        String principalName = (principal == null) ? null : principal.getName();
+        auditLog.write(new AuditLog.Event(System.currentTimeMillis(), principalName, MDC.get("client-ip"), operation,
+                contextRoot, version, HOST));
+    }
 }
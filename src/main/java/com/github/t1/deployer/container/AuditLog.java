@@ -0,0 +1,249 @@
+package com.github.t1.deployer.container;
+
+import static java.nio.file.StandardOpenOption.*;
+import static java.util.concurrent.TimeUnit.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.*;
+import javax.enterprise.context.ApplicationScoped;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.t1.deployer.model.*;
+
+/**
+ * Audit events are put into a bounded queue and written by a background thread in batches, so the deployment
+ * operations don't have to wait for the audit log, and a failing audit log doesn't fail them. The events go to
+ * <code>deployer-audit.log</code> in the server log dir, one JSON object per line, and to the log category of
+ * {@link Audit}, as before.
+ * <p/>
+ * The file is synced to disk at most every <code>deployer.audit.fsync-millis</code> (default 1000; 0 for every
+ * batch). When the queue is full, writing an event waits up to <code>deployer.audit.offer-timeout-millis</code> for
+ * the background thread to catch up (default 100), before the event is dropped and counted.
+ */
+@Slf4j
+@ApplicationScoped
+public class AuditLog {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Logger AUDIT = LoggerFactory.getLogger(Audit.class);
+
+    @Value
+    public static class Event {
+        long timestamp;
+        String principal;
+        String clientIp;
+        String operation;
+        ContextRoot contextRoot;
+        Version version;
+        String host;
+
+        /** the format that the {@link Audit} log category always had */
+        public String toLogLine() {
+            return principal + ";" + clientIp + ";" + operation + ";" + contextRoot + ";" + version + ";" + host;
+        }
+
+        public String toJson() {
+            StringBuilder out = new StringBuilder("{\"timestamp\":").append(timestamp);
+            field(out, "principal", principal);
+            field(out, "clientIp", clientIp);
+            field(out, "operation", operation);
+            field(out, "contextRoot", contextRoot);
+            field(out, "version", version);
+            field(out, "host", host);
+            return out.append('}').toString();
+        }
+
+        private static void field(StringBuilder out, String name, Object value) {
+            if (value == null)
+                return;
+            out.append(",\"").append(name).append("\":\"");
+            for (char c : value.toString().toCharArray()) {
+                if (c == '"' || c == '\\')
+                    out.append('\\').append(c);
+                else if (c < ' ')
+                    out.append(String.format("\\u%04x", (int) c));
+                else
+                    out.append(c);
+            }
+            out.append('"');
+        }
+    }
+
+    private Path file;
+    private int capacity;
+    private int batchSize;
+    private long fsyncMillis;
+    private long offerTimeoutMillis;
+
+    private BlockingQueue<Event> queue;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    /** the writer runs as long as the application, so it gets its own managed thread, not one of the executor */
+    @Resource(lookup = "java:comp/DefaultManagedThreadFactory")
+    ThreadFactory threadFactory;
+    private ExecutorService executor;
+    private volatile boolean running;
+    private FileChannel channel;
+    private boolean dirty;
+    private long lastSync;
+
+    public AuditLog() {}
+
+    AuditLog(Path file, int capacity, int batchSize, long fsyncMillis, long offerTimeoutMillis) {
+        this.file = file;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.fsyncMillis = fsyncMillis;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.threadFactory = Executors.defaultThreadFactory();
+    }
+
+    @PostConstruct
+    void start() {
+        if (file == null) {
+            this.file = Paths.get(System.getProperty("jboss.server.log.dir", "."), "deployer-audit.log");
+            this.capacity = Integer.getInteger("deployer.audit.capacity", 10000);
+            this.batchSize = Integer.getInteger("deployer.audit.batch-size", 500);
+            this.fsyncMillis = Long.getLong("deployer.audit.fsync-millis", 1000);
+            this.offerTimeoutMillis = Long.getLong("deployer.audit.offer-timeout-millis", 100);
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+        log.info("start audit log writer to {}", file);
+        running = true;
+        executor = Executors.newSingleThreadExecutor(threadFactory);
+        executor.execute(new Writer());
+    }
+
+    /** Write the remaining events before stopping */
+    @PreDestroy
+    void stop() {
+        log.info("stop audit log writer");
+        running = false;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, SECONDS))
+                log.warn("audit log writer didn't stop; {} events left", queue.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Never fails: if the event can't be queued in time, it's dropped and counted */
+    public void write(Event event) {
+        try {
+            if (queue.offer(event, offerTimeoutMillis, MILLISECONDS))
+                return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long count = dropped.incrementAndGet();
+        log.warn("audit queue full; dropped {} events so far; this one: {}", count, event.toLogLine());
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    /** Keeps on writing, even after an exception: the events of a failed batch are counted as dropped */
+    private class Writer implements Runnable {
+        private final List<Event> batch = new ArrayList<>();
+
+        @Override
+        public void run() {
+            while (running || !queue.isEmpty()) {
+                try {
+                    Event first = queue.poll(pollMillis(), MILLISECONDS);
+                    if (first != null) {
+                        batch.add(first);
+                        queue.drainTo(batch, batchSize - 1);
+                        write(batch);
+                        batch.clear();
+                    }
+                    if (dirty && System.currentTimeMillis() - lastSync >= fsyncMillis)
+                        sync();
+                } catch (IOException | RuntimeException e) {
+                    dropped.addAndGet(batch.size());
+                    log.error("audit log writer failed; dropped {} events", batch.size(), e);
+                    close();
+                } catch (InterruptedException e) {
+                    log.warn("audit log writer interrupted; {} events not written", queue.size() + batch.size());
+                    break;
+                } finally {
+                    batch.clear();
+                }
+            }
+            close();
+        }
+
+        private long pollMillis() {
+            return (fsyncMillis > 0 && fsyncMillis < 100) ? fsyncMillis : 100;
+        }
+
+        private void write(List<Event> events) throws IOException {
+            if (channel == null)
+                channel = FileChannel.open(file, CREATE, WRITE, APPEND);
+            StringBuilder out = new StringBuilder();
+            for (Event event : events) {
+                out.append(event.toJson()).append('\n');
+                AUDIT.info(event.toLogLine());
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(out.toString().getBytes(UTF_8));
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            dirty = true;
+            written.addAndGet(events.size());
+            batches.incrementAndGet();
+        }
+
+        private void sync() throws IOException {
+            channel.force(false);
+            dirty = false;
+            lastSync = System.currentTimeMillis();
+        }
+
+        private void close() {
+            if (channel == null)
+                return;
+            try {
+                if (dirty)
+                    sync();
+                channel.close();
+            } catch (IOException e) {
+                log.error("can't close audit log", e);
+            }
+            channel = null;
+            dirty = false;
+        }
+    }
+}
@@ -12,7 +12,8 @@ import lombok.extern.slf4j.Slf4j;
 
 import org.jboss.dmr.ModelNode;
 
-import com.github.t1.deployer.model.DataSourceConfig;
+import com.github.t1.deployer.model.*;
+import com.github.t1.deployer.tools.MappedList;
 import com.github.t1.log.Logged;
 
 @Slf4j
@@ -20,12 +21,36 @@ import com.github.t1.log.Logged;
 @Stateless
 public class DataSourceContainer extends AbstractContainer {
     public List<DataSourceConfig> getDataSources() {
+        return new MappedList<ModelNode, DataSourceConfig>(readAllDataSources()) {
+            @Override
+            protected DataSourceConfig map(ModelNode cliDataSourceMatch) {
+                String name = cliDataSourceMatch.get("address").asObject().get("data-source").asString();
+                return toDataSource(name, cliDataSourceMatch.get("result"));
+            }
+        };
+    }
+
+    /** Filters, sorts, and pages only the names; then reads only the selected data sources in one composite call */
+    public Slice<DataSourceConfig> getDataSources(Paging paging) {
+        List<String> names = new ArrayList<>();
+        for (String name : readChildrenNames(datasources(), "data-source"))
+            if (paging.matches(name))
+                names.add(name);
+        paging.sort(names, nameOrder(paging, "name"));
+        Slice<String> slice = paging.slice(names);
+
+        List<ModelNode> steps = new ArrayList<>();
+        for (String name : slice.getElements())
+            steps.add(readDataSource(name));
+        List<ModelNode> results = executeAll(steps);
         List<DataSourceConfig> dataSources = new ArrayList<>();
-        for (ModelNode cliDataSourceMatch : readAllDataSources()) {
-            String name = cliDataSourceMatch.get("address").asObject().get("data-source").asString();
-            dataSources.add(toDataSource(name, cliDataSourceMatch.get("result")));
-        }
-        return dataSources;
+        for (int i = 0; i < results.size(); i++)
+            dataSources.add(toDataSource(slice.getElements().get(i), results.get(i)));
+        return slice.with(dataSources);
+    }
+
+    private static ModelNode datasources() {
+        return new ModelNode().add("subsystem", "datasources");
     }
 
     private List<ModelNode> readAllDataSources() {
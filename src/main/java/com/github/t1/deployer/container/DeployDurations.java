@@ -0,0 +1,161 @@
+package com.github.t1.deployer.container;
+
+import java.util.*;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import lombok.extern.slf4j.Slf4j;
+
+import com.github.t1.deployer.model.*;
+import com.github.t1.deployer.tools.Metrics;
+
+/**
+ * The durations of the last <code>deployer.durations.window</code> (default 50) deploy and redeploy operations of
+ * every context root, with the version and the size of the artifact, to predict how long the next one will take. They
+ * are timed as a whole, including the warm-up, whichever way the artifact gets into the container. An operation that
+ * takes more than <code>deployer.durations.slow-factor</code> (default 2) times the 90th percentile is logged as
+ * a warning and counted in the {@link Metrics}; as is a release that takes that much longer than the slowest of its
+ * deployments usually does, as they are started concurrently.
+ * <p/>
+ * The durations are only kept in memory, so the predictions start over after a restart.
+ */
+@Slf4j
+@ApplicationScoped
+public class DeployDurations {
+    /** fewer samples are not enough to decide, if an operation was slow */
+    static final int MIN_SAMPLES = 3;
+
+    private static class Window {
+        private final long[] timestamps;
+        private final Version[] versions;
+        private final long[] bytes;
+        private final long[] durations;
+        private int next;
+        private int size;
+
+        Window(int capacity) {
+            this.timestamps = new long[capacity];
+            this.versions = new Version[capacity];
+            this.bytes = new long[capacity];
+            this.durations = new long[capacity];
+        }
+
+        void add(Version version, long size, long duration) {
+            timestamps[next] = System.currentTimeMillis();
+            versions[next] = version;
+            bytes[next] = size;
+            durations[next] = duration;
+            next = (next + 1) % durations.length;
+            if (this.size < durations.length)
+                this.size++;
+        }
+
+        /** the index of the i-th oldest sample */
+        int index(int i) {
+            return (next - size + i + durations.length) % durations.length;
+        }
+
+        /** @param version only the samples of this version, or all, if <code>null</code> */
+        long[] sorted(Version version) {
+            long[] result = new long[size];
+            int count = 0;
+            for (int i = 0; i < size; i++)
+                if (version == null || version.equals(versions[index(i)]))
+                    result[count++] = durations[index(i)];
+            result = Arrays.copyOf(result, count);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+
+    /** nearest rank */
+    static long percentile(long[] sorted, int percent) {
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private final int capacity;
+    private final double slowFactor;
+    private final Map<ContextRoot, Window> windows = new HashMap<>();
+
+    public DeployDurations() {
+        this(Integer.getInteger("deployer.durations.window", 50),
+                Double.parseDouble(System.getProperty("deployer.durations.slow-factor", "2")));
+    }
+
+    DeployDurations(int capacity, double slowFactor) {
+        this.capacity = capacity;
+        this.slowFactor = slowFactor;
+    }
+
+    /** A deploy or redeploy operation succeeded */
+    public synchronized void executed(Deployment deployment, long millis, long bytes) {
+        Window window = windows.get(deployment.getContextRoot());
+        if (window == null)
+            windows.put(deployment.getContextRoot(), window = new Window(capacity));
+        long usual = usual(window);
+        if (isSlow(millis, usual))
+            slow("deploy", deployment.getContextRoot().getValue(), millis, usual);
+        window.add(deployment.getVersion(), bytes, millis);
+    }
+
+    /** A release succeeded; it's not recorded, as the durations of the single deployments are unknown */
+    public synchronized void executedRelease(List<ContextRoot> contextRoots, long millis) {
+        long usual = -1;
+        for (ContextRoot contextRoot : contextRoots) {
+            Window window = windows.get(contextRoot);
+            if (window != null)
+                usual = Math.max(usual, usual(window));
+        }
+        if (isSlow(millis, usual))
+            slow("release", contextRoots.toString(), millis, usual);
+    }
+
+    /** @return the 90th percentile, or -1 if there are not enough samples */
+    private long usual(Window window) {
+        return (window.size < MIN_SAMPLES) ? -1 : percentile(window.sorted(null), 90);
+    }
+
+    private boolean isSlow(long millis, long usual) {
+        return usual >= 0 && millis > slowFactor * Math.max(1, usual);
+    }
+
+    private void slow(String operation, String target, long millis, long usual) {
+        log.warn("{} of {} took {} ms; that's more than {} times the usual {} ms (90th percentile)", //
+                operation, target, millis, slowFactor, usual);
+        Metrics.counter("deployer_slow_deployments_total", "deploys and releases that took much longer than usual", //
+                "operation", operation).inc();
+    }
+
+    /**
+     * The median of the samples of that version, as the size of the artifact is the same, or else of all samples of
+     * that context root.
+     *
+     * @return the expected milliseconds, or <code>null</code>, if there are no samples
+     */
+    public synchronized Long eta(ContextRoot contextRoot, Version version) {
+        Window window = windows.get(contextRoot);
+        if (window == null)
+            return null;
+        long[] sorted = window.sorted(version);
+        if (sorted.length == 0)
+            sorted = window.sorted(null);
+        return percentile(sorted, 50);
+    }
+
+    /** @return <code>null</code>, if there are no samples */
+    public synchronized DurationStatistics statistics(ContextRoot contextRoot) {
+        Window window = windows.get(contextRoot);
+        if (window == null)
+            return null;
+        List<DurationStatistics.Sample> samples = new ArrayList<>();
+        for (int i = 0; i < window.size; i++) {
+            int index = window.index(i);
+            samples.add(new DurationStatistics.Sample(window.timestamps[index], window.versions[index],
+                    window.bytes[index], window.durations[index]));
+        }
+        long[] sorted = window.sorted(null);
+        return new DurationStatistics(contextRoot, percentile(sorted, 50), percentile(sorted, 90),
+                percentile(sorted, 95), sorted[sorted.length - 1], samples);
+    }
+}
@@ -5,46 +5,111 @@ import static com.github.t1.log.LogLevel.*;
 import static java.util.concurrent.TimeUnit.*;
 
 import java.io.*;
+import java.nio.file.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.zip.ZipFile;
 
 import javax.annotation.security.*;
-import javax.ejb.Stateless;
+import javax.ejb.*;
+import javax.inject.Inject;
 
-import lombok.AllArgsConstructor;
+import lombok.*;
 import lombok.extern.slf4j.Slf4j;
 
+import org.jboss.as.controller.client.OperationBuilder;
 import org.jboss.as.controller.client.helpers.standalone.*;
+import org.jboss.as.controller.client.helpers.standalone.ServerUpdateActionResult.Result;
 import org.jboss.dmr.ModelNode;
 
 import com.github.t1.deployer.model.*;
+import com.github.t1.deployer.tools.*;
 import com.github.t1.log.Logged;
 
 @Slf4j
 @Logged(level = INFO)
 @Stateless
+// nothing transactional in here; and the operations may take longer than a transaction timeout, e.g. warming up
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
 public class DeploymentContainer extends AbstractContainer {
     public static final ContextRoot UNDEFINED_CONTEXT_ROOT = new ContextRoot("?");
 
+    /**
+     * Staged deployments are added to the content repository, but not enabled; their name is the name of the deployment
+     * plus this marker plus the time of staging, so they can be cleaned up after {@link #STAGING_TTL_MINUTES}.
+     */
+    static final String STAGED = ".staged.";
+    static final long STAGING_TTL_MINUTES = Long.getLong("deployer.staging.ttl-minutes", 24 * 60);
+
+    @Inject
+    PatchedContent patchedContent;
+
+    /** Traces the building, executing, and checking of the plan, including the bytes uploaded */
     private abstract class AbstractPlan {
+        private final List<CountingInputStream> uploads = new ArrayList<>();
+
         public void execute() {
+            long start = System.nanoTime();
+            String outcome = "failure";
+            try {
+                executePlan();
+                outcome = "success";
+            } finally {
+                Metrics.histogram("deployer_plan_seconds", "deployment plans executed in the container", //
+                        "plan", getClass().getSimpleName(), "outcome", outcome) //
+                        .observeSince(start);
+            }
+        }
+
+        private void executePlan() {
             try (ServerDeploymentManager deploymentManager = ServerDeploymentManager.Factory.create(client)) {
+                long start = System.nanoTime();
                 DeploymentPlan plan = buildPlan(deploymentManager.newDeploymentPlan()).build();
+                Tracing.phase("plan:build", start);
 
                 log.debug("start executing {}", getClass().getSimpleName());
                 logDeployPlan(plan);
-                Future<ServerDeploymentPlanResult> future = deploymentManager.execute(plan);
-                log.debug("wait for {}", getClass().getSimpleName());
-                ServerDeploymentPlanResult result = future.get(30, SECONDS);
+                start = System.nanoTime();
+                ServerDeploymentPlanResult result;
+                try {
+                    Future<ServerDeploymentPlanResult> future = deploymentManager.execute(plan);
+                    log.debug("wait for {}", getClass().getSimpleName());
+                    result = future.get(timeoutSeconds(), SECONDS);
+                } finally {
+                    Tracing.upload("plan:execute", start, uploaded());
+                }
                 log.debug("done executing {}", getClass().getSimpleName());
 
-                checkOutcome(plan, result);
+                start = System.nanoTime();
+                try {
+                    checkOutcome(plan, result);
+                } finally {
+                    Tracing.phase("plan:check", start);
+                }
             } catch (IOException | ExecutionException | TimeoutException | InterruptedException e) {
                 throw new RuntimeException(e);
             }
         }
 
-        protected abstract DeploymentPlanBuilder buildPlan(InitialDeploymentPlanBuilder plan);
+        protected abstract DeploymentPlanBuilder buildPlan(InitialDeploymentPlanBuilder plan) throws IOException;
+
+        /** Wrap the content to be added to the plan, so the bytes uploaded can be traced */
+        protected InputStream upload(InputStream inputStream) {
+            CountingInputStream counting = new CountingInputStream(inputStream);
+            uploads.add(counting);
+            return counting;
+        }
+
+        private long uploaded() {
+            long bytes = 0;
+            for (CountingInputStream upload : uploads)
+                bytes += upload.getCount();
+            return bytes;
+        }
+
+        protected long timeoutSeconds() {
+            return 30;
+        }
 
         private void logDeployPlan(DeploymentPlan plan) {
             if (!log.isTraceEnabled())
@@ -55,7 +120,7 @@ public class DeploymentContainer extends AbstractContainer {
             }
         }
 
-        private void checkOutcome(DeploymentPlan plan, ServerDeploymentPlanResult result) {
+        protected void checkOutcome(DeploymentPlan plan, ServerDeploymentPlanResult result) {
             boolean failed = false;
             Throwable firstThrowable = null;
             for (DeploymentAction action : plan.getDeploymentActions()) {
@@ -63,53 +128,71 @@ public class DeploymentContainer extends AbstractContainer {
                 Throwable deploymentException = actionResult.getDeploymentException();
                 if (deploymentException != null)
                     firstThrowable = deploymentException;
-                switch (actionResult.getResult()) {
-                    case CONFIGURATION_MODIFIED_REQUIRES_RESTART:
-                        log.warn("requries restart: {}: {}", action.getType(), action.getDeploymentUnitUniqueName());
-                        break;
-                    case EXECUTED:
-                        log.debug("executed: {}: {}", action.getType(), action.getDeploymentUnitUniqueName());
-                        break;
-                    case FAILED:
-                        failed = true;
-                        log.error("failed: {}: {}", action.getType(), action.getDeploymentUnitUniqueName());
-                        break;
-                    case NOT_EXECUTED:
-                        log.debug("not executed: {}: {}", action.getType(), action.getDeploymentUnitUniqueName());
-                        break;
-                    case ROLLED_BACK:
-                        log.debug("rolled back: {}: {}", action.getType(), action.getDeploymentUnitUniqueName());
-                        break;
-                }
+                if (!checkOutcome(action, actionResult))
+                    failed = true;
             }
             if (firstThrowable != null || failed) {
                 throw new RuntimeException("failed to execute " + getClass().getSimpleName(), firstThrowable);
             }
         }
+
+        /** @return <code>false</code> if the action failed */
+        protected boolean checkOutcome(DeploymentAction action, ServerDeploymentActionResult actionResult) {
+            switch (actionResult.getResult()) {
+                case CONFIGURATION_MODIFIED_REQUIRES_RESTART:
+                    log.warn("requries restart: {}: {}", action.getType(), action.getDeploymentUnitUniqueName());
+                    break;
+                case EXECUTED:
+                    log.debug("executed: {}: {}", action.getType(), action.getDeploymentUnitUniqueName());
+                    break;
+                case FAILED:
+                    log.error("failed: {}: {}", action.getType(), action.getDeploymentUnitUniqueName());
+                    return false;
+                case NOT_EXECUTED:
+                    log.debug("not executed: {}: {}", action.getType(), action.getDeploymentUnitUniqueName());
+                    break;
+                case ROLLED_BACK:
+                    log.debug("rolled back: {}: {}", action.getType(), action.getDeploymentUnitUniqueName());
+                    break;
+            }
+            return true;
+        }
     }
 
     @AllArgsConstructor
     private class DeployPlan extends AbstractPlan {
-        private final DeploymentName deploymentName;
+        private final Deployment deployment;
         private final InputStream inputStream;
 
         @Override
         protected DeploymentPlanBuilder buildPlan(InitialDeploymentPlanBuilder plan) {
             return plan //
-                    .add(deploymentName.getValue(), inputStream) //
-                    .deploy(deploymentName.getValue()) //
+                    .add(deployment.getName().getValue(), upload(inputStream)) //
+                    .deploy(deployment.getName().getValue()) //
             ;
         }
     }
 
     @AllArgsConstructor
     private class ReplacePlan extends AbstractPlan {
-        private final DeploymentName deploymentName;
+        private final Deployment deployment;
         private final InputStream inputStream;
 
         @Override
         protected DeploymentPlanBuilder buildPlan(InitialDeploymentPlanBuilder plan) {
-            return plan.replace(deploymentName.getValue(), inputStream);
+            return plan.replace(deployment.getName().getValue(), upload(inputStream));
+        }
+    }
+
+    @AllArgsConstructor
+    private class StagePlan extends AbstractPlan {
+        private final DeploymentName deploymentName;
+        private final InputStream inputStream;
+
+        @Override
+        protected DeploymentPlanBuilder buildPlan(InitialDeploymentPlanBuilder plan) throws IOException {
+            String stagedName = deploymentName.getValue() + STAGED + System.currentTimeMillis();
+            return plan.add(stagedName, deploymentName.getValue(), upload(inputStream));
         }
     }
 
@@ -126,6 +209,78 @@ public class DeploymentContainer extends AbstractContainer {
         }
     }
 
+    /**
+     * All actions of a release in one plan, i.e. one round trip; if one of them fails, all of them are rolled back.
+     * Instead of throwing an exception, the outcome of every action is reported.
+     */
+    @RequiredArgsConstructor
+    private class ReleasePlan extends AbstractPlan {
+        /** the outcomes of the deployment actions, from the worst to the best */
+        private final List<Result> severity = Arrays.asList(Result.FAILED, Result.ROLLED_BACK, Result.NOT_EXECUTED,
+                Result.CONFIGURATION_MODIFIED_REQUIRES_RESTART, Result.EXECUTED);
+
+        private final List<ReleaseAction> actions;
+        private final Map<CheckSum, InputStream> artifacts;
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<ReleaseAction> results = new ArrayList<>();
+
+        @Override
+        protected DeploymentPlanBuilder buildPlan(InitialDeploymentPlanBuilder plan) {
+            DeploymentPlanBuilder builder = plan.withRollback();
+            for (ReleaseAction action : actions) {
+                String name = action.getDeployment().getName().getValue();
+                indexes.put(name, results.size());
+                results.add(action);
+                switch (action.getType()) {
+                    case DEPLOY:
+                        builder = builder.add(name, artifact(action)).andDeploy();
+                        break;
+                    case REDEPLOY:
+                        builder = builder.replace(name, artifact(action));
+                        break;
+                    case UNDEPLOY:
+                        builder = builder.undeploy(name).andRemoveUndeployed();
+                        break;
+                }
+            }
+            return builder;
+        }
+
+        private InputStream artifact(ReleaseAction action) {
+            InputStream artifact = artifacts.get(action.getDeployment().getCheckSum());
+            if (artifact == null)
+                throw new IllegalArgumentException("no artifact for " + action.getDeployment());
+            return upload(artifact);
+        }
+
+        @Override
+        protected long timeoutSeconds() {
+            return super.timeoutSeconds() * Math.max(1, actions.size());
+        }
+
+        @Override
+        protected void checkOutcome(DeploymentPlan plan, ServerDeploymentPlanResult result) {
+            for (DeploymentAction action : plan.getDeploymentActions()) {
+                ServerDeploymentActionResult actionResult = result.getDeploymentActionResult(action.getId());
+                checkOutcome(action, actionResult);
+                Integer index = indexes.get(action.getDeploymentUnitUniqueName());
+                if (index == null)
+                    continue;
+                ReleaseAction releaseAction = results.get(index);
+                if (isWorse(actionResult.getResult(), releaseAction.getOutcome())) {
+                    Throwable exception = actionResult.getDeploymentException();
+                    releaseAction = releaseAction.withOutcome(actionResult.getResult().name()) //
+                            .withMessage((exception == null) ? null : exception.getMessage());
+                    results.set(index, releaseAction);
+                }
+            }
+        }
+
+        private boolean isWorse(Result result, String previous) {
+            return previous == null || severity.indexOf(result) < severity.indexOf(Result.valueOf(previous));
+        }
+    }
+
     @PermitAll
     public boolean hasDeploymentWith(ContextRoot contextRoot) {
         for (Deployment deployment : getAllDeployments()) {
@@ -172,10 +327,16 @@ public class DeploymentContainer extends AbstractContainer {
 
     @PermitAll
     public List<Deployment> getAllDeployments() {
-        List<Deployment> list = new ArrayList<>();
+        List<ModelNode> deployments = new ArrayList<>();
         for (ModelNode cliDeploymentMatch : readAllDeployments())
-            list.add(toDeployment(cliDeploymentMatch.get("result")));
-        return list;
+            if (!isStaged(nameOf(cliDeploymentMatch)))
+                deployments.add(cliDeploymentMatch);
+        return new MappedList<ModelNode, Deployment>(deployments) {
+            @Override
+            protected Deployment map(ModelNode cliDeploymentMatch) {
+                return toDeployment(cliDeploymentMatch.get("result"));
+            }
+        };
     }
 
     private List<ModelNode> readAllDeployments() {
@@ -184,6 +345,14 @@ public class DeploymentContainer extends AbstractContainer {
         return result.get("result").asList();
     }
 
+    private static String nameOf(ModelNode cliDeploymentMatch) {
+        return cliDeploymentMatch.get("result").get("name").asString();
+    }
+
+    private static boolean isStaged(String name) {
+        return name.contains(STAGED);
+    }
+
     private static ModelNode readDeployments() {
         ModelNode node = new ModelNode();
         node.get("address").add("deployment", "*");
@@ -196,6 +365,9 @@ public class DeploymentContainer extends AbstractContainer {
         DeploymentName name = new DeploymentName(cliDeployment.get("name").asString());
         ContextRoot contextRoot = getContextRoot(cliDeployment);
         CheckSum hash = CheckSum.of(hash(cliDeployment));
+        CheckSum patched = patchedContent.artifactOf(hash);
+        if (patched != null)
+            hash = patched;
         log.debug("{} -> {} -> {}", name, contextRoot, hash);
         return new Deployment(name, contextRoot, hash, null);
     }
@@ -226,13 +398,13 @@ public class DeploymentContainer extends AbstractContainer {
     @DeploymentOperation
     @RolesAllowed("deployer")
     public void deploy(Deployment deployment, InputStream inputStream) {
-        new DeployPlan(deployment.getName(), inputStream).execute();
+        new DeployPlan(deployment, inputStream).execute();
     }
 
     @DeploymentOperation
     @RolesAllowed("deployer")
     public void redeploy(Deployment deployment, InputStream inputStream) {
-        new ReplacePlan(deployment.getName(), inputStream).execute();
+        new ReplacePlan(deployment, inputStream).execute();
     }
 
     @DeploymentOperation
@@ -240,4 +412,255 @@ public class DeploymentContainer extends AbstractContainer {
     public void undeploy(Deployment deployment) {
         new UndeployPlan(deployment.getName()).execute();
     }
+
+    /**
+     * Is there content with this checksum in the content repository of the container? Then we can
+     * {@link #deploy(Deployment) deploy} or {@link #redeploy(Deployment) redeploy} it without uploading it again, e.g.
+     * for a rollback or for the same artifact under a different name.
+     */
+    @PermitAll
+    public boolean hasContent(CheckSum checkSum) {
+        return contentHashes().contains(checkSum);
+    }
+
+    /** Not recursive, as we only need the content hash */
+    private static ModelNode readContent() {
+        ModelNode node = new ModelNode();
+        node.get("address").add("deployment", "*");
+        node.get("operation").set("read-resource");
+        return node;
+    }
+
+    /** Deploy the content that {@link #hasContent(CheckSum) already is} in the content repository of the container */
+    @DeploymentOperation
+    @RolesAllowed("deployer")
+    public void deploy(Deployment deployment) {
+        ModelNode result = execute(add(deployment, hashContent(deployment)));
+        checkOutcome(result);
+    }
+
+    private static ModelNode add(Deployment deployment, ModelNode content) {
+        ModelNode node = new ModelNode();
+        node.get("address").add("deployment", deployment.getName().getValue());
+        node.get("operation").set("add");
+        node.get("content").add(content);
+        node.get("enabled").set(true);
+        return node;
+    }
+
+    /** Replace the deployment with content that {@link #hasContent(CheckSum) already is} in the content repository */
+    @DeploymentOperation
+    @RolesAllowed("deployer")
+    public void redeploy(Deployment deployment) {
+        ModelNode result = execute(fullReplace(deployment, hashContent(deployment)));
+        checkOutcome(result);
+    }
+
+    /**
+     * Deploy an archive file on the host of the container, so the bytes don't have to go through the management
+     * channel; the container copies it into the content repository itself. Directories are rejected, as unmanaged
+     * content has no hash, so we couldn't tell the checksum of the deployment.
+     *
+     * @param path
+     *            must be within one of the {@link LocalRoots}
+     */
+    @DeploymentOperation
+    @RolesAllowed("deployer")
+    public void deploy(Deployment deployment, Path path) {
+        ModelNode result = execute(add(deployment, localContent(path)));
+        checkOutcome(result);
+    }
+
+    /** Replace the deployment with an archive file on the host, like {@link #deploy(Deployment, Path)} */
+    @DeploymentOperation
+    @RolesAllowed("deployer")
+    public void redeploy(Deployment deployment, Path path) {
+        ModelNode result = execute(fullReplace(deployment, localContent(path)));
+        checkOutcome(result);
+    }
+
+    private static ModelNode localContent(Path path) {
+        Path realPath = LocalRoots.checkAllowed(path, LocalRoots.ROOTS);
+        if (Files.isDirectory(realPath))
+            throw badRequest("can't deploy directory " + path + "; only archive files");
+        ModelNode content = new ModelNode();
+        content.get("url").set(realPath.toUri().toString());
+        return content;
+    }
+
+    /**
+     * Update only the entries of the deployment that have changed, instead of replacing the whole archive. The
+     * deployment gets exploded first, if it isn't already. All steps are executed in one composite operation with the
+     * changed entries attached, so they get rolled back together. The {@link PatchedContent} maps the new content hash
+     * to the checksum of the deployment, so it can still be found in the repository.
+     *
+     * @param archive
+     *            the new archive, to read the added and changed entries from
+     */
+    @DeploymentOperation
+    @RolesAllowed("deployer")
+    public void patch(Deployment deployment, ArchiveDiff diff, ZipFile archive) {
+        String name = deployment.getName().getValue();
+        boolean exploded = isExploded(name);
+        List<InputStream> attachments = new ArrayList<>();
+        List<ModelNode> steps = new ArrayList<>();
+        if (!exploded) {
+            steps.add(deploymentOperation(name, "undeploy"));
+            steps.add(deploymentOperation(name, "explode"));
+        }
+        if (!diff.transfers().isEmpty()) {
+            ModelNode addContent = deploymentOperation(name, "add-content");
+            for (String entry : diff.transfers()) {
+                ModelNode content = addContent.get("content").add();
+                content.get("input-stream-index").set(attachments.size());
+                content.get("target-path").set(entry);
+                attachments.add(inputStream(archive, entry));
+            }
+            addContent.get("overwrite").set(true);
+            steps.add(addContent);
+        }
+        if (!diff.getRemoved().isEmpty()) {
+            ModelNode removeContent = deploymentOperation(name, "remove-content");
+            for (String entry : diff.getRemoved())
+                removeContent.get("paths").add(entry);
+            steps.add(removeContent);
+        }
+        steps.add(deploymentOperation(name, exploded ? "redeploy" : "deploy"));
+
+        ModelNode composite = new ModelNode();
+        composite.get("address").setEmptyList();
+        composite.get("operation").set("composite");
+        for (ModelNode step : steps)
+            composite.get("steps").add(step);
+        OperationBuilder operation = new OperationBuilder(composite, true);
+        for (InputStream attachment : attachments)
+            operation.addInputStream(attachment);
+        checkOutcome(execute(operation.build()));
+        patchedContent.patched(CheckSum.of(readContentAttribute(name).get("hash").asBytes()), deployment.getCheckSum(),
+                contentHashes());
+    }
+
+    /** Exploded content is marked as not being an archive */
+    private boolean isExploded(String name) {
+        ModelNode archive = readContentAttribute(name).get("archive");
+        return archive.isDefined() && !archive.asBoolean();
+    }
+
+    private ModelNode readContentAttribute(String name) {
+        ModelNode node = deploymentOperation(name, "read-attribute");
+        node.get("name").set("content");
+        ModelNode result = execute(node);
+        checkOutcome(result);
+        return result.get("result").get(0);
+    }
+
+    private List<CheckSum> contentHashes() {
+        ModelNode result = execute(readContent());
+        checkOutcome(result);
+        List<CheckSum> hashes = new ArrayList<>();
+        for (ModelNode cliDeploymentMatch : result.get("result").asList())
+            hashes.add(CheckSum.of(hash(cliDeploymentMatch.get("result"))));
+        return hashes;
+    }
+
+    private static ModelNode deploymentOperation(String name, String operation) {
+        ModelNode node = new ModelNode();
+        node.get("address").add("deployment", name);
+        node.get("operation").set(operation);
+        return node;
+    }
+
+    private static InputStream inputStream(ZipFile archive, String entry) {
+        try {
+            return archive.getInputStream(archive.getEntry(entry));
+        } catch (IOException e) {
+            throw new RuntimeException("can't read " + entry + " from " + archive.getName(), e);
+        }
+    }
+
+    /** Upload the content to the container ahead of time, so {@link #activate(Deployment)} doesn't have to */
+    @DeploymentOperation
+    @RolesAllowed("deployer")
+    public void stage(Deployment deployment, InputStream inputStream) {
+        new StagePlan(deployment.getName(), inputStream).execute();
+    }
+
+    /** Replace the deployment with the content {@link #stage(Deployment, InputStream) staged} before */
+    @DeploymentOperation
+    @RolesAllowed("deployer")
+    public void activate(Deployment deployment) {
+        List<ModelNode> steps = new ArrayList<>();
+        steps.add(fullReplace(deployment, hashContent(deployment)));
+        for (ModelNode cliDeploymentMatch : readAllDeployments()) {
+            String name = nameOf(cliDeploymentMatch);
+            if (name.startsWith(deployment.getName().getValue() + STAGED)
+                    && deployment.getCheckSum().equals(CheckSum.of(hash(cliDeploymentMatch.get("result")))))
+                steps.add(remove(name));
+        }
+        if (steps.size() == 1)
+            throw notFound("no staged content " + deployment.getCheckSum() + " for " + deployment.getName());
+        executeAll(steps);
+    }
+
+    private static ModelNode fullReplace(Deployment deployment, ModelNode content) {
+        ModelNode node = new ModelNode();
+        node.get("address").setEmptyList();
+        node.get("operation").set("full-replace-deployment");
+        node.get("name").set(deployment.getName().getValue());
+        node.get("content").add(content);
+        node.get("enabled").set(true);
+        return node;
+    }
+
+    /** Refers to the content by hash, so nothing has to be uploaded */
+    private static ModelNode hashContent(Deployment deployment) {
+        ModelNode content = new ModelNode();
+        content.get("hash").set(deployment.getCheckSum().getBytes());
+        return content;
+    }
+
+    private static ModelNode remove(String deploymentName) {
+        ModelNode node = new ModelNode();
+        node.get("address").add("deployment", deploymentName);
+        node.get("operation").set("remove");
+        return node;
+    }
+
+    @Logged(level = DEBUG)
+    @Schedule(hour = "*", minute = "*/10", persistent = false)
+    public void removeExpiredStagedContent() {
+        long expired = System.currentTimeMillis() - MINUTES.toMillis(STAGING_TTL_MINUTES);
+        List<ModelNode> steps = new ArrayList<>();
+        for (ModelNode cliDeploymentMatch : readAllDeployments()) {
+            String name = nameOf(cliDeploymentMatch);
+            if (isStaged(name) && stagedAt(name) < expired) {
+                log.info("remove expired staged content {}", name);
+                steps.add(remove(name));
+            }
+        }
+        executeAll(steps);
+    }
+
+    private static long stagedAt(String name) {
+        try {
+            return Long.parseLong(name.substring(name.lastIndexOf(STAGED) + STAGED.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Execute all actions atomically, i.e. roll back all of them, if one fails.
+     *
+     * @param artifacts
+     *            the artifacts to deploy or redeploy by their checksum
+     * @return the actions with their outcome
+     */
+    @DeploymentOperation
+    @RolesAllowed("deployer")
+    public List<ReleaseAction> release(List<ReleaseAction> actions, Map<CheckSum, InputStream> artifacts) {
+        ReleasePlan plan = new ReleasePlan(actions, artifacts);
+        plan.execute();
+        return plan.results;
+    }
 }
@@ -0,0 +1,367 @@
+package com.github.t1.deployer.container;
+
+import static java.util.concurrent.TimeUnit.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.*;
+import javax.enterprise.context.ApplicationScoped;
+import javax.management.*;
+
+import lombok.extern.slf4j.Slf4j;
+
+import com.github.t1.deployer.model.ContextRoot;
+import com.github.t1.deployer.tools.Tracing;
+
+/**
+ * Serializes the deployment operations (deploy, redeploy, undeploy) per context root, while operations for different
+ * context roots run concurrently, up to {@link #getMaxParallel()} at a time. The operations run in the calling thread,
+ * so they keep its security context.
+ * <p/>
+ * When several operations for one context root are waiting, only the newest one runs; the others are superseded and
+ * get its outcome. An operation with an idempotency key that is already known (and didn't fail) is not run again, so
+ * clients can safely retry.
+ * <p/>
+ * An operation on several context roots, e.g. one level of a release, takes the lanes of all of them, so it runs
+ * neither concurrently with nor in between the operations on any of them.
+ * <p/>
+ * The queue statistics are exposed as the MXBean {@value #OBJECT_NAME}.
+ */
+@Slf4j
+@ApplicationScoped
+public class DeploymentScheduler implements DeploymentSchedulerMXBean {
+    static final String OBJECT_NAME = "com.github.t1.deployer:type=DeploymentScheduler";
+    static final String MAX_PARALLEL_PROPERTY = "deployer.deployments.max-parallel";
+    private static final int IDEMPOTENCY_KEYS = 1000;
+
+    private static class Job {
+        private final ContextRoot contextRoot;
+        private final String key;
+        private final Runnable operation;
+        private final long queued = System.nanoTime();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private Job supersededBy;
+        private RuntimeException failure;
+
+        public Job(ContextRoot contextRoot, String key, Runnable operation) {
+            this.contextRoot = contextRoot;
+            this.key = key;
+            this.operation = operation;
+        }
+    }
+
+    private static class Lane {
+        private boolean running;
+        private Job pending;
+    }
+
+    private final int maxParallel = Integer.getInteger(MAX_PARALLEL_PROPERTY, 4);
+    private final Semaphore permits = new Semaphore(maxParallel, true);
+    private final Map<ContextRoot, Lane> lanes = new HashMap<>();
+    @SuppressWarnings("serial")
+    private final Map<String, Job> idempotent = new LinkedHashMap<String, Job>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Job> eldest) {
+            return size() > IDEMPOTENCY_KEYS;
+        }
+    };
+
+    private final AtomicLong waiting = new AtomicLong();
+    private final AtomicLong running = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong totalWait = new AtomicLong();
+    private final AtomicLong maxWait = new AtomicLong();
+
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+    @PostConstruct
+    void register() {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name))
+                server.unregisterMBean(name);
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            log.warn("can't register deployment scheduler statistics: {}", e.toString());
+        }
+    }
+
+    @PreDestroy
+    void unregister() {
+        try {
+            server.unregisterMBean(new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            log.debug("can't unregister deployment scheduler statistics: {}", e.toString());
+        }
+    }
+
+    /**
+     * Run the operation when no other operation for that context root is running and there is a free slot; or not at
+     * all, if it's superseded meanwhile or the idempotency key is already known. Returns (or throws) the outcome of the
+     * operation that actually ran.
+     *
+     * @param idempotencyKey
+     *            as sent by the client; or <code>null</code>
+     */
+    public void run(ContextRoot contextRoot, String idempotencyKey, Runnable operation) {
+        String key = (idempotencyKey == null) ? null : contextRoot + " " + idempotencyKey;
+        Job job = null;
+        boolean replay = false;
+        synchronized (this) {
+            if (key != null && idempotent.containsKey(key)) {
+                log.info("replay operation on {} for idempotency key {}", contextRoot, idempotencyKey);
+                replayed.incrementAndGet();
+                job = idempotent.get(key);
+                replay = true;
+            } else {
+                job = new Job(contextRoot, key, operation);
+                if (key != null)
+                    idempotent.put(key, job);
+                enqueue(job);
+            }
+        }
+        if (!replay && awaitTurn(job))
+            execute(job);
+        awaitOutcome(job);
+    }
+
+    /**
+     * Run an operation on several context roots, when no other operation for any of them is running. The lanes are
+     * taken one by one in the order of the context roots, so two such operations can't deadlock; operations that are
+     * already waiting for one of the lanes may run before. It's neither coalesced nor idempotent.
+     */
+    public void run(Collection<ContextRoot> contextRoots, Runnable operation) {
+        List<ContextRoot> sorted = new ArrayList<>(new HashSet<>(contextRoots));
+        Collections.sort(sorted, new Comparator<ContextRoot>() {
+            @Override
+            public int compare(ContextRoot left, ContextRoot right) {
+                return left.getValue().compareTo(right.getValue());
+            }
+        });
+        long queued = System.nanoTime();
+        waiting.incrementAndGet();
+        List<ContextRoot> taken = new ArrayList<>();
+        try {
+            try {
+                for (ContextRoot contextRoot : sorted) {
+                    take(contextRoot);
+                    taken.add(contextRoot);
+                }
+            } catch (RuntimeException e) {
+                waiting.decrementAndGet();
+                throw e;
+            }
+            acquirePermit(sorted.toString(), queued);
+            try {
+                operation.run();
+                completed.incrementAndGet();
+            } finally {
+                permits.release();
+                running.decrementAndGet();
+            }
+        } finally {
+            release(taken);
+        }
+    }
+
+    /** The lane may be removed and recreated while waiting, when its operation is done and nothing else pending */
+    private synchronized void take(ContextRoot contextRoot) {
+        try {
+            while (true) {
+                Lane lane = lanes.get(contextRoot);
+                if (lane == null)
+                    lanes.put(contextRoot, lane = new Lane());
+                if (!lane.running) {
+                    lane.running = true;
+                    return;
+                }
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("interrupted while waiting to deploy " + contextRoot, e);
+        }
+    }
+
+    private synchronized void release(List<ContextRoot> contextRoots) {
+        for (ContextRoot contextRoot : contextRoots) {
+            Lane lane = lanes.get(contextRoot);
+            lane.running = false;
+            if (lane.pending == null)
+                lanes.remove(contextRoot);
+        }
+        notifyAll();
+    }
+
+    private synchronized void enqueue(Job job) {
+        Lane lane = lanes.get(job.contextRoot);
+        if (lane == null)
+            lanes.put(job.contextRoot, lane = new Lane());
+        if (lane.pending != null)
+            supersede(lane.pending, job);
+        lane.pending = job;
+        waiting.incrementAndGet();
+    }
+
+    private void supersede(Job old, Job job) {
+        log.info("coalesce waiting operation on {} with a newer one", old.contextRoot);
+        old.supersededBy = job;
+        old.done.countDown();
+        waiting.decrementAndGet();
+        coalesced.incrementAndGet();
+        notifyAll();
+    }
+
+    /** Wait until no other operation for that context root is running. Returns <code>false</code> if superseded. */
+    private synchronized boolean awaitTurn(Job job) {
+        Lane lane = lanes.get(job.contextRoot);
+        if (lane == null || lane.pending != job)
+            return false;
+        try {
+            while (lane.pending == job && lane.running)
+                wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (lane.pending == job) {
+                lane.pending = null;
+                waiting.decrementAndGet();
+                fail(job, new RuntimeException("interrupted while waiting to deploy " + job.contextRoot, e));
+                if (!lane.running)
+                    lanes.remove(job.contextRoot);
+            }
+            return false;
+        }
+        if (lane.pending != job)
+            return false;
+        lane.pending = null;
+        lane.running = true;
+        return true;
+    }
+
+    private void execute(Job job) {
+        try {
+            acquirePermit(job.contextRoot.toString(), job.queued);
+            try {
+                job.operation.run();
+                completed.incrementAndGet();
+            } finally {
+                permits.release();
+                running.decrementAndGet();
+            }
+        } catch (RuntimeException e) {
+            job.failure = e;
+        } finally {
+            done(job);
+        }
+    }
+
+    private void acquirePermit(String target, long queued) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("interrupted while waiting to deploy " + target, e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+        running.incrementAndGet();
+        long wait = System.nanoTime() - queued;
+        totalWait.addAndGet(wait);
+        for (long max = maxWait.get(); wait > max && !maxWait.compareAndSet(max, wait); max = maxWait.get())
+            continue;
+        log.debug("waited {} ms to run operation on {}", NANOSECONDS.toMillis(wait), target);
+        Tracing.phase("queue", queued);
+    }
+
+    private synchronized void done(Job job) {
+        Lane lane = lanes.get(job.contextRoot);
+        lane.running = false;
+        if (lane.pending == null)
+            lanes.remove(job.contextRoot);
+        if (job.failure != null)
+            fail(job, job.failure);
+        job.done.countDown();
+        notifyAll();
+    }
+
+    /**
+     * Failed operations may be retried with the same idempotency key; so may the operations that were superseded by
+     * the failed one, as they got its outcome.
+     */
+    private void fail(Job job, RuntimeException failure) {
+        job.failure = failure;
+        for (Iterator<Job> i = idempotent.values().iterator(); i.hasNext();)
+            if (last(i.next()) == job)
+                i.remove();
+        job.done.countDown();
+    }
+
+    private static Job last(Job job) {
+        while (job.supersededBy != null)
+            job = job.supersededBy;
+        return job;
+    }
+
+    private void awaitOutcome(Job job) {
+        try {
+            for (Job next = job; next != null; next = supersededBy(next)) {
+                job = next;
+                job.done.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("interrupted while waiting for deployment of " + job.contextRoot, e);
+        }
+        if (job.failure != null)
+            throw job.failure;
+    }
+
+    private synchronized Job supersededBy(Job job) {
+        return job.supersededBy;
+    }
+
+    @Override
+    public int getMaxParallel() {
+        return maxParallel;
+    }
+
+    @Override
+    public long getQueueDepth() {
+        return waiting.get();
+    }
+
+    @Override
+    public long getRunning() {
+        return running.get();
+    }
+
+    @Override
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    @Override
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    @Override
+    public long getReplayed() {
+        return replayed.get();
+    }
+
+    @Override
+    public long getTotalWaitMillis() {
+        return NANOSECONDS.toMillis(totalWait.get());
+    }
+
+    @Override
+    public long getMaxWaitMillis() {
+        return NANOSECONDS.toMillis(maxWait.get());
+    }
+}
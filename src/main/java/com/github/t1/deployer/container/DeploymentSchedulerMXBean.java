@@ -0,0 +1,28 @@
+package com.github.t1.deployer.container;
+
+/** The queue statistics of the {@link DeploymentScheduler} */
+public interface DeploymentSchedulerMXBean {
+    /** the maximum number of context roots that are deployed concurrently */
+    int getMaxParallel();
+
+    /** the number of operations waiting for their context root or for a free slot */
+    long getQueueDepth();
+
+    /** the number of operations currently running */
+    long getRunning();
+
+    /** the number of operations that have completed successfully */
+    long getCompleted();
+
+    /** the number of operations that have not been run, as a newer one for the same context root was queued */
+    long getCoalesced();
+
+    /** the number of requests that have not been run, as an operation with the same idempotency key was known */
+    long getReplayed();
+
+    /** the total time operations have been waiting before running */
+    long getTotalWaitMillis();
+
+    /** the longest time an operation has been waiting before running */
+    long getMaxWaitMillis();
+}
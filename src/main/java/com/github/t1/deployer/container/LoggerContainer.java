@@ -11,7 +11,8 @@ import lombok.extern.slf4j.Slf4j;
 
 import org.jboss.dmr.ModelNode;
 
-import com.github.t1.deployer.model.LoggerConfig;
+import com.github.t1.deployer.model.*;
+import com.github.t1.deployer.tools.MappedList;
 import com.github.t1.log.*;
 
 @Slf4j
@@ -19,10 +20,34 @@ import com.github.t1.log.*;
 @Stateless
 public class LoggerContainer extends AbstractContainer {
     public List<LoggerConfig> getLoggers() {
+        return new MappedList<ModelNode, LoggerConfig>(readAllLoggers()) {
+            @Override
+            protected LoggerConfig map(ModelNode cliLoggerMatch) {
+                return toLogger(cliLoggerMatch.get("result"));
+            }
+        };
+    }
+
+    /** Filters, sorts, and pages only the categories; then reads only the selected loggers in one composite call */
+    public Slice<LoggerConfig> getLoggers(Paging paging) {
+        List<String> categories = new ArrayList<>();
+        for (String category : readChildrenNames(logging(), "logger"))
+            if (paging.matches(category))
+                categories.add(category);
+        paging.sort(categories, nameOrder(paging, "category", "name"));
+        Slice<String> slice = paging.slice(categories);
+
+        List<ModelNode> steps = new ArrayList<>();
+        for (String category : slice.getElements())
+            steps.add(readLogger(category));
         List<LoggerConfig> loggers = new ArrayList<>();
-        for (ModelNode cliLoggerMatch : readAllLoggers())
-            loggers.add(toLogger(cliLoggerMatch.get("result")));
-        return loggers;
+        for (ModelNode cliLogger : executeAll(steps))
+            loggers.add(toLogger(cliLogger));
+        return slice.with(loggers);
+    }
+
+    private static ModelNode logging() {
+        return new ModelNode().add("subsystem", "logging");
     }
 
     private List<ModelNode> readAllLoggers() {
@@ -0,0 +1,55 @@
+package com.github.t1.deployer.container;
+
+import java.util.*;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import com.github.t1.deployer.model.OperationTrace;
+
+/**
+ * The last <code>deployer.traces.capacity</code> (default 100) {@link OperationTrace traces} in a ring buffer, i.e.
+ * a fixed size array where every new trace overwrites the oldest one, so it never grows, no matter how many
+ * operations run.
+ */
+@ApplicationScoped
+public class OperationTraces {
+    private final OperationTrace[] ring;
+    /** the id of the next trace; its slot is <code>next % capacity</code> */
+    private long next = 1;
+
+    public OperationTraces() {
+        this(Integer.getInteger("deployer.traces.capacity", 100));
+    }
+
+    OperationTraces(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("trace capacity must be positive, but is " + capacity);
+        this.ring = new OperationTrace[capacity];
+    }
+
+    /** @return the trace with its id */
+    public synchronized OperationTrace add(OperationTrace trace) {
+        trace = trace.withId(next);
+        ring[(int) (next++ % ring.length)] = trace;
+        return trace;
+    }
+
+    /** @return the traces still in the buffer, oldest first */
+    public synchronized List<OperationTrace> getAll() {
+        List<OperationTrace> result = new ArrayList<>();
+        for (long id = Math.max(1, next - ring.length); id < next; id++)
+            result.add(ring[(int) (id % ring.length)]);
+        return result;
+    }
+
+    /** @return the trace, or <code>null</code>, if there never was one with that id or it has been overwritten */
+    public synchronized OperationTrace get(long id) {
+        if (id < 1 || id >= next || id < next - ring.length)
+            return null;
+        return ring[(int) (id % ring.length)];
+    }
+
+    public int getCapacity() {
+        return ring.length;
+    }
+}
@@ -0,0 +1,81 @@
+package com.github.t1.deployer.container;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.util.*;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+
+import lombok.extern.slf4j.Slf4j;
+
+import com.github.t1.deployer.model.*;
+
+/**
+ * After a {@link DeploymentContainer#patch(Deployment, ArchiveDiff, java.util.zip.ZipFile) patch}, the content hash of
+ * a deployment is the hash of the exploded content, which the repository doesn't know. So we remember the checksum of
+ * the artifact that was applied, and the container reports that instead of the content hash. The mapping is kept in
+ * <code>deployer-patched-content.properties</code> in the server data dir, so it survives a restart; the entries of
+ * content that is gone are dropped with the next patch.
+ */
+@Slf4j
+@ApplicationScoped
+public class PatchedContent {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private Path file;
+    private final Map<CheckSum, CheckSum> artifacts = new HashMap<>();
+
+    public PatchedContent() {}
+
+    PatchedContent(Path file) {
+        this.file = file;
+    }
+
+    @PostConstruct
+    synchronized void load() {
+        if (file == null)
+            this.file = Paths.get(System.getProperty("jboss.server.data.dir", "."),
+                    "deployer-patched-content.properties");
+        if (!Files.exists(file))
+            return;
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            log.error("can't read patched content from {}", file, e);
+            return;
+        }
+        for (String content : properties.stringPropertyNames())
+            artifacts.put(CheckSum.fromString(content), CheckSum.fromString(properties.getProperty(content)));
+        log.debug("loaded {} patched contents from {}", artifacts.size(), file);
+    }
+
+    /** @return the checksum of the artifact that was patched into this content, or <code>null</code> if none was */
+    public synchronized CheckSum artifactOf(CheckSum content) {
+        return artifacts.get(content);
+    }
+
+    /**
+     * @param present
+     *            the content hashes of all deployments; the entries for all others are dropped
+     */
+    public synchronized void patched(CheckSum content, CheckSum artifact, Collection<CheckSum> present) {
+        log.debug("patched {} to content {}", artifact, content);
+        artifacts.keySet().retainAll(present);
+        artifacts.put(content, artifact);
+        store();
+    }
+
+    private void store() {
+        Properties properties = new Properties();
+        for (Map.Entry<CheckSum, CheckSum> entry : artifacts.entrySet())
+            properties.setProperty(entry.getKey().hexString(), entry.getValue().hexString());
+        try (Writer writer = Files.newBufferedWriter(file, UTF_8)) {
+            properties.store(writer, "content hashes of patched deployments -> checksums of the artifacts");
+        } catch (IOException e) {
+            log.error("can't write patched content to {}", file, e);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.github.t1.deployer.container;
+
+import static java.util.concurrent.TimeUnit.*;
+
+import java.util.*;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import com.github.t1.deployer.model.*;
+
+/**
+ * The {@link RequestStatistics} of every deployment, sampled every {@value #SAMPLE_SECONDS} seconds by the
+ * {@link StatisticsContainer}, for the last hour. Every metric of every deployment is kept in a ring buffer of
+ * primitives. The counters of the container start over when an application is redeployed, so a counter that went down
+ * counts from 0.
+ * <p/>
+ * The samples are only kept in memory, so the trends start over after a restart.
+ */
+@ApplicationScoped
+public class RequestTimeSeries {
+    static final int SAMPLE_SECONDS = 15;
+    static final long HOUR = HOURS.toMillis(1);
+    static final int INTERVALS = 12;
+    /** one hour, plus the sample before, to have the deltas of the whole hour */
+    static final int CAPACITY = (int) (HOUR / SECONDS.toMillis(SAMPLE_SECONDS)) + 1;
+
+    private static class Series {
+        private final long[] timestamps = new long[CAPACITY];
+        private final long[] requestCounts = new long[CAPACITY];
+        private final long[] totalRequestTimes = new long[CAPACITY];
+        private final long[] maxRequestTimes = new long[CAPACITY];
+        private final int[] activeSessions = new int[CAPACITY];
+        private final long[] serverRequestCounts = new long[CAPACITY];
+        private final long[] serverErrorCounts = new long[CAPACITY];
+        private int next;
+        private int size;
+
+        void add(long timestamp, RequestStatistics statistics) {
+            timestamps[next] = timestamp;
+            requestCounts[next] = statistics.getRequestCount();
+            totalRequestTimes[next] = statistics.getTotalRequestTime();
+            maxRequestTimes[next] = statistics.getMaxRequestTime();
+            activeSessions[next] = statistics.getActiveSessions();
+            serverRequestCounts[next] = statistics.getServerRequestCount();
+            serverErrorCounts[next] = statistics.getServerErrorCount();
+            next = (next + 1) % CAPACITY;
+            if (size < CAPACITY)
+                size++;
+        }
+
+        /** the index of the i-th oldest sample */
+        int index(int i) {
+            return (next - size + i + CAPACITY) % CAPACITY;
+        }
+    }
+
+    /** The deltas of the samples from one interval */
+    private static class Sum {
+        private long millis;
+        private long requests;
+        private long requestTime;
+        private long serverRequests;
+        private long serverErrors;
+        private int activeSessions;
+
+        void add(Series series, int previous, int current) {
+            millis += series.timestamps[current] - series.timestamps[previous];
+            requests += delta(series.requestCounts, previous, current);
+            requestTime += delta(series.totalRequestTimes, previous, current);
+            serverRequests += delta(series.serverRequestCounts, previous, current);
+            serverErrors += delta(series.serverErrorCounts, previous, current);
+            activeSessions = series.activeSessions[current];
+        }
+
+        double requestRate() {
+            return (millis == 0) ? 0 : requests * 1000.0 / millis;
+        }
+
+        double meanRequestTime() {
+            return (requests == 0) ? 0 : (double) requestTime / requests;
+        }
+
+        double serverErrorRate() {
+            return (serverRequests == 0) ? 0 : (double) serverErrors / serverRequests;
+        }
+    }
+
+    private static long delta(long[] counter, int previous, int current) {
+        return (counter[current] < counter[previous]) ? counter[current] : counter[current] - counter[previous];
+    }
+
+    private final Map<DeploymentName, Series> series = new HashMap<>();
+
+    /** The statistics of all deployments at one time; the series of deployments that are gone are dropped */
+    public synchronized void add(long timestamp, Map<DeploymentName, RequestStatistics> statistics) {
+        series.keySet().retainAll(statistics.keySet());
+        for (Map.Entry<DeploymentName, RequestStatistics> entry : statistics.entrySet()) {
+            Series deployment = series.get(entry.getKey());
+            if (deployment == null)
+                series.put(entry.getKey(), deployment = new Series());
+            deployment.add(timestamp, entry.getValue());
+        }
+    }
+
+    /** @return <code>null</code>, if there are less than two samples */
+    public synchronized RequestTrend trend(DeploymentName name) {
+        Series deployment = series.get(name);
+        if (deployment == null || deployment.size < 2)
+            return null;
+        int newest = deployment.index(deployment.size - 1);
+        long to = deployment.timestamps[newest];
+        long from = to - HOUR;
+        long oldest = to;
+        Sum total = new Sum();
+        Sum[] intervals = new Sum[INTERVALS];
+        for (int i = 1; i < deployment.size; i++) {
+            int previous = deployment.index(i - 1);
+            int current = deployment.index(i);
+            if (deployment.timestamps[previous] < from)
+                continue;
+            oldest = Math.min(oldest, deployment.timestamps[previous]);
+            total.add(deployment, previous, current);
+            int interval = (int) Math.max(0, (deployment.timestamps[current] - from - 1) * INTERVALS / HOUR);
+            if (intervals[interval] == null)
+                intervals[interval] = new Sum();
+            intervals[interval].add(deployment, previous, current);
+        }
+        List<RequestTrend.Interval> list = new ArrayList<>();
+        for (int i = 0; i < INTERVALS; i++)
+            if (intervals[i] != null)
+                list.add(new RequestTrend.Interval(from + i * HOUR / INTERVALS, intervals[i].requests,
+                        intervals[i].requestRate(), intervals[i].meanRequestTime(), intervals[i].serverErrorRate(),
+                        intervals[i].activeSessions));
+        return new RequestTrend(name, oldest, to, total.requests, total.requestRate(), total.meanRequestTime(),
+                deployment.maxRequestTimes[newest], total.serverErrorRate(), deployment.activeSessions[newest], list);
+    }
+}
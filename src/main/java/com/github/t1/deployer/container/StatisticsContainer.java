@@ -0,0 +1,96 @@
+package com.github.t1.deployer.container;
+
+import static com.github.t1.log.LogLevel.*;
+
+import java.util.*;
+
+import javax.ejb.*;
+import javax.inject.Inject;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.jboss.dmr.*;
+
+import com.github.t1.deployer.model.*;
+import com.github.t1.log.Logged;
+
+/**
+ * The request statistics of the Undertow web subsystem. They are only counted, if <code>statistics-enabled</code> is
+ * set in the Undertow subsystem; otherwise they are all 0. They are {@link #sample() sampled} into the
+ * {@link RequestTimeSeries}.
+ */
+@Slf4j
+@Logged(level = DEBUG)
+@Stateless
+public class StatisticsContainer extends AbstractContainer {
+    private static final String[] LISTENER_TYPES = { "http-listener", "https-listener", "ajp-listener" };
+
+    @Inject
+    RequestTimeSeries series;
+
+    @Schedule(hour = "*", minute = "*", second = "*/" + RequestTimeSeries.SAMPLE_SECONDS, persistent = false)
+    public void sample() {
+        try {
+            series.add(System.currentTimeMillis(), getRequestStatistics());
+        } catch (RuntimeException e) {
+            log.debug("can't sample the request statistics: {}", e.toString());
+        }
+    }
+
+    /** The statistics of all web deployments, read in one composite call */
+    public Map<DeploymentName, RequestStatistics> getRequestStatistics() {
+        List<ModelNode> steps = new ArrayList<>();
+        steps.add(readRuntime(new ModelNode().add("deployment", "*").add("subsystem", "undertow"), true));
+        for (String listenerType : LISTENER_TYPES)
+            steps.add(readRuntime(new ModelNode().add("subsystem", "undertow").add("server", "*")
+                    .add(listenerType, "*"), false));
+        List<ModelNode> results = executeAll(steps);
+
+        long serverRequestCount = 0;
+        long serverErrorCount = 0;
+        for (ModelNode listeners : results.subList(1, results.size())) {
+            for (ModelNode listener : list(listeners)) {
+                serverRequestCount += asLong(listener.get("result").get("request-count"));
+                serverErrorCount += asLong(listener.get("result").get("error-count"));
+            }
+        }
+
+        Map<DeploymentName, RequestStatistics> statistics = new LinkedHashMap<>();
+        for (ModelNode deployment : list(results.get(0))) {
+            DeploymentName name = new DeploymentName(deployment.get("address").get(0).get("deployment").asString());
+            ModelNode undertow = deployment.get("result");
+            long requestCount = 0;
+            long totalRequestTime = 0;
+            long maxRequestTime = 0;
+            if (undertow.get("servlet").isDefined()) {
+                for (Property servlet : undertow.get("servlet").asPropertyList()) {
+                    ModelNode value = servlet.getValue();
+                    requestCount += asLong(value.get("request-count"));
+                    totalRequestTime += asLong(value.get("total-request-time"));
+                    maxRequestTime = Math.max(maxRequestTime, asLong(value.get("max-request-time")));
+                }
+            }
+            statistics.put(name, new RequestStatistics(name, requestCount, totalRequestTime, maxRequestTime,
+                    (int) asLong(undertow.get("active-sessions")), serverRequestCount, serverErrorCount));
+        }
+        log.debug("read request statistics of {} deployments", statistics.size());
+        return statistics;
+    }
+
+    private static ModelNode readRuntime(ModelNode address, boolean recursive) {
+        ModelNode node = new ModelNode();
+        node.get("address").set(address);
+        node.get("operation").set("read-resource");
+        node.get("include-runtime").set(true);
+        node.get("recursive").set(recursive);
+        return node;
+    }
+
+    private static List<ModelNode> list(ModelNode wildcardResult) {
+        return wildcardResult.isDefined() ? wildcardResult.asList() : Collections.<ModelNode> emptyList();
+    }
+
+    private static long asLong(ModelNode node) {
+        return node.isDefined() ? node.asLong() : 0;
+    }
+}
@@ -0,0 +1,100 @@
+package com.github.t1.deployer.model;
+
+import static javax.xml.bind.annotation.XmlAccessType.*;
+
+import java.util.*;
+import java.util.zip.*;
+
+import javax.xml.bind.annotation.*;
+
+import lombok.*;
+import lombok.experimental.Wither;
+
+/**
+ * The entries that differ between two archives. They are compared by the name, CRC, and size in the central
+ * directories, i.e. the contents are never read.
+ */
+@Value
+@AllArgsConstructor
+@XmlRootElement(name = "archive-diff")
+@XmlAccessorType(FIELD)
+public class ArchiveDiff {
+    public static ArchiveDiff between(ZipFile from, ZipFile to) {
+        Map<String, ZipEntry> fromEntries = entries(from);
+        List<String> added = new ArrayList<>();
+        List<String> changed = new ArrayList<>();
+        long transferBytes = 0;
+        long totalBytes = 0;
+        long fromBytes = 0;
+        for (ZipEntry entry : fromEntries.values())
+            fromBytes += entry.getSize();
+        for (ZipEntry entry : entries(to).values()) {
+            totalBytes += entry.getSize();
+            ZipEntry old = fromEntries.remove(entry.getName());
+            if (old == null) {
+                added.add(entry.getName());
+                transferBytes += entry.getSize();
+            } else if (old.getCrc() != entry.getCrc() || old.getSize() != entry.getSize()) {
+                changed.add(entry.getName());
+                transferBytes += entry.getSize();
+            }
+        }
+        List<String> removed = new ArrayList<>(fromEntries.keySet());
+        return new ArchiveDiff(added, changed, removed, transferBytes, totalBytes, totalBytes - fromBytes, true);
+    }
+
+    private static Map<String, ZipEntry> entries(ZipFile zipFile) {
+        Map<String, ZipEntry> entries = new LinkedHashMap<>();
+        for (Enumeration<? extends ZipEntry> e = zipFile.entries(); e.hasMoreElements();) {
+            ZipEntry entry = e.nextElement();
+            if (!entry.isDirectory())
+                entries.put(entry.getName(), entry);
+        }
+        return entries;
+    }
+
+    List<String> added;
+    List<String> changed;
+    List<String> removed;
+
+    /** the uncompressed size of the added and changed entries */
+    long transferBytes;
+    /** the uncompressed size of all entries of the new archive */
+    long totalBytes;
+    /** the uncompressed size of the new archive minus that of the old archive */
+    long sizeDelta;
+
+    /** <code>false</code> if the diff was too large, so the whole archive was replaced instead */
+    @Wither
+    boolean incremental;
+
+    /** required by JAXB, etc. */
+    @SuppressWarnings("unused")
+    private ArchiveDiff() {
+        this.added = null;
+        this.changed = null;
+        this.removed = null;
+        this.transferBytes = 0;
+        this.totalBytes = 0;
+        this.sizeDelta = 0;
+        this.incremental = false;
+    }
+
+    /** the entries that have to be transferred, i.e. the added and changed entries */
+    public List<String> transfers() {
+        List<String> transfers = new ArrayList<>(added);
+        transfers.addAll(changed);
+        return transfers;
+    }
+
+    /** @return <code>true</code> if at most that fraction of the new archive has to be transferred */
+    public boolean isSmallerThan(double ratio) {
+        return transferBytes <= ratio * totalBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "+" + added.size() + " ~" + changed.size() + " -" + removed.size() + ": transfer " + transferBytes
+                + " of " + totalBytes + " bytes" + (incremental ? "" : " (replaced)");
+    }
+}
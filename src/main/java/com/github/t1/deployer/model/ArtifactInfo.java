@@ -0,0 +1,35 @@
+package com.github.t1.deployer.model;
+
+import static javax.xml.bind.annotation.XmlAccessType.*;
+
+import java.util.List;
+
+import javax.xml.bind.annotation.*;
+
+import lombok.*;
+
+/** What an artifact contains, as far as it can be seen without unpacking it */
+@Value
+@AllArgsConstructor
+@XmlRootElement(name = "artifact")
+@XmlAccessorType(FIELD)
+public class ArtifactInfo {
+    /** the context roots of the web modules; empty for artifacts without web modules */
+    @XmlElement(name = "contextRoot")
+    List<ContextRoot> contextRoots;
+    /** the modules of an ear, or only the module itself */
+    @XmlElement(name = "module")
+    List<String> modules;
+    /** the number of classes not within nested archives */
+    int classCount;
+    long uncompressedSize;
+
+    /** required by JAXB, etc. */
+    @SuppressWarnings("unused")
+    private ArtifactInfo() {
+        this.contextRoots = null;
+        this.modules = null;
+        this.classCount = 0;
+        this.uncompressedSize = 0;
+    }
+}
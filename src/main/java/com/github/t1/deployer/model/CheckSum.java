@@ -11,14 +11,37 @@ import javax.xml.bind.annotation.*;
 
 import lombok.*;
 
-import com.fasterxml.jackson.databind.annotation.JsonSerialize;
-import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import com.fasterxml.jackson.core.*;
+import com.fasterxml.jackson.databind.*;
+import com.fasterxml.jackson.databind.annotation.*;
 
 @Value
 @XmlAccessorType(NONE)
 @RequiredArgsConstructor
-@JsonSerialize(using = ToStringSerializer.class)
+@JsonSerialize(using = CheckSum.Serializer.class)
+@JsonDeserialize(using = CheckSum.Deserializer.class)
 public class CheckSum {
+    /** Binary formats (e.g. CBOR) get the raw bytes, text formats (e.g. JSON) the hex string */
+    public static class Serializer extends JsonSerializer<CheckSum> {
+        @Override
+        public void serialize(CheckSum value, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            if (generator.canWriteBinaryNatively())
+                generator.writeBinary(value.bytes);
+            else
+                generator.writeString(value.hexString());
+        }
+    }
+
+    public static class Deserializer extends JsonDeserializer<CheckSum> {
+        @Override
+        public CheckSum deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            if (parser.getCurrentToken() == JsonToken.VALUE_EMBEDDED_OBJECT)
+                return of(parser.getBinaryValue());
+            return fromString(parser.getText());
+        }
+    }
+
     public static CheckSum of(byte[] bytes) {
         return new CheckSum(bytes);
     }
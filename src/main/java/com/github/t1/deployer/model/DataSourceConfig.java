@@ -121,6 +121,10 @@ public class DataSourceConfig implements Comparable<DataSourceConfig> {
      */
     // int loginTimeout() default 0;
 
+    /** required by Jackson, etc. */
+    @SuppressWarnings("unused")
+    private DataSourceConfig() {}
+
     @Override
     public int compareTo(DataSourceConfig that) {
         return this.name.compareToIgnoreCase(that.name);
@@ -0,0 +1,44 @@
+package com.github.t1.deployer.model;
+
+import java.util.*;
+
+/**
+ * Orders nodes by their dependencies into levels: every node only depends on nodes in earlier levels, so the nodes
+ * within one level can be processed concurrently. Dependencies on nodes that are not in the graph are ignored, as
+ * there is nothing to wait for.
+ */
+public class DependencyGraph<T> {
+    private final Map<T, Set<T>> dependencies = new LinkedHashMap<>();
+
+    public DependencyGraph<T> node(T node, Collection<T> dependsOn) {
+        if (dependencies.containsKey(node))
+            throw new IllegalArgumentException("duplicate node " + node);
+        dependencies.put(node, (dependsOn == null) ? new HashSet<T>() : new HashSet<>(dependsOn));
+        return this;
+    }
+
+    /** @throws IllegalArgumentException if there is a cycle */
+    public List<List<T>> levels() {
+        Map<T, Set<T>> remaining = new LinkedHashMap<>();
+        for (Map.Entry<T, Set<T>> entry : dependencies.entrySet()) {
+            Set<T> open = new HashSet<>(entry.getValue());
+            open.retainAll(dependencies.keySet());
+            remaining.put(entry.getKey(), open);
+        }
+        List<List<T>> levels = new ArrayList<>();
+        while (!remaining.isEmpty()) {
+            List<T> level = new ArrayList<>();
+            for (Map.Entry<T, Set<T>> entry : remaining.entrySet())
+                if (entry.getValue().isEmpty())
+                    level.add(entry.getKey());
+            if (level.isEmpty())
+                throw new IllegalArgumentException("dependency cycle between " + remaining.keySet());
+            for (T done : level)
+                remaining.remove(done);
+            for (Set<T> open : remaining.values())
+                open.removeAll(level);
+            levels.add(level);
+        }
+        return levels;
+    }
+}
@@ -18,10 +18,11 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 public class Deployment implements Comparable<Deployment> {
     public static final String NEW_DEPLOYMENT_PATH = "!";
     private static final DeploymentName NEW_DEPLOYMENT_NAME = new DeploymentName(NEW_DEPLOYMENT_PATH);
-    public static final Deployment NEW_DEPLOYMENT = new Deployment(NEW_DEPLOYMENT_NAME, null, null, null, null);
+    public static final Deployment NEW_DEPLOYMENT = new Deployment(NEW_DEPLOYMENT_NAME, null, null, null, null, null);
 
     @Wither
     private final DeploymentName name;
+    @Wither
     private final ContextRoot contextRoot;
     private final CheckSum checkSum;
 
@@ -29,6 +30,9 @@ public class Deployment implements Comparable<Deployment> {
     private Version version;
     @Wither
     private List<VersionInfo> availableVersions;
+    /** the trend over the last hour, if there are samples */
+    @Wither
+    private RequestTrend requests;
 
     /** required by JAXB, etc. */
     @SuppressWarnings("unused")
@@ -38,14 +42,15 @@ public class Deployment implements Comparable<Deployment> {
         this.checkSum = null;
         this.version = null;
         this.availableVersions = null;
+        this.requests = null;
     }
 
     public Deployment(ContextRoot contextRoot) {
-        this(null, contextRoot, null, null, null);
+        this(null, contextRoot, null, null, null, null);
     }
 
     public Deployment(DeploymentName name, ContextRoot contextRoot, CheckSum checkSum, Version version) {
-        this(name, contextRoot, checkSum, version, null);
+        this(name, contextRoot, checkSum, version, null, null);
     }
 
     @Override
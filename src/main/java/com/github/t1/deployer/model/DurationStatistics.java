@@ -0,0 +1,57 @@
+package com.github.t1.deployer.model;
+
+import static javax.xml.bind.annotation.XmlAccessType.*;
+
+import java.util.List;
+
+import javax.xml.bind.annotation.*;
+
+import lombok.*;
+
+/** How long the recent deploys and redeploys of one context root took; all durations in milliseconds */
+@Value
+@AllArgsConstructor
+@XmlRootElement(name = "durations")
+@XmlAccessorType(FIELD)
+public class DurationStatistics {
+    @Value
+    @AllArgsConstructor
+    @XmlAccessorType(FIELD)
+    public static class Sample {
+        /** milliseconds since the epoch */
+        long timestamp;
+        Version version;
+        /** the size of the artifact uploaded */
+        long bytes;
+        long duration;
+
+        /** required by JAXB, etc. */
+        @SuppressWarnings("unused")
+        private Sample() {
+            this.timestamp = 0;
+            this.version = null;
+            this.bytes = 0;
+            this.duration = 0;
+        }
+    }
+
+    ContextRoot contextRoot;
+    long median;
+    long p90;
+    long p95;
+    long max;
+    /** oldest first */
+    @XmlElement(name = "sample")
+    List<Sample> samples;
+
+    /** required by JAXB, etc. */
+    @SuppressWarnings("unused")
+    private DurationStatistics() {
+        this.contextRoot = null;
+        this.median = 0;
+        this.p90 = 0;
+        this.p95 = 0;
+        this.max = 0;
+        this.samples = null;
+    }
+}
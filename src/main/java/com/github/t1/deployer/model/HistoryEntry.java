@@ -0,0 +1,65 @@
+package com.github.t1.deployer.model;
+
+import static javax.xml.bind.annotation.XmlAccessType.*;
+
+import javax.xml.bind.annotation.*;
+
+import lombok.*;
+import lombok.experimental.Wither;
+
+/** One deployment operation as recorded in the history: what was deployed before and after, by whom, and how */
+@Value
+@Builder
+@AllArgsConstructor
+@XmlRootElement(name = "entry")
+@XmlAccessorType(FIELD)
+public class HistoryEntry {
+    public static final String SUCCESS = "success";
+
+    /** milliseconds since the epoch */
+    @Wither
+    long timestamp;
+    String principal;
+    String operation;
+    ContextRoot contextRoot;
+    DeploymentName name;
+    CheckSum oldCheckSum;
+    Version oldVersion;
+    /** <code>null</code> after an undeploy */
+    CheckSum newCheckSum;
+    Version newVersion;
+    /** milliseconds */
+    long duration;
+    /** {@link #SUCCESS} or the failure message */
+    String outcome;
+
+    /** required by JAXB, etc. */
+    @SuppressWarnings("unused")
+    private HistoryEntry() {
+        this.timestamp = 0;
+        this.principal = null;
+        this.operation = null;
+        this.contextRoot = null;
+        this.name = null;
+        this.oldCheckSum = null;
+        this.oldVersion = null;
+        this.newCheckSum = null;
+        this.newVersion = null;
+        this.duration = 0;
+        this.outcome = null;
+    }
+
+    public boolean isSuccess() {
+        return SUCCESS.equals(outcome);
+    }
+
+    /** Is there something deployed after this operation? */
+    public boolean isDeployed() {
+        return newCheckSum != null;
+    }
+
+    /** Did something else run before, that we could go back to? */
+    public boolean isRollbackPossible() {
+        return isSuccess() && oldCheckSum != null;
+    }
+}
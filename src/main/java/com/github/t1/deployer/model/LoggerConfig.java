@@ -6,6 +6,7 @@ import lombok.experimental.Accessors;
 import com.github.t1.log.LogLevel;
 
 @Data
+@RequiredArgsConstructor
 @Accessors(chain = true)
 public class LoggerConfig implements Comparable<LoggerConfig> {
     public static final String NEW_LOGGER = "!";
@@ -15,6 +16,10 @@ public class LoggerConfig implements Comparable<LoggerConfig> {
     @NonNull
     LogLevel level;
 
+    /** required by Jackson, etc. */
+    @SuppressWarnings("unused")
+    private LoggerConfig() {}
+
     @Override
     public int compareTo(LoggerConfig that) {
         return this.category.compareToIgnoreCase(that.category);
@@ -0,0 +1,84 @@
+package com.github.t1.deployer.model;
+
+import static javax.xml.bind.annotation.XmlAccessType.*;
+
+import java.util.List;
+
+import javax.xml.bind.annotation.*;
+
+import lombok.*;
+import lombok.experimental.Wither;
+
+/** Where the time of one deployment operation went, phase by phase, e.g. to analyse a slow deploy afterwards */
+@Value
+@Builder
+@AllArgsConstructor
+@XmlRootElement(name = "trace")
+@XmlAccessorType(FIELD)
+public class OperationTrace {
+    @Value
+    @AllArgsConstructor
+    @XmlAccessorType(FIELD)
+    public static class Phase {
+        /** e.g. <code>repository:search</code>, <code>download</code>, <code>queue</code>, <code>plan:execute</code> */
+        String name;
+        /** microseconds since the start of the trace */
+        long offset;
+        /** microseconds */
+        long duration;
+        /** downloaded or uploaded in this phase */
+        long bytes;
+
+        /** required by JAXB, etc. */
+        @SuppressWarnings("unused")
+        private Phase() {
+            this.name = null;
+            this.offset = 0;
+            this.duration = 0;
+            this.bytes = 0;
+        }
+    }
+
+    /** ascending, since the deployer started; assigned when it's stored */
+    @Wither
+    long id;
+    /** milliseconds since the epoch */
+    long timestamp;
+    String principal;
+    /** e.g. <code>deploy</code> or, for all actions of a release level, <code>release</code> */
+    String operation;
+    @XmlElement(name = "contextRoot")
+    List<ContextRoot> contextRoots;
+    /** milliseconds, including the phases before the operation itself, e.g. the download */
+    long duration;
+    long bytesDownloaded;
+    long bytesUploaded;
+    /** {@link HistoryEntry#SUCCESS} or the failure message */
+    String outcome;
+    /** in the order they ended */
+    @XmlElement(name = "phase")
+    List<Phase> phases;
+    /** of the context roots that are configured to be warmed up */
+    @XmlElement(name = "warmUp")
+    List<WarmUpResult> warmUps;
+
+    /** required by JAXB, etc. */
+    @SuppressWarnings("unused")
+    private OperationTrace() {
+        this.id = 0;
+        this.timestamp = 0;
+        this.principal = null;
+        this.operation = null;
+        this.contextRoots = null;
+        this.duration = 0;
+        this.bytesDownloaded = 0;
+        this.bytesUploaded = 0;
+        this.outcome = null;
+        this.phases = null;
+        this.warmUps = null;
+    }
+
+    public boolean isSuccess() {
+        return HistoryEntry.SUCCESS.equals(outcome);
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.t1.deployer.model;
+
+import java.util.*;
+
+import lombok.Value;
+
+/**
+ * Which part of a list to return: the elements with a name (or context root, etc.) starting with the {@link #filter}
+ * (a trailing <code>*</code> is optional), sorted by the {@link #sort} property, and of those only {@link #limit}
+ * elements starting at the {@link #offset}. Apply the filter as early as possible, i.e. before anything expensive has
+ * to be done per element.
+ */
+@Value
+public class Paging {
+    public static final Paging ALL = new Paging(null, null, 0, null);
+
+    String filter;
+    /** the property to sort by, prefixed with a <code>-</code> for descending order; or <code>null</code> */
+    String sort;
+    int offset;
+    /** the maximum number of elements; or <code>null</code> for all */
+    Integer limit;
+
+    public boolean matches(Object... values) {
+        String prefix = prefix();
+        if (prefix.isEmpty())
+            return true;
+        for (Object value : values)
+            if (value != null && value.toString().startsWith(prefix))
+                return true;
+        return false;
+    }
+
+    private String prefix() {
+        if (filter == null)
+            return "";
+        return filter.endsWith("*") ? filter.substring(0, filter.length() - 1) : filter;
+    }
+
+    public boolean isSorted() {
+        return sort != null && !sort.isEmpty();
+    }
+
+    public String getSortProperty() {
+        return isDescending() ? sort.substring(1) : sort;
+    }
+
+    public boolean isDescending() {
+        return isSorted() && sort.startsWith("-");
+    }
+
+    /** Sort the list in place by that comparator, if {@link #isSorted() sorting} is requested at all */
+    public <T> void sort(List<T> list, Comparator<T> comparator) {
+        if (isSorted())
+            Collections.sort(list, isDescending() ? Collections.reverseOrder(comparator) : comparator);
+    }
+
+    /** The elements from the offset up to the limit of that (already filtered and sorted) list */
+    public <T> Slice<T> slice(List<T> list) {
+        int from = Math.min(offset, list.size());
+        int to = (limit == null) ? list.size() : Math.min(list.size(), from + limit);
+        return new Slice<>(list.subList(from, to), offset, limit, list.size());
+    }
+}
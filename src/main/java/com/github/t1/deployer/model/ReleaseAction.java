@@ -0,0 +1,52 @@
+package com.github.t1.deployer.model;
+
+import static javax.xml.bind.annotation.XmlAccessType.*;
+
+import javax.xml.bind.annotation.*;
+
+import lombok.*;
+import lombok.experimental.Wither;
+
+/** One step of a release, and after it has been executed, its outcome in the container */
+@Value
+@AllArgsConstructor
+@XmlRootElement(name = "action")
+@XmlAccessorType(FIELD)
+public class ReleaseAction {
+    public enum Type {
+        DEPLOY,
+        REDEPLOY,
+        UNDEPLOY;
+
+        /** the name of the single operation, e.g. for the audit log */
+        public String operation() {
+            return name().toLowerCase();
+        }
+    }
+
+    Type type;
+    Deployment deployment;
+
+    /** <code>EXECUTED</code>, <code>FAILED</code>, <code>ROLLED_BACK</code>, etc.; <code>null</code> before executing */
+    @Wither
+    String outcome;
+    @Wither
+    String message;
+
+    /** required by JAXB, etc. */
+    @SuppressWarnings("unused")
+    private ReleaseAction() {
+        this.type = null;
+        this.deployment = null;
+        this.outcome = null;
+        this.message = null;
+    }
+
+    public ReleaseAction(Type type, Deployment deployment) {
+        this(type, deployment, null, null);
+    }
+
+    public boolean isExecuted() {
+        return "EXECUTED".equals(outcome) || "CONFIGURATION_MODIFIED_REQUIRES_RESTART".equals(outcome);
+    }
+}
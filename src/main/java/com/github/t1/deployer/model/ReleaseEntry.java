@@ -0,0 +1,51 @@
+package com.github.t1.deployer.model;
+
+import static javax.xml.bind.annotation.XmlAccessType.*;
+
+import java.util.List;
+
+import javax.xml.bind.annotation.*;
+
+import lombok.*;
+
+/**
+ * What a release wants to have deployed under a context root: the artifact with that checksum, or that version of the
+ * artifact that is currently deployed; or, only if {@link #undeploy} is set explicitly, nothing. An entry without any
+ * of them is rejected, so a misspelled checksum doesn't undeploy the application.
+ * <p/>
+ * If it {@link #dependsOn} other context roots in the same release, it's deployed only after those have succeeded.
+ */
+@Value
+@AllArgsConstructor
+@XmlRootElement(name = "entry")
+@XmlAccessorType(FIELD)
+public class ReleaseEntry {
+    ContextRoot contextRoot;
+    CheckSum checkSum;
+    Version version;
+    boolean undeploy;
+    @XmlElement(name = "dependsOn")
+    List<ContextRoot> dependsOn;
+
+    /** required by JAXB, etc. */
+    @SuppressWarnings("unused")
+    private ReleaseEntry() {
+        this.contextRoot = null;
+        this.checkSum = null;
+        this.version = null;
+        this.undeploy = false;
+        this.dependsOn = null;
+    }
+
+    public ReleaseEntry(ContextRoot contextRoot, CheckSum checkSum, Version version) {
+        this(contextRoot, checkSum, version, null);
+    }
+
+    public ReleaseEntry(ContextRoot contextRoot, CheckSum checkSum, Version version, List<ContextRoot> dependsOn) {
+        this(contextRoot, checkSum, version, false, dependsOn);
+    }
+
+    public static ReleaseEntry undeploy(ContextRoot contextRoot) {
+        return new ReleaseEntry(contextRoot, null, null, true, null);
+    }
+}
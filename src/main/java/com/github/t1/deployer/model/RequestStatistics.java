@@ -0,0 +1,42 @@
+package com.github.t1.deployer.model;
+
+import static javax.xml.bind.annotation.XmlAccessType.*;
+
+import javax.xml.bind.annotation.*;
+
+import lombok.*;
+
+/**
+ * The runtime statistics of the web requests of one deployment, as counted by the container since the deployment
+ * started; they are only counted, if the statistics are enabled in the container.
+ */
+@Value
+@AllArgsConstructor
+@XmlRootElement(name = "requestStatistics")
+@XmlAccessorType(FIELD)
+public class RequestStatistics {
+    DeploymentName name;
+    /** of all servlets of the deployment */
+    long requestCount;
+    /** milliseconds, summed up over all servlets of the deployment */
+    long totalRequestTime;
+    /** milliseconds, of the slowest servlet of the deployment */
+    long maxRequestTime;
+    int activeSessions;
+    /** of all http listeners of the server, as the container doesn't count the errors per deployment */
+    long serverRequestCount;
+    /** of all http listeners of the server, i.e. responses with a status 500 or above */
+    long serverErrorCount;
+
+    /** required by JAXB, etc. */
+    @SuppressWarnings("unused")
+    private RequestStatistics() {
+        this.name = null;
+        this.requestCount = 0;
+        this.totalRequestTime = 0;
+        this.maxRequestTime = 0;
+        this.activeSessions = 0;
+        this.serverRequestCount = 0;
+        this.serverErrorCount = 0;
+    }
+}
@@ -0,0 +1,77 @@
+package com.github.t1.deployer.model;
+
+import static javax.xml.bind.annotation.XmlAccessType.*;
+
+import java.util.List;
+
+import javax.xml.bind.annotation.*;
+
+import lombok.*;
+
+/**
+ * The web requests of one deployment over the last hour, as a whole and in intervals of five minutes, computed from
+ * samples of the {@link RequestStatistics}. Request times are in milliseconds, rates per second.
+ */
+@Value
+@AllArgsConstructor
+@XmlRootElement(name = "requests")
+@XmlAccessorType(FIELD)
+public class RequestTrend {
+    @Value
+    @AllArgsConstructor
+    @XmlAccessorType(FIELD)
+    public static class Interval {
+        /** milliseconds since the epoch, when the interval started */
+        long timestamp;
+        long requests;
+        double requestRate;
+        double meanRequestTime;
+        /** of all requests of the server, as the container doesn't count the errors per deployment */
+        double serverErrorRate;
+        /** at the end of the interval */
+        int activeSessions;
+
+        /** required by JAXB, etc. */
+        @SuppressWarnings("unused")
+        private Interval() {
+            this.timestamp = 0;
+            this.requests = 0;
+            this.requestRate = 0;
+            this.meanRequestTime = 0;
+            this.serverErrorRate = 0;
+            this.activeSessions = 0;
+        }
+    }
+
+    DeploymentName name;
+    /** milliseconds since the epoch of the oldest and the newest sample */
+    long from;
+    long to;
+    long requests;
+    double requestRate;
+    double meanRequestTime;
+    /** the slowest request since the deployment started */
+    long maxRequestTime;
+    /** of all requests of the server, as the container doesn't count the errors per deployment */
+    double serverErrorRate;
+    /** at the newest sample */
+    int activeSessions;
+    /** oldest first; only those with samples */
+    @XmlElement(name = "interval")
+    List<Interval> intervals;
+
+    /** required by JAXB, etc. */
+    @SuppressWarnings("unused")
+    private RequestTrend() {
+        this.name = null;
+        this.from = 0;
+        this.to = 0;
+        this.requests = 0;
+        this.requestRate = 0;
+        this.meanRequestTime = 0;
+        this.maxRequestTime = 0;
+        this.serverErrorRate = 0;
+        this.activeSessions = 0;
+        this.intervals = null;
+    }
+}
@@ -0,0 +1,28 @@
+package com.github.t1.deployer.model;
+
+import java.util.List;
+
+import lombok.Value;
+
+/** A part of a list as selected by a {@link Paging}, together with the total number of (filtered) elements */
+@Value
+public class Slice<T> {
+    List<T> elements;
+    int offset;
+    /** the maximum number of elements; or <code>null</code> for all */
+    Integer limit;
+    int total;
+
+    public boolean hasPrevious() {
+        return offset > 0;
+    }
+
+    public boolean hasNext() {
+        return limit != null && offset + limit < total;
+    }
+
+    /** The same slice of other (e.g. mapped) elements */
+    public <U> Slice<U> with(List<U> elements) {
+        return new Slice<>(elements, offset, limit, total);
+    }
+}
@@ -3,9 +3,10 @@ package com.github.t1.deployer.model;
 import javax.xml.bind.annotation.*;
 
 import lombok.*;
+import lombok.experimental.Wither;
 
 @Value
-@RequiredArgsConstructor
+@AllArgsConstructor
 @XmlRootElement(name = "version")
 @XmlAccessorType(XmlAccessType.NONE)
 public class VersionInfo {
@@ -13,10 +14,19 @@ public class VersionInfo {
     Version version;
     @XmlAttribute
     CheckSum checkSum;
+    /** the milliseconds a (re)deploy of this version is expected to take; <code>null</code> if unknown */
+    @XmlAttribute
+    @Wither
+    Long eta;
 
     @SuppressWarnings("unused")
     private VersionInfo() {
         this.version = null;
         this.checkSum = null;
+        this.eta = null;
+    }
+
+    public VersionInfo(Version version, CheckSum checkSum) {
+        this(version, checkSum, null);
     }
 }
@@ -0,0 +1,41 @@
+package com.github.t1.deployer.model;
+
+import static javax.xml.bind.annotation.XmlAccessType.*;
+
+import java.util.List;
+
+import javax.xml.bind.annotation.*;
+
+import lombok.*;
+
+/** The requests sent to a freshly deployed application, before the operation was reported as done */
+@Value
+@AllArgsConstructor
+@XmlRootElement(name = "warmUp")
+@XmlAccessorType(FIELD)
+public class WarmUpResult {
+    ContextRoot contextRoot;
+    int rounds;
+    int requests;
+    /** failed requests or server errors */
+    int errors;
+    /** the 95th percentile of the response times of every round, in microseconds */
+    @XmlElement(name = "p95")
+    List<Long> p95s;
+    /** did the response times settle, or did it stop after the maximum rounds or time? */
+    boolean stable;
+    /** milliseconds */
+    long duration;
+
+    /** required by JAXB, etc. */
+    @SuppressWarnings("unused")
+    private WarmUpResult() {
+        this.contextRoot = null;
+        this.rounds = 0;
+        this.requests = 0;
+        this.errors = 0;
+        this.p95s = null;
+        this.stable = false;
+        this.duration = 0;
+    }
+}
@@ -0,0 +1,167 @@
+package com.github.t1.deployer.repository;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.*;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.xml.parsers.*;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.w3c.dom.*;
+import org.xml.sax.SAXException;
+
+import com.github.t1.deployer.model.*;
+
+/**
+ * Derives the {@link ArtifactInfo} of an artifact from the central directory of the archive and only the deployment
+ * descriptors that determine the context roots: <code>META-INF/application.xml</code> for ears,
+ * <code>WEB-INF/jboss-web.xml</code> and <code>WEB-INF/web.xml</code> for wars. Nothing else is unpacked.
+ * <p/>
+ * As the artifact for a checksum never changes, the results are cached per checksum.
+ */
+@Slf4j
+@ApplicationScoped
+public class ArtifactInspector {
+    private static final int CACHE_SIZE = 1000;
+
+    private static final String APPLICATION_XML = "META-INF/application.xml";
+    private static final String JBOSS_WEB_XML = "WEB-INF/jboss-web.xml";
+    private static final String WEB_XML = "WEB-INF/web.xml";
+
+    @SuppressWarnings("serial")
+    private final Map<CheckSum, ArtifactInfo> cache = new LinkedHashMap<CheckSum, ArtifactInfo>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<CheckSum, ArtifactInfo> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    /** @return the cached info, or <code>null</code>, if the artifact has not been inspected, yet */
+    public synchronized ArtifactInfo getCached(CheckSum checkSum) {
+        return cache.get(checkSum);
+    }
+
+    /**
+     * @param name
+     *            the name of the deployment, which is the default context root of a war
+     * @return the info, or <code>null</code>, if the file is not an archive, e.g. a <code>-ds.xml</code>
+     */
+    public ArtifactInfo inspect(CheckSum checkSum, DeploymentName name, File file) {
+        ArtifactInfo info = getCached(checkSum);
+        if (info != null)
+            return info;
+        if (!file.isFile())
+            return null;
+        try (ZipFile archive = new ZipFile(file)) {
+            info = inspect(name, archive);
+        } catch (ZipException e) {
+            log.debug("{} is not an archive: {}", name, e.toString());
+            return null;
+        } catch (IOException e) {
+            throw new RuntimeException("can't inspect " + name, e);
+        }
+        log.debug("inspected {}: {}", name, info);
+        synchronized (this) {
+            cache.put(checkSum, info);
+        }
+        return info;
+    }
+
+    private ArtifactInfo inspect(DeploymentName name, ZipFile archive) throws IOException {
+        int classCount = 0;
+        long uncompressedSize = 0;
+        boolean war = name.getValue().endsWith(".war");
+        for (Enumeration<? extends ZipEntry> e = archive.entries(); e.hasMoreElements();) {
+            ZipEntry entry = e.nextElement();
+            if (entry.getName().endsWith(".class"))
+                classCount++;
+            if (entry.getName().startsWith("WEB-INF/"))
+                war = true;
+            if (entry.getSize() > 0)
+                uncompressedSize += entry.getSize();
+        }
+
+        List<ContextRoot> contextRoots = new ArrayList<>();
+        List<String> modules = new ArrayList<>();
+        Document application = read(archive, APPLICATION_XML);
+        if (application != null) {
+            for (Element web : elements(application.getDocumentElement(), "web")) {
+                String webUri = text(web, "web-uri");
+                String contextRoot = text(web, "context-root");
+                modules.add(webUri);
+                contextRoots.add(contextRoot((contextRoot == null) ? withoutSuffix(webUri) : contextRoot));
+            }
+            for (String type : Arrays.asList("ejb", "java", "connector"))
+                for (Element module : elements(application.getDocumentElement(), type))
+                    if ("module".equals(module.getParentNode().getLocalName()))
+                        modules.add(module.getTextContent().trim());
+        } else if (war) {
+            Document jbossWeb = read(archive, JBOSS_WEB_XML);
+            String contextRoot = (jbossWeb == null) ? null : text(jbossWeb.getDocumentElement(), "context-root");
+            contextRoots.add(contextRoot((contextRoot == null) ? withoutSuffix(name.getValue()) : contextRoot));
+            Document web = read(archive, WEB_XML);
+            String moduleName = (web == null) ? null : text(web.getDocumentElement(), "module-name");
+            modules.add((moduleName == null) ? name.getValue() : moduleName);
+        } else {
+            modules.add(name.getValue());
+        }
+        return new ArtifactInfo(contextRoots, modules, classCount, uncompressedSize);
+    }
+
+    private static String withoutSuffix(String value) {
+        int dot = value.lastIndexOf('.');
+        return (dot < 0) ? value : value.substring(0, dot);
+    }
+
+    private static ContextRoot contextRoot(String value) {
+        return new ContextRoot(value.startsWith("/") ? value.substring(1) : value);
+    }
+
+    private static Document read(ZipFile archive, String entryName) throws IOException {
+        ZipEntry entry = archive.getEntry(entryName);
+        if (entry == null)
+            return null;
+        try (InputStream inputStream = archive.getInputStream(entry)) {
+            return documentBuilder().parse(inputStream);
+        } catch (SAXException | ParserConfigurationException e) {
+            log.warn("can't parse {} in {}: {}", entryName, archive.getName(), e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Neither validating nor loading external DTDs, which often are referenced, but we don't need. The descriptors come
+     * from the artifact, so external entities and XIncludes are not resolved: they could read local files into the
+     * context roots and the error messages.
+     */
+    private static DocumentBuilder documentBuilder() throws ParserConfigurationException {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.setValidating(false);
+        factory.setExpandEntityReferences(false);
+        factory.setXIncludeAware(false);
+        factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+        factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+        return factory.newDocumentBuilder();
+    }
+
+    private static List<Element> elements(Element parent, String tagName) {
+        List<Element> elements = new ArrayList<>();
+        NodeList nodes = parent.getElementsByTagNameNS("*", tagName);
+        for (int i = 0; i < nodes.getLength(); i++)
+            elements.add((Element) nodes.item(i));
+        return elements;
+    }
+
+    /** @return <code>null</code> if there is no such element, or if it's empty, e.g. an unresolved entity */
+    private static String text(Element parent, String tagName) {
+        List<Element> elements = elements(parent, tagName);
+        if (elements.isEmpty())
+            return null;
+        String text = elements.get(0).getTextContent().trim();
+        return text.isEmpty() ? null : text;
+    }
+}
@@ -1,9 +1,10 @@
 package com.github.t1.deployer.repository;
 
+import static com.github.t1.deployer.tools.ServerTiming.Category.*;
 import static java.util.Collections.*;
 import static javax.ws.rs.core.Response.Status.*;
 
-import java.io.InputStream;
+import java.io.*;
 import java.net.URI;
 import java.nio.file.*;
 import java.util.*;
@@ -19,13 +20,18 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.http.auth.Credentials;
 
 import com.github.t1.deployer.model.*;
+import com.github.t1.deployer.tools.*;
+import com.github.t1.deployer.tools.Metrics.Counter;
 import com.github.t1.rest.*;
 import com.github.t1.rest.UriTemplate.UriScheme;
 
 @Slf4j
 public class ArtifactoryRepository extends Repository {
+    /**
+     * Only a guess from the path, as we can't inspect every artifact that is listed. The deploy operations replace it
+     * with the context root {@link ArtifactInspector inspected} from the artifact, or with the one they redeploy.
+     */
     public static ContextRoot contextRoot(Path path) {
-        // this is not perfect... we should read it from the container and pass it in
         return new ContextRoot(element(-3, path));
     }
 
@@ -40,6 +46,20 @@ public class ArtifactoryRepository extends Repository {
         return path.getName(n).toString();
     }
 
+    /** Where the repositories of Artifactory are mounted on the local file system, e.g. by NFS */
+    private static final String MOUNT = System.getProperty("deployer.artifactory.mount");
+
+    private static final Counter DOWNLOAD_BYTES = Metrics.counter("deployer_artifactory_download_bytes_total",
+            "bytes of artifacts downloaded from Artifactory");
+
+    private static void record(String call, long start) {
+        Metrics.histogram("deployer_artifactory_request_seconds", //
+                "requests to Artifactory; downloads only until the headers are received", //
+                "call", call).observeSince(start);
+        ServerTiming.record(repo, start);
+        Tracing.phase("repository:" + call, start);
+    }
+
     @Inject
     @Artifactory
     URI baseUri;
@@ -95,8 +115,13 @@ public class ArtifactoryRepository extends Repository {
     private ChecksumSearchResultItem searchByChecksum(CheckSum checkSum) {
         try {
             log.debug("searchByChecksum({})", checkSum);
-            List<ChecksumSearchResultItem> results = searchByChecksum.with("checkSum", checkSum.hexString()) //
-                    .get().getResults();
+            List<ChecksumSearchResultItem> results;
+            long start = System.nanoTime();
+            try {
+                results = searchByChecksum.with("checkSum", checkSum.hexString()).get().getResults();
+            } finally {
+                record("search", start);
+            }
             if (results.size() == 0)
                 return null;
             if (results.size() > 1)
@@ -191,7 +216,13 @@ public class ArtifactoryRepository extends Repository {
         log.trace("get deployments in {} (fileName: {})", uri, fileName);
         // TODO eventually it would be more efficient to use the Artifactory Pro feature 'List File':
         // /api/storage/{repoKey}/{folder-path}?list[&deep=0/1][&depth=n][&listFolders=0/1][&mdTimestamps=0/1][&includeRootPath=0/1]
-        FolderInfo folderInfo = authenticated(new RestResource(uri).request()).get(FolderInfo.class);
+        FolderInfo folderInfo;
+        long start = System.nanoTime();
+        try {
+            folderInfo = authenticated(new RestResource(uri).request()).get(FolderInfo.class);
+        } finally {
+            record("folder", start);
+        }
         log.trace("got {}", folderInfo);
         return versionsIn(fileName, folderInfo);
     }
@@ -215,8 +246,12 @@ public class ArtifactoryRepository extends Repository {
     }
 
     private Deployment deploymentIn(URI uri) {
-        FileInfo file = authenticated(new RestResource(uri).request()).get(FileInfo.class);
-        return file.deployment();
+        long start = System.nanoTime();
+        try {
+            return authenticated(new RestResource(uri).request()).get(FileInfo.class).deployment();
+        } finally {
+            record("file", start);
+        }
     }
 
     @Override
@@ -226,6 +261,43 @@ public class ArtifactoryRepository extends Repository {
             throw new WebApplicationException(NOT_FOUND);
         URI uri = found.getDownloadUri();
         log.info("found {} for checksum {}", uri, checkSum);
-        return authenticated(new RestResource(uri).request()).accept(InputStream.class).get();
+        long start = System.nanoTime();
+        try {
+            InputStream inputStream = authenticated(new RestResource(uri).request()).accept(InputStream.class).get();
+            return new CountingInputStream(inputStream) {
+                @Override
+                protected void counted(long bytes) {
+                    super.counted(bytes);
+                    DOWNLOAD_BYTES.add(bytes);
+                }
+            };
+        } finally {
+            record("download", start);
+        }
+    }
+
+    /**
+     * The download uri relative to the artifactory base uri resolved against the {@link #MOUNT}; but only if the
+     * container may deploy from there, i.e. it's within the {@link LocalRoots}; otherwise it's streamed.
+     */
+    @Override
+    public Path getLocalArtifactPath(CheckSum checkSum) {
+        if (MOUNT == null)
+            return null;
+        ChecksumSearchResultItem found = searchByChecksum(checkSum);
+        if (found == null)
+            return null;
+        String path = baseUri.relativize(found.getDownloadUri()).getPath();
+        Path local = Paths.get(MOUNT).resolve(path);
+        if (!Files.isReadable(local)) {
+            log.debug("not in local mount: {}", local);
+            return null;
+        }
+        if (!LocalRoots.isAllowed(local, LocalRoots.ROOTS)) {
+            log.warn("local mount {} is not within the local roots {}", MOUNT, LocalRoots.ROOTS);
+            return null;
+        }
+        log.info("found {} for checksum {}", local, checkSum);
+        return local;
     }
 }
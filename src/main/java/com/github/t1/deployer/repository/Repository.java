@@ -1,6 +1,7 @@
 package com.github.t1.deployer.repository;
 
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.List;
 
 import com.github.t1.deployer.model.*;
@@ -14,6 +15,11 @@ public abstract class Repository {
 
     public abstract InputStream getArtifactInputStream(CheckSum checkSum);
 
+    /** @return the path to the artifact on the local file system, or <code>null</code>, if it's not available there */
+    public Path getLocalArtifactPath(@SuppressWarnings("unused") CheckSum checkSum) {
+        return null;
+    }
+
     public CheckSum getChecksumForVersion(Deployment deployment, Version version) {
         for (VersionInfo entry : availableVersionsFor(deployment.getCheckSum())) {
             if (version.equals(entry.getVersion())) {
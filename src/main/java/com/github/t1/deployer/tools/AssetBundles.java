@@ -0,0 +1,199 @@
+package com.github.t1.deployer.tools;
+
+import static java.util.Arrays.*;
+import static java.util.Collections.*;
+
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.regex.*;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+
+import lombok.extern.slf4j.Slf4j;
+
+import com.github.t1.deployer.app.html.builder.Assets;
+
+/**
+ * Concatenates the style sheets and scripts of the deployer pages into one bundle each, so a page needs only two
+ * requests for them instead of four. The paths of the bundles contain a hash of their contents, so clients can cache
+ * them for a year. The webjar parts are taken as minified versions; our own parts are minified here. Relative urls in
+ * the style sheets (e.g. for the bootstrap fonts) are rewritten to the versioned path of the webjar.
+ * <p/>
+ * If a bundle can't be built, the pages link to the separate, unbundled resources.
+ */
+@Slf4j
+@ApplicationScoped
+public class AssetBundles implements Assets {
+    static final String ARTIFACT = "bundle";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Pattern CSS_URL = Pattern.compile("url\\(\\s*(['\"]?)([^'\")]+)\\1\\s*\\)");
+
+    private static final List<String> STYLE_SHEETS = asList("bootstrap/css/bootstrap.min.css", "webapp/css/style.css");
+    private static final List<String> SCRIPTS = asList("jquery/jquery.min.js", "bootstrap/js/bootstrap.min.js");
+
+    private final Map<String, StaticResource> bundles = new HashMap<>();
+    private List<String> styleSheets = Assets.UNBUNDLED.styleSheets();
+    private List<String> scripts = Assets.UNBUNDLED.scripts();
+
+    @PostConstruct
+    void build() {
+        String styleSheet = bundle("deployer.css", styleSheetBundle());
+        if (styleSheet != null)
+            this.styleSheets = singletonList(styleSheet);
+        String script = bundle("deployer.js", scriptBundle());
+        if (script != null)
+            this.scripts = singletonList(script);
+    }
+
+    private String bundle(String name, String content) {
+        if (content == null)
+            return null;
+        byte[] bytes = content.getBytes(UTF_8);
+        StaticResource resource = StaticResource.of(name, null, bytes, null);
+        String path = fingerprint(resource) + "/" + name;
+        bundles.put(path, resource);
+        log.info("built bundle {} with {} bytes", path, bytes.length);
+        return ARTIFACT + "/" + path;
+    }
+
+    private String fingerprint(StaticResource resource) {
+        return resource.getEntityTag().getValue().substring(0, 16);
+    }
+
+    private String styleSheetBundle() {
+        StringBuilder out = new StringBuilder();
+        for (String path : STYLE_SHEETS) {
+            String content = content(path);
+            if (content == null)
+                return null;
+            if (!path.contains(".min."))
+                content = minifyCss(content);
+            out.append(rebaseUrls(path, content)).append("\n");
+        }
+        return out.toString();
+    }
+
+    private String scriptBundle() {
+        StringBuilder out = new StringBuilder();
+        for (String path : SCRIPTS) {
+            String content = content(path);
+            if (content == null)
+                return null;
+            out.append(content).append("\n;\n");
+        }
+        return out.toString();
+    }
+
+    private String content(String path) {
+        int slash = path.indexOf('/');
+        String artifact = path.substring(0, slash);
+        StaticResource resource = WebJarsResource.resource(artifact, path.substring(slash + 1));
+        if (resource == null) {
+            log.warn("can't bundle {}: not found", path);
+            return null;
+        }
+        return new String(resource.getBytes(), UTF_8);
+    }
+
+    /**
+     * Simple, but safe for our own style sheets: remove comments and <code>@charset</code> rules (only allowed at the
+     * start of a file) and collapse whitespace. Strings are copied as they are, even if they contain something that
+     * looks like a comment.
+     */
+    static String minifyCss(String css) {
+        StringBuilder out = new StringBuilder();
+        boolean space = false;
+        for (int i = 0; i < css.length(); i++) {
+            char c = css.charAt(i);
+            if (c == '/' && css.startsWith("*", i + 1)) {
+                int end = css.indexOf("*/", i + 2);
+                i = (end < 0) ? css.length() : end + 1;
+                space = true;
+            } else if (c == '@' && css.regionMatches(true, i, "@charset", 0, 8)) {
+                int end = css.indexOf(';', i);
+                i = (end < 0) ? css.length() : end;
+                space = true;
+            } else if (Character.isWhitespace(c)) {
+                space = true;
+            } else {
+                if (space && out.length() > 0 && !isPunctuation(out.charAt(out.length() - 1)) && !isPunctuation(c))
+                    out.append(' ');
+                space = false;
+                if (c == '"' || c == '\'')
+                    i = copyString(css, i, out);
+                else
+                    out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    private static boolean isPunctuation(char c) {
+        return c == '{' || c == '}' || c == ';' || c == ',';
+    }
+
+    /** @return the index of the closing quote */
+    private static int copyString(String css, int start, StringBuilder out) {
+        char quote = css.charAt(start);
+        out.append(quote);
+        int i = start + 1;
+        for (; i < css.length() && css.charAt(i) != quote; i++) {
+            if (css.charAt(i) == '\\' && i + 1 < css.length())
+                out.append(css.charAt(i++));
+            out.append(css.charAt(i));
+        }
+        if (i < css.length())
+            out.append(quote);
+        return i;
+    }
+
+    /** The bundle is served from <code>bundle/{hash}/</code>, so relative urls have to start from there. */
+    static String rebaseUrls(String path, String css) {
+        int slash = path.indexOf('/');
+        String artifact = path.substring(0, slash);
+        String version = WebJarsResource.version(artifact);
+        URI base = URI.create(artifact + "/" + ((version == null) ? "" : version + "/") + path.substring(slash + 1));
+        Matcher matcher = CSS_URL.matcher(css);
+        StringBuffer out = new StringBuffer();
+        while (matcher.find()) {
+            String quote = matcher.group(1);
+            String url = matcher.group(2);
+            if (isRelative(url))
+                matcher.appendReplacement(out,
+                        Matcher.quoteReplacement("url(" + quote + rebase(base, url) + quote + ")"));
+        }
+        matcher.appendTail(out);
+        return out.toString();
+    }
+
+    private static String rebase(URI base, String url) {
+        try {
+            return "../../" + base.resolve(url);
+        } catch (IllegalArgumentException e) {
+            log.warn("can't rebase url {} in {}: {}", url, base, e.getMessage());
+            return url;
+        }
+    }
+
+    private static boolean isRelative(String url) {
+        return !url.startsWith("/") && !url.startsWith("#") && !url.startsWith("data:") && !url.contains("://");
+    }
+
+    /** The bundle for that path, i.e. <code>{hash}/{name}</code>, or <code>null</code> if there is none. */
+    public StaticResource get(String path) {
+        return bundles.get(path);
+    }
+
+    @Override
+    public List<String> styleSheets() {
+        return styleSheets;
+    }
+
+    @Override
+    public List<String> scripts() {
+        return scripts;
+    }
+}
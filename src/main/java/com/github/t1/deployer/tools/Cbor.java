@@ -0,0 +1,30 @@
+package com.github.t1.deployer.tools;
+
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.*;
+
+import javax.ws.rs.core.MediaType;
+
+import com.fasterxml.jackson.core.*;
+import com.fasterxml.jackson.databind.*;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+/**
+ * <a href="http://tools.ietf.org/html/rfc7049">CBOR</a> is a binary JSON, i.e. it has the same data model, but it's
+ * smaller and much cheaper to parse and write, esp. for clients that poll many servers. Unknown properties are ignored
+ * when reading, so clients can be older or newer than the server.
+ */
+class Cbor {
+    public static final String APPLICATION_CBOR = "application/cbor";
+    public static final MediaType APPLICATION_CBOR_TYPE = MediaType.valueOf(APPLICATION_CBOR);
+
+    static final ObjectMapper MAPPER = new ObjectMapper(new CBORFactory()) //
+            .setSerializationInclusion(NON_NULL) //
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false) //
+            .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false) //
+            .configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false);
+
+    static boolean isCbor(MediaType mediaType) {
+        return APPLICATION_CBOR_TYPE.isCompatible(mediaType) && !mediaType.isWildcardType()
+                && !mediaType.isWildcardSubtype();
+    }
+}
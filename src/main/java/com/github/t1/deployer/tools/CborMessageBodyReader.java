@@ -0,0 +1,34 @@
+package com.github.t1.deployer.tools;
+
+import static com.github.t1.deployer.tools.Cbor.*;
+import static com.github.t1.deployer.tools.StatusDetails.*;
+
+import java.io.*;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.core.*;
+import javax.ws.rs.ext.*;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.github.t1.rest.fallback.ConverterTools;
+
+@Provider
+@Consumes(APPLICATION_CBOR)
+public class CborMessageBodyReader implements MessageBodyReader<Object> {
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return ConverterTools.isConvertible(type) && isCbor(mediaType);
+    }
+
+    @Override
+    public Object readFrom(Class<Object> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+            MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException {
+        try {
+            return MAPPER.readValue(entityStream, MAPPER.constructType(genericType));
+        } catch (JsonProcessingException e) {
+            throw badRequest("can't read cbor: " + e.getOriginalMessage());
+        }
+    }
+}
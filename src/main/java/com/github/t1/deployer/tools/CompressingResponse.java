@@ -0,0 +1,245 @@
+package com.github.t1.deployer.tools;
+
+import static com.github.t1.deployer.tools.CompressionFilter.*;
+
+import java.io.*;
+import java.util.zip.*;
+
+import javax.servlet.*;
+import javax.servlet.http.*;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Buffers the first {@link CompressionFilter#MIN_SIZE} bytes of the body; then decides to either compress or pass
+ * through everything. The <code>Content-Length</code> is held back until then, as it's wrong for compressed bodies.
+ */
+@Slf4j
+class CompressingResponse extends HttpServletResponseWrapper {
+    private static final String CONTENT_LENGTH = "Content-Length";
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+
+    private final String encoding;
+    private final CompressionStatistics statistics;
+
+    private long contentLength = -1;
+    private CompressingOutputStream stream;
+    private PrintWriter writer;
+
+    public CompressingResponse(HttpServletResponse response, String encoding, CompressionStatistics statistics) {
+        super(response);
+        this.encoding = encoding;
+        this.statistics = statistics;
+    }
+
+    @Override
+    public void setContentLength(int length) {
+        setContentLengthLong(length);
+    }
+
+    @Override
+    public void setContentLengthLong(long length) {
+        this.contentLength = length;
+        if (stream != null && stream.isDecided() && !stream.isCompressing())
+            super.setContentLengthLong(length);
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (CONTENT_LENGTH.equalsIgnoreCase(name))
+            setContentLengthLong(Long.parseLong(value));
+        else
+            super.setHeader(name, value);
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (CONTENT_LENGTH.equalsIgnoreCase(name))
+            setContentLengthLong(Long.parseLong(value));
+        else
+            super.addHeader(name, value);
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        if (writer != null)
+            throw new IllegalStateException("getWriter() has already been called");
+        if (stream == null)
+            stream = new CompressingOutputStream();
+        return stream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (stream != null)
+                throw new IllegalStateException("getOutputStream() has already been called");
+            stream = new CompressingOutputStream();
+            writer = new PrintWriter(new OutputStreamWriter(stream, getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null)
+            writer.flush();
+        if (stream != null) {
+            stream.decide();
+            stream.flush();
+        }
+        super.flushBuffer();
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        this.contentLength = -1;
+        if (stream != null)
+            stream.resetBuffer();
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        if (stream != null)
+            stream.resetBuffer();
+    }
+
+    public void finish() throws IOException {
+        if (writer != null)
+            writer.close();
+        else if (stream != null)
+            stream.close();
+    }
+
+    private boolean shouldCompress(long bufferedSize) {
+        long size = (contentLength < 0) ? bufferedSize : contentLength;
+        return size >= MIN_SIZE && isCompressible(getContentType()) && !containsHeader(CONTENT_ENCODING)
+                && getStatus() != SC_PARTIAL_CONTENT;
+    }
+
+    private static boolean isCompressible(String contentType) {
+        if (contentType == null)
+            return false;
+        String type = contentType.split(";", 2)[0].trim().toLowerCase();
+        return type.startsWith("text/") || type.endsWith("/json") || type.endsWith("+json") || type.endsWith("/xml")
+                || type.endsWith("+xml") || type.endsWith("/yaml") || type.endsWith("/x-yaml")
+                || type.endsWith("/javascript");
+    }
+
+    private class CompressingOutputStream extends ServletOutputStream {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(MIN_SIZE);
+        private OutputStream out;
+        private CountingOutputStream counter;
+        private long uncompressed;
+        private boolean closed;
+
+        public boolean isDecided() {
+            return out != null;
+        }
+
+        public boolean isCompressing() {
+            return counter != null;
+        }
+
+        public void resetBuffer() {
+            if (!isDecided())
+                buffer.reset();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (closed)
+                throw new IOException("stream is already closed");
+            if (isDecided()) {
+                out.write(bytes, offset, length);
+                uncompressed += length;
+            } else {
+                buffer.write(bytes, offset, length);
+                if (buffer.size() >= MIN_SIZE)
+                    decide();
+            }
+        }
+
+        public void decide() throws IOException {
+            if (isDecided())
+                return;
+            ServletOutputStream target = getResponse().getOutputStream();
+            if (shouldCompress(buffer.size())) {
+                log.debug("compress response with {}", encoding);
+                CompressingResponse.super.setHeader(CONTENT_ENCODING, encoding);
+                CompressingResponse.super.addHeader("Vary", "Accept-Encoding");
+                counter = new CountingOutputStream(target);
+                out = "gzip".equals(encoding) ? new GZIPOutputStream(counter) : new DeflaterOutputStream(counter);
+            } else {
+                if (contentLength >= 0)
+                    CompressingResponse.super.setContentLengthLong(contentLength);
+                out = target;
+            }
+            buffer.writeTo(out);
+            uncompressed += buffer.size();
+            buffer.reset();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (isDecided())
+                out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed)
+                return;
+            decide();
+            closed = true;
+            out.close();
+            if (isCompressing())
+                statistics.record(uncompressed, counter.count);
+        }
+
+        @Override
+        public boolean isReady() {
+            try {
+                return getResponse().getOutputStream().isReady();
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            try {
+                getResponse().getOutputStream().setWriteListener(writeListener);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        public CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            count += length;
+        }
+    }
+}
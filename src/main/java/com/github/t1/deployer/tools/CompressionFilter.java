@@ -0,0 +1,113 @@
+package com.github.t1.deployer.tools;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import javax.management.*;
+import javax.servlet.*;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.*;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Compress textual responses (html, json, xml, yaml, etc.) with gzip or deflate, as negotiated by the
+ * <code>Accept-Encoding</code> header. Only the first {@value #MIN_SIZE} bytes are buffered to decide if it's worth
+ * it; the rest is streamed. Binary types (e.g. artifacts) and responses that already have a
+ * <code>Content-Encoding</code> (e.g. from the {@link WebJarsResource}) are passed through.
+ * <p/>
+ * The byte counts are exposed as the MXBean {@value #OBJECT_NAME}.
+ */
+@Slf4j
+@WebFilter("/*")
+public class CompressionFilter implements Filter {
+    static final int MIN_SIZE = 1024;
+    static final String OBJECT_NAME = "com.github.t1.deployer:type=Compression";
+
+    static final CompressionStatistics STATISTICS = new CompressionStatistics();
+
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name))
+                server.unregisterMBean(name);
+            server.registerMBean(STATISTICS, name);
+        } catch (JMException e) {
+            log.warn("can't register compression statistics: {}", e.toString());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        try {
+            server.unregisterMBean(new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            log.debug("can't unregister compression statistics: {}", e.toString());
+        }
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException,
+            ServletException {
+        if (request instanceof HttpServletRequest && response instanceof HttpServletResponse)
+            doFilter((HttpServletRequest) request, (HttpServletResponse) response, chain);
+        else
+            chain.doFilter(request, response);
+    }
+
+    public void doFilter(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        String encoding = negotiate(request.getHeader("Accept-Encoding"));
+        if (encoding == null || "HEAD".equals(request.getMethod())) {
+            chain.doFilter(request, response);
+            return;
+        }
+        CompressingResponse compressing = new CompressingResponse(response, encoding, STATISTICS);
+        chain.doFilter(request, compressing);
+        compressing.finish();
+    }
+
+    /**
+     * @return <code>gzip</code>, <code>deflate</code>, or <code>null</code>, if the client accepts neither. The
+     *         <code>*</code> only applies to the codings that are not listed explicitly.
+     */
+    static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null)
+            return null;
+        Double gzip = null, deflate = null, any = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim().toLowerCase();
+            double quality = quality(parts);
+            if ("gzip".equals(name) || "x-gzip".equals(name))
+                gzip = quality;
+            else if ("deflate".equals(name))
+                deflate = quality;
+            else if ("*".equals(name))
+                any = quality;
+        }
+        double gzipQuality = (gzip != null) ? gzip : (any != null) ? any : 0;
+        double deflateQuality = (deflate != null) ? deflate : (any != null) ? any : 0;
+        if (gzipQuality > 0 && gzipQuality >= deflateQuality)
+            return "gzip";
+        if (deflateQuality > 0)
+            return "deflate";
+        return null;
+    }
+
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.startsWith("q="))
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,30 @@
+package com.github.t1.deployer.tools;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+class CompressionStatistics implements CompressionStatisticsMXBean {
+    private final AtomicLong compressedResponses = new AtomicLong();
+    private final AtomicLong uncompressedBytes = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+
+    public void record(long uncompressed, long compressed) {
+        compressedResponses.incrementAndGet();
+        uncompressedBytes.addAndGet(uncompressed);
+        compressedBytes.addAndGet(compressed);
+    }
+
+    @Override
+    public long getCompressedResponses() {
+        return compressedResponses.get();
+    }
+
+    @Override
+    public long getUncompressedBytes() {
+        return uncompressedBytes.get();
+    }
+
+    @Override
+    public long getCompressedBytes() {
+        return compressedBytes.get();
+    }
+}
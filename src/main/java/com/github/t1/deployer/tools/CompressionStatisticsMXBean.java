@@ -0,0 +1,13 @@
+package com.github.t1.deployer.tools;
+
+/** The byte counts of the {@link CompressionFilter} */
+public interface CompressionStatisticsMXBean {
+    /** the number of responses that have been compressed */
+    long getCompressedResponses();
+
+    /** the number of bytes of the compressed responses before compression */
+    long getUncompressedBytes();
+
+    /** the number of bytes of the compressed responses after compression */
+    long getCompressedBytes();
+}
@@ -0,0 +1,44 @@
+package com.github.t1.deployer.tools;
+
+import java.io.*;
+
+/** Counts the bytes as they are read, for streams that are consumed later or elsewhere */
+public class CountingInputStream extends FilterInputStream {
+    private long count;
+
+    public CountingInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0)
+            counted(1);
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int count = super.read(buffer, offset, length);
+        if (count > 0)
+            counted(count);
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        if (skipped > 0)
+            counted(skipped);
+        return skipped;
+    }
+
+    protected void counted(long bytes) {
+        count += bytes;
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,135 @@
+package com.github.t1.deployer.tools;
+
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.*;
+import static javax.ws.rs.core.MediaType.*;
+import static javax.xml.bind.Marshaller.*;
+
+import java.beans.Introspector;
+import java.io.*;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.*;
+import java.util.concurrent.*;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.*;
+import javax.ws.rs.ext.*;
+import javax.xml.bind.*;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.namespace.QName;
+import javax.xml.stream.*;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.*;
+
+/**
+ * Writes lists (or any other {@link Iterable}) as JSON, YAML, or XML one element at a time, so the representation of
+ * the complete list never has to be in memory. With a {@link MappedList}, the elements are even created one by one.
+ * Every request gets its own generator or {@link XMLStreamWriter}. The XML root element is <code>collection</code>,
+ * like the JAX-RS implementations write it.
+ */
+@Provider
+@Produces({ APPLICATION_JSON, APPLICATION_XML, TEXT_XML, ListMessageBodyWriter.APPLICATION_YAML })
+public class ListMessageBodyWriter implements MessageBodyWriter<Iterable<?>> {
+    public static final String APPLICATION_YAML = "application/yaml";
+    private static final MediaType APPLICATION_YAML_TYPE = MediaType.valueOf(APPLICATION_YAML);
+    private static final String COLLECTION = "collection";
+
+    static final ObjectMapper JSON = new ObjectMapper() //
+            .setSerializationInclusion(NON_NULL) //
+            .configure(SerializationFeature.FLUSH_AFTER_WRITE_VALUE, false) //
+            .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+
+    private static final XMLOutputFactory XML = XMLOutputFactory.newInstance();
+    private static final ConcurrentMap<Class<?>, JAXBContext> JAXB_CONTEXTS = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return Iterable.class.isAssignableFrom(type) && (isJson(mediaType) || isYaml(mediaType) || isXml(mediaType));
+    }
+
+    private static boolean isJson(MediaType mediaType) {
+        return is(APPLICATION_JSON_TYPE, mediaType);
+    }
+
+    private static boolean isYaml(MediaType mediaType) {
+        return is(APPLICATION_YAML_TYPE, mediaType);
+    }
+
+    private static boolean isXml(MediaType mediaType) {
+        return is(APPLICATION_XML_TYPE, mediaType) || is(TEXT_XML_TYPE, mediaType);
+    }
+
+    private static boolean is(MediaType type, MediaType mediaType) {
+        return type.isCompatible(mediaType) && !mediaType.isWildcardType() && !mediaType.isWildcardSubtype();
+    }
+
+    @Override
+    public long getSize(Iterable<?> t, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(Iterable<?> list, Class<?> type, Type genericType, Annotation[] annotations,
+            MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream)
+            throws IOException {
+        if (isXml(mediaType))
+            writeXml(list, entityStream);
+        else
+            write(isYaml(mediaType) ? YamlMessageBodyWriter.YAML : JSON, list, entityStream);
+    }
+
+    private void write(ObjectMapper mapper, Iterable<?> list, OutputStream out) throws IOException {
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            for (Object element : list)
+                mapper.writeValue(generator, element);
+            generator.writeEndArray();
+        }
+    }
+
+    private void writeXml(Iterable<?> list, OutputStream out) throws IOException {
+        try {
+            XMLStreamWriter xml = XML.createXMLStreamWriter(out, "UTF-8");
+            xml.writeStartDocument("UTF-8", "1.0");
+            xml.writeStartElement(COLLECTION);
+            Map<Class<?>, Marshaller> marshallers = new HashMap<>();
+            for (Object element : list) {
+                if (element == null)
+                    continue;
+                Marshaller marshaller = marshallers.get(element.getClass());
+                if (marshaller == null) {
+                    marshaller = marshaller(element.getClass());
+                    marshallers.put(element.getClass(), marshaller);
+                }
+                marshaller.marshal(rootElement(element), xml);
+            }
+            xml.writeEndElement();
+            xml.writeEndDocument();
+            xml.close();
+        } catch (XMLStreamException | JAXBException e) {
+            throw new IOException("can't write xml", e);
+        }
+    }
+
+    private Marshaller marshaller(Class<?> type) throws JAXBException {
+        JAXBContext context = JAXB_CONTEXTS.get(type);
+        if (context == null) {
+            context = JAXBContext.newInstance(type);
+            JAXBContext existing = JAXB_CONTEXTS.putIfAbsent(type, context);
+            if (existing != null)
+                context = existing;
+        }
+        Marshaller marshaller = context.createMarshaller();
+        marshaller.setProperty(JAXB_FRAGMENT, true);
+        return marshaller;
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private Object rootElement(Object element) {
+        Class type = element.getClass();
+        if (type.isAnnotationPresent(XmlRootElement.class))
+            return element;
+        return new JAXBElement(new QName(Introspector.decapitalize(type.getSimpleName())), type, element);
+    }
+}
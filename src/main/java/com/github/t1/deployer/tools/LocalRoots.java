@@ -0,0 +1,62 @@
+package com.github.t1.deployer.tools;
+
+import static com.github.t1.deployer.tools.StatusDetails.*;
+import static javax.ws.rs.core.Response.Status.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * The directories the container may deploy from, separated by the {@link File#pathSeparator} in the system property
+ * <code>deployer.local-roots</code>. None by default, so the container can't be used to read arbitrary files.
+ * Symbolic links and <code>..</code> are resolved before checking, so they can't be used to escape a root.
+ */
+public class LocalRoots {
+    public static final List<Path> ROOTS = parse(System.getProperty("deployer.local-roots", ""));
+
+    static List<Path> parse(String property) {
+        List<Path> roots = new ArrayList<>();
+        for (String root : property.split(File.pathSeparator))
+            if (!root.trim().isEmpty())
+                roots.add(Paths.get(root.trim()).toAbsolutePath().normalize());
+        return roots;
+    }
+
+    /** @return the real path, if it's within one of the roots; fails with not-found or forbidden otherwise */
+    public static Path checkAllowed(Path path, List<Path> roots) {
+        Path realPath;
+        try {
+            realPath = path.toRealPath();
+        } catch (IOException e) {
+            throw notFound("no local artifact " + path);
+        }
+        if (!within(realPath, roots))
+            throw webException(FORBIDDEN, "local artifact " + path + " is not within " + roots);
+        return realPath;
+    }
+
+    /** Like {@link #checkAllowed(Path, List)}, but without failing, e.g. to fall back to something else */
+    public static boolean isAllowed(Path path, List<Path> roots) {
+        try {
+            return within(path.toRealPath(), roots);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static boolean within(Path realPath, List<Path> roots) {
+        for (Path root : roots)
+            if (realPath.startsWith(realRoot(root)))
+                return true;
+        return false;
+    }
+
+    private static Path realRoot(Path root) {
+        try {
+            return root.toRealPath();
+        } catch (IOException e) {
+            return root;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.github.t1.deployer.tools;
+
+import java.util.*;
+
+/**
+ * A read-only view of a list that maps each element only when it's accessed. Together with the
+ * {@link ListMessageBodyWriter}, this keeps only one mapped element in memory at a time. Note that every access maps
+ * again, so copy the list, if you need the elements more than once, e.g. to sort them.
+ */
+public abstract class MappedList<S, T> extends AbstractList<T> {
+    private final List<S> source;
+
+    public MappedList(List<S> source) {
+        this.source = source;
+    }
+
+    protected abstract T map(S element);
+
+    @Override
+    public T get(int index) {
+        return map(source.get(index));
+    }
+
+    @Override
+    public int size() {
+        return source.size();
+    }
+}
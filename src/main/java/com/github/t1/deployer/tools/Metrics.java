@@ -0,0 +1,223 @@
+package com.github.t1.deployer.tools;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters and histograms in the Prometheus text exposition format. Recording is lock-free: counters are striped over
+ * padded cells, so threads rarely update the same cache line, and histograms have fixed buckets. Looking up a metric
+ * by name and labels doesn't lock either, and only registers a new one the first time.
+ */
+public final class Metrics {
+    /** upper bounds in seconds */
+    static final double[] BUCKETS = { 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60,
+            120 };
+
+    private static final ConcurrentMap<String, Family> FAMILIES = new ConcurrentSkipListMap<>();
+
+    private Metrics() {}
+
+    /** @param labels alternating names and values */
+    public static Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, help, "counter").get(labels);
+    }
+
+    /** @param labels alternating names and values */
+    public static Histogram histogram(String name, String help, String... labels) {
+        return (Histogram) family(name, help, "histogram").get(labels);
+    }
+
+    private static Family family(String name, String help, String type) {
+        Family family = FAMILIES.get(name);
+        if (family == null) {
+            Family newFamily = new Family(name, help, type);
+            family = FAMILIES.putIfAbsent(name, newFamily);
+            if (family == null)
+                family = newFamily;
+        }
+        if (!family.type.equals(type))
+            throw new IllegalArgumentException("metric " + name + " is a " + family.type + ", not a " + type);
+        return family;
+    }
+
+    public static String export() {
+        StringBuilder out = new StringBuilder();
+        for (Family family : FAMILIES.values())
+            family.writeTo(out);
+        return out.toString();
+    }
+
+    /** For values that are not recorded here, e.g. queue sizes */
+    public static void writeGauge(StringBuilder out, String name, String help, double value) {
+        header(out, name, help, "gauge");
+        out.append(name).append(' ').append(number(value)).append('\n');
+    }
+
+    /** For counts that are not recorded here */
+    public static void writeCounter(StringBuilder out, String name, String help, long value) {
+        header(out, name, help, "counter");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help.replace("\\", "\\\\").replace("\n", "\\n"))
+                .append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static String number(double value) {
+        return (value == Math.rint(value) && !Double.isInfinite(value)) ? Long.toString((long) value)
+                : Double.toString(value);
+    }
+
+    private static class Family {
+        private final String name;
+        private final String help;
+        private final String type;
+        private final ConcurrentMap<String, Metric> metrics = new ConcurrentSkipListMap<>();
+
+        Family(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+
+        Metric get(String... labels) {
+            String key = labels(labels);
+            Metric metric = metrics.get(key);
+            if (metric == null) {
+                Metric newMetric = "counter".equals(type) ? new Counter() : new Histogram();
+                metric = metrics.putIfAbsent(key, newMetric);
+                if (metric == null)
+                    metric = newMetric;
+            }
+            return metric;
+        }
+
+        private static String labels(String... labels) {
+            if (labels.length % 2 != 0)
+                throw new IllegalArgumentException("labels must be pairs of names and values");
+            StringBuilder out = new StringBuilder();
+            for (int i = 0; i < labels.length; i += 2) {
+                if (out.length() > 0)
+                    out.append(',');
+                String value = String.valueOf(labels[i + 1]);
+                out.append(labels[i]).append("=\"") //
+                        .append(value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n")) //
+                        .append('"');
+            }
+            return out.toString();
+        }
+
+        void writeTo(StringBuilder out) {
+            header(out, name, help, type);
+            for (Map.Entry<String, Metric> entry : metrics.entrySet())
+                entry.getValue().writeTo(out, name, entry.getKey());
+        }
+    }
+
+    private abstract static class Metric {
+        abstract void writeTo(StringBuilder out, String name, String labels);
+
+        static void sample(StringBuilder out, String name, String labels, String value) {
+            out.append(name);
+            if (!labels.isEmpty())
+                out.append('{').append(labels).append('}');
+            out.append(' ').append(value).append('\n');
+        }
+    }
+
+    /** A sum spread over several cells, so concurrent updates rarely hit the same one */
+    static class Striped {
+        /** longs per cache line */
+        private static final int PADDING = 8;
+        private static final int STRIPES = Integer.highestOneBit(Math.min(64,
+                Runtime.getRuntime().availableProcessors() * 2 - 1)) * 2;
+
+        private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+        void add(long value) {
+            long id = Thread.currentThread().getId();
+            int stripe = (int) (id ^ (id >>> 16)) & (STRIPES - 1);
+            cells.getAndAdd(stripe * PADDING, value);
+        }
+
+        long sum() {
+            long sum = 0;
+            for (int i = 0; i < STRIPES; i++)
+                sum += cells.get(i * PADDING);
+            return sum;
+        }
+    }
+
+    public static class Counter extends Metric {
+        private final Striped value = new Striped();
+
+        public void inc() {
+            value.add(1);
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+
+        @Override
+        void writeTo(StringBuilder out, String name, String labels) {
+            sample(out, name, labels, Long.toString(get()));
+        }
+    }
+
+    /** Durations in seconds, recorded in nanos */
+    public static class Histogram extends Metric {
+        private static final long[] BOUNDS = new long[BUCKETS.length];
+        static {
+            for (int i = 0; i < BUCKETS.length; i++)
+                BOUNDS[i] = (long) (BUCKETS[i] * 1e9);
+        }
+
+        /** the last one is for everything above the last bound */
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS.length + 1);
+        private final Striped sumNanos = new Striped();
+
+        /** @param start the {@link System#nanoTime()} when the timed operation started */
+        public void observeSince(long start) {
+            observeNanos(System.nanoTime() - start);
+        }
+
+        public void observeNanos(long nanos) {
+            int bucket = Arrays.binarySearch(BOUNDS, nanos);
+            counts.incrementAndGet((bucket < 0) ? -bucket - 1 : bucket);
+            sumNanos.add(nanos);
+        }
+
+        public long getCount() {
+            long count = 0;
+            for (int i = 0; i < counts.length(); i++)
+                count += counts.get(i);
+            return count;
+        }
+
+        public double getSum() {
+            return sumNanos.sum() / 1e9;
+        }
+
+        @Override
+        void writeTo(StringBuilder out, String name, String labels) {
+            String prefix = labels.isEmpty() ? "" : labels + ",";
+            long cumulative = 0;
+            for (int i = 0; i < BUCKETS.length; i++) {
+                cumulative += counts.get(i);
+                sample(out, name + "_bucket", prefix + "le=\"" + BUCKETS[i] + "\"", Long.toString(cumulative));
+            }
+            cumulative += counts.get(BUCKETS.length);
+            sample(out, name + "_bucket", prefix + "le=\"+Inf\"", Long.toString(cumulative));
+            sample(out, name + "_sum", labels, Double.toString(getSum()));
+            sample(out, name + "_count", labels, Long.toString(cumulative));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.github.t1.deployer.tools;
+
+import static com.github.t1.deployer.tools.ServerTiming.Category.*;
+import static javax.ws.rs.core.MediaType.*;
+
+import java.io.IOException;
+
+import javax.ws.rs.core.Context;
+import javax.ws.rs.ext.*;
+
+/**
+ * Measures how long the {@link MessageBodyWriter}s take: html pages per writer for the {@link Metrics}, and all
+ * entities for the {@link ServerTiming}, excluding the calls that are made while rendering, e.g. for lazy lists.
+ */
+@Provider
+public class RenderTimer implements WriterInterceptor {
+    @Context
+    Providers providers;
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        boolean html = context.getMediaType() != null && TEXT_HTML_TYPE.isCompatible(context.getMediaType());
+        ServerTiming timing = ServerTiming.current();
+        if (!html && timing == null) {
+            context.proceed();
+            return;
+        }
+        long start = System.nanoTime();
+        long nested = (timing == null) ? 0 : timing.getRecordedNanos();
+        try {
+            context.proceed();
+        } finally {
+            if (html)
+                Metrics.histogram("deployer_html_render_seconds", "rendering html pages", "writer", writer(context))
+                        .observeSince(start);
+            if (timing != null)
+                timing.add(render, System.nanoTime() - start - (timing.getRecordedNanos() - nested));
+        }
+    }
+
+    private String writer(WriterInterceptorContext context) {
+        MessageBodyWriter<?> writer = providers.getMessageBodyWriter(context.getType(), context.getGenericType(),
+                context.getAnnotations(), context.getMediaType());
+        return (writer == null) ? context.getType().getSimpleName() : writer.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,89 @@
+package com.github.t1.deployer.tools;
+
+import static java.util.concurrent.TimeUnit.*;
+
+import java.util.Locale;
+
+/**
+ * Collects where the time of the current request goes, for the {@link ServerTimingFilter}. Recording is a no-op, when
+ * there is no collector for the current thread, i.e. when the filter is disabled or for work done in other threads.
+ */
+public class ServerTiming {
+    public enum Category {
+        mgmt("management operations"),
+        repo("repository calls"),
+        render("rendering");
+
+        private final String description;
+
+        Category(String description) {
+            this.description = description;
+        }
+    }
+
+    private static final ThreadLocal<ServerTiming> CURRENT = new ThreadLocal<>();
+
+    /** @return the collector of the current request, or <code>null</code>, if there is none */
+    public static ServerTiming current() {
+        return CURRENT.get();
+    }
+
+    /** @param start the {@link System#nanoTime()} when the timed call started */
+    public static void record(Category category, long start) {
+        ServerTiming timing = CURRENT.get();
+        if (timing != null)
+            timing.add(category, System.nanoTime() - start);
+    }
+
+    static ServerTiming begin() {
+        ServerTiming timing = new ServerTiming();
+        CURRENT.set(timing);
+        return timing;
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    private final long start = System.nanoTime();
+    private final long[] nanos = new long[Category.values().length];
+    private final int[] counts = new int[Category.values().length];
+    private long recordedNanos;
+
+    public void add(Category category, long duration) {
+        nanos[category.ordinal()] += duration;
+        counts[category.ordinal()]++;
+        recordedNanos += duration;
+    }
+
+    /** The sum of all recorded durations, to exclude them from an enclosing one */
+    public long getRecordedNanos() {
+        return recordedNanos;
+    }
+
+    public long getTotalMillis() {
+        return NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    /** e.g. <code>mgmt;dur=12.3;desc="management operations (3)", total;dur=20.1</code> */
+    public String header() {
+        StringBuilder out = new StringBuilder();
+        for (Category category : Category.values()) {
+            int count = counts[category.ordinal()];
+            if (count == 0)
+                continue;
+            out.append(category.name()).append(";dur=").append(millis(nanos[category.ordinal()])) //
+                    .append(";desc=\"").append(category.description).append(" (").append(count).append(")\", ");
+        }
+        return out.append("total;dur=").append(millis(System.nanoTime() - start)).toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1e6);
+    }
+
+    @Override
+    public String toString() {
+        return header();
+    }
+}
@@ -0,0 +1,56 @@
+package com.github.t1.deployer.tools;
+
+import java.io.IOException;
+
+import javax.servlet.*;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.*;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Adds a <code>Server-Timing</code> header to every response, with the time spent in management operations,
+ * repository calls, and rendering, as collected by the {@link ServerTiming}; the browser dev tools show it next to
+ * the network timing. Requests that take at least <code>deployer.server-timing.slow-millis</code> (default 1000) are
+ * logged with their timing.
+ * <p/>
+ * To include the rendering, the body is buffered up to <code>deployer.server-timing.buffer-bytes</code> (default 64
+ * KiB); larger bodies get the timing up to then. Set <code>deployer.server-timing</code> to <code>false</code> to
+ * disable it completely.
+ */
+@Slf4j
+@WebFilter("/*")
+public class ServerTimingFilter implements Filter {
+    static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("deployer.server-timing", "true"));
+    static final int BUFFER_SIZE = Integer.getInteger("deployer.server-timing.buffer-bytes", 64 * 1024);
+    static final long SLOW_MILLIS = Long.getLong("deployer.server-timing.slow-millis", 1000);
+
+    @Override
+    public void init(FilterConfig filterConfig) {}
+
+    @Override
+    public void destroy() {}
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException,
+            ServletException {
+        if (ENABLED && request instanceof HttpServletRequest && response instanceof HttpServletResponse)
+            doFilter((HttpServletRequest) request, (HttpServletResponse) response, chain);
+        else
+            chain.doFilter(request, response);
+    }
+
+    public void doFilter(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        ServerTiming timing = ServerTiming.begin();
+        try {
+            ServerTimingResponse timed = new ServerTimingResponse(response, timing, BUFFER_SIZE);
+            chain.doFilter(request, timed);
+            timed.finish();
+        } finally {
+            ServerTiming.end();
+            if (timing.getTotalMillis() >= SLOW_MILLIS)
+                log.info("slow request {} {}: {}", request.getMethod(), request.getRequestURI(), timing);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.github.t1.deployer.tools;
+
+import java.io.*;
+
+import javax.servlet.*;
+import javax.servlet.http.*;
+
+/**
+ * Buffers the body up to a limit, so the <code>Server-Timing</code> header can be added when it's complete, just
+ * before the response is committed.
+ */
+class ServerTimingResponse extends HttpServletResponseWrapper {
+    private static final String SERVER_TIMING = "Server-Timing";
+
+    private final ServerTiming timing;
+    private final int bufferSize;
+
+    private boolean timed;
+    private BufferingOutputStream stream;
+    private PrintWriter writer;
+
+    public ServerTimingResponse(HttpServletResponse response, ServerTiming timing, int bufferSize) {
+        super(response);
+        this.timing = timing;
+        this.bufferSize = bufferSize;
+    }
+
+    private void addTimingHeader() {
+        if (!timed && !isCommitted())
+            super.setHeader(SERVER_TIMING, timing.header());
+        timed = true;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        if (writer != null)
+            throw new IllegalStateException("getWriter() has already been called");
+        if (stream == null)
+            stream = new BufferingOutputStream();
+        return stream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (stream != null)
+                throw new IllegalStateException("getOutputStream() has already been called");
+            stream = new BufferingOutputStream();
+            writer = new PrintWriter(new OutputStreamWriter(stream, getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null)
+            writer.flush();
+        if (stream != null)
+            stream.commit();
+        addTimingHeader();
+        super.flushBuffer();
+    }
+
+    @Override
+    public void sendError(int status) throws IOException {
+        addTimingHeader();
+        super.sendError(status);
+    }
+
+    @Override
+    public void sendError(int status, String message) throws IOException {
+        addTimingHeader();
+        super.sendError(status, message);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        addTimingHeader();
+        super.sendRedirect(location);
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        if (stream != null)
+            stream.resetBuffer();
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        if (stream != null)
+            stream.resetBuffer();
+    }
+
+    public void finish() throws IOException {
+        if (writer != null)
+            writer.close();
+        else if (stream != null)
+            stream.close();
+        else
+            addTimingHeader();
+    }
+
+    private class BufferingOutputStream extends ServletOutputStream {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private OutputStream out;
+        private boolean closed;
+
+        public void resetBuffer() {
+            if (out == null)
+                buffer.reset();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (closed)
+                throw new IOException("stream is already closed");
+            if (out != null) {
+                out.write(bytes, offset, length);
+            } else {
+                buffer.write(bytes, offset, length);
+                if (buffer.size() >= bufferSize)
+                    commit();
+            }
+        }
+
+        public void commit() throws IOException {
+            if (out != null)
+                return;
+            addTimingHeader();
+            out = getResponse().getOutputStream();
+            buffer.writeTo(out);
+            buffer.reset();
+        }
+
+        /** Only when committed: writers often flush when they are done, but we want the header to be complete */
+        @Override
+        public void flush() throws IOException {
+            if (out != null)
+                out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed)
+                return;
+            commit();
+            closed = true;
+            out.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            try {
+                return getResponse().getOutputStream().isReady();
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            try {
+                getResponse().getOutputStream().setWriteListener(writeListener);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.github.t1.deployer.tools;
+
+import static javax.xml.bind.DatatypeConverter.*;
+
+import java.io.*;
+import java.net.URLConnection;
+import java.security.*;
+import java.util.*;
+import java.util.zip.GZIPOutputStream;
+
+import javax.ws.rs.core.EntityTag;
+
+import lombok.*;
+
+/**
+ * The bytes of a static resource, read once, together with a gzipped variant (if that's worth it) and strong entity
+ * tags for both.
+ */
+@Value
+class StaticResource {
+    private static final int MIN_GZIP_SIZE = 256;
+    private static final Map<String, String> CONTENT_TYPES = new HashMap<>();
+
+    static {
+        CONTENT_TYPES.put("css", "text/css");
+        CONTENT_TYPES.put("js", "application/javascript");
+        CONTENT_TYPES.put("json", "application/json");
+        CONTENT_TYPES.put("html", "text/html");
+        CONTENT_TYPES.put("svg", "image/svg+xml");
+        CONTENT_TYPES.put("png", "image/png");
+        CONTENT_TYPES.put("gif", "image/gif");
+        CONTENT_TYPES.put("ico", "image/x-icon");
+        CONTENT_TYPES.put("eot", "application/vnd.ms-fontobject");
+        CONTENT_TYPES.put("ttf", "application/font-sfnt");
+        CONTENT_TYPES.put("woff", "application/font-woff");
+        CONTENT_TYPES.put("woff2", "font/woff2");
+    }
+
+    public static StaticResource of(String path, String version, byte[] bytes, Date lastModified) {
+        String contentType = contentType(path);
+        byte[] gzipped = isCompressible(contentType) ? gzip(bytes) : null;
+        String tag = ((version == null) ? "" : version + "-") + sha1(bytes);
+        return new StaticResource(bytes, gzipped, contentType, lastModified, //
+                new EntityTag(tag), new EntityTag(tag + "-gz"));
+    }
+
+    private static String contentType(String path) {
+        int dot = path.lastIndexOf('.');
+        String type = (dot < 0) ? null : CONTENT_TYPES.get(path.substring(dot + 1).toLowerCase());
+        return (type == null) ? URLConnection.guessContentTypeFromName(path) : type;
+    }
+
+    private static boolean isCompressible(String contentType) {
+        return contentType != null && (contentType.startsWith("text/") //
+                || contentType.endsWith("javascript") || contentType.endsWith("json") || contentType.endsWith("+xml"));
+    }
+
+    @SneakyThrows(IOException.class)
+    private static byte[] gzip(byte[] bytes) {
+        if (bytes.length < MIN_GZIP_SIZE)
+            return null;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return (out.size() < bytes.length) ? out.toByteArray() : null;
+    }
+
+    @SneakyThrows(NoSuchAlgorithmException.class)
+    private static String sha1(byte[] bytes) {
+        return printHexBinary(MessageDigest.getInstance("SHA-1").digest(bytes)).toLowerCase();
+    }
+
+    byte[] bytes;
+    byte[] gzipped;
+    String contentType;
+    Date lastModified;
+    EntityTag entityTag;
+    EntityTag gzippedEntityTag;
+
+    public boolean hasGzipped() {
+        return gzipped != null;
+    }
+
+    /** the number of bytes this resource takes in memory */
+    public int size() {
+        return bytes.length + (hasGzipped() ? gzipped.length : 0);
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.t1.deployer.tools;
+
+import java.util.*;
+
+import lombok.extern.slf4j.Slf4j;
+
+/** A least-recently-used cache of {@link StaticResource}s that is bounded by the number of bytes they hold. */
+@Slf4j
+class StaticResourceCache {
+    private final int maxBytes;
+    private final LinkedHashMap<String, StaticResource> resources = new LinkedHashMap<>(64, 0.75f, true);
+    private int bytes;
+
+    public StaticResourceCache(int maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized StaticResource get(String path) {
+        return resources.get(path);
+    }
+
+    public synchronized void put(String path, StaticResource resource) {
+        if (resource.size() > maxBytes) {
+            log.debug("don't cache {}: {} bytes exceed the cache size", path, resource.size());
+            return;
+        }
+        StaticResource replaced = resources.put(path, resource);
+        if (replaced != null)
+            bytes -= replaced.size();
+        bytes += resource.size();
+        evict();
+    }
+
+    private void evict() {
+        for (Iterator<Map.Entry<String, StaticResource>> iter = resources.entrySet().iterator(); bytes > maxBytes;) {
+            Map.Entry<String, StaticResource> eldest = iter.next();
+            log.debug("evict {}", eldest.getKey());
+            bytes -= eldest.getValue().size();
+            iter.remove();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.github.t1.deployer.tools;
+
+import java.util.*;
+
+import lombok.Value;
+
+/**
+ * Collects the phases of the deployment operations in the current thread, e.g. repository calls, downloads, or plan
+ * executions, with their timestamps and sizes. Recording is a no-op, when no trace has {@link #begin() begun} for the
+ * current thread. Phases beyond the first {@value #MAX_PHASES} are ignored, so a long running thread can't pile
+ * them up.
+ */
+public class Tracing {
+    static final int MAX_PHASES = 100;
+
+    @Value
+    public static class Phase {
+        String name;
+        /** the {@link System#nanoTime()} when the phase started */
+        long start;
+        long duration;
+        /** transferred in this phase; 0 if nothing */
+        long bytes;
+    }
+
+    private static final ThreadLocal<Tracing> CURRENT = new ThreadLocal<>();
+
+    /** @return the trace of the current thread, or <code>null</code>, if there is none */
+    public static Tracing current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Start tracing the current thread, unless it already is traced, e.g. for an operation that is called from a
+     * request that is traced as a whole.
+     *
+     * @return <code>true</code>, if the caller has to {@link #end()} the trace
+     */
+    public static boolean begin() {
+        if (CURRENT.get() != null)
+            return false;
+        CURRENT.set(new Tracing());
+        return true;
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /** @return what was traced so far; the tracing of the current thread goes on with a fresh trace */
+    public static Tracing take() {
+        Tracing tracing = CURRENT.get();
+        if (tracing != null)
+            CURRENT.set(new Tracing());
+        return tracing;
+    }
+
+    /** @param start the {@link System#nanoTime()} when the phase started */
+    public static void phase(String name, long start) {
+        Tracing tracing = CURRENT.get();
+        if (tracing != null)
+            tracing.add(name, start, 0);
+    }
+
+    public static void download(String name, long start, long bytes) {
+        Tracing tracing = CURRENT.get();
+        if (tracing != null) {
+            tracing.add(name, start, bytes);
+            tracing.downloaded += bytes;
+        }
+    }
+
+    public static void upload(String name, long start, long bytes) {
+        Tracing tracing = CURRENT.get();
+        if (tracing != null) {
+            tracing.add(name, start, bytes);
+            tracing.uploaded += bytes;
+        }
+    }
+
+    private final long start = System.nanoTime();
+    private final List<Phase> phases = new ArrayList<>();
+    private long downloaded;
+    private long uploaded;
+
+    private void add(String name, long phaseStart, long bytes) {
+        if (phases.size() < MAX_PHASES)
+            phases.add(new Phase(name, phaseStart, System.nanoTime() - phaseStart, bytes));
+    }
+
+    /** the {@link System#nanoTime()} when the trace started */
+    public long getStart() {
+        return start;
+    }
+
+    /** in the order they ended */
+    public List<Phase> getPhases() {
+        return Collections.unmodifiableList(phases);
+    }
+
+    public long getDownloaded() {
+        return downloaded;
+    }
+
+    public long getUploaded() {
+        return uploaded;
+    }
+}
@@ -0,0 +1,39 @@
+package com.github.t1.deployer.tools;
+
+import java.io.IOException;
+import java.util.*;
+
+import javax.servlet.*;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Begins the {@link Tracing} for requests that may change something, so the phases before the deployment operation
+ * itself, e.g. the repository lookup, are part of its trace.
+ */
+@WebFilter("/*")
+public class TracingFilter implements Filter {
+    private static final Set<String> SAFE_METHODS = new HashSet<>(Arrays.asList("GET", "HEAD", "OPTIONS"));
+
+    @Override
+    public void init(FilterConfig filterConfig) {}
+
+    @Override
+    public void destroy() {}
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException,
+            ServletException {
+        if (request instanceof HttpServletRequest
+                && !SAFE_METHODS.contains(((HttpServletRequest) request).getMethod())
+                && Tracing.begin()) {
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                Tracing.end();
+            }
+        } else {
+            chain.doFilter(request, response);
+        }
+    }
+}
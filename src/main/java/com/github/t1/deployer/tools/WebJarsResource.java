@@ -5,11 +5,14 @@ import static javax.ws.rs.core.MediaType.*;
 import static javax.ws.rs.core.Response.Status.*;
 
 import java.io.*;
-import java.net.URL;
+import java.net.*;
 import java.util.*;
+import java.util.concurrent.*;
 
+import javax.inject.Inject;
 import javax.ws.rs.*;
-import javax.ws.rs.core.Response;
+import javax.ws.rs.core.*;
+import javax.ws.rs.core.Response.ResponseBuilder;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -22,27 +25,45 @@ import com.github.t1.log.Logged;
  * built-in mechanism to serve resources from <code>WEB-INF</code> and <code>META-INF/resources</code>. But it does have
  * the additional benefit that you don't have to put, e.g., <code>webjars/bootstrap/3.3.2</code> into the path.
  * <p/>
- * This class is not suitable for heavy load. Really heavy load should be fulfilled by serving static resources from
- * e.g. Apache or even a CDN. But the performance of this class could also be improved by:
- * <ul>
- * <li>Let the clients cache, by adding etags (e.g. the version number), modified-since (from the pom.properties
- * comment), and cache control headers.</li>
- * <li>Cache the resources in this class (e.g. with JCache).</li>
- * </ul>
+ * The resources are read only once and then served from a cache that is bounded in bytes, with a gzipped variant for
+ * clients that accept it. Clients can cache, too: the strong etag is made of the webjar version and the hash of the
+ * contents, so they only have to revalidate. If the path contains the version, e.g.
+ * <code>bootstrap/3.3.4/css/bootstrap.css</code>, it can't ever change, so the clients may cache it for a year. Single
+ * byte ranges are supported for the uncompressed variant.
+ * <p/>
+ * The {@link AssetBundles} are served under <code>bundle</code>. Their paths contain a hash of the contents, so they
+ * can be cached for a year, too.
+ * <p/>
+ * Really heavy load should still be fulfilled by serving static resources from e.g. Apache or even a CDN.
  */
 @Slf4j
 @Path("/")
 @Logged(level = TRACE)
 public class WebJarsResource {
-    private abstract class StaticFilesLoader {
+    private static final int MAX_CACHE_BYTES = 16 * 1024 * 1024;
+    private static final String IMMUTABLE = "public, max-age=31536000";
+    private static final String REVALIDATE = "public, no-cache";
+
+    private static final ConcurrentMap<String, StaticFilesLoader> LOADERS = new ConcurrentHashMap<>();
+    private static final StaticResourceCache CACHE = new StaticResourceCache(MAX_CACHE_BYTES);
+
+    private static abstract class StaticFilesLoader {
         public String prefix() {
             return "";
         }
 
         public abstract String name();
+
+        public String version() {
+            return null;
+        }
+
+        public boolean isVersioned(String filePath) {
+            return version() != null && filePath.startsWith(version() + "/");
+        }
     }
 
-    private class WebappStaticFilesLoader extends StaticFilesLoader {
+    private static class WebappStaticFilesLoader extends StaticFilesLoader {
         @Override
         public String name() {
             return "webapp";
@@ -50,7 +71,7 @@ public class WebJarsResource {
     }
 
     @RequiredArgsConstructor
-    private class WebjarFilesLoader extends StaticFilesLoader {
+    private static class WebjarFilesLoader extends StaticFilesLoader {
         private final String artifact;
         private final String version;
 
@@ -63,24 +84,51 @@ public class WebJarsResource {
         public String name() {
             return artifact + " webjar";
         }
+
+        @Override
+        public String version() {
+            return version;
+        }
     }
 
-    private final Map<String, StaticFilesLoader> loaders = new HashMap<>();
+    @Inject
+    AssetBundles bundles;
+    @Context
+    Request request;
+    @Context
+    HttpHeaders headers;
 
     @GET
     @Path("/{artifact}/{file-path:.*}")
-    @SuppressWarnings("resource")
     public Response getStaticResource(@PathParam("artifact") String artifact, @PathParam("file-path") String filePath) {
+        if (AssetBundles.ARTIFACT.equals(artifact)) {
+            StaticResource bundle = bundles.get(filePath);
+            if (bundle == null)
+                return notFound("no bundle '" + filePath + "'");
+            return response(bundle, true);
+        }
         StaticFilesLoader loader = getLoaderFor(artifact);
         if (loader == null)
             return notFound("artifact not found '" + artifact + "' (for path '" + filePath + "')");
-        String path = loader.prefix() + "/" + filePath;
-        InputStream stream = classLoader().getResourceAsStream(path);
-        if (stream != null) {
-            log.debug("found {} in {}", filePath, loader.name());
-            return Response.ok(stream).build();
-        }
-        return notFound("resource '" + filePath + "' not found in '" + artifact + "'");
+        boolean versioned = loader.isVersioned(filePath);
+        if (versioned)
+            filePath = filePath.substring(loader.version().length() + 1);
+        StaticResource resource = getResource(loader, filePath);
+        if (resource == null)
+            return notFound("resource '" + filePath + "' not found in '" + artifact + "'");
+        return response(resource, versioned);
+    }
+
+    /** The resource for the (unversioned) path in that artifact, or <code>null</code> if there is none */
+    static StaticResource resource(String artifact, String filePath) {
+        StaticFilesLoader loader = getLoaderFor(artifact);
+        return (loader == null) ? null : getResource(loader, filePath);
+    }
+
+    /** The version of that webjar, or <code>null</code> if it's not a webjar */
+    static String version(String artifact) {
+        StaticFilesLoader loader = getLoaderFor(artifact);
+        return (loader == null) ? null : loader.version();
     }
 
     private Response notFound(String message) {
@@ -88,16 +136,20 @@ public class WebJarsResource {
         return Response.status(NOT_FOUND).entity(message + "\n").type(TEXT_PLAIN).build();
     }
 
-    private StaticFilesLoader getLoaderFor(String artifact) {
-        StaticFilesLoader loader = loaders.get(artifact);
+    private static StaticFilesLoader getLoaderFor(String artifact) {
+        StaticFilesLoader loader = LOADERS.get(artifact);
         if (loader == null) {
             loader = createLoaderFor(artifact);
-            loaders.put(artifact, loader);
+            if (loader == null)
+                return null; // don't remember unknown artifacts: the paths are chosen by the clients
+            StaticFilesLoader existing = LOADERS.putIfAbsent(artifact, loader);
+            if (existing != null)
+                loader = existing;
         }
         return loader;
     }
 
-    private StaticFilesLoader createLoaderFor(String artifact) {
+    private static StaticFilesLoader createLoaderFor(String artifact) {
         if ("webapp".equals(artifact))
             return new WebappStaticFilesLoader();
         String version = versionOf(artifact);
@@ -106,8 +158,8 @@ public class WebJarsResource {
         return new WebjarFilesLoader(artifact, version);
     }
 
-    private String versionOf(String artifact) {
-        String path = "/META-INF/maven/org.webjars/" + artifact + "/pom.properties";
+    private static String versionOf(String artifact) {
+        String path = "META-INF/maven/org.webjars/" + artifact + "/pom.properties";
         URL resource = classLoader().getResource(path);
         if (resource == null) {
             log.debug("no pom properties found in {}", path);
@@ -126,10 +178,133 @@ public class WebJarsResource {
         }
     }
 
-    private ClassLoader classLoader() {
+    private static StaticResource getResource(StaticFilesLoader loader, String filePath) {
+        String path = loader.prefix().isEmpty() ? filePath : loader.prefix() + "/" + filePath;
+        StaticResource resource = CACHE.get(path);
+        if (resource == null) {
+            resource = load(loader, path);
+            if (resource == null)
+                return null;
+            CACHE.put(path, resource);
+        }
+        return resource;
+    }
+
+    private static StaticResource load(StaticFilesLoader loader, String path) {
+        URL url = classLoader().getResource(path);
+        if (url == null)
+            return null;
+        try {
+            URLConnection connection = url.openConnection();
+            long lastModified = connection.getLastModified();
+            try (InputStream stream = connection.getInputStream()) {
+                log.debug("load {} from {}", path, loader.name());
+                return StaticResource.of(path, loader.version(), readAll(stream),
+                        (lastModified == 0) ? null : new Date(lastModified));
+            }
+        } catch (IOException e) {
+            log.debug("exception while loading {}: {}", path, e);
+            return null;
+        }
+    }
+
+    private static byte[] readAll(InputStream stream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int n = stream.read(buffer); n >= 0; n = stream.read(buffer))
+            out.write(buffer, 0, n);
+        return out.toByteArray();
+    }
+
+    private static ClassLoader classLoader() {
         ClassLoader loader = Thread.currentThread().getContextClassLoader();
         if (loader == null)
-            loader = getClass().getClassLoader();
+            loader = WebJarsResource.class.getClassLoader();
         return loader;
     }
+
+    private Response response(StaticResource resource, boolean versioned) {
+        String range = headers.getHeaderString("Range");
+        boolean gzipped = resource.hasGzipped() && range == null && acceptsGzip();
+        EntityTag entityTag = gzipped ? resource.getGzippedEntityTag() : resource.getEntityTag();
+
+        ResponseBuilder notModified = (resource.getLastModified() == null) //
+                ? request.evaluatePreconditions(entityTag) //
+                : request.evaluatePreconditions(resource.getLastModified(), entityTag);
+        if (notModified != null)
+            return headers(notModified, resource, entityTag, versioned).build();
+
+        if (range != null && isIfRangeMatching(resource))
+            return partial(resource, range, versioned);
+
+        ResponseBuilder response = Response.ok(gzipped ? resource.getGzipped() : resource.getBytes());
+        if (gzipped)
+            response.header("Content-Encoding", "gzip");
+        return headers(response, resource, entityTag, versioned).build();
+    }
+
+    private boolean acceptsGzip() {
+        String acceptEncoding = headers.getHeaderString("Accept-Encoding");
+        if (acceptEncoding == null)
+            return false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (("gzip".equalsIgnoreCase(parts[0].trim()) || "*".equals(parts[0].trim())) && !isQZero(parts))
+                return true;
+        }
+        return false;
+    }
+
+    private boolean isQZero(String[] parts) {
+        for (int i = 1; i < parts.length; i++)
+            if (parts[i].trim().matches("q=0(\\.0*)?"))
+                return true;
+        return false;
+    }
+
+    private ResponseBuilder headers(ResponseBuilder response, StaticResource resource, EntityTag entityTag,
+            boolean versioned) {
+        response.tag(entityTag).header("Cache-Control", versioned ? IMMUTABLE : REVALIDATE);
+        if (resource.getContentType() != null)
+            response.type(resource.getContentType());
+        if (resource.getLastModified() != null)
+            response.lastModified(resource.getLastModified());
+        if (resource.hasGzipped())
+            response.header("Vary", "Accept-Encoding");
+        response.header("Accept-Ranges", "bytes");
+        return response;
+    }
+
+    /** <code>If-Range</code> with a date is not supported, so the full resource is returned */
+    private boolean isIfRangeMatching(StaticResource resource) {
+        String ifRange = headers.getHeaderString("If-Range");
+        return ifRange == null || ifRange.equals(resource.getEntityTag().toString());
+    }
+
+    /** Only single byte ranges are supported; others get the full resource, which is always allowed. */
+    private Response partial(StaticResource resource, String range, boolean versioned) {
+        byte[] bytes = resource.getBytes();
+        int length = bytes.length;
+        if (!range.startsWith("bytes=") || range.contains(","))
+            return headers(Response.ok(bytes), resource, resource.getEntityTag(), versioned).build();
+        String[] split = range.substring(6).trim().split("-", -1);
+        long first, last;
+        try {
+            if (split[0].isEmpty()) {
+                first = Math.max(0, length - Long.parseLong(split[1]));
+                last = length - 1;
+            } else {
+                first = Long.parseLong(split[0]);
+                last = split[1].isEmpty() ? length - 1 : Math.min(length - 1, Long.parseLong(split[1]));
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            return headers(Response.ok(bytes), resource, resource.getEntityTag(), versioned).build();
+        }
+        if (first > last || first >= length)
+            return Response.status(416).header("Content-Range", "bytes */" + length).build();
+        byte[] part = Arrays.copyOfRange(bytes, (int) first, (int) last + 1);
+        return headers(Response.status(206).entity(part), resource, resource.getEntityTag(), versioned) //
+                .header("Content-Range", "bytes " + first + "-" + last + "/" + length) //
+                .build();
+    }
 }
@@ -1,5 +1,6 @@
 package com.github.t1.deployer.tools;
 
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.*;
 import static javax.ws.rs.core.MediaType.*;
 
 import java.io.*;
@@ -10,13 +11,19 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.core.*;
 import javax.ws.rs.ext.*;
 
-import com.fasterxml.jackson.dataformat.yaml.snakeyaml.Yaml;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.*;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import com.github.t1.rest.fallback.ConverterTools;
 
+/** The mapper is thread safe; every request gets its own generator. */
 @Provider
 @Produces(WILDCARD)
 public class YamlMessageBodyWriter implements MessageBodyWriter<Object> {
-    private final Yaml yaml = new Yaml();
+    static final ObjectMapper YAML = new ObjectMapper(new YAMLFactory()) //
+            .setSerializationInclusion(NON_NULL) //
+            .configure(SerializationFeature.FLUSH_AFTER_WRITE_VALUE, false) //
+            .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
 
     @Override
     public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
@@ -30,7 +37,7 @@ public class YamlMessageBodyWriter implements MessageBodyWriter<Object> {
 
     @Override
     public void writeTo(Object t, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
-            MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) {
-        yaml.dump(t, new OutputStreamWriter(entityStream));
+            MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+        YAML.writeValue(entityStream, t);
     }
 }
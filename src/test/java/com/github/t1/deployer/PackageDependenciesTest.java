@@ -68,7 +68,9 @@ public class PackageDependenciesTest {
                 packageOf(io.swagger.core.filter.SwaggerSpecFilter.class), //
                 packageOf(io.swagger.models.Swagger.class));
         html.dependsUpon(model, app, builder); // app for resource paths
-        file.dependsUpon(model, repository, container);
+        file.dependsUpon(model, repository, container, tools);
+        model.dependsUpon(packageOf("com.fasterxml.jackson.core"), // CheckSum
+                packageOf("com.fasterxml.jackson.databind")); // CheckSum
 
         container.dependsUpon(
                 model,
@@ -76,14 +78,20 @@ public class PackageDependenciesTest {
                 packageOf(org.jboss.as.controller.client.ModelControllerClient.class),
                 packageOf(org.jboss.as.controller.client.helpers.standalone.DeploymentPlan.class),
                 packageOf(org.jboss.dmr.ModelNode.class));
-        repository.dependsUpon(model, //
+        repository.dependsUpon(model, tools, //
                 packageOf(org.apache.http.auth.Credentials.class), //
-                packageOf("com.github.t1.rest"));
+                packageOf("com.github.t1.rest"), //
+                packageOf("org.w3c.dom"), // ArtifactInspector
+                packageOf("org.xml.sax")); // ArtifactInspector
 
-        tools.dependsUpon( //
+        tools.dependsUpon(builder, // AssetBundles
                 packageOf("org.jboss.as.controller.client"), // config -> ModelControllerClient
                 packageOf("org.apache.http.auth"), // should move to Rest-Client
-                packageOf("com.fasterxml.jackson.dataformat.yaml.snakeyaml"), // YamlMessageBodyWriter
+                packageOf("com.fasterxml.jackson.dataformat.yaml"), // YamlMessageBodyWriter
+                packageOf("com.fasterxml.jackson.annotation"), // Cbor, Yaml & ListMessageBodyWriter
+                packageOf("com.fasterxml.jackson.core"), // Cbor, Yaml & ListMessageBodyWriter
+                packageOf("com.fasterxml.jackson.databind"), // Cbor, Yaml & ListMessageBodyWriter
+                packageOf("com.fasterxml.jackson.dataformat.cbor"), // Cbor
                 packageOf("com.github.t1.rest.fallback") // ConverterTools
         );
     }
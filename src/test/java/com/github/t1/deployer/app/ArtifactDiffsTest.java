@@ -0,0 +1,83 @@
+package com.github.t1.deployer.app;
+
+import static com.github.t1.deployer.repository.ArtifactoryMock.*;
+import static java.util.Arrays.*;
+import static javax.ws.rs.core.Response.Status.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.*;
+import java.util.zip.*;
+
+import javax.ws.rs.WebApplicationException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.*;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.github.t1.deployer.model.*;
+import com.github.t1.deployer.repository.Repository;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ArtifactDiffsTest {
+    private static final CheckSum CURRENT = fakeChecksumFor(FOO, CURRENT_FOO_VERSION);
+    private static final CheckSum NEWEST = fakeChecksumFor(FOO, NEWEST_FOO_VERSION);
+
+    @InjectMocks
+    ArtifactDiffs diffs;
+    @Mock
+    Repository repository;
+
+    private void givenArtifact(CheckSum checkSum, String... namesAndContents) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                zip.putNextEntry(new ZipEntry(namesAndContents[i]));
+                zip.write(namesAndContents[i + 1].getBytes("UTF-8"));
+                zip.closeEntry();
+            }
+        }
+        when(repository.getArtifactInputStream(checkSum)).thenReturn(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    @Test
+    public void shouldDiffArtifacts() throws IOException {
+        givenArtifact(CURRENT, "WEB-INF/lib/a-1.0.jar", "aaaa", "WEB-INF/web.xml", "<web/>", "app.properties", "x=1");
+        givenArtifact(NEWEST, "WEB-INF/lib/a-1.1.jar", "aaaaa", "WEB-INF/web.xml", "<web/>", "app.properties", "x=22");
+
+        ArchiveDiff diff = diffs.diff(CURRENT, NEWEST);
+
+        assertEquals(asList("WEB-INF/lib/a-1.1.jar"), diff.getAdded());
+        assertEquals(asList("app.properties"), diff.getChanged());
+        assertEquals(asList("WEB-INF/lib/a-1.0.jar"), diff.getRemoved());
+        assertEquals(9, diff.getTransferBytes());
+        assertEquals(15, diff.getTotalBytes());
+        assertEquals(2, diff.getSizeDelta());
+    }
+
+    @Test
+    public void shouldCacheDiffPerPairOfCheckSums() throws IOException {
+        givenArtifact(CURRENT, "index.jsp", "old");
+        givenArtifact(NEWEST, "index.jsp", "new");
+
+        ArchiveDiff diff = diffs.diff(CURRENT, NEWEST);
+
+        assertSame(diff, diffs.diff(CURRENT, NEWEST));
+        verify(repository, times(1)).getArtifactInputStream(CURRENT);
+        verify(repository, times(1)).getArtifactInputStream(NEWEST);
+    }
+
+    @Test
+    public void shouldRejectNonArchive() {
+        when(repository.getArtifactInputStream(CURRENT)).thenReturn(new ByteArrayInputStream("foo".getBytes()));
+        when(repository.getArtifactInputStream(NEWEST)).thenReturn(new ByteArrayInputStream("bar".getBytes()));
+
+        try {
+            diffs.diff(CURRENT, NEWEST);
+            fail("WebApplicationException expected");
+        } catch (WebApplicationException e) {
+            assertEquals(BAD_REQUEST.getStatusCode(), e.getResponse().getStatus());
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.github.t1.deployer.app;
+
+import static com.github.t1.deployer.model.ReleaseAction.Type.*;
+import static java.util.Arrays.*;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.security.Principal;
+import java.util.*;
+
+import javax.interceptor.InvocationContext;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.*;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import com.github.t1.deployer.app.file.*;
+import com.github.t1.deployer.container.*;
+import com.github.t1.deployer.model.*;
+import com.github.t1.deployer.tools.Tracing;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DeploymentOperationInterceptorTest {
+    private static final ContextRoot FOO = new ContextRoot("foo");
+    private static final ContextRoot BAR = new ContextRoot("bar");
+
+    @InjectMocks
+    DeploymentOperationInterceptor interceptor;
+    @Mock
+    Audit audit;
+    @Mock
+    DeploymentListFile deploymentsList;
+    @Mock
+    Principal principal;
+    @Mock
+    DeploymentHistory history;
+    @Mock
+    DeploymentContainer container;
+    @Spy
+    OperationTraces traces = new OperationTraces();
+    @Mock
+    WarmUp warmUp;
+    @Mock
+    DeployDurations durations;
+    @Mock
+    InvocationContext context;
+
+    private static Deployment deployment(ContextRoot contextRoot) {
+        return new Deployment(new DeploymentName(contextRoot + ".war"), contextRoot, CheckSum.ofHexString("1234"),
+                new Version("1.0"));
+    }
+
+    private void givenOperation(String name, Object... parameters) throws Exception {
+        for (Method method : DeploymentContainer.class.getMethods())
+            if (method.getName().equals(name) && method.getParameterTypes().length == parameters.length)
+                when(context.getMethod()).thenReturn(method);
+        when(context.getParameters()).thenReturn(parameters);
+    }
+
+    private void givenUploading(final long bytes, final Object result) throws Exception {
+        when(context.proceed()).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                Tracing.upload("plan:execute", System.nanoTime(), bytes);
+                return result;
+            }
+        });
+    }
+
+    @Test
+    public void shouldRecordDurationOfRedeployWithBytesTraced() throws Exception {
+        givenOperation("redeploy", deployment(FOO), mock(InputStream.class));
+        givenUploading(1234, null);
+
+        interceptor.aroundInvoke(context);
+
+        verify(durations).executed(eq(deployment(FOO)), anyLong(), eq(1234L));
+    }
+
+    @Test
+    public void shouldRecordDurationOfRedeployByHash() throws Exception {
+        givenOperation("redeploy", deployment(FOO));
+        givenUploading(0, null);
+
+        interceptor.aroundInvoke(context);
+
+        verify(durations).executed(eq(deployment(FOO)), anyLong(), eq(0L));
+    }
+
+    @Test
+    public void shouldNotRecordDurationOfFailedDeploy() throws Exception {
+        givenOperation("deploy", deployment(FOO), mock(InputStream.class));
+        when(context.proceed()).thenThrow(new RuntimeException("failed"));
+
+        try {
+            interceptor.aroundInvoke(context);
+            fail("RuntimeException expected");
+        } catch (RuntimeException e) {
+            assertEquals("failed", e.getMessage());
+        }
+
+        verify(durations, never()).executed(any(Deployment.class), anyLong(), anyLong());
+    }
+
+    @Test
+    public void shouldNotRecordDurationOfUndeploy() throws Exception {
+        givenOperation("undeploy", deployment(FOO));
+
+        interceptor.aroundInvoke(context);
+
+        verify(durations, never()).executed(any(Deployment.class), anyLong(), anyLong());
+    }
+
+    @Test
+    public void shouldCheckReleaseAgainstDeployedContextRoots() throws Exception {
+        List<ReleaseAction> actions = asList(new ReleaseAction(REDEPLOY, deployment(FOO)),
+                new ReleaseAction(UNDEPLOY, deployment(BAR)));
+        givenOperation("release", actions, Collections.emptyMap());
+        givenUploading(1234, asList(actions.get(0).withOutcome("EXECUTED"), actions.get(1).withOutcome("EXECUTED")));
+
+        interceptor.aroundInvoke(context);
+
+        verify(durations).executedRelease(eq(asList(FOO)), anyLong());
+        verify(durations, never()).executed(any(Deployment.class), anyLong(), anyLong());
+    }
+}
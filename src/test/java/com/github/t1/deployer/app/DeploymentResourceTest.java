@@ -14,6 +14,7 @@ import org.junit.*;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.t1.deployer.TestData.OngoingDeploymentStub;
+import com.github.t1.deployer.container.*;
 import com.github.t1.deployer.model.*;
 import com.github.t1.deployer.repository.Repository;
 
@@ -56,6 +57,9 @@ public class DeploymentResourceTest {
     @Before
     public void setup() {
         deploymentResource.repository = mock(Repository.class);
+        deploymentResource.durations = new DeployDurations();
+        deploymentResource.gate = new RegressionGate();
+        deploymentResource.requestSeries = new RequestTimeSeries();
         new OngoingDeploymentStub(deploymentResource.repository, deployment).availableVersions("1.0", "1.1", "2.0");
     }
 
@@ -11,6 +11,7 @@ import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 import io.dropwizard.testing.junit.DropwizardClientRule;
 
+import java.io.InputStream;
 import java.net.URI;
 import java.security.Principal;
 import java.util.List;
@@ -28,11 +29,11 @@ import org.junit.rules.TestWatcher;
 import org.junit.runner.Description;
 import org.mockito.Matchers;
 
-import com.github.t1.deployer.app.file.DeploymentListFile;
+import com.github.t1.deployer.app.file.*;
 import com.github.t1.deployer.app.html.DeploymentHtmlWriter;
 import com.github.t1.deployer.container.*;
 import com.github.t1.deployer.model.*;
-import com.github.t1.deployer.repository.Repository;
+import com.github.t1.deployer.repository.*;
 import com.github.t1.deployer.tools.*;
 import com.github.t1.rest.RestResource;
 
@@ -43,6 +44,7 @@ public class DeploymentsIT {
     private static Audit audit = mock(Audit.class);
     private static DeploymentListFile deploymentListFile = mock(DeploymentListFile.class);
     private static Principal principal = mock(Principal.class);
+    private static DeploymentHistory history = mock(DeploymentHistory.class);
 
     private static DeploymentContainer interceptedContainer = InterceptorMock.intercept(container).with(interceptor());
 
@@ -51,6 +53,11 @@ public class DeploymentsIT {
         interceptor.audit = audit;
         interceptor.deploymentsList = deploymentListFile;
         interceptor.principal = principal;
+        interceptor.history = history;
+        interceptor.container = container;
+        interceptor.traces = new OperationTraces();
+        interceptor.warmUp = new WarmUp();
+        interceptor.durations = new DeployDurations();
         return interceptor;
     }
 
@@ -77,6 +84,12 @@ public class DeploymentsIT {
                             DeploymentResource result = new DeploymentResource();
                             result.container = interceptedContainer;
                             result.repository = repository;
+                            result.scheduler = new DeploymentScheduler();
+                            result.inspector = new ArtifactInspector();
+                            result.history = history;
+                            result.durations = new DeployDurations();
+                            result.gate = new RegressionGate();
+                            result.requestSeries = new RequestTimeSeries();
                             result.uriInfo = uriInfo;
                             return result;
                         }
@@ -100,7 +113,7 @@ public class DeploymentsIT {
 
     @Before
     public void before() {
-        reset(container, repository, audit, principal);
+        reset(container, repository, audit, principal, history);
         when(principal.getName()).thenReturn("jbossadmin");
     }
 
@@ -220,7 +233,7 @@ public class DeploymentsIT {
 
         assertStatus(CREATED, response);
         assertEquals(uri.getUri(), response.getLocation());
-        verify(container).deploy(deploymentFor(FOO), inputStreamFor(FOO, CURRENT_FOO_VERSION));
+        verify(container).deploy(eq(deploymentFor(FOO)), Matchers.any(InputStream.class));
         verify(audit).allow("deploy", FOO, CURRENT_FOO_VERSION);
     }
 
@@ -235,7 +248,38 @@ public class DeploymentsIT {
 
         assertStatus(NO_CONTENT, response);
         verify(audit).allow("redeploy", FOO, NEWEST_FOO_VERSION);
-        verify(container).redeploy(deploymentFor(FOO, NEWEST_FOO_VERSION), inputStreamFor(FOO, NEWEST_FOO_VERSION));
+        verify(container).redeploy(eq(deploymentFor(FOO, NEWEST_FOO_VERSION)), Matchers.any(InputStream.class));
+    }
+
+    @Test
+    public void shouldUpgradeByHashWhenContentIsInContainer() {
+        given(FOO, BAR);
+        when(container.hasContent(fakeChecksumFor(FOO, NEWEST_FOO_VERSION))).thenReturn(true);
+
+        Response response = deploymentsWebTarget(FOO) //
+                .request(APPLICATION_JSON_TYPE) //
+                .put(Entity.json(deploymentJson(FOO, NEWEST_FOO_VERSION)));
+
+        assertStatus(NO_CONTENT, response);
+        verify(audit).allow("redeploy", FOO, NEWEST_FOO_VERSION);
+        verify(container).redeploy(deploymentFor(FOO, NEWEST_FOO_VERSION));
+        verify(repository, never()).getArtifactInputStream(Matchers.any(CheckSum.class));
+    }
+
+    @Test
+    public void shouldUpgradeFromLocalArtifact() {
+        given(FOO, BAR);
+        java.nio.file.Path localPath = java.nio.file.Paths.get("/mnt/artifactory/foo.war");
+        when(repository.getLocalArtifactPath(fakeChecksumFor(FOO, NEWEST_FOO_VERSION))).thenReturn(localPath);
+
+        Response response = deploymentsWebTarget(FOO) //
+                .request(APPLICATION_JSON_TYPE) //
+                .put(Entity.json(deploymentJson(FOO, NEWEST_FOO_VERSION)));
+
+        assertStatus(NO_CONTENT, response);
+        verify(audit).allow("redeploy", FOO, NEWEST_FOO_VERSION);
+        verify(container).redeploy(deploymentFor(FOO, NEWEST_FOO_VERSION), localPath);
+        verify(repository, never()).getArtifactInputStream(Matchers.any(CheckSum.class));
     }
 
     @Test
@@ -261,7 +305,7 @@ public class DeploymentsIT {
                         ));
 
         assertStatus(OK, response); // redirected
-        verify(container).deploy(deploymentFor(FOO), inputStreamFor(FOO, CURRENT_FOO_VERSION));
+        verify(container).deploy(eq(deploymentFor(FOO)), Matchers.any(InputStream.class));
         verify(audit).allow("deploy", FOO, CURRENT_FOO_VERSION);
     }
 
@@ -274,7 +318,7 @@ public class DeploymentsIT {
 
         assertStatus(OK, response); // redirected
         verify(audit).allow("redeploy", FOO, NEWEST_FOO_VERSION);
-        verify(container).redeploy(deploymentFor(FOO, NEWEST_FOO_VERSION), inputStreamFor(FOO, NEWEST_FOO_VERSION));
+        verify(container).redeploy(eq(deploymentFor(FOO, NEWEST_FOO_VERSION)), Matchers.any(InputStream.class));
     }
 
     @Test
@@ -290,6 +334,28 @@ public class DeploymentsIT {
         verify(audit).allow("undeploy", FOO, CURRENT_FOO_VERSION);
     }
 
+    @Test
+    public void shouldPostRollback() {
+        given(FOO, BAR);
+        Deployment previous = deploymentFor(FOO, CURRENT_FOO_VERSION);
+        when(history.latest(FOO)).thenReturn(HistoryEntry.builder() //
+                .contextRoot(FOO) //
+                .name(previous.getName()) //
+                .oldCheckSum(previous.getCheckSum()) //
+                .oldVersion(CURRENT_FOO_VERSION) //
+                .newCheckSum(fakeChecksumFor(FOO, NEWEST_FOO_VERSION)) //
+                .newVersion(NEWEST_FOO_VERSION) //
+                .outcome(HistoryEntry.SUCCESS) //
+                .build());
+
+        Response response = deploymentsWebTarget(FOO).request() //
+                .post(Entity.form(new Form("action", "rollback").param("contextRoot", FOO.getValue())));
+
+        assertStatus(OK, response); // redirected
+        verify(audit).allow("redeploy", FOO, CURRENT_FOO_VERSION);
+        verify(container).redeploy(eq(previous), Matchers.any(InputStream.class));
+    }
+
     @Test
     public void shouldGetDeploymentsForm() {
         Response response = deployer() //
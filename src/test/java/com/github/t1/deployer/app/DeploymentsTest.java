@@ -2,10 +2,16 @@ package com.github.t1.deployer.app;
 
 import static com.github.t1.deployer.TestData.*;
 import static com.github.t1.deployer.repository.ArtifactoryMock.*;
+import static javax.ws.rs.core.Response.Status.*;
 import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 
+import java.io.*;
 import java.util.*;
+import java.util.zip.*;
+
+import javax.ws.rs.WebApplicationException;
 
 import org.glassfish.hk2.api.Factory;
 import org.junit.*;
@@ -15,9 +21,9 @@ import org.mockito.*;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import com.github.t1.deployer.TestData.OngoingDeploymentStub;
-import com.github.t1.deployer.container.DeploymentContainer;
+import com.github.t1.deployer.container.*;
 import com.github.t1.deployer.model.*;
-import com.github.t1.deployer.repository.Repository;
+import com.github.t1.deployer.repository.*;
 import com.github.t1.deployer.tools.FactoryInstance;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -28,6 +34,8 @@ public class DeploymentsTest {
     Repository repository;
     @Mock
     DeploymentContainer container;
+    @Mock
+    IncrementalRedeploy incrementalRedeploy;
 
     @Rule
     public ExpectedException expectedException = ExpectedException.none();
@@ -43,6 +51,12 @@ public class DeploymentsTest {
                 DeploymentResource result = new DeploymentResource();
                 result.container = container;
                 result.repository = repository;
+                result.scheduler = new DeploymentScheduler();
+                result.inspector = new ArtifactInspector();
+                result.incrementalRedeploy = incrementalRedeploy;
+                result.durations = new DeployDurations();
+                result.gate = new RegressionGate();
+                result.requestSeries = new RequestTimeSeries();
                 return result;
             }
 
@@ -75,13 +89,39 @@ public class DeploymentsTest {
         givenDeployment(FOO);
         givenDeployment(BAR);
 
-        List<Deployment> list = deployments.getAllDeployments();
+        List<Deployment> list = deployments.getDeployments(Paging.ALL).getElements();
 
         assertEquals(2, list.size());
         assertDeployment(FOO, list.get(0));
         assertDeployment(BAR, list.get(1));
     }
 
+    @Test
+    public void shouldSortAndPageDeployments() {
+        givenDeployment(FOO);
+        givenDeployment(BAR);
+
+        Slice<Deployment> slice = deployments.getDeployments(new Paging(null, "-name", 1, 1));
+
+        assertEquals(2, slice.getTotal());
+        assertTrue(slice.hasPrevious());
+        assertFalse(slice.hasNext());
+        assertEquals(1, slice.getElements().size());
+        assertDeployment(BAR, slice.getElements().get(0));
+    }
+
+    @Test
+    public void shouldFilterDeploymentsBeforeLookingUpVersions() {
+        givenDeployment(FOO);
+        givenDeployment(BAR);
+
+        Slice<Deployment> slice = deployments.getDeployments(new Paging(BAR + "*", null, 0, null));
+
+        assertEquals(1, slice.getTotal());
+        assertDeployment(BAR, slice.getElements().get(0));
+        verify(repository, never()).getByChecksum(fakeChecksumFor(FOO));
+    }
+
     @Test
     public void shouldGetDeploymentByContextRootMatrix() {
         givenDeployment(FOO).availableVersions("1.3.1");
@@ -101,4 +141,48 @@ public class DeploymentsTest {
 
         assertVersions(FOO, deployment.getAvailableVersions(), versions);
     }
+
+    private void givenArtifactWithContextRoot(Deployment deployment, ContextRoot contextRoot) throws IOException {
+        ByteArrayOutputStream war = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(war)) {
+            zip.putNextEntry(new ZipEntry("WEB-INF/jboss-web.xml"));
+            zip.write(("<jboss-web><context-root>/" + contextRoot + "</context-root></jboss-web>").getBytes("UTF-8"));
+        }
+        when(repository.getByChecksum(deployment.getCheckSum())).thenReturn(deployment);
+        when(repository.getArtifactInputStream(deployment.getCheckSum())) //
+                .thenReturn(new ByteArrayInputStream(war.toByteArray()));
+    }
+
+    @Test
+    public void shouldRejectContextRootCollisionOfIncrementalRedeploy() throws IOException {
+        givenDeployment(FOO);
+        givenDeployment(BAR);
+        when(container.hasDeploymentWith(FOO)).thenReturn(true);
+        Deployment target = deploymentFor(FOO, NEWEST_FOO_VERSION);
+        givenArtifactWithContextRoot(target, BAR);
+        DeploymentResource resource = deployments.deploymentSubResourceByContextRoot(FOO);
+
+        try {
+            resource.put(null, null, true, target);
+            fail("WebApplicationException expected");
+        } catch (WebApplicationException e) {
+            assertEquals(CONFLICT.getStatusCode(), e.getResponse().getStatus());
+        }
+        verify(incrementalRedeploy, never()).redeploy(any(Deployment.class), any(Deployment.class), any(File.class));
+    }
+
+    @Test
+    public void shouldRedeployIncrementallyWithInspectedContextRoot() throws IOException {
+        givenDeployment(FOO);
+        when(container.hasDeploymentWith(FOO)).thenReturn(true);
+        Deployment target = deploymentFor(FOO, NEWEST_FOO_VERSION);
+        ContextRoot inspected = new ContextRoot("foo-inspected");
+        givenArtifactWithContextRoot(target, inspected);
+        DeploymentResource resource = deployments.deploymentSubResourceByContextRoot(FOO);
+
+        resource.put(null, null, true, target);
+
+        verify(incrementalRedeploy).redeploy(eq(deploymentFor(FOO)), eq(target.withContextRoot(inspected)),
+                any(File.class));
+    }
 }
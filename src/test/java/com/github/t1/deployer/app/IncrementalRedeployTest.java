@@ -0,0 +1,143 @@
+package com.github.t1.deployer.app;
+
+import static com.github.t1.deployer.TestData.*;
+import static com.github.t1.deployer.repository.ArtifactoryMock.*;
+import static java.util.Arrays.*;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.*;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.*;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.github.t1.deployer.container.DeploymentContainer;
+import com.github.t1.deployer.model.*;
+import com.github.t1.deployer.repository.Repository;
+
+@RunWith(MockitoJUnitRunner.class)
+public class IncrementalRedeployTest {
+    private static final String BIG = bigContent();
+
+    private static String bigContent() {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < 1000; i++)
+            out.append(i);
+        return out.toString();
+    }
+
+    @InjectMocks
+    IncrementalRedeploy incrementalRedeploy;
+    @Mock
+    DeploymentContainer container;
+    @Mock
+    Repository repository;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Deployment running = deploymentFor(FOO, CURRENT_FOO_VERSION);
+    private final Deployment target = deploymentFor(FOO, NEWEST_FOO_VERSION);
+    private File targetFile;
+
+    private void givenArtifact(Deployment deployment, byte[] content) {
+        when(repository.getArtifactInputStream(deployment.getCheckSum())).thenReturn(new ByteArrayInputStream(content));
+    }
+
+    private void givenTarget(byte[] content) throws IOException {
+        targetFile = folder.newFile("target.war");
+        try (OutputStream out = new FileOutputStream(targetFile)) {
+            out.write(content);
+        }
+    }
+
+    private static byte[] zip(String... namesAndContents) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                zip.putNextEntry(new ZipEntry(namesAndContents[i]));
+                zip.write(namesAndContents[i + 1].getBytes("UTF-8"));
+                zip.closeEntry();
+            }
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void shouldPatchOnlyChangedEntries() throws IOException {
+        givenArtifact(running, zip("lib/big.jar", BIG, "index.jsp", "old", "removed.txt", "gone"));
+        givenTarget(zip("lib/big.jar", BIG, "index.jsp", "new", "added.txt", "here"));
+
+        ArchiveDiff diff = incrementalRedeploy.redeploy(running, target, targetFile);
+
+        assertEquals(asList("added.txt"), diff.getAdded());
+        assertEquals(asList("index.jsp"), diff.getChanged());
+        assertEquals(asList("removed.txt"), diff.getRemoved());
+        assertEquals(7, diff.getTransferBytes());
+        assertEquals(BIG.length() + 7, diff.getTotalBytes());
+        assertTrue(diff.isIncremental());
+        verify(container).patch(eq(target), eq(diff), any(ZipFile.class));
+        verify(container, never()).redeploy(any(Deployment.class), any(InputStream.class));
+    }
+
+    @Test
+    public void shouldReplaceWholeArchiveWhenDiffIsTooLarge() throws IOException {
+        givenArtifact(running, zip("index.jsp", "old"));
+        givenTarget(zip("index.jsp", "new", "lib/big.jar", BIG));
+
+        ArchiveDiff diff = incrementalRedeploy.redeploy(running, target, targetFile);
+
+        assertFalse(diff.isIncremental());
+        verify(container).redeploy(eq(target), any(InputStream.class));
+        verify(container, never()).patch(any(Deployment.class), any(ArchiveDiff.class), any(ZipFile.class));
+    }
+
+    @Test
+    public void shouldReplaceWholeArchiveWhenRunningIsNotInRepository() throws IOException {
+        when(repository.getArtifactInputStream(running.getCheckSum())).thenThrow(new RuntimeException("not found"));
+        givenTarget(zip("index.jsp", "new"));
+
+        ArchiveDiff diff = incrementalRedeploy.redeploy(running, target, targetFile);
+
+        assertNull(diff);
+        verify(container).redeploy(eq(target), any(InputStream.class));
+    }
+
+    @Test
+    public void shouldReplaceWholeArchiveWhenRunningIsNoArchive() throws IOException {
+        givenArtifact(running, "not a zip".getBytes("UTF-8"));
+        givenTarget(zip("index.jsp", "new"));
+
+        ArchiveDiff diff = incrementalRedeploy.redeploy(running, target, targetFile);
+
+        assertNull(diff);
+        verify(container).redeploy(eq(target), any(InputStream.class));
+    }
+
+    @Test
+    public void shouldIgnoreDirectoryEntries() throws IOException {
+        givenArtifact(running, zip("WEB-INF/", "", "lib/big.jar", BIG));
+        givenTarget(zip("lib/big.jar", BIG, "META-INF/", ""));
+
+        ArchiveDiff diff = incrementalRedeploy.redeploy(running, target, targetFile);
+
+        assertEquals(Collections.emptyList(), diff.transfers());
+        assertEquals(Collections.emptyList(), diff.getRemoved());
+    }
+
+    @Test
+    public void shouldNotDeleteTargetFile() throws IOException {
+        givenArtifact(running, zip("index.jsp", "old"));
+        givenTarget(zip("index.jsp", "new"));
+
+        incrementalRedeploy.redeploy(running, target, targetFile);
+
+        assertTrue(targetFile.isFile());
+    }
+}
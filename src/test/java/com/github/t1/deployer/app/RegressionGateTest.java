@@ -0,0 +1,176 @@
+package com.github.t1.deployer.app;
+
+import static java.util.concurrent.TimeUnit.*;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.security.Principal;
+import java.util.*;
+import java.util.concurrent.Executors;
+
+import org.junit.*;
+import org.junit.runner.RunWith;
+import org.mockito.*;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.github.t1.deployer.app.file.DeploymentHistory;
+import com.github.t1.deployer.container.StatisticsContainer;
+import com.github.t1.deployer.model.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RegressionGateTest {
+    private static final ContextRoot FOO = new ContextRoot("foo");
+    private static final DeploymentName FOO_WAR = new DeploymentName("foo.war");
+    private static final Deployment NEW = new Deployment(FOO_WAR, FOO, CheckSum.ofHexString("2222"), new Version("2"));
+
+    @InjectMocks
+    RegressionGate gate;
+    @Mock
+    StatisticsContainer container;
+    @Mock
+    DeploymentHistory history;
+    @Mock
+    Principal principal;
+
+    @Before
+    public void before() {
+        gate.windowMillis = 1;
+        when(principal.getName()).thenReturn("joe");
+        when(history.latest(FOO)).thenReturn(HistoryEntry.builder() //
+                .operation("redeploy").contextRoot(FOO).name(FOO_WAR) //
+                .oldCheckSum(CheckSum.ofHexString("1111")).oldVersion(new Version("1")) //
+                .newCheckSum(NEW.getCheckSum()).newVersion(NEW.getVersion()) //
+                .outcome(HistoryEntry.SUCCESS).build());
+    }
+
+    private static RequestStatistics stats(long requests, long time, long serverRequests, long serverErrors) {
+        return new RequestStatistics(FOO_WAR, requests, time, 0, 0, serverRequests, serverErrors);
+    }
+
+    private void givenWindow(RequestStatistics from, RequestStatistics to) {
+        when(container.getRequestStatistics()).thenReturn( //
+                Collections.singletonMap(FOO_WAR, from), Collections.singletonMap(FOO_WAR, to));
+    }
+
+    private HistoryEntry recorded() {
+        ArgumentCaptor<HistoryEntry> entry = ArgumentCaptor.forClass(HistoryEntry.class);
+        verify(history).append(entry.capture());
+        assertEquals(RegressionGate.OPERATION, entry.getValue().getOperation());
+        assertEquals(new Version("1"), entry.getValue().getOldVersion());
+        assertEquals(new Version("2"), entry.getValue().getNewVersion());
+        assertEquals("joe", entry.getValue().getPrincipal());
+        return entry.getValue();
+    }
+
+    @Test
+    public void shouldBeOffByDefault() {
+        gate.windowMillis = 0;
+
+        assertNull(gate.baseline(NEW));
+        verify(container, never()).getRequestStatistics();
+    }
+
+    @Test
+    public void shouldPassWithSimilarLatency() {
+        givenWindow(stats(10, 100, 1000, 0), stats(110, 1300, 1100, 0));
+
+        boolean regressed = gate.regressed(NEW, stats(1000, 10000, 1000, 0), "joe");
+
+        assertFalse(regressed);
+        assertEquals("passed: 100 requests, mean 12.0 ms (before 10.0 ms), server errors 0.00% (before 0.00%)",
+                recorded().getOutcome());
+    }
+
+    @Test
+    public void shouldRollBackWhenSlower() {
+        givenWindow(stats(0, 0, 1000, 0), stats(100, 2000, 1100, 0));
+
+        boolean regressed = gate.regressed(NEW, stats(1000, 10000, 1000, 0), "joe");
+
+        assertTrue(regressed);
+        assertTrue(recorded().getOutcome().startsWith("regressed: 100 requests, mean 20.0 ms (before 10.0 ms)"));
+    }
+
+    @Test
+    public void shouldNotRollBackOnServerErrorsByDefault() {
+        givenWindow(stats(0, 0, 1000, 10), stats(100, 1000, 1100, 20));
+
+        boolean regressed = gate.regressed(NEW, stats(1000, 10000, 1000, 10), "joe");
+
+        assertFalse(regressed);
+        assertTrue(recorded().getOutcome().endsWith("server errors 10.00% (before 1.00%)"));
+    }
+
+    @Test
+    public void shouldRollBackWhenFailing() {
+        gate.errorRateIncrease = 0.01;
+        givenWindow(stats(0, 0, 1000, 10), stats(100, 1000, 1100, 20));
+
+        boolean regressed = gate.regressed(NEW, stats(1000, 10000, 1000, 10), "joe");
+
+        assertTrue(regressed);
+        assertTrue(recorded().getOutcome().endsWith("server errors 10.00% (before 1.00%); roll back"));
+    }
+
+    @Test
+    public void shouldPassWithTooFewRequests() {
+        givenWindow(stats(0, 0, 0, 0), stats(5, 5000, 5, 5));
+
+        boolean regressed = gate.regressed(NEW, stats(1000, 10000, 1000, 0), "joe");
+
+        assertFalse(regressed);
+        assertTrue(recorded().getOutcome().startsWith("passed: too few requests to compare"));
+    }
+
+    @Test
+    public void shouldNotRollBackWithoutPrevious() {
+        when(history.latest(FOO)).thenReturn(null);
+        givenWindow(stats(0, 0, 1000, 0), stats(100, 2000, 1100, 0));
+
+        boolean regressed = gate.regressed(NEW, stats(1000, 10000, 1000, 0), "joe");
+
+        assertFalse(regressed);
+        ArgumentCaptor<HistoryEntry> entry = ArgumentCaptor.forClass(HistoryEntry.class);
+        verify(history).append(entry.capture());
+        assertTrue(entry.getValue().getOutcome().endsWith("; nothing to roll back to"));
+        assertFalse(entry.getValue().isSuccess());
+    }
+
+    @Test
+    public void shouldNotDecideWhenReplacedWithinWindow() {
+        when(history.latest(FOO)).thenReturn(HistoryEntry.builder() //
+                .operation("redeploy").contextRoot(FOO).name(FOO_WAR) //
+                .oldCheckSum(NEW.getCheckSum()).oldVersion(NEW.getVersion()) //
+                .newCheckSum(CheckSum.ofHexString("3333")).newVersion(new Version("3")) //
+                .outcome(HistoryEntry.SUCCESS).build());
+        givenWindow(stats(0, 0, 1000, 0), stats(100, 2000, 1100, 0));
+
+        boolean regressed = gate.regressed(NEW, stats(1000, 10000, 1000, 0), "joe");
+
+        assertFalse(regressed);
+        verify(history, never()).append(any(HistoryEntry.class));
+    }
+
+    @Test
+    public void shouldObserveInTheBackgroundAndRollBack() throws InterruptedException {
+        gate.executor = Executors.newSingleThreadExecutor();
+        givenWindow(stats(0, 0, 1000, 0), stats(100, 2000, 1100, 0));
+        Runnable rollback = mock(Runnable.class);
+
+        gate.observe(NEW, stats(1000, 10000, 1000, 0), rollback);
+
+        gate.executor.shutdown();
+        assertTrue(gate.executor.awaitTermination(10, SECONDS));
+        verify(rollback).run();
+        assertEquals("joe", recorded().getPrincipal());
+    }
+
+    @Test
+    public void shouldCountOneMillisecondAtLeast() {
+        givenWindow(stats(0, 0, 1000, 0), stats(100, 100, 1100, 0));
+
+        assertFalse(gate.regressed(NEW, stats(1000, 0, 1000, 0), "joe"));
+        verify(history).append(any(HistoryEntry.class));
+    }
+}
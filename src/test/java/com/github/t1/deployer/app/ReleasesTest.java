@@ -0,0 +1,351 @@
+package com.github.t1.deployer.app;
+
+import static com.github.t1.deployer.TestData.*;
+import static com.github.t1.deployer.model.ReleaseAction.Type.*;
+import static com.github.t1.deployer.repository.ArtifactoryMock.*;
+import static java.util.Arrays.*;
+import static javax.ws.rs.core.Response.Status.*;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.zip.*;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+
+import org.junit.*;
+import org.junit.runner.RunWith;
+import org.mockito.*;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import com.github.t1.deployer.container.*;
+import com.github.t1.deployer.model.*;
+import com.github.t1.deployer.repository.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReleasesTest {
+    private static final ContextRoot BAZ = new ContextRoot("baz");
+
+    @InjectMocks
+    Releases releases;
+    @Mock
+    DeploymentContainer container;
+    @Mock
+    Repository repository;
+    @Spy
+    ArtifactInspector inspector = new ArtifactInspector();
+    @Spy
+    DeploymentScheduler scheduler = new DeploymentScheduler();
+
+    private final List<String> released = new ArrayList<>();
+
+    @Before
+    public void before() {
+        releases.executor = Executors.newFixedThreadPool(2);
+        givenDeployments(repository, FOO, BAR, BAZ);
+        when(container.getAllDeployments()).thenReturn(asList(deploymentFor(FOO), deploymentFor(BAR)));
+        when(repository.getChecksumForVersion(deploymentFor(FOO), NEWEST_FOO_VERSION)) //
+                .thenReturn(fakeChecksumFor(FOO, NEWEST_FOO_VERSION));
+    }
+
+    @After
+    public void after() {
+        releases.executor.shutdown();
+    }
+
+    private void givenReleaseOutcomes(final String... outcomes) {
+        when(container.release(anyListOf(ReleaseAction.class), anyMapOf(CheckSum.class, InputStream.class))) //
+                .then(new Answer<List<ReleaseAction>>() {
+                    @Override
+                    public List<ReleaseAction> answer(InvocationOnMock invocation) throws IOException {
+                        @SuppressWarnings("unchecked")
+                        List<ReleaseAction> actions = invocation.getArgumentAt(0, List.class);
+                        @SuppressWarnings("unchecked")
+                        Map<CheckSum, InputStream> artifacts = invocation.getArgumentAt(1, Map.class);
+                        List<ReleaseAction> results = new ArrayList<>();
+                        for (ReleaseAction action : actions) {
+                            InputStream artifact = artifacts.get(action.getDeployment().getCheckSum());
+                            results.add(action.withOutcome(outcomes[released.size()]));
+                            released.add(action.getType() + " " + ((artifact == null) ? "-" : read(artifact)));
+                        }
+                        return results;
+                    }
+                });
+    }
+
+    private String read(InputStream artifact) throws IOException {
+        return new BufferedReader(new InputStreamReader(artifact)).readLine();
+    }
+
+    @Test
+    public void shouldPlanRelease() {
+        Collection<ReleaseAction> actions = releases.plan(asList( //
+                new ReleaseEntry(FOO, null, NEWEST_FOO_VERSION), //
+                ReleaseEntry.undeploy(BAR), //
+                new ReleaseEntry(BAZ, fakeChecksumFor(BAZ), null))).values();
+
+        assertEquals(asList( //
+                new ReleaseAction(REDEPLOY, deploymentFor(FOO, NEWEST_FOO_VERSION)), //
+                new ReleaseAction(UNDEPLOY, deploymentFor(BAR)), //
+                new ReleaseAction(DEPLOY, deploymentFor(BAZ))), //
+                new ArrayList<>(actions));
+    }
+
+    @Test
+    public void shouldRejectEntryWithoutChecksumVersionOrUndeploy() {
+        try {
+            releases.release(asList( //
+                    new ReleaseEntry(FOO, null, NEWEST_FOO_VERSION), //
+                    new ReleaseEntry(BAR, null, null)));
+            fail("WebApplicationException expected");
+        } catch (WebApplicationException e) {
+            assertEquals(BAD_REQUEST.getStatusCode(), e.getResponse().getStatus());
+        }
+        verify(container, never()).release(anyListOf(ReleaseAction.class),
+                anyMapOf(CheckSum.class, InputStream.class));
+    }
+
+    @Test
+    public void shouldRejectUndeployWithChecksum() {
+        try {
+            releases.plan(asList(new ReleaseEntry(BAR, fakeChecksumFor(BAR), null, true, null)));
+            fail("WebApplicationException expected");
+        } catch (WebApplicationException e) {
+            assertEquals(BAD_REQUEST.getStatusCode(), e.getResponse().getStatus());
+        }
+    }
+
+    @Test
+    public void shouldSkipAlreadyDeployedChecksum() {
+        Map<ContextRoot, ReleaseAction> actions = releases.plan( //
+                asList(new ReleaseEntry(FOO, fakeChecksumFor(FOO), null)));
+
+        assertEquals(0, actions.size());
+        verify(repository, never()).getByChecksum(any(CheckSum.class));
+    }
+
+    @Test
+    public void shouldDownloadArtifactsAndReleaseAllInOnePlan() {
+        givenReleaseOutcomes("EXECUTED", "EXECUTED", "EXECUTED");
+
+        Response response = releases.release(asList( //
+                new ReleaseEntry(FOO, null, NEWEST_FOO_VERSION), //
+                ReleaseEntry.undeploy(BAR), //
+                new ReleaseEntry(BAZ, fakeChecksumFor(BAZ), null)));
+
+        assertEquals(OK.getStatusCode(), response.getStatus());
+        assertEquals(asList( //
+                "REDEPLOY " + FOO + "@" + NEWEST_FOO_VERSION, //
+                "UNDEPLOY -", //
+                "DEPLOY " + BAZ + "@" + fakeVersionFor(BAZ)), //
+                released);
+        verify(container, times(1)).release(anyListOf(ReleaseAction.class),
+                anyMapOf(CheckSum.class, InputStream.class));
+    }
+
+    @Test
+    public void shouldReportConflictWhenRolledBack() {
+        givenReleaseOutcomes("ROLLED_BACK", "FAILED");
+
+        Response response = releases.release(asList( //
+                new ReleaseEntry(FOO, null, NEWEST_FOO_VERSION), //
+                new ReleaseEntry(BAZ, fakeChecksumFor(BAZ), null)));
+
+        assertEquals(CONFLICT.getStatusCode(), response.getStatus());
+        @SuppressWarnings("unchecked")
+        List<ReleaseAction> results = (List<ReleaseAction>) response.getEntity();
+        assertEquals("ROLLED_BACK", results.get(0).getOutcome());
+        assertEquals("FAILED", results.get(1).getOutcome());
+    }
+
+    @Test
+    public void shouldReleaseInLevelsOfDependencies() {
+        givenReleaseOutcomes("EXECUTED", "EXECUTED", "EXECUTED");
+
+        Response response = releases.release(asList( //
+                new ReleaseEntry(BAZ, fakeChecksumFor(BAZ), null, asList(FOO)), //
+                new ReleaseEntry(FOO, null, NEWEST_FOO_VERSION), //
+                ReleaseEntry.undeploy(BAR)));
+
+        assertEquals(OK.getStatusCode(), response.getStatus());
+        assertEquals(asList( //
+                "REDEPLOY " + FOO + "@" + NEWEST_FOO_VERSION, //
+                "UNDEPLOY -", //
+                "DEPLOY " + BAZ + "@" + fakeVersionFor(BAZ)), //
+                released);
+        verify(container, times(2)).release(anyListOf(ReleaseAction.class),
+                anyMapOf(CheckSum.class, InputStream.class));
+        verify(scheduler).run(eq(asList(FOO)), any(Runnable.class));
+        verify(scheduler).run(eq(asList(BAR, BAZ)), any(Runnable.class));
+    }
+
+    @Test
+    public void shouldUndeployInReverseOrderOfDependencies() {
+        givenReleaseOutcomes("EXECUTED", "EXECUTED");
+
+        Response response = releases.release(asList( //
+                new ReleaseEntry(BAR, null, null, true, asList(FOO)), //
+                ReleaseEntry.undeploy(FOO)));
+
+        assertEquals(OK.getStatusCode(), response.getStatus());
+        InOrder inOrder = inOrder(scheduler);
+        inOrder.verify(scheduler).run(eq(asList(BAR)), any(Runnable.class));
+        inOrder.verify(scheduler).run(eq(asList(FOO)), any(Runnable.class));
+    }
+
+    @Test
+    public void shouldRollBackPreviousLevelsAfterFailure() {
+        givenReleaseOutcomes("EXECUTED", "FAILED", "EXECUTED");
+
+        Response response = releases.release(asList( //
+                new ReleaseEntry(FOO, null, NEWEST_FOO_VERSION), //
+                new ReleaseEntry(BAZ, fakeChecksumFor(BAZ), null, asList(FOO))));
+
+        assertEquals(CONFLICT.getStatusCode(), response.getStatus());
+        @SuppressWarnings("unchecked")
+        List<ReleaseAction> results = (List<ReleaseAction>) response.getEntity();
+        assertEquals("ROLLED_BACK", results.get(0).getOutcome());
+        assertEquals("FAILED", results.get(1).getOutcome());
+        assertEquals(asList( //
+                "REDEPLOY " + FOO + "@" + NEWEST_FOO_VERSION, //
+                "DEPLOY " + BAZ + "@" + fakeVersionFor(BAZ), //
+                "REDEPLOY " + FOO + "@" + CURRENT_FOO_VERSION), //
+                released);
+    }
+
+    @Test
+    public void shouldRollBackDeployAndUndeploy() {
+        givenReleaseOutcomes("EXECUTED", "EXECUTED", "FAILED", "EXECUTED", "EXECUTED");
+
+        Response response = releases.release(asList( //
+                new ReleaseEntry(BAR, null, null, true, asList(BAZ)), //
+                new ReleaseEntry(BAZ, fakeChecksumFor(BAZ), null), //
+                new ReleaseEntry(FOO, null, NEWEST_FOO_VERSION, asList(BAZ))));
+
+        assertEquals(CONFLICT.getStatusCode(), response.getStatus());
+        @SuppressWarnings("unchecked")
+        List<ReleaseAction> results = (List<ReleaseAction>) response.getEntity();
+        assertEquals("ROLLED_BACK", results.get(0).getOutcome());
+        assertEquals("ROLLED_BACK", results.get(1).getOutcome());
+        assertEquals("FAILED", results.get(2).getOutcome());
+        assertEquals(asList( //
+                "DEPLOY " + BAZ + "@" + fakeVersionFor(BAZ), //
+                "UNDEPLOY -", //
+                "REDEPLOY " + FOO + "@" + NEWEST_FOO_VERSION, //
+                "UNDEPLOY -", //
+                "DEPLOY " + BAR + "@" + CURRENT_BAR_VERSION), //
+                released);
+    }
+
+    @Test
+    public void shouldReportFailedRollback() {
+        givenReleaseOutcomes("EXECUTED", "FAILED", "FAILED");
+
+        Response response = releases.release(asList( //
+                new ReleaseEntry(FOO, null, NEWEST_FOO_VERSION), //
+                new ReleaseEntry(BAZ, fakeChecksumFor(BAZ), null, asList(FOO))));
+
+        assertEquals(CONFLICT.getStatusCode(), response.getStatus());
+        @SuppressWarnings("unchecked")
+        List<ReleaseAction> results = (List<ReleaseAction>) response.getEntity();
+        assertEquals("EXECUTED", results.get(0).getOutcome());
+        assertTrue(results.get(0).getMessage().startsWith("rollback failed"));
+        assertEquals("FAILED", results.get(1).getOutcome());
+    }
+
+    @Test
+    public void shouldNotExecuteLevelsAfterFailure() {
+        givenReleaseOutcomes("FAILED");
+
+        Response response = releases.release(asList( //
+                new ReleaseEntry(FOO, null, NEWEST_FOO_VERSION), //
+                new ReleaseEntry(BAZ, fakeChecksumFor(BAZ), null, asList(FOO))));
+
+        assertEquals(CONFLICT.getStatusCode(), response.getStatus());
+        @SuppressWarnings("unchecked")
+        List<ReleaseAction> results = (List<ReleaseAction>) response.getEntity();
+        assertEquals("FAILED", results.get(0).getOutcome());
+        assertEquals("NOT_EXECUTED", results.get(1).getOutcome());
+        assertEquals(1, released.size());
+    }
+
+    @Test
+    public void shouldRejectDependencyCycleBeforeDownloading() {
+        try {
+            releases.release(asList( //
+                    new ReleaseEntry(FOO, null, NEWEST_FOO_VERSION, asList(BAZ)), //
+                    new ReleaseEntry(BAR, null, CURRENT_BAR_VERSION, asList(FOO)), //
+                    new ReleaseEntry(BAZ, fakeChecksumFor(BAZ), null, asList(BAR))));
+            fail("expected WebApplicationException");
+        } catch (WebApplicationException e) {
+            assertEquals(BAD_REQUEST.getStatusCode(), e.getResponse().getStatus());
+        }
+        verify(repository, never()).getByChecksum(any(CheckSum.class));
+        verify(repository, never()).getArtifactInputStream(any(CheckSum.class));
+    }
+
+    @Test
+    public void shouldRejectContextRootCollisionBeforeReleasing() throws IOException {
+        ByteArrayOutputStream war = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(war)) {
+            zip.putNextEntry(new ZipEntry("WEB-INF/jboss-web.xml"));
+            zip.write(("<jboss-web><context-root>/" + BAR + "</context-root></jboss-web>").getBytes("UTF-8"));
+        }
+        when(repository.getArtifactInputStream(fakeChecksumFor(BAZ))) //
+                .thenReturn(new ByteArrayInputStream(war.toByteArray()));
+
+        try {
+            releases.release(asList(new ReleaseEntry(BAZ, fakeChecksumFor(BAZ), null)));
+            fail("WebApplicationException expected");
+        } catch (WebApplicationException e) {
+            assertEquals(CONFLICT.getStatusCode(), e.getResponse().getStatus());
+        }
+        verify(container, never()).release(anyListOf(ReleaseAction.class),
+                anyMapOf(CheckSum.class, InputStream.class));
+    }
+
+    @Test
+    public void shouldAllowContextRootOfUndeployedDeployment() throws IOException {
+        givenReleaseOutcomes("EXECUTED", "EXECUTED");
+        ByteArrayOutputStream war = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(war)) {
+            zip.putNextEntry(new ZipEntry("WEB-INF/jboss-web.xml"));
+            zip.write(("<jboss-web><context-root>/" + BAR + "</context-root></jboss-web>").getBytes("UTF-8"));
+        }
+        when(repository.getArtifactInputStream(fakeChecksumFor(BAZ))) //
+                .thenReturn(new ByteArrayInputStream(war.toByteArray()));
+
+        Response response = releases.release(asList( //
+                ReleaseEntry.undeploy(BAR), //
+                new ReleaseEntry(BAZ, fakeChecksumFor(BAZ), null)));
+
+        assertEquals(OK.getStatusCode(), response.getStatus());
+    }
+
+    @Test
+    public void shouldTakeLaneOfInspectedContextRoot() throws IOException {
+        givenReleaseOutcomes("EXECUTED");
+        ContextRoot inspected = new ContextRoot("baz-inspected");
+        ByteArrayOutputStream war = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(war)) {
+            zip.putNextEntry(new ZipEntry("WEB-INF/jboss-web.xml"));
+            zip.write(("<jboss-web><context-root>" + inspected + "</context-root></jboss-web>").getBytes("UTF-8"));
+        }
+        when(repository.getArtifactInputStream(fakeChecksumFor(BAZ))) //
+                .thenReturn(new ByteArrayInputStream(war.toByteArray()));
+
+        Response response = releases.release(asList(new ReleaseEntry(BAZ, fakeChecksumFor(BAZ), null)));
+
+        assertEquals(OK.getStatusCode(), response.getStatus());
+        verify(scheduler).run(eq(asList(inspected)), any(Runnable.class));
+        @SuppressWarnings("unchecked")
+        List<ReleaseAction> results = (List<ReleaseAction>) response.getEntity();
+        assertEquals(inspected, results.get(0).getDeployment().getContextRoot());
+    }
+}
@@ -0,0 +1,125 @@
+package com.github.t1.deployer.app;
+
+import static java.util.Arrays.*;
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.net.*;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.*;
+
+import com.github.t1.deployer.model.*;
+import com.sun.net.httpserver.*;
+
+public class WarmUpTest {
+    private static final ContextRoot FOO = new ContextRoot("foo");
+    private static final ContextRoot BAR = new ContextRoot("bar");
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private HttpServer server;
+    private int status = 200;
+    private final WarmUp warmUp = new WarmUp();
+
+    @Before
+    public void before() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        HttpHandler handler = new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requests.incrementAndGet();
+                byte[] body = "ok".getBytes();
+                exchange.sendResponseHeaders(status, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        };
+        server.createContext("/foo", handler);
+        server.createContext("/bar", handler);
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.start();
+
+        warmUp.executor = Executors.newFixedThreadPool(4);
+        warmUp.baseUri = URI.create("http://localhost:" + server.getAddress().getPort());
+        warmUp.concurrency = 2;
+        warmUp.maxRounds = 5;
+        warmUp.budgetMillis = 10000;
+    }
+
+    @After
+    public void after() {
+        System.clearProperty(WarmUp.PATHS_PROPERTY + FOO);
+        System.clearProperty(WarmUp.PATHS_PROPERTY + BAR);
+        server.stop(0);
+        ((ExecutorService) server.getExecutor()).shutdownNow();
+        warmUp.executor.shutdownNow();
+    }
+
+    @Test
+    public void shouldNotWarmUpUnconfiguredContextRoot() {
+        assertNull(warmUp.warmUp(FOO));
+        assertEquals(0, requests.get());
+    }
+
+    @Test
+    public void shouldRequestAllPathsConcurrently() {
+        System.setProperty(WarmUp.PATHS_PROPERTY + FOO, "/, api/ping");
+        warmUp.tolerance = 1000; // stable after the second round
+
+        WarmUpResult result = warmUp.warmUp(FOO);
+
+        assertTrue(result.isStable());
+        assertEquals(2, result.getRounds());
+        assertEquals(2, result.getP95s().size());
+        assertEquals(8, result.getRequests());
+        assertEquals(0, result.getErrors());
+        assertEquals(8, requests.get());
+    }
+
+    @Test
+    public void shouldWarmUpSeveralContextRootsTogether() {
+        System.setProperty(WarmUp.PATHS_PROPERTY + FOO, "/");
+        System.setProperty(WarmUp.PATHS_PROPERTY + BAR, "/");
+        warmUp.tolerance = 1000; // stable after the second round
+
+        List<WarmUpResult> results = warmUp.warmUp(asList(FOO, new ContextRoot("unconfigured"), BAR));
+
+        assertEquals(2, results.size());
+        assertEquals(FOO, results.get(0).getContextRoot());
+        assertEquals(BAR, results.get(1).getContextRoot());
+        for (WarmUpResult result : results) {
+            assertTrue(result.isStable());
+            assertEquals(2, result.getRounds());
+            assertEquals(4, result.getRequests());
+        }
+        assertEquals(8, requests.get());
+    }
+
+    @Test
+    public void shouldStopAfterMaxRounds() {
+        System.setProperty(WarmUp.PATHS_PROPERTY + FOO, "/");
+        warmUp.tolerance = -1; // never stable
+
+        WarmUpResult result = warmUp.warmUp(FOO);
+
+        assertFalse(result.isStable());
+        assertEquals(5, result.getRounds());
+        assertEquals(10, requests.get());
+    }
+
+    @Test
+    public void shouldStopWhenAllRequestsFail() {
+        System.setProperty(WarmUp.PATHS_PROPERTY + FOO, "/");
+        status = 503;
+
+        WarmUpResult result = warmUp.warmUp(FOO);
+
+        assertFalse(result.isStable());
+        assertEquals(0, result.getRounds());
+        assertEquals(2, result.getRequests());
+        assertEquals(2, result.getErrors());
+    }
+}
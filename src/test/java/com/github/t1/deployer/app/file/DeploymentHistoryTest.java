@@ -0,0 +1,161 @@
+package com.github.t1.deployer.app.file;
+
+import static java.util.Arrays.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.t1.deployer.model.*;
+
+public class DeploymentHistoryTest {
+    private static final ContextRoot FOO = new ContextRoot("foo");
+    private static final ContextRoot BAR = new ContextRoot("bar");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private DeploymentHistory history(long segmentBytes) {
+        return new DeploymentHistory(folder.getRoot().toPath(), segmentBytes);
+    }
+
+    private static CheckSum checkSum(int i) {
+        return CheckSum.fromString(String.format("%040x", i));
+    }
+
+    private static HistoryEntry entry(long timestamp, ContextRoot contextRoot, int oldVersion, int newVersion) {
+        return HistoryEntry.builder() //
+                .timestamp(timestamp) //
+                .principal("jbossadmin") //
+                .operation((oldVersion == 0) ? "deploy" : (newVersion == 0) ? "undeploy" : "redeploy") //
+                .contextRoot(contextRoot) //
+                .name(new DeploymentName(contextRoot + ".war")) //
+                .oldCheckSum((oldVersion == 0) ? null : checkSum(oldVersion)) //
+                .oldVersion((oldVersion == 0) ? null : new Version("1." + oldVersion)) //
+                .newCheckSum((newVersion == 0) ? null : checkSum(newVersion)) //
+                .newVersion((newVersion == 0) ? null : new Version("1." + newVersion)) //
+                .duration(12) //
+                .outcome(HistoryEntry.SUCCESS) //
+                .build();
+    }
+
+    private static List<Long> timestamps(Collection<HistoryEntry> entries) {
+        List<Long> result = new ArrayList<>();
+        for (HistoryEntry entry : entries)
+            result.add(entry.getTimestamp());
+        return result;
+    }
+
+    private int segmentCount() throws IOException {
+        int count = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder.getRoot().toPath(), "*.log")) {
+            for (@SuppressWarnings("unused")
+            Path file : files)
+                count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void shouldFindEntriesInTimeRange() {
+        DeploymentHistory history = history(1024 * 1024);
+        history.append(entry(100, FOO, 0, 1));
+        history.append(entry(200, BAR, 0, 2));
+        history.append(entry(300, FOO, 1, 3));
+
+        assertEquals(asList(200L, 300L), timestamps(history.entries(150, 300, null)));
+        assertEquals(asList(100L, 300L), timestamps(history.entries(0, 1000, FOO)));
+        assertEquals(asList(entry(200, BAR, 0, 2)), history.entries(200, 200, null));
+    }
+
+    @Test
+    public void shouldFindEntriesAcrossSegments() throws IOException {
+        DeploymentHistory history = history(500);
+        for (int i = 1; i <= 20; i++)
+            history.append(entry(i * 100, FOO, i - 1, i));
+
+        assertTrue(segmentCount() > 2);
+        assertEquals(asList(700L, 800L, 900L, 1000L, 1100L, 1200L), timestamps(history.entries(650, 1200, null)));
+        assertEquals(20, history.entries(0, Long.MAX_VALUE, null).size());
+    }
+
+    @Test
+    public void shouldSkipIndexedEntries() {
+        DeploymentHistory history = history(1024 * 1024);
+        for (int i = 1; i <= 3 * DeploymentHistory.INDEX_INTERVAL; i++)
+            history.append(entry(i, (i % 2 == 0) ? FOO : BAR, i - 1, i));
+
+        assertEquals(asList(130L, 131L, 132L), timestamps(history.entries(130, 132, null)));
+        assertEquals(asList(130L, 132L), timestamps(history.entries(130, 132, FOO)));
+    }
+
+    @Test
+    public void shouldFindWhatWasRunningAt() {
+        DeploymentHistory history = history(200);
+        history.append(entry(100, FOO, 0, 1));
+        history.append(entry(150, BAR, 0, 2));
+        history.append(entry(200, FOO, 1, 3));
+        history.append(entry(250, BAR, 2, 0));
+
+        assertEquals(Collections.emptyMap(), history.runningAt(50));
+        assertEquals(asList(100L), timestamps(history.runningAt(120).values()));
+        assertEquals(new HashSet<>(asList(150L, 200L)), new HashSet<>(timestamps(history.runningAt(220).values())));
+        assertEquals(entry(200, FOO, 1, 3), history.runningAt(300).get(FOO));
+        assertNull(history.runningAt(300).get(BAR));
+    }
+
+    @Test
+    public void shouldIgnoreFailuresForLatestAndRunning() {
+        DeploymentHistory history = history(1024 * 1024);
+        history.append(entry(100, FOO, 0, 1));
+        history.append(entry(200, FOO, 1, 2).withTimestamp(200));
+        HistoryEntry failed = new HistoryEntry(300, "jbossadmin", "redeploy", FOO, new DeploymentName("foo.war"),
+                checkSum(2), new Version("1.2"), checkSum(3), new Version("1.3"), 5, "boom");
+        history.append(failed);
+
+        assertEquals(entry(200, FOO, 1, 2), history.latest(FOO));
+        assertEquals(entry(200, FOO, 1, 2), history.runningAt(400).get(FOO));
+        assertEquals(3, history.entries(0, 400, FOO).size());
+    }
+
+    @Test
+    public void shouldRecoverLatestAfterReopening() {
+        DeploymentHistory history = history(300);
+        history.append(entry(100, FOO, 0, 1));
+        history.append(entry(200, BAR, 0, 2));
+        history.append(entry(300, FOO, 1, 3));
+
+        DeploymentHistory reopened = history(300);
+
+        assertEquals(entry(300, FOO, 1, 3), reopened.latest(FOO));
+        assertEquals(entry(200, BAR, 0, 2), reopened.latest(BAR));
+        reopened.append(entry(400, BAR, 2, 4));
+        assertEquals(asList(100L, 200L, 300L, 400L), timestamps(reopened.entries(0, 1000, null)));
+    }
+
+    @Test
+    public void shouldKeepTimestampsInOrder() {
+        DeploymentHistory history = history(1024 * 1024);
+        history.append(entry(200, FOO, 0, 1));
+
+        HistoryEntry appended = history.append(entry(100, FOO, 1, 2));
+
+        assertEquals(200, appended.getTimestamp());
+        assertEquals(asList(200L, 200L), timestamps(history.entries(0, 1000, null)));
+    }
+
+    @Test
+    public void shouldEscapeFields() {
+        HistoryEntry entry = new HistoryEntry(100, null, "deploy", FOO, new DeploymentName("foo.war"), null, null,
+                checkSum(1), new Version("1.1"), 0, "failed:\tline 1\nline 2\\");
+
+        String line = DeploymentHistory.format(entry);
+
+        assertFalse(line.contains("\n"));
+        assertEquals(entry, DeploymentHistory.parse(line));
+    }
+}
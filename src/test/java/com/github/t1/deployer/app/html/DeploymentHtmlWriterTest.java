@@ -4,6 +4,8 @@ import static com.github.t1.deployer.model.Deployment.*;
 import static java.util.Arrays.*;
 import static org.junit.Assert.*;
 
+import java.util.Collections;
+
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.runners.MockitoJUnitRunner;
@@ -41,4 +43,21 @@ public class DeploymentHtmlWriterTest extends AbstractHtmlWriterTest<Deployment>
 
         assertEquals(readFile(), entity);
     }
+
+    @Test
+    public void shouldWriteRequestTrend() throws Exception {
+        Deployment deployment = new Deployment(NAME, CONTEXT_ROOT, CHECK_SUM, new Version("2.0")) //
+                .withAvailableVersions(Collections.<VersionInfo> emptyList()) //
+                .withRequests(new RequestTrend(NAME, 0, 600000, 900, 1.5, 12.25, 80, 0.001, 3, asList( //
+                        new RequestTrend.Interval(0, 300, 1.0, 10, 0, 2), //
+                        new RequestTrend.Interval(300000, 600, 2.0, 14.5, 0.002, 3))));
+
+        String entity = write(deployment);
+
+        assertTrue(entity, entity.contains("<dd>1.50 &#9605;&#9608;</dd>"));
+        assertTrue(entity, entity.contains("<dd>12.3 ms &#9606;&#9608;</dd>"));
+        assertTrue(entity, entity.contains("<dd>80 ms since deploy</dd>"));
+        assertTrue(entity, entity.contains("<dd>0.10% of all deployments &#9601;&#9608;</dd>"));
+        assertTrue(entity, entity.contains("<dt>Sessions</dt>"));
+    }
 }
@@ -25,8 +25,8 @@ public class DeploymentListHtmlWriterTest extends AbstractHtmlWriterTest<List<De
     @Test
     public void shouldWriteDeploymentList() throws Exception {
         List<Deployment> deployments = asList( //
-                deployment("foo", "foox", "aabbcc", "2.3.1"), //
-                deployment("bar", "barx", "ddeeff", "1.0") //
+                deployment("bar", "barx", "ddeeff", "1.0"), //
+                deployment("foo", "foox", "aabbcc", "2.3.1") //
                 );
 
         String entity = write(deployments);
@@ -20,7 +20,7 @@ public class LoggerListHtmlWriterTest extends AbstractHtmlWriterTest<List<Logger
 
     @Test
     public void shouldWriteLoggerList() throws Exception {
-        List<LoggerConfig> loggers = asList(new LoggerConfig("foo", INFO), new LoggerConfig("bar", DEBUG));
+        List<LoggerConfig> loggers = asList(new LoggerConfig("bar", DEBUG), new LoggerConfig("foo", INFO));
 
         String entity = write(loggers);
 
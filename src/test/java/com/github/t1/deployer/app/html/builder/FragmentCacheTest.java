@@ -0,0 +1,64 @@
+package com.github.t1.deployer.app.html.builder;
+
+import static com.github.t1.deployer.app.html.builder.Static.*;
+import static com.github.t1.deployer.app.html.builder.Tag.*;
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.junit.Test;
+
+import com.github.t1.deployer.app.html.builder.Component.ComponentBuilder;
+
+public class FragmentCacheTest {
+    private final FragmentCache cache = new FragmentCache(2);
+    private int builds = 0;
+
+    private ComponentBuilder builder(final String text) {
+        return new ComponentBuilder() {
+            @Override
+            public Component build() {
+                builds++;
+                return tag("p").body(text(text)).build();
+            }
+        };
+    }
+
+    private String write(Object key, String text) {
+        Writer out = new StringWriter();
+        new BuildContext(cache.fragment(key, builder(text))).writeTo(out);
+        return out.toString();
+    }
+
+    @Test
+    public void shouldRenderFragmentOnlyOnce() {
+        String first = write("foo", "foo");
+        String second = write("foo", "foo");
+
+        assertEquals("<p>foo</p>\n", first);
+        assertEquals(first, second);
+        assertEquals(1, builds);
+    }
+
+    @Test
+    public void shouldRenderFragmentForChangedKey() {
+        write("foo", "foo");
+        String changed = write("bar", "bar");
+
+        assertEquals("<p>bar</p>\n", changed);
+        assertEquals(2, builds);
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedFragment() {
+        write("foo", "foo");
+        write("bar", "bar");
+        write("foo", "foo");
+        write("baz", "baz");
+        write("foo", "foo");
+        write("bar", "bar");
+
+        assertEquals(2, cache.size());
+        assertEquals(4, builds);
+    }
+}
@@ -0,0 +1,35 @@
+package com.github.t1.deployer.container;
+
+import static com.github.t1.deployer.container.AbstractContainer.*;
+import static org.junit.Assert.*;
+
+import org.jboss.dmr.ModelNode;
+import org.junit.Test;
+
+public class AbstractContainerTest {
+    private static ModelNode operation(String... address) {
+        ModelNode operation = new ModelNode();
+        operation.get("operation").set("read-resource");
+        for (int i = 0; i < address.length; i += 2)
+            operation.get("address").add(address[i], address[i + 1]);
+        return operation;
+    }
+
+    @Test
+    public void shouldLabelWithoutAddress() {
+        assertEquals("", addressLabel(operation()));
+    }
+
+    @Test
+    public void shouldKeepOnlyFirstAddressValue() {
+        assertEquals("subsystem=logging/logger=*",
+                addressLabel(operation("subsystem", "logging", "logger", "com.github.t1")));
+    }
+
+    @Test
+    public void shouldNotKeepDeploymentName() {
+        assertEquals("deployment=*", addressLabel(operation("deployment", "foo.war.staged.1234567890")));
+        assertEquals("deployment=*/subsystem=*",
+                addressLabel(operation("deployment", "foo.war", "subsystem", "undertow")));
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.t1.deployer.container;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.util.List;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.t1.deployer.model.*;
+
+public class AuditLogTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file;
+
+    @Before
+    public void setUp() {
+        file = folder.getRoot().toPath().resolve("audit.log");
+    }
+
+    private static AuditLog.Event event(String operation) {
+        return new AuditLog.Event(1234, "jbossadmin", "127.0.0.1", operation, new ContextRoot("foo"), new Version(
+                "1.0"), "localhost");
+    }
+
+    private List<String> lines() throws IOException {
+        return Files.readAllLines(file, Charset.forName("UTF-8"));
+    }
+
+    @Test
+    public void shouldWriteEventsAsJsonLines() throws IOException {
+        AuditLog auditLog = new AuditLog(file, 100, 10, 0, 100);
+        auditLog.start();
+
+        for (int i = 0; i < 25; i++)
+            auditLog.write(event("deploy-" + i));
+        auditLog.stop();
+
+        List<String> lines = lines();
+        assertEquals(25, lines.size());
+        assertEquals("{\"timestamp\":1234,\"principal\":\"jbossadmin\",\"clientIp\":\"127.0.0.1\","
+                + "\"operation\":\"deploy-0\",\"contextRoot\":\"foo\",\"version\":\"1.0\",\"host\":\"localhost\"}",
+                lines.get(0));
+        assertEquals(25, auditLog.getWritten());
+        assertEquals(0, auditLog.getDropped());
+        assertEquals(0, auditLog.getQueueDepth());
+        assertTrue(auditLog.getBatches() >= 3);
+    }
+
+    @Test
+    public void shouldDropEventsWhenQueueIsFull() {
+        AuditLog auditLog = new AuditLog(file, 2, 10, 0, 1);
+
+        auditLog.write(event("deploy"));
+        auditLog.write(event("redeploy"));
+        auditLog.write(event("undeploy"));
+
+        assertEquals(2, auditLog.getQueueDepth());
+        assertEquals(1, auditLog.getDropped());
+    }
+
+    @Test
+    public void shouldWriteQueuedEventsWhenStopping() throws IOException {
+        AuditLog auditLog = new AuditLog(file, 10, 10, 1000, 100);
+        auditLog.write(event("deploy"));
+        auditLog.write(event("undeploy"));
+
+        auditLog.start();
+        auditLog.stop();
+
+        assertEquals(2, lines().size());
+    }
+
+    @Test
+    public void shouldEscapeJson() {
+        AuditLog.Event event = new AuditLog.Event(1, "a\"b\\c", null, "deploy\n", null, null, null);
+
+        assertEquals("{\"timestamp\":1,\"principal\":\"a\\\"b\\\\c\",\"operation\":\"deploy\\u000a\"}",
+                event.toJson());
+    }
+}
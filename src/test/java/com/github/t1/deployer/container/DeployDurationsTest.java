@@ -0,0 +1,105 @@
+package com.github.t1.deployer.container;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.github.t1.deployer.model.*;
+import com.github.t1.deployer.tools.Metrics;
+
+public class DeployDurationsTest {
+    private static final ContextRoot FOO = new ContextRoot("foo");
+    private static final ContextRoot BAR = new ContextRoot("bar");
+
+    private final DeployDurations durations = new DeployDurations(4, 2);
+
+    private static Deployment deployment(ContextRoot contextRoot, String version) {
+        return new Deployment(new DeploymentName(contextRoot + ".war"), contextRoot, null, new Version(version));
+    }
+
+    private static long slow(String operation) {
+        return Metrics.counter("deployer_slow_deployments_total", "", "operation", operation).get();
+    }
+
+    @Test
+    public void shouldHaveNoEtaWithoutSamples() {
+        assertNull(durations.eta(FOO, new Version("1.0")));
+        assertNull(durations.statistics(FOO));
+    }
+
+    @Test
+    public void shouldPredictMedianOfVersion() {
+        durations.executed(deployment(FOO, "1.0"), 100, 1000);
+        durations.executed(deployment(FOO, "1.0"), 300, 1000);
+        durations.executed(deployment(FOO, "1.0"), 200, 1000);
+        durations.executed(deployment(FOO, "2.0"), 900, 5000);
+
+        assertEquals(200L, (long) durations.eta(FOO, new Version("1.0")));
+        assertEquals(900L, (long) durations.eta(FOO, new Version("2.0")));
+    }
+
+    @Test
+    public void shouldPredictMedianOfContextRootForUnknownVersion() {
+        durations.executed(deployment(FOO, "1.0"), 100, 1000);
+        durations.executed(deployment(FOO, "2.0"), 300, 1000);
+        durations.executed(deployment(FOO, "3.0"), 200, 1000);
+
+        assertEquals(200L, (long) durations.eta(FOO, new Version("4.0")));
+    }
+
+    @Test
+    public void shouldKeepOnlyLastSamples() {
+        for (int i = 1; i <= 6; i++)
+            durations.executed(deployment(FOO, "1." + i), i * 100, i * 1000);
+
+        DurationStatistics statistics = durations.statistics(FOO);
+
+        assertEquals(4, statistics.getSamples().size());
+        assertEquals(new Version("1.3"), statistics.getSamples().get(0).getVersion());
+        assertEquals(3000, statistics.getSamples().get(0).getBytes());
+        assertEquals(new Version("1.6"), statistics.getSamples().get(3).getVersion());
+        assertEquals(400, statistics.getMedian());
+        assertEquals(600, statistics.getP95());
+        assertEquals(600, statistics.getMax());
+    }
+
+    @Test
+    public void shouldCountSlowDeploy() {
+        for (int i = 0; i < DeployDurations.MIN_SAMPLES; i++)
+            durations.executed(deployment(FOO, "1.0"), 100, 1000);
+        long before = slow("deploy");
+
+        durations.executed(deployment(FOO, "1.0"), 150, 1000);
+        assertEquals(before, slow("deploy"));
+
+        durations.executed(deployment(FOO, "1.0"), 1000, 1000);
+        assertEquals(before + 1, slow("deploy"));
+    }
+
+    @Test
+    public void shouldNotCountSlowDeployWithTooFewSamples() {
+        durations.executed(deployment(FOO, "1.0"), 100, 1000);
+        long before = slow("deploy");
+
+        durations.executed(deployment(FOO, "1.0"), 1000, 1000);
+
+        assertEquals(before, slow("deploy"));
+    }
+
+    @Test
+    public void shouldCountSlowReleaseByItsSlowestDeployment() {
+        for (int i = 0; i < DeployDurations.MIN_SAMPLES; i++) {
+            durations.executed(deployment(FOO, "1.0"), 100, 1000);
+            durations.executed(deployment(BAR, "1.0"), 500, 1000);
+        }
+        long before = slow("release");
+
+        durations.executedRelease(Arrays.asList(FOO, BAR), 800);
+        assertEquals(before, slow("release"));
+
+        durations.executedRelease(Arrays.asList(FOO, BAR), 1200);
+        assertEquals(before + 1, slow("release"));
+    }
+}
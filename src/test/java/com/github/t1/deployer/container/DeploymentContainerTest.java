@@ -7,8 +7,10 @@ import static org.junit.Assert.*;
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 
-import java.io.IOException;
-import java.util.List;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.*;
 
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.*;
@@ -19,7 +21,7 @@ import lombok.SneakyThrows;
 import org.jboss.as.controller.client.*;
 import org.jboss.dmr.ModelNode;
 import org.junit.*;
-import org.junit.rules.ExpectedException;
+import org.junit.rules.*;
 import org.junit.runner.RunWith;
 import org.mockito.*;
 import org.mockito.runners.MockitoJUnitRunner;
@@ -39,6 +41,8 @@ public class DeploymentContainerTest {
     ModelControllerClient client;
     @Mock
     Repository repository;
+    @Mock
+    PatchedContent patchedContent;
 
     @Rule
     public ExpectedException expectedException = ExpectedException.none();
@@ -112,6 +116,17 @@ public class DeploymentContainerTest {
                 + "}";
     }
 
+    @Test
+    public void shouldReportArtifactChecksumOfPatchedDeployment() {
+        givenDeployments(FOO);
+        CheckSum artifact = fakeChecksumFor(FOO, NEWEST_FOO_VERSION);
+        when(patchedContent.artifactOf(fakeChecksumFor(FOO))).thenReturn(artifact);
+
+        Deployment deployment = container.getDeploymentFor(FOO);
+
+        assertEquals(artifact, deployment.getCheckSum());
+    }
+
     @Test
     public void shouldFailToGetDeploymentByUnknownContextRoot() throws IOException {
         when(client.execute(eq(readAllDeploymentsCli()), any(OperationMessageHandler.class))) //
@@ -182,4 +197,178 @@ public class DeploymentContainerTest {
         assertDeployment(FOO, NO_VERSION, deployments.get(0));
         assertDeployment(BAR, NO_VERSION, deployments.get(1));
     }
+
+    @SneakyThrows(IOException.class)
+    private void givenStaged(ContextRoot contextRoot, Version version, long stagedAt) {
+        String deployed = readDeploymentsCliResult(contextRoot);
+        String name = nameFor(contextRoot) + ".staged." + stagedAt;
+        String staged = "{\n" //
+                + "\"address\" => [(\"deployment\" => \"" + name + "\")],\n" //
+                + "\"outcome\" => \"success\",\n" //
+                + "\"result\" => {\n" //
+                + "\"content\" => [{\"hash\" => bytes {\n" //
+                + fakeChecksumFor(contextRoot, version).hexByteArray() //
+                + "}}],\n" //
+                + "\"enabled\" => false,\n" //
+                + ("\"name\" => \"" + name + "\",\n") //
+                + ("\"runtime-name\" => \"" + nameFor(contextRoot) + "\"\n") //
+                + "}\n" //
+                + "}\n";
+        String all = deployed.substring(0, deployed.length() - 1) + "," + staged + "]";
+        when(client.execute(eq(readAllDeploymentsCli()), any(OperationMessageHandler.class))) //
+                .thenReturn(ModelNode.fromString(successCli(all)));
+        when(client.execute(argThat(isOperation("composite")), any(OperationMessageHandler.class))) //
+                .thenReturn(ModelNode.fromString(successCli("{}")));
+    }
+
+    private static ArgumentMatcher<ModelNode> isOperation(final String operation) {
+        return new ArgumentMatcher<ModelNode>() {
+            @Override
+            public boolean matches(Object argument) {
+                return operation.equals(((ModelNode) argument).get("operation").asString());
+            }
+        };
+    }
+
+    @SneakyThrows(IOException.class)
+    private List<ModelNode> executedSteps() {
+        ArgumentCaptor<ModelNode> captor = ArgumentCaptor.forClass(ModelNode.class);
+        verify(client, atLeastOnce()).execute(captor.capture(), any(OperationMessageHandler.class));
+        return captor.getValue().get("steps").asList();
+    }
+
+    @Test
+    public void shouldNotListStagedContent() {
+        givenStaged(FOO, NEWEST_FOO_VERSION, System.currentTimeMillis());
+
+        List<Deployment> deployments = container.getAllDeployments();
+
+        assertEquals(1, deployments.size());
+        assertDeployment(FOO, NO_VERSION, deployments.get(0));
+    }
+
+    @Test
+    public void shouldActivateStagedContent() {
+        long stagedAt = System.currentTimeMillis();
+        givenStaged(FOO, NEWEST_FOO_VERSION, stagedAt);
+
+        container.activate(deploymentFor(FOO, NEWEST_FOO_VERSION));
+
+        List<ModelNode> steps = executedSteps();
+        assertEquals(2, steps.size());
+        assertEquals("full-replace-deployment", steps.get(0).get("operation").asString());
+        assertEquals(nameFor(FOO).getValue(), steps.get(0).get("name").asString());
+        assertEquals(fakeChecksumFor(FOO, NEWEST_FOO_VERSION),
+                CheckSum.of(steps.get(0).get("content").get(0).get("hash").asBytes()));
+        assertEquals("remove", steps.get(1).get("operation").asString());
+        assertEquals(nameFor(FOO) + ".staged." + stagedAt,
+                steps.get(1).get("address").get(0).get("deployment").asString());
+    }
+
+    @Test
+    public void shouldFailToActivateUnstagedContent() {
+        givenStaged(FOO, NEWEST_FOO_VERSION, System.currentTimeMillis());
+
+        try {
+            container.activate(deploymentFor(FOO, CURRENT_FOO_VERSION));
+            fail("WebException expected");
+        } catch (WebApplicationException e) {
+            assertEquals(NOT_FOUND, e.getResponse().getStatusInfo());
+        }
+    }
+
+    @Test
+    public void shouldRemoveExpiredStagedContent() {
+        givenStaged(FOO, NEWEST_FOO_VERSION, 1000);
+
+        container.removeExpiredStagedContent();
+
+        List<ModelNode> steps = executedSteps();
+        assertEquals(1, steps.size());
+        assertEquals(nameFor(FOO) + ".staged.1000", steps.get(0).get("address").get(0).get("deployment").asString());
+    }
+
+    @SneakyThrows(IOException.class)
+    private void givenContent(ContextRoot... contextRoots) {
+        ModelNode readContent = new ModelNode();
+        readContent.get("address").add("deployment", "*");
+        readContent.get("operation").set("read-resource");
+        when(client.execute(eq(readContent), any(OperationMessageHandler.class))) //
+                .thenReturn(ModelNode.fromString(successCli(readDeploymentsCliResult(contextRoots))));
+    }
+
+    @Test
+    public void shouldFindContentByHash() {
+        givenContent(FOO, BAR);
+
+        assertTrue(container.hasContent(fakeChecksumFor(BAR)));
+        assertFalse(container.hasContent(fakeChecksumFor(FOO, NEWEST_FOO_VERSION)));
+    }
+
+    @Test
+    @SneakyThrows(IOException.class)
+    public void shouldDeployByHash() {
+        when(client.execute(argThat(isOperation("add")), any(OperationMessageHandler.class))) //
+                .thenReturn(ModelNode.fromString(successCli("{}")));
+
+        container.deploy(deploymentFor(FOO, NEWEST_FOO_VERSION));
+
+        ArgumentCaptor<ModelNode> captor = ArgumentCaptor.forClass(ModelNode.class);
+        verify(client).execute(captor.capture(), any(OperationMessageHandler.class));
+        ModelNode add = captor.getValue();
+        assertEquals(nameFor(FOO).getValue(), add.get("address").get(0).get("deployment").asString());
+        assertEquals(fakeChecksumFor(FOO, NEWEST_FOO_VERSION),
+                CheckSum.of(add.get("content").get(0).get("hash").asBytes()));
+        assertTrue(add.get("enabled").asBoolean());
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldExplodeAndPatchArchive() throws IOException {
+        ModelNode readContent = new ModelNode();
+        readContent.get("address").add("deployment", nameFor(FOO).getValue());
+        readContent.get("operation").set("read-attribute");
+        readContent.get("name").set("content");
+        when(client.execute(eq(readContent), any(OperationMessageHandler.class))) //
+                .thenReturn(ModelNode.fromString(successCli("[{\"hash\" => bytes {0x00}, \"archive\" => true}]")));
+        ModelNode readAllContent = new ModelNode();
+        readAllContent.get("address").add("deployment", "*");
+        readAllContent.get("operation").set("read-resource");
+        when(client.execute(eq(readAllContent), any(OperationMessageHandler.class))) //
+                .thenReturn(ModelNode.fromString(successCli("[" //
+                        + "{\"result\" => {\"content\" => [{\"hash\" => bytes {0x00}}]}}," //
+                        + "{\"result\" => {\"content\" => [{\"hash\" => bytes {0x01}}]}}" //
+                        + "]")));
+        when(client.execute(any(Operation.class), any(OperationMessageHandler.class))) //
+                .thenReturn(ModelNode.fromString(successCli("{}")));
+        File file = folder.newFile("foo.war");
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(file))) {
+            zip.putNextEntry(new ZipEntry("index.jsp"));
+            zip.write("new".getBytes("UTF-8"));
+        }
+        ArchiveDiff diff = new ArchiveDiff(Arrays.<String> asList(), Arrays.asList("index.jsp"),
+                Arrays.asList("removed.txt"), 3, 3, 0, true);
+
+        try (ZipFile archive = new ZipFile(file)) {
+            container.patch(deploymentFor(FOO, NEWEST_FOO_VERSION), diff, archive);
+        }
+
+        ArgumentCaptor<Operation> captor = ArgumentCaptor.forClass(Operation.class);
+        verify(client).execute(captor.capture(), any(OperationMessageHandler.class));
+        List<ModelNode> steps = captor.getValue().getOperation().get("steps").asList();
+        assertEquals(5, steps.size());
+        assertEquals("undeploy", steps.get(0).get("operation").asString());
+        assertEquals("explode", steps.get(1).get("operation").asString());
+        assertEquals("add-content", steps.get(2).get("operation").asString());
+        assertEquals("index.jsp", steps.get(2).get("content").get(0).get("target-path").asString());
+        assertEquals(0, steps.get(2).get("content").get(0).get("input-stream-index").asInt());
+        assertEquals("remove-content", steps.get(3).get("operation").asString());
+        assertEquals("removed.txt", steps.get(3).get("paths").get(0).asString());
+        assertEquals("deploy", steps.get(4).get("operation").asString());
+        assertEquals(1, captor.getValue().getInputStreams().size());
+        verify(patchedContent).patched(CheckSum.of(new byte[] { 0x00 }), fakeChecksumFor(FOO, NEWEST_FOO_VERSION),
+                Arrays.asList(CheckSum.of(new byte[] { 0x00 }), CheckSum.of(new byte[] { 0x01 })));
+    }
 }
@@ -0,0 +1,229 @@
+package com.github.t1.deployer.container;
+
+import static java.util.concurrent.TimeUnit.*;
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.*;
+
+import com.github.t1.deployer.model.ContextRoot;
+
+public class DeploymentSchedulerTest {
+    private static final ContextRoot FOO = new ContextRoot("foo");
+    private static final ContextRoot BAR = new ContextRoot("bar");
+
+    private final DeploymentScheduler scheduler = new DeploymentScheduler();
+    private final ExecutorService clients = Executors.newCachedThreadPool();
+    private final List<String> log = Collections.synchronizedList(new ArrayList<String>());
+
+    @After
+    public void after() {
+        clients.shutdownNow();
+    }
+
+    private Runnable logging(final String message) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                log.add(message);
+            }
+        };
+    }
+
+    private Runnable blocking(final String message, final CountDownLatch started, final CountDownLatch release) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await(5, SECONDS);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                log.add(message);
+            }
+        };
+    }
+
+    private Future<?> submit(final ContextRoot contextRoot, final String key, final Runnable operation) {
+        return clients.submit(new Runnable() {
+            @Override
+            public void run() {
+                scheduler.run(contextRoot, key, operation);
+            }
+        });
+    }
+
+    private void awaitCoalesced(long count) throws InterruptedException {
+        for (int i = 0; i < 500 && scheduler.getCoalesced() < count; i++)
+            Thread.sleep(10);
+        assertEquals(count, scheduler.getCoalesced());
+    }
+
+    @Test
+    public void shouldRunOperation() {
+        scheduler.run(FOO, null, logging("deploy foo"));
+
+        assertEquals(Arrays.asList("deploy foo"), log);
+        assertEquals(1, scheduler.getCompleted());
+        assertEquals(0, scheduler.getQueueDepth());
+    }
+
+    @Test
+    public void shouldRunOnlyNewestOfWaitingOperations() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> first = submit(FOO, null, blocking("deploy 1", started, release));
+        assertTrue(started.await(5, SECONDS));
+
+        Future<?> second = submit(FOO, null, logging("deploy 2"));
+        for (int i = 0; i < 500 && scheduler.getQueueDepth() < 1; i++)
+            Thread.sleep(10);
+        Future<?> third = submit(FOO, null, logging("deploy 3"));
+        awaitCoalesced(1);
+        release.countDown();
+
+        first.get(5, SECONDS);
+        second.get(5, SECONDS);
+        third.get(5, SECONDS);
+        assertEquals(Arrays.asList("deploy 1", "deploy 3"), log);
+        assertEquals(2, scheduler.getCompleted());
+    }
+
+    @Test
+    public void shouldRunDifferentContextRootsConcurrently() throws Exception {
+        final CyclicBarrier both = new CyclicBarrier(2);
+        Runnable meet = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    both.await(5, SECONDS);
+                } catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+
+        Future<?> foo = submit(FOO, null, meet);
+        Future<?> bar = submit(BAR, null, meet);
+
+        foo.get(5, SECONDS);
+        bar.get(5, SECONDS);
+        assertEquals(2, scheduler.getCompleted());
+    }
+
+    @Test
+    public void shouldRunOperationWithSameIdempotencyKeyOnlyOnce() {
+        scheduler.run(FOO, "key-1", logging("deploy 1"));
+        scheduler.run(FOO, "key-1", logging("deploy 2"));
+        scheduler.run(BAR, "key-1", logging("deploy 3"));
+
+        assertEquals(Arrays.asList("deploy 1", "deploy 3"), log);
+        assertEquals(1, scheduler.getReplayed());
+    }
+
+    @Test
+    public void shouldRetryFailedOperationWithSameIdempotencyKey() {
+        final AtomicInteger attempts = new AtomicInteger();
+        Runnable failingOnce = new Runnable() {
+            @Override
+            public void run() {
+                if (attempts.incrementAndGet() == 1)
+                    throw new IllegalStateException("first attempt fails");
+            }
+        };
+        try {
+            scheduler.run(FOO, "key-1", failingOnce);
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertEquals("first attempt fails", e.getMessage());
+        }
+
+        scheduler.run(FOO, "key-1", failingOnce);
+
+        assertEquals(2, attempts.get());
+        assertEquals(1, scheduler.getCompleted());
+    }
+
+    @Test
+    public void shouldRunOperationOnSeveralContextRootsOnlyWhenAllAreFree() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> foo = submit(FOO, null, blocking("deploy foo", started, release));
+        assertTrue(started.await(5, SECONDS));
+
+        Future<?> both = clients.submit(new Runnable() {
+            @Override
+            public void run() {
+                scheduler.run(Arrays.asList(FOO, BAR), logging("release foo and bar"));
+            }
+        });
+        Thread.sleep(100);
+        assertTrue(log.isEmpty());
+        release.countDown();
+
+        foo.get(5, SECONDS);
+        both.get(5, SECONDS);
+        assertEquals(Arrays.asList("deploy foo", "release foo and bar"), log);
+        assertEquals(2, scheduler.getCompleted());
+        assertEquals(0, scheduler.getQueueDepth());
+    }
+
+    @Test
+    public void shouldHoldOffOperationsWhileRunningOnSeveralContextRoots() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Future<?> both = clients.submit(new Runnable() {
+            @Override
+            public void run() {
+                scheduler.run(Arrays.asList(BAR, FOO), blocking("release foo and bar", started, release));
+            }
+        });
+        assertTrue(started.await(5, SECONDS));
+
+        Future<?> bar = submit(BAR, null, logging("deploy bar"));
+        Thread.sleep(100);
+        assertTrue(log.isEmpty());
+        release.countDown();
+
+        both.get(5, SECONDS);
+        bar.get(5, SECONDS);
+        assertEquals(Arrays.asList("release foo and bar", "deploy bar"), log);
+    }
+
+    @Test
+    public void shouldRetrySupersededOperationWithSameIdempotencyKeyAfterItsSuccessorFailed() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> first = submit(FOO, "key-1", blocking("deploy 1", started, release));
+        assertTrue(started.await(5, SECONDS));
+        Future<?> second = submit(FOO, "key-2", logging("deploy 2"));
+        for (int i = 0; i < 500 && scheduler.getQueueDepth() < 1; i++)
+            Thread.sleep(10);
+        Future<?> third = submit(FOO, "key-3", new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("deploy 3 fails");
+            }
+        });
+        awaitCoalesced(1);
+        release.countDown();
+        first.get(5, SECONDS);
+        for (Future<?> failing : Arrays.asList(second, third)) {
+            try {
+                failing.get(5, SECONDS);
+                fail("expected failure");
+            } catch (ExecutionException e) {
+                assertEquals("deploy 3 fails", e.getCause().getMessage());
+            }
+        }
+
+        scheduler.run(FOO, "key-2", logging("retry 2"));
+
+        assertEquals(Arrays.asList("deploy 1", "retry 2"), log);
+        assertEquals(0, scheduler.getReplayed());
+    }
+}
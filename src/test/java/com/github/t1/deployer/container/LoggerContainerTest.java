@@ -20,7 +20,7 @@ import org.junit.runner.RunWith;
 import org.mockito.*;
 import org.mockito.runners.MockitoJUnitRunner;
 
-import com.github.t1.deployer.model.LoggerConfig;
+import com.github.t1.deployer.model.*;
 import com.github.t1.deployer.repository.Repository;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -107,4 +107,39 @@ public class LoggerContainerTest {
         assertEquals("bar", loggers.get(1).getCategory());
         assertEquals(WARN, loggers.get(1).getLevel());
     }
+
+    @Test
+    @SneakyThrows(IOException.class)
+    public void shouldReadOnlyTheSelectedPageOfLoggers() {
+        ModelNode names = new ModelNode();
+        names.get("address").add("subsystem", "logging");
+        names.get("operation").set("read-children-names");
+        names.get("child-type").set("logger");
+        when(client.execute(eq(names), any(OperationMessageHandler.class))) //
+                .thenReturn(ModelNode.fromString(successCli("[\"org.foo\", \"com.bar\", \"org.baz\"]")));
+        when(client.execute(argThat(isComposite()), any(OperationMessageHandler.class))) //
+                .thenReturn(ModelNode.fromString(successCli("{\"step-1\" => " //
+                        + successCli("{\"category\" => \"org.foo\", \"level\" => \"DEBUG\"}") + "}")));
+
+        Slice<LoggerConfig> slice = container.getLoggers(new Paging("org.*", "category", 1, 1));
+
+        assertEquals(2, slice.getTotal());
+        assertEquals(1, slice.getElements().size());
+        assertEquals("org.foo", slice.getElements().get(0).getCategory());
+        assertEquals(DEBUG, slice.getElements().get(0).getLevel());
+        ArgumentCaptor<ModelNode> composite = ArgumentCaptor.forClass(ModelNode.class);
+        verify(client, times(2)).execute(composite.capture(), any(OperationMessageHandler.class));
+        List<ModelNode> steps = composite.getValue().get("steps").asList();
+        assertEquals(1, steps.size());
+        assertEquals("org.foo", steps.get(0).get("address").asList().get(1).get("logger").asString());
+    }
+
+    private static ArgumentMatcher<ModelNode> isComposite() {
+        return new ArgumentMatcher<ModelNode>() {
+            @Override
+            public boolean matches(Object argument) {
+                return "composite".equals(((ModelNode) argument).get("operation").asString());
+            }
+        };
+    }
 }
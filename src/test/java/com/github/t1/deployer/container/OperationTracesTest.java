@@ -0,0 +1,57 @@
+package com.github.t1.deployer.container;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.Test;
+
+import com.github.t1.deployer.model.*;
+
+public class OperationTracesTest {
+    private final OperationTraces traces = new OperationTraces(3);
+
+    private static OperationTrace trace(String operation) {
+        return OperationTrace.builder() //
+                .operation(operation) //
+                .contextRoots(Arrays.asList(new ContextRoot("foo"))) //
+                .outcome(HistoryEntry.SUCCESS) //
+                .phases(Collections.<OperationTrace.Phase> emptyList()) //
+                .build();
+    }
+
+    private static List<Long> ids(List<OperationTrace> list) {
+        List<Long> ids = new ArrayList<>();
+        for (OperationTrace trace : list)
+            ids.add(trace.getId());
+        return ids;
+    }
+
+    @Test
+    public void shouldBeEmptyInitially() {
+        assertEquals(0, traces.getAll().size());
+        assertNull(traces.get(1));
+    }
+
+    @Test
+    public void shouldAssignAscendingIds() {
+        OperationTrace first = traces.add(trace("deploy"));
+        OperationTrace second = traces.add(trace("undeploy"));
+
+        assertEquals(1, first.getId());
+        assertEquals(2, second.getId());
+        assertEquals(Arrays.asList(1L, 2L), ids(traces.getAll()));
+        assertEquals("undeploy", traces.get(2).getOperation());
+    }
+
+    @Test
+    public void shouldOverwriteOldestWhenFull() {
+        for (int i = 0; i < 5; i++)
+            traces.add(trace("deploy-" + i));
+
+        assertEquals(Arrays.asList(3L, 4L, 5L), ids(traces.getAll()));
+        assertNull(traces.get(2));
+        assertEquals("deploy-2", traces.get(3).getOperation());
+        assertNull(traces.get(6));
+    }
+}
@@ -0,0 +1,55 @@
+package com.github.t1.deployer.container;
+
+import static org.junit.Assert.*;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.t1.deployer.model.CheckSum;
+
+public class PatchedContentTest {
+    private static final CheckSum CONTENT = CheckSum.ofHexString("c0");
+    private static final CheckSum OTHER_CONTENT = CheckSum.ofHexString("c1");
+    private static final CheckSum ARTIFACT = CheckSum.ofHexString("a0");
+    private static final CheckSum OTHER_ARTIFACT = CheckSum.ofHexString("a1");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private PatchedContent patchedContent(Path file) {
+        PatchedContent patchedContent = new PatchedContent(file);
+        patchedContent.load();
+        return patchedContent;
+    }
+
+    @Test
+    public void shouldNotMapUnpatchedContent() {
+        PatchedContent patchedContent = patchedContent(folder.getRoot().toPath().resolve("patched.properties"));
+
+        assertNull(patchedContent.artifactOf(CONTENT));
+    }
+
+    @Test
+    public void shouldMapPatchedContentAfterRestart() {
+        Path file = folder.getRoot().toPath().resolve("patched.properties");
+        patchedContent(file).patched(CONTENT, ARTIFACT, Arrays.asList(CONTENT));
+
+        PatchedContent restarted = patchedContent(file);
+
+        assertEquals(ARTIFACT, restarted.artifactOf(CONTENT));
+    }
+
+    @Test
+    public void shouldDropContentThatIsGone() {
+        PatchedContent patchedContent = patchedContent(folder.getRoot().toPath().resolve("patched.properties"));
+        patchedContent.patched(CONTENT, ARTIFACT, Arrays.asList(CONTENT));
+
+        patchedContent.patched(OTHER_CONTENT, OTHER_ARTIFACT, Arrays.asList(OTHER_CONTENT));
+
+        assertNull(patchedContent.artifactOf(CONTENT));
+        assertEquals(OTHER_ARTIFACT, patchedContent.artifactOf(OTHER_CONTENT));
+    }
+}
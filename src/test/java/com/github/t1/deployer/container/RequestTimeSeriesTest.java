@@ -0,0 +1,92 @@
+package com.github.t1.deployer.container;
+
+import static com.github.t1.deployer.container.RequestTimeSeries.*;
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.Test;
+
+import com.github.t1.deployer.model.*;
+
+public class RequestTimeSeriesTest {
+    private static final DeploymentName FOO = new DeploymentName("foo.war");
+    private static final DeploymentName BAR = new DeploymentName("bar.war");
+    private static final long STEP = SAMPLE_SECONDS * 1000;
+    private static final double DELTA = 0.0001;
+
+    private final RequestTimeSeries series = new RequestTimeSeries();
+
+    private void sample(long timestamp, long requests, long time, long serverRequests, long serverErrors) {
+        series.add(timestamp, Collections.singletonMap(FOO,
+                new RequestStatistics(FOO, requests, time, 50, 2, serverRequests, serverErrors)));
+    }
+
+    @Test
+    public void shouldHaveNoTrendWithoutTwoSamples() {
+        assertNull(series.trend(FOO));
+
+        sample(0, 0, 0, 0, 0);
+
+        assertNull(series.trend(FOO));
+    }
+
+    @Test
+    public void shouldComputeRates() {
+        sample(0, 100, 1000, 1000, 0);
+        sample(STEP, 130, 1600, 1100, 1);
+        sample(2 * STEP, 160, 2200, 1200, 1);
+
+        RequestTrend trend = series.trend(FOO);
+
+        assertEquals(0, trend.getFrom());
+        assertEquals(2 * STEP, trend.getTo());
+        assertEquals(60, trend.getRequests());
+        assertEquals(2.0, trend.getRequestRate(), DELTA);
+        assertEquals(20.0, trend.getMeanRequestTime(), DELTA);
+        assertEquals(0.005, trend.getServerErrorRate(), DELTA);
+        assertEquals(50, trend.getMaxRequestTime());
+        assertEquals(2, trend.getActiveSessions());
+        assertEquals(1, trend.getIntervals().size());
+        assertEquals(60, trend.getIntervals().get(0).getRequests());
+        assertEquals(2 * STEP - HOUR + 11 * HOUR / INTERVALS, trend.getIntervals().get(0).getTimestamp());
+    }
+
+    @Test
+    public void shouldCountFromZeroAfterRedeploy() {
+        sample(0, 1000, 10000, 0, 0);
+        sample(STEP, 30, 300, 0, 0);
+
+        RequestTrend trend = series.trend(FOO);
+
+        assertEquals(30, trend.getRequests());
+        assertEquals(10.0, trend.getMeanRequestTime(), DELTA);
+    }
+
+    @Test
+    public void shouldKeepOnlyTheLastHour() {
+        for (int i = 0; i < 2 * CAPACITY; i++)
+            sample(i * STEP, 10 * i, 100 * i, 0, 0);
+
+        RequestTrend trend = series.trend(FOO);
+
+        assertEquals(trend.getTo() - HOUR, trend.getFrom());
+        assertEquals(10 * (CAPACITY - 1), trend.getRequests());
+        assertEquals(INTERVALS, trend.getIntervals().size());
+        for (RequestTrend.Interval interval : trend.getIntervals())
+            assertEquals(10.0 / SAMPLE_SECONDS, interval.getRequestRate(), DELTA);
+    }
+
+    @Test
+    public void shouldDropUndeployed() {
+        Map<DeploymentName, RequestStatistics> both = new HashMap<>();
+        both.put(FOO, new RequestStatistics(FOO, 0, 0, 0, 0, 0, 0));
+        both.put(BAR, new RequestStatistics(BAR, 0, 0, 0, 0, 0, 0));
+        series.add(0, both);
+        series.add(STEP, both);
+        sample(2 * STEP, 0, 0, 0, 0);
+
+        assertNull(series.trend(BAR));
+        assertNotNull(series.trend(FOO));
+    }
+}
@@ -0,0 +1,132 @@
+package com.github.t1.deployer.container;
+
+import static com.github.t1.deployer.TestData.*;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.util.*;
+
+import lombok.SneakyThrows;
+
+import org.jboss.as.controller.client.*;
+import org.jboss.dmr.ModelNode;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.*;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.github.t1.deployer.model.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class StatisticsContainerTest {
+    @InjectMocks
+    StatisticsContainer container;
+    @Mock
+    ModelControllerClient client;
+    @Spy
+    RequestTimeSeries series = new RequestTimeSeries();
+
+    private static String deployment(String name, int sessions, String... servlets) {
+        StringBuilder out = new StringBuilder();
+        out.append("{\"address\" => [(\"deployment\" => \"").append(name).append("\"),") //
+                .append("(\"subsystem\" => \"undertow\")],") //
+                .append("\"outcome\" => \"success\",") //
+                .append("\"result\" => {") //
+                .append("\"active-sessions\" => ").append(sessions).append(",") //
+                .append("\"context-root\" => \"/").append(name).append("\",") //
+                .append("\"servlet\" => ");
+        if (servlets.length == 0) {
+            out.append("undefined");
+        } else {
+            out.append("{");
+            for (int i = 0; i < servlets.length; i++)
+                out.append((i > 0) ? ", " : "").append(servlets[i]);
+            out.append("}");
+        }
+        return out.append("}}").toString();
+    }
+
+    private static String servlet(String name, long requests, long total, long max) {
+        return "\"" + name + "\" => {" //
+                + "\"max-request-time\" => " + max + "," //
+                + "\"min-request-time\" => 0," //
+                + "\"request-count\" => " + requests + "," //
+                + "\"servlet-name\" => \"" + name + "\"," //
+                + "\"total-request-time\" => " + total //
+                + "}";
+    }
+
+    private static String listener(String name, long requests, long errors) {
+        return "{\"address\" => [(\"subsystem\" => \"undertow\"), (\"server\" => \"default-server\"),"
+                + "(\"http-listener\" => \"" + name + "\")]," //
+                + "\"outcome\" => \"success\"," //
+                + "\"result\" => {\"error-count\" => " + errors + ", \"request-count\" => " + requests + "}}";
+    }
+
+    @SneakyThrows(IOException.class)
+    private void givenComposite(String deployments, String httpListeners) {
+        when(client.execute(any(ModelNode.class), any(OperationMessageHandler.class))) //
+                .thenReturn(ModelNode.fromString(successCli("{" //
+                        + "\"step-1\" => " + successCli(deployments) + "," //
+                        + "\"step-2\" => " + successCli(httpListeners) + "," //
+                        + "\"step-3\" => " + successCli("[]") + "," //
+                        + "\"step-4\" => " + successCli("[]") //
+                        + "}")));
+    }
+
+    @Test
+    public void shouldReadNoStatistics() {
+        givenComposite("[]", "[]");
+
+        assertTrue(container.getRequestStatistics().isEmpty());
+    }
+
+    @Test
+    @SneakyThrows(IOException.class)
+    public void shouldReadStatisticsInOneCompositeCall() {
+        givenComposite("[" + deployment("foo.war", 3, servlet("a", 10, 100, 30), servlet("b", 5, 50, 40)) + ", " //
+                + deployment("bar.war", 0) + "]", //
+                "[" + listener("default", 200, 2) + ", " + listener("other", 100, 1) + "]");
+
+        Map<DeploymentName, RequestStatistics> statistics = container.getRequestStatistics();
+
+        assertEquals(2, statistics.size());
+        DeploymentName foo = new DeploymentName("foo.war");
+        assertEquals(new RequestStatistics(foo, 15, 150, 40, 3, 300, 3), statistics.get(foo));
+        DeploymentName bar = new DeploymentName("bar.war");
+        assertEquals(new RequestStatistics(bar, 0, 0, 0, 0, 300, 3), statistics.get(bar));
+
+        ArgumentCaptor<ModelNode> composite = ArgumentCaptor.forClass(ModelNode.class);
+        verify(client).execute(composite.capture(), any(OperationMessageHandler.class));
+        List<ModelNode> steps = composite.getValue().get("steps").asList();
+        assertEquals(4, steps.size());
+        assertEquals("*", steps.get(0).get("address").asList().get(0).get("deployment").asString());
+        assertTrue(steps.get(0).get("include-runtime").asBoolean());
+        assertEquals("*", steps.get(1).get("address").asList().get(2).get("http-listener").asString());
+    }
+
+    @Test
+    public void shouldSampleIntoTheTimeSeries() {
+        givenComposite("[" + deployment("foo.war", 1, servlet("a", 10, 100, 30)) + "]", "[]");
+
+        container.sample();
+        container.sample();
+
+        RequestTrend trend = series.trend(new DeploymentName("foo.war"));
+        assertEquals(0, trend.getRequests());
+        assertEquals(1, trend.getActiveSessions());
+    }
+
+    @Test
+    @SneakyThrows(IOException.class)
+    public void shouldSkipSampleWhenReadFails() {
+        when(client.execute(any(ModelNode.class), any(OperationMessageHandler.class))) //
+                .thenReturn(ModelNode.fromString(failedCli("no undertow\"")));
+
+        container.sample();
+
+        verify(series, never()).add(anyLong(), anyMapOf(DeploymentName.class, RequestStatistics.class));
+    }
+}
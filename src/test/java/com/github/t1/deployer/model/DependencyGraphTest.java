@@ -0,0 +1,63 @@
+package com.github.t1.deployer.model;
+
+import static java.util.Arrays.*;
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.Test;
+
+public class DependencyGraphTest {
+    private final DependencyGraph<String> graph = new DependencyGraph<>();
+
+    @Test
+    public void shouldPutIndependentNodesIntoOneLevel() {
+        graph.node("a", null).node("b", Collections.<String> emptyList());
+
+        assertEquals(asList(asList("a", "b")), graph.levels());
+    }
+
+    @Test
+    public void shouldOrderDependenciesIntoLevels() {
+        graph.node("c", asList("a", "b")) //
+                .node("b", asList("a")) //
+                .node("a", null) //
+                .node("d", asList("a"));
+
+        assertEquals(asList(asList("a"), asList("b", "d"), asList("c")), graph.levels());
+    }
+
+    @Test
+    public void shouldIgnoreDependencyOnNodeOutsideTheGraph() {
+        graph.node("a", asList("x")).node("b", asList("a", "y"));
+
+        assertEquals(asList(asList("a"), asList("b")), graph.levels());
+    }
+
+    @Test
+    public void shouldBeEmptyWithoutNodes() {
+        assertEquals(Collections.emptyList(), graph.levels());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectDuplicateNode() {
+        graph.node("a", null).node("a", null);
+    }
+
+    @Test
+    public void shouldRejectCycle() {
+        graph.node("a", asList("c")).node("b", asList("a")).node("c", asList("b")).node("d", null);
+
+        try {
+            graph.levels();
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            assertEquals("dependency cycle between [a, b, c]", e.getMessage());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectSelfDependency() {
+        graph.node("a", asList("a")).levels();
+    }
+}
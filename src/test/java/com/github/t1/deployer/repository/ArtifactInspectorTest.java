@@ -0,0 +1,120 @@
+package com.github.t1.deployer.repository;
+
+import static java.util.Arrays.*;
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.zip.*;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.t1.deployer.model.*;
+
+public class ArtifactInspectorTest {
+    private static final String JBOSS_WEB_XML = "<?xml version=\"1.0\"?>\n" //
+            + "<!DOCTYPE jboss-web PUBLIC \"-//JBoss//DTD Web Application 5.0//EN\"" //
+            + " \"http://www.jboss.org/j2ee/dtd/jboss-web_5_0.dtd\">\n" //
+            + "<jboss-web><context-root>/bar</context-root></jboss-web>";
+    private static final String APPLICATION_XML = "<?xml version=\"1.0\"?>\n" //
+            + "<application xmlns=\"http://xmlns.jcp.org/xml/ns/javaee\" version=\"7\">\n" //
+            + "  <module><web><web-uri>foo-web.war</web-uri><context-root>/foo</context-root></web></module>\n" //
+            + "  <module><web><web-uri>foo-admin.war</web-uri><context-root>foo-admin</context-root></web></module>\n"
+            + "  <module><ejb>foo-ejb.jar</ejb></module>\n" //
+            + "</application>";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ArtifactInspector inspector = new ArtifactInspector();
+    private final CheckSum checkSum = CheckSum.fromString("1234567890123456789012345678901234567890");
+
+    private File zip(String name, String... namesAndContents) throws IOException {
+        File file = folder.newFile(name);
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(file))) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                zip.putNextEntry(new ZipEntry(namesAndContents[i]));
+                zip.write(namesAndContents[i + 1].getBytes("UTF-8"));
+                zip.closeEntry();
+            }
+        }
+        return file;
+    }
+
+    @Test
+    public void shouldDeriveContextRootFromNameOfWar() throws IOException {
+        File file = zip("foo.war", "WEB-INF/classes/Foo.class", "xx", "index.jsp", "jsp");
+
+        ArtifactInfo info = inspector.inspect(checkSum, new DeploymentName("foo.war"), file);
+
+        assertEquals(asList(new ContextRoot("foo")), info.getContextRoots());
+        assertEquals(asList("foo.war"), info.getModules());
+        assertEquals(1, info.getClassCount());
+        assertEquals(5, info.getUncompressedSize());
+    }
+
+    @Test
+    public void shouldReadContextRootAndModuleNameOfWar() throws IOException {
+        File file = zip("foo.war", //
+                "WEB-INF/jboss-web.xml", JBOSS_WEB_XML, //
+                "WEB-INF/web.xml", "<web-app><module-name>bar-module</module-name></web-app>");
+
+        ArtifactInfo info = inspector.inspect(checkSum, new DeploymentName("foo.war"), file);
+
+        assertEquals(asList(new ContextRoot("bar")), info.getContextRoots());
+        assertEquals(asList("bar-module"), info.getModules());
+    }
+
+    @Test
+    public void shouldNotResolveExternalEntities() throws IOException {
+        File secret = folder.newFile("secret.txt");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(secret), "UTF-8")) {
+            writer.write("secret");
+        }
+        File file = zip("foo.war", "WEB-INF/jboss-web.xml", "<?xml version=\"1.0\"?>\n" //
+                + "<!DOCTYPE jboss-web [<!ENTITY xxe SYSTEM \"" + secret.toURI() + "\">]>\n" //
+                + "<jboss-web><context-root>&xxe;</context-root></jboss-web>");
+
+        ArtifactInfo info = inspector.inspect(checkSum, new DeploymentName("foo.war"), file);
+
+        assertEquals(asList(new ContextRoot("foo")), info.getContextRoots());
+    }
+
+    @Test
+    public void shouldReadContextRootsAndModulesOfEar() throws IOException {
+        File file = zip("foo.ear", "META-INF/application.xml", APPLICATION_XML, "lib/Util.class", "x");
+
+        ArtifactInfo info = inspector.inspect(checkSum, new DeploymentName("foo.ear"), file);
+
+        assertEquals(asList(new ContextRoot("foo"), new ContextRoot("foo-admin")), info.getContextRoots());
+        assertEquals(asList("foo-web.war", "foo-admin.war", "foo-ejb.jar"), info.getModules());
+        assertEquals(1, info.getClassCount());
+    }
+
+    @Test
+    public void shouldHaveNoContextRootForJar() throws IOException {
+        File file = zip("foo.jar", "com/example/Foo.class", "x");
+
+        ArtifactInfo info = inspector.inspect(checkSum, new DeploymentName("foo.jar"), file);
+
+        assertEquals(0, info.getContextRoots().size());
+        assertEquals(asList("foo.jar"), info.getModules());
+    }
+
+    @Test
+    public void shouldNotInspectNonArchive() throws IOException {
+        File file = folder.newFile("foo-ds.xml");
+
+        assertNull(inspector.inspect(checkSum, new DeploymentName("foo-ds.xml"), file));
+    }
+
+    @Test
+    public void shouldCacheByCheckSum() throws IOException {
+        File file = zip("foo.war", "index.jsp", "jsp");
+        ArtifactInfo info = inspector.inspect(checkSum, new DeploymentName("foo.war"), file);
+        assertTrue(file.delete());
+
+        assertSame(info, inspector.getCached(checkSum));
+        assertSame(info, inspector.inspect(checkSum, new DeploymentName("foo.war"), file));
+    }
+}
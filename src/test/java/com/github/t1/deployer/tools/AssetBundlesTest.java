@@ -0,0 +1,88 @@
+package com.github.t1.deployer.tools;
+
+import static com.github.t1.deployer.tools.AssetBundles.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class AssetBundlesTest {
+    private static final String BOOTSTRAP = "bootstrap/css/bootstrap.min.css";
+    private static final String STYLE = "webapp/css/style.css";
+
+    @Test
+    public void shouldCollapseWhitespace() {
+        assertEquals("a,b{color: red;margin: 0 auto;}p{}",
+                minifyCss("a ,\n b {\n\tcolor:  red ;\n margin: 0  auto;\n}\n\np { }\n"));
+    }
+
+    @Test
+    public void shouldRemoveComments() {
+        assertEquals("a{color: red;}b{}",
+                minifyCss("/* header */\na { color: /* inline */red; }\n/*\n * multi\n * line\n */\nb {}"));
+    }
+
+    @Test
+    public void shouldRemoveUnterminatedComment() {
+        assertEquals("a{}", minifyCss("a {} /* not closed"));
+    }
+
+    @Test
+    public void shouldRemoveCharset() {
+        assertEquals("a{}", minifyCss("@charset \"UTF-8\";\na {}"));
+        assertEquals("a{}", minifyCss("@CHARSET 'UTF-8'; a {}"));
+    }
+
+    @Test
+    public void shouldKeepCommentInString() {
+        assertEquals("a::before{content: \"/* not a comment */\";}",
+                minifyCss("a::before { content: \"/* not a comment */\"; }"));
+    }
+
+    @Test
+    public void shouldKeepCommentStartInSingleQuotedString() {
+        assertEquals("a::before{content: '/*';}b{color: red;}",
+                minifyCss("a::before { content: '/*'; }\nb { color: red; } /* the end */"));
+    }
+
+    @Test
+    public void shouldKeepWhitespaceAndEscapedQuotesInString() {
+        assertEquals("a::before{content: \"a  \\\" {b}\";}", minifyCss("a::before { content: \"a  \\\" {b}\"; }"));
+    }
+
+    @Test
+    public void shouldRebaseRelativeUrlsToVersionedWebjar() {
+        String version = WebJarsResource.version("bootstrap");
+
+        assertEquals("src: url(../../bootstrap/" + version + "/fonts/glyphicons.woff)", //
+                rebaseUrls(BOOTSTRAP, "src: url(../fonts/glyphicons.woff)"));
+    }
+
+    @Test
+    public void shouldRebaseRelativeUrlsKeepingTheQuotes() {
+        assertEquals("a{background: url('../../webapp/css/img/a.png')}"
+                + "b{background: url(\"../../webapp/css/img/b.png\")}"
+                + "c{background: url(../../webapp/img/c.png)}", //
+                rebaseUrls(STYLE, "a{background: url('img/a.png')}"
+                        + "b{background: url( \"img/b.png\" )}"
+                        + "c{background: url(../img/c.png)}"));
+    }
+
+    @Test
+    public void shouldNotRebaseAbsoluteUrls() {
+        String css = "a{background: url(/img/a.png)}" //
+                + "b{background: url('http://example.com/b.png')}" //
+                + "c{background: url(//cdn.example.com/c.png)}" //
+                + "d{fill: url(#gradient)}";
+
+        assertEquals(css, rebaseUrls(STYLE, css));
+    }
+
+    @Test
+    public void shouldNotRebaseDataUrls() {
+        String css = "a{background: url(data:image/png;base64,iVBORw0KGgo=)}" //
+                + "b{background: url(\"data:image/svg+xml;charset=utf8," //
+                + "%3Csvg xmlns='http://www.w3.org/2000/svg'%3E\")}";
+
+        assertEquals(css, rebaseUrls(STYLE, css));
+    }
+}
@@ -0,0 +1,115 @@
+package com.github.t1.deployer.tools;
+
+import static com.github.t1.deployer.tools.Cbor.*;
+import static java.util.Arrays.*;
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.util.List;
+
+import javax.ws.rs.core.*;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.t1.deployer.model.*;
+import com.github.t1.log.LogLevel;
+
+public class CborMessageBodyTest {
+    private static final Annotation[] ANNOTATIONS = new Annotation[0];
+    private static final CheckSum CHECK_SUM = CheckSum.ofHexString("FACE000094D353F082E6939015AF81D263BA0F8F");
+
+    private final CborMessageBodyWriter writer = new CborMessageBodyWriter();
+    private final CborMessageBodyReader reader = new CborMessageBodyReader();
+
+    private byte[] write(Object entity, Type type) throws IOException {
+        assertTrue(writer.isWriteable(entity.getClass(), type, ANNOTATIONS, APPLICATION_CBOR_TYPE));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(entity, entity.getClass(), type, ANNOTATIONS, APPLICATION_CBOR_TYPE,
+                new MultivaluedHashMap<String, Object>(), out);
+        return out.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T read(byte[] bytes, Class<?> rawType, Type type) throws IOException {
+        assertTrue(reader.isReadable(rawType, type, ANNOTATIONS, APPLICATION_CBOR_TYPE));
+        return (T) reader.readFrom((Class<Object>) rawType, type, ANNOTATIONS, APPLICATION_CBOR_TYPE,
+                new MultivaluedHashMap<String, String>(), new ByteArrayInputStream(bytes));
+    }
+
+    private <T> T roundTrip(T entity) throws IOException {
+        return read(write(entity, entity.getClass()), entity.getClass(), entity.getClass());
+    }
+
+    private Deployment deployment() {
+        return new Deployment(new DeploymentName("foo.war"), new ContextRoot("foo"), CHECK_SUM, new Version("1.3.1"));
+    }
+
+    @Test
+    public void shouldRoundTripDeployment() throws IOException {
+        Deployment deployment = deployment().withAvailableVersions(asList( //
+                new VersionInfo(new Version("1.3.0"), CheckSum.ofHexString("00")), //
+                new VersionInfo(new Version("1.3.1"), CHECK_SUM)));
+
+        assertEquals(deployment, roundTrip(deployment));
+    }
+
+    @Test
+    public void shouldRoundTripDeploymentList() throws IOException {
+        List<Deployment> deployments = asList(deployment(), deployment().withName(new DeploymentName("bar.war")));
+        Type type = new GenericType<List<Deployment>>() {}.getType();
+
+        List<Deployment> read = read(write(deployments, type), List.class, type);
+
+        assertEquals(deployments, read);
+    }
+
+    @Test
+    public void shouldRoundTripLoggerConfig() throws IOException {
+        LoggerConfig logger = new LoggerConfig("com.github.t1.deployer", LogLevel.DEBUG);
+
+        assertEquals(logger, roundTrip(logger));
+    }
+
+    @Test
+    public void shouldRoundTripDataSourceConfig() throws IOException {
+        DataSourceConfig dataSource = DataSourceConfig.builder() //
+                .name("foo-ds") //
+                .driver("h2") //
+                .jndiName("java:/datasources/foo") //
+                .uri(URI.create("jdbc:h2:mem:foo")) //
+                .user("joe") //
+                .build();
+
+        assertEquals(dataSource, roundTrip(dataSource));
+    }
+
+    @Test
+    public void shouldWriteCheckSumAsRawBytes() throws IOException {
+        JsonNode node = MAPPER.readTree(write(deployment(), Deployment.class));
+
+        assertTrue(node.get("checkSum").isBinary());
+        assertArrayEquals(CHECK_SUM.getBytes(), node.get("checkSum").binaryValue());
+    }
+
+    @Test
+    public void shouldReadCheckSumAsHexString() throws IOException {
+        byte[] bytes = MAPPER.writeValueAsBytes(MAPPER.createObjectNode() //
+                .put("name", "foo.war") //
+                .put("checkSum", CHECK_SUM.hexString()));
+
+        Deployment deployment = read(bytes, Deployment.class, Deployment.class);
+
+        assertEquals(CHECK_SUM, deployment.getCheckSum());
+    }
+
+    @Test
+    public void shouldOnlyAcceptCbor() {
+        assertFalse(writer.isWriteable(Deployment.class, Deployment.class, ANNOTATIONS, MediaType.WILDCARD_TYPE));
+        assertFalse(reader.isReadable(Deployment.class, Deployment.class, ANNOTATIONS,
+                MediaType.APPLICATION_JSON_TYPE));
+    }
+}
@@ -0,0 +1,164 @@
+package com.github.t1.deployer.tools;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.*;
+import java.util.zip.*;
+
+import javax.servlet.*;
+import javax.servlet.http.*;
+
+import org.junit.*;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CompressionFilterTest {
+    private static final String BIG = bigBody();
+
+    private static String bigBody() {
+        StringBuilder out = new StringBuilder("[");
+        for (int i = 0; i < 100; i++)
+            out.append("{\"name\":\"foo-").append(i).append(".war\",\"version\":\"1.2.").append(i).append("\"},");
+        return out.append("]").toString();
+    }
+
+    private final CompressionFilter filter = new CompressionFilter();
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+    @Mock
+    HttpServletRequest request;
+    @Mock
+    HttpServletResponse response;
+
+    @Before
+    public void before() throws IOException {
+        when(request.getMethod()).thenReturn("GET");
+        when(response.getStatus()).thenReturn(200);
+        when(response.getCharacterEncoding()).thenReturn("UTF-8");
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {}
+        });
+    }
+
+    private void given(String acceptEncoding, String contentType) {
+        when(request.getHeader("Accept-Encoding")).thenReturn(acceptEncoding);
+        when(response.getContentType()).thenReturn(contentType);
+    }
+
+    private void write(final String entity) throws IOException, ServletException {
+        filter.doFilter(request, response, new FilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) throws IOException {
+                response.setContentLength(entity.length());
+                response.getWriter().write(entity);
+            }
+        });
+    }
+
+    private String read(InputStream stream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        for (int n = stream.read(buffer); n >= 0; n = stream.read(buffer))
+            out.write(buffer, 0, n);
+        return out.toString("UTF-8");
+    }
+
+    @Test
+    public void shouldGzipBigJson() throws Exception {
+        given("gzip, deflate", "application/json");
+
+        write(BIG);
+
+        verify(response).setHeader("Content-Encoding", "gzip");
+        verify(response, never()).setContentLengthLong(anyLong());
+        assertTrue(body.size() < BIG.length());
+        assertEquals(BIG, read(new GZIPInputStream(new ByteArrayInputStream(body.toByteArray()))));
+    }
+
+    @Test
+    public void shouldDeflateBigYaml() throws Exception {
+        given("deflate", "application/yaml; charset=UTF-8");
+
+        write(BIG);
+
+        verify(response).setHeader("Content-Encoding", "deflate");
+        assertEquals(BIG, read(new InflaterInputStream(new ByteArrayInputStream(body.toByteArray()))));
+    }
+
+    @Test
+    public void shouldNotCompressSmallResponse() throws Exception {
+        given("gzip", "application/json");
+
+        write("{}");
+
+        verify(response, never()).setHeader(eq("Content-Encoding"), anyString());
+        verify(response).setContentLengthLong(2);
+        assertEquals("{}", body.toString("UTF-8"));
+    }
+
+    @Test
+    public void shouldNotCompressBinaryResponse() throws Exception {
+        given("gzip", "application/octet-stream");
+
+        write(BIG);
+
+        verify(response, never()).setHeader(eq("Content-Encoding"), anyString());
+        assertEquals(BIG, body.toString("UTF-8"));
+    }
+
+    @Test
+    public void shouldNotCompressAlreadyEncodedResponse() throws Exception {
+        given("gzip", "text/css");
+        when(response.containsHeader("Content-Encoding")).thenReturn(true);
+
+        write(BIG);
+
+        verify(response, never()).setHeader(eq("Content-Encoding"), anyString());
+        assertEquals(BIG, body.toString("UTF-8"));
+    }
+
+    @Test
+    public void shouldPassThroughWithoutAcceptEncoding() throws Exception {
+        given(null, "application/json");
+        FilterChain chain = mock(FilterChain.class);
+
+        filter.doFilter(request, response, chain);
+
+        verify(chain).doFilter(request, response);
+    }
+
+    @Test
+    public void shouldNegotiateEncoding() {
+        assertEquals("gzip", CompressionFilter.negotiate("gzip, deflate"));
+        assertEquals("gzip", CompressionFilter.negotiate("deflate, gzip"));
+        assertEquals("deflate", CompressionFilter.negotiate("gzip;q=0.5, deflate"));
+        assertEquals("deflate", CompressionFilter.negotiate("gzip;q=0, deflate"));
+        assertEquals("gzip", CompressionFilter.negotiate("*"));
+        assertNull(CompressionFilter.negotiate("identity"));
+        assertNull(CompressionFilter.negotiate("br, gzip;q=0"));
+    }
+
+    @Test
+    public void shouldApplyWildcardOnlyToCodingsNotListed() {
+        assertEquals("deflate", CompressionFilter.negotiate("gzip;q=0, *"));
+        assertEquals("deflate", CompressionFilter.negotiate("x-gzip;q=0, *;q=0.5"));
+        assertEquals("gzip", CompressionFilter.negotiate("deflate;q=0.2, *;q=0.5"));
+        assertEquals("gzip", CompressionFilter.negotiate("*, deflate;q=0.5"));
+        assertNull(CompressionFilter.negotiate("gzip;q=0, deflate;q=0, *"));
+        assertNull(CompressionFilter.negotiate("*;q=0"));
+    }
+}
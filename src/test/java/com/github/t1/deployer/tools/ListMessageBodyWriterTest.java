@@ -0,0 +1,109 @@
+package com.github.t1.deployer.tools;
+
+import static com.github.t1.deployer.tools.ListMessageBodyWriter.*;
+import static java.util.Arrays.*;
+import static javax.ws.rs.core.MediaType.*;
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.lang.annotation.Annotation;
+import java.net.URI;
+import java.util.List;
+
+import javax.ws.rs.core.*;
+
+import org.junit.Test;
+
+import com.github.t1.deployer.model.*;
+import com.github.t1.log.LogLevel;
+
+public class ListMessageBodyWriterTest {
+    private static final Annotation[] ANNOTATIONS = new Annotation[0];
+    private static final CheckSum CHECK_SUM = CheckSum.ofHexString("FACE000094D353F082E6939015AF81D263BA0F8F");
+
+    private final ListMessageBodyWriter writer = new ListMessageBodyWriter();
+    private int mapped = 0;
+
+    private List<Deployment> deployments() {
+        return new MappedList<String, Deployment>(asList("foo", "bar")) {
+            @Override
+            protected Deployment map(String name) {
+                mapped++;
+                return new Deployment(new DeploymentName(name + ".war"), new ContextRoot(name), CHECK_SUM,
+                        new Version("1.0"));
+            }
+        };
+    }
+
+    private String write(List<?> list, MediaType mediaType) throws IOException {
+        assertTrue(writer.isWriteable(list.getClass(), List.class, ANNOTATIONS, mediaType));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(list, list.getClass(), List.class, ANNOTATIONS, mediaType,
+                new MultivaluedHashMap<String, Object>(), out);
+        return out.toString("UTF-8");
+    }
+
+    @Test
+    public void shouldWriteJson() throws IOException {
+        String json = write(deployments(), APPLICATION_JSON_TYPE);
+
+        assertEquals("[" //
+                + "{\"name\":\"foo.war\",\"contextRoot\":\"foo\"," //
+                + "\"checkSum\":\"" + CHECK_SUM + "\",\"version\":\"1.0\"}," //
+                + "{\"name\":\"bar.war\",\"contextRoot\":\"bar\"," //
+                + "\"checkSum\":\"" + CHECK_SUM + "\",\"version\":\"1.0\"}" //
+                + "]", json);
+        assertEquals(2, mapped);
+    }
+
+    @Test
+    public void shouldWriteYaml() throws IOException {
+        List<LoggerConfig> loggers = asList( //
+                new LoggerConfig("foo", LogLevel.DEBUG), //
+                new LoggerConfig("bar", LogLevel.INFO));
+
+        String yaml = write(loggers, MediaType.valueOf(APPLICATION_YAML));
+
+        assertEquals("---\n" //
+                + "- category: \"foo\"\n" //
+                + "  level: \"DEBUG\"\n" //
+                + "  new: false\n" //
+                + "- category: \"bar\"\n" //
+                + "  level: \"INFO\"\n" //
+                + "  new: false\n", yaml);
+    }
+
+    @Test
+    public void shouldWriteXml() throws IOException {
+        String xml = write(deployments(), APPLICATION_XML_TYPE);
+
+        assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" //
+                + "<collection>" //
+                + "<deployment><name>foo.war</name><contextRoot>foo</contextRoot>" //
+                + "<checkSum>" + CHECK_SUM.base64() + "</checkSum><version>1.0</version></deployment>" //
+                + "<deployment><name>bar.war</name><contextRoot>bar</contextRoot>" //
+                + "<checkSum>" + CHECK_SUM.base64() + "</checkSum><version>1.0</version></deployment>" //
+                + "</collection>", xml);
+        assertEquals(2, mapped);
+    }
+
+    @Test
+    public void shouldWriteXmlWithoutRootElement() throws IOException {
+        List<DataSourceConfig> dataSources = asList(DataSourceConfig.builder() //
+                .name("foo-ds") //
+                .uri(URI.create("jdbc:h2:mem:foo")) //
+                .build());
+
+        String xml = write(dataSources, TEXT_XML_TYPE);
+
+        assertTrue(xml, xml.contains("<collection><dataSourceConfig>"));
+        assertTrue(xml, xml.contains("<name>foo-ds</name>"));
+    }
+
+    @Test
+    public void shouldNotWriteOtherTypes() {
+        assertFalse(writer.isWriteable(List.class, List.class, ANNOTATIONS, TEXT_HTML_TYPE));
+        assertFalse(writer.isWriteable(List.class, List.class, ANNOTATIONS, WILDCARD_TYPE));
+        assertFalse(writer.isWriteable(Deployment.class, Deployment.class, ANNOTATIONS, APPLICATION_JSON_TYPE));
+    }
+}
@@ -0,0 +1,87 @@
+package com.github.t1.deployer.tools;
+
+import static javax.ws.rs.core.Response.Status.*;
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import javax.ws.rs.WebApplicationException;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+public class LocalRootsTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldParseLocalRoots() {
+        List<Path> roots = LocalRoots.parse(" /mnt/artifactory" + File.pathSeparator + "/var/cache/");
+
+        assertEquals(Arrays.asList(Paths.get("/mnt/artifactory"), Paths.get("/var/cache")), roots);
+        assertEquals(0, LocalRoots.parse("").size());
+    }
+
+    @Test
+    public void shouldAllowLocalArtifactWithinRoot() throws IOException {
+        Path root = folder.newFolder("root").toPath();
+        Path artifact = Files.createFile(root.resolve("foo.war"));
+
+        Path allowed = LocalRoots.checkAllowed(artifact, Arrays.asList(root));
+
+        assertEquals(artifact.toRealPath(), allowed);
+        assertTrue(LocalRoots.isAllowed(artifact, Arrays.asList(root)));
+    }
+
+    @Test
+    public void shouldRejectLocalArtifactEscapingRoot() throws IOException {
+        Path root = folder.newFolder("root").toPath();
+        Files.createFile(folder.getRoot().toPath().resolve("secret.war"));
+
+        try {
+            LocalRoots.checkAllowed(root.resolve("../secret.war"), Arrays.asList(root));
+            fail("WebException expected");
+        } catch (WebApplicationException e) {
+            assertEquals(FORBIDDEN, e.getResponse().getStatusInfo());
+        }
+    }
+
+    @Test
+    public void shouldRejectSymbolicLinkOutOfRoot() throws IOException {
+        Path root = folder.newFolder("root").toPath();
+        Path secret = Files.createFile(folder.getRoot().toPath().resolve("secret.war"));
+        Path link = Files.createSymbolicLink(root.resolve("foo.war"), secret);
+
+        try {
+            LocalRoots.checkAllowed(link, Arrays.asList(root));
+            fail("WebException expected");
+        } catch (WebApplicationException e) {
+            assertEquals(FORBIDDEN, e.getResponse().getStatusInfo());
+        }
+    }
+
+    @Test
+    public void shouldNotFindMissingLocalArtifact() {
+        Path root = folder.getRoot().toPath();
+
+        try {
+            LocalRoots.checkAllowed(root.resolve("missing.war"), Arrays.asList(root));
+            fail("WebException expected");
+        } catch (WebApplicationException e) {
+            assertEquals(NOT_FOUND, e.getResponse().getStatusInfo());
+        }
+    }
+
+    @Test
+    public void shouldNotAllowArtifactOutsideOfRoots() throws IOException {
+        Path root = folder.newFolder("root").toPath();
+        Path mount = folder.newFolder("mount").toPath();
+        Path artifact = Files.createFile(mount.resolve("foo.war"));
+
+        assertFalse(LocalRoots.isAllowed(artifact, Arrays.asList(root)));
+        assertFalse(LocalRoots.isAllowed(artifact, Collections.<Path> emptyList()));
+        assertFalse(LocalRoots.isAllowed(root.resolve("missing.war"), Arrays.asList(root)));
+    }
+}
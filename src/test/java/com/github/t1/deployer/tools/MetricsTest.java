@@ -0,0 +1,87 @@
+package com.github.t1.deployer.tools;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.Test;
+
+import com.github.t1.deployer.tools.Metrics.*;
+
+public class MetricsTest {
+    @Test
+    public void shouldCountConcurrently() throws Exception {
+        final Counter counter = Metrics.counter("test_concurrent_total", "concurrent increments");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++)
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++)
+                        counter.inc();
+                }
+            }));
+        for (Future<?> future : futures)
+            future.get();
+        executor.shutdown();
+
+        assertEquals(80000, counter.get());
+    }
+
+    @Test
+    public void shouldReturnSameMetricForSameLabels() {
+        Counter first = Metrics.counter("test_same_total", "same", "call", "search");
+        Counter second = Metrics.counter("test_same_total", "same", "call", "search");
+        Counter other = Metrics.counter("test_same_total", "same", "call", "file");
+
+        assertSame(first, second);
+        assertNotSame(first, other);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectOtherType() {
+        Metrics.counter("test_type", "type");
+        Metrics.histogram("test_type", "type");
+    }
+
+    @Test
+    public void shouldExportCounter() {
+        Metrics.counter("test_export_total", "exported \\ counter", "call", "a\"b").add(3);
+
+        assertTrue(Metrics.export().contains("# HELP test_export_total exported \\\\ counter\n" //
+                + "# TYPE test_export_total counter\n" //
+                + "test_export_total{call=\"a\\\"b\"} 3\n"));
+    }
+
+    @Test
+    public void shouldExportHistogram() {
+        Histogram histogram = Metrics.histogram("test_histogram_seconds", "durations", "op", "read");
+        histogram.observeNanos(500_000); // 0.5 ms
+        histogram.observeNanos(1_000_000); // exactly 1 ms
+        histogram.observeNanos(20_000_000); // 20 ms
+        histogram.observeNanos(200_000_000_000L); // 200 s
+
+        String export = Metrics.export();
+
+        assertEquals(4, histogram.getCount());
+        assertEquals(200.0215, histogram.getSum(), 1e-9);
+        assertTrue(export.contains("# TYPE test_histogram_seconds histogram\n"));
+        assertTrue(export.contains("test_histogram_seconds_bucket{op=\"read\",le=\"0.001\"} 2\n"));
+        assertTrue(export.contains("test_histogram_seconds_bucket{op=\"read\",le=\"0.01\"} 2\n"));
+        assertTrue(export.contains("test_histogram_seconds_bucket{op=\"read\",le=\"0.025\"} 3\n"));
+        assertTrue(export.contains("test_histogram_seconds_bucket{op=\"read\",le=\"120.0\"} 3\n"));
+        assertTrue(export.contains("test_histogram_seconds_bucket{op=\"read\",le=\"+Inf\"} 4\n"));
+        assertTrue(export.contains("test_histogram_seconds_count{op=\"read\"} 4\n"));
+    }
+
+    @Test
+    public void shouldWriteGauge() {
+        StringBuilder out = new StringBuilder();
+
+        Metrics.writeGauge(out, "test_gauge", "a gauge", 3);
+
+        assertEquals("# HELP test_gauge a gauge\n# TYPE test_gauge gauge\ntest_gauge 3\n", out.toString());
+    }
+}
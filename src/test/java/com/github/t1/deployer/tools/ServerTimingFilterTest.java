@@ -0,0 +1,113 @@
+package com.github.t1.deployer.tools;
+
+import static com.github.t1.deployer.tools.ServerTiming.Category.*;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.*;
+
+import javax.servlet.*;
+import javax.servlet.http.*;
+
+import org.junit.*;
+import org.junit.runner.RunWith;
+import org.mockito.*;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ServerTimingFilterTest {
+    private final ServerTimingFilter filter = new ServerTimingFilter();
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+    @Mock
+    HttpServletRequest request;
+    @Mock
+    HttpServletResponse response;
+
+    @Before
+    public void before() throws IOException {
+        when(request.getMethod()).thenReturn("GET");
+        when(response.getCharacterEncoding()).thenReturn("UTF-8");
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {}
+        });
+    }
+
+    private String serverTiming() {
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(response).setHeader(eq("Server-Timing"), captor.capture());
+        return captor.getValue();
+    }
+
+    @Test
+    public void shouldAddTimingOfManagementAndRepositoryCallsAndRendering() throws Exception {
+        filter.doFilter(request, response, new FilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) throws IOException {
+                long start = System.nanoTime();
+                ServerTiming.record(mgmt, start);
+                ServerTiming.record(mgmt, start);
+                ServerTiming.record(repo, start);
+                ServerTiming.current().add(render, 2500000);
+                response.getWriter().write("body");
+                response.getWriter().flush();
+            }
+        });
+
+        String header = serverTiming();
+        assertTrue(header, header.matches("mgmt;dur=\\d+\\.\\d;desc=\"management operations \\(2\\)\", " //
+                + "repo;dur=\\d+\\.\\d;desc=\"repository calls \\(1\\)\", " //
+                + "render;dur=2\\.5;desc=\"rendering \\(1\\)\", " //
+                + "total;dur=\\d+\\.\\d"));
+        assertEquals("body", body.toString("UTF-8"));
+        assertNull(ServerTiming.current());
+    }
+
+    @Test
+    public void shouldAddTimingBeforeBodyIsCommitted() throws Exception {
+        final byte[] big = new byte[ServerTimingFilter.BUFFER_SIZE + 1];
+        filter.doFilter(request, response, new FilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) throws IOException {
+                response.getOutputStream().write(big);
+                response.getOutputStream().write(1);
+            }
+        });
+
+        InOrder inOrder = inOrder(response);
+        inOrder.verify(response).setHeader(eq("Server-Timing"), startsWith("total;dur="));
+        inOrder.verify(response).getOutputStream();
+        assertEquals(big.length + 1, body.size());
+    }
+
+    @Test
+    public void shouldAddTimingWithoutBody() throws Exception {
+        filter.doFilter(request, response, new FilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) {
+                ((HttpServletResponse) response).setStatus(204);
+            }
+        });
+
+        assertTrue(serverTiming().startsWith("total;dur="));
+    }
+
+    @Test
+    public void shouldNotRecordWithoutCollector() {
+        ServerTiming.record(mgmt, System.nanoTime());
+
+        assertNull(ServerTiming.current());
+    }
+}
@@ -0,0 +1,97 @@
+package com.github.t1.deployer.tools;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class StaticResourceCacheTest {
+    private final StaticResourceCache cache = new StaticResourceCache(100);
+
+    /** images are not gzipped, so they take as many bytes as they have */
+    private static StaticResource resource(int size) {
+        return StaticResource.of("image.png", null, new byte[size], null);
+    }
+
+    @Test
+    public void shouldGetWhatWasPut() {
+        StaticResource resource = resource(10);
+
+        cache.put("a", resource);
+
+        assertSame(resource, cache.get("a"));
+        assertNull(cache.get("b"));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedWhenFull() {
+        cache.put("a", resource(40));
+        cache.put("b", resource(40));
+        cache.get("a");
+
+        cache.put("c", resource(40));
+
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+    }
+
+    @Test
+    public void shouldEvictSeveralToMakeRoom() {
+        cache.put("a", resource(30));
+        cache.put("b", resource(30));
+        cache.put("c", resource(30));
+
+        cache.put("d", resource(80));
+
+        assertNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNull(cache.get("c"));
+        assertNotNull(cache.get("d"));
+    }
+
+    @Test
+    public void shouldKeepExactlyFull() {
+        cache.put("a", resource(50));
+        cache.put("b", resource(50));
+
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("b"));
+    }
+
+    @Test
+    public void shouldCountReplacedResourceOnlyOnce() {
+        cache.put("a", resource(60));
+        cache.put("a", resource(60));
+        cache.put("b", resource(40));
+
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("b"));
+    }
+
+    @Test
+    public void shouldNotCacheResourceLargerThanTheCache() {
+        cache.put("a", resource(10));
+
+        cache.put("big", resource(101));
+
+        assertNull(cache.get("big"));
+        assertNotNull(cache.get("a"));
+    }
+
+    @Test
+    public void shouldCountGzippedVariant() {
+        StaticResource css = StaticResource.of("style.css", null, new byte[1000], null);
+        StaticResourceCache cache = new StaticResourceCache(2000);
+        cache.put("plain", resource(2000 - css.size()));
+
+        cache.put("css", css);
+
+        assertTrue(css.hasGzipped());
+        assertNotNull(cache.get("plain"));
+        assertNotNull(cache.get("css"));
+
+        cache.put("more", resource(1));
+
+        assertNull(cache.get("plain"));
+    }
+}
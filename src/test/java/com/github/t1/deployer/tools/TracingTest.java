@@ -0,0 +1,66 @@
+package com.github.t1.deployer.tools;
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+public class TracingTest {
+    @After
+    public void after() {
+        Tracing.end();
+    }
+
+    @Test
+    public void shouldIgnorePhasesWithoutTrace() {
+        Tracing.phase("foo", System.nanoTime());
+
+        assertNull(Tracing.current());
+        assertNull(Tracing.take());
+    }
+
+    @Test
+    public void shouldRecordPhasesAndBytes() {
+        assertTrue(Tracing.begin());
+        long start = System.nanoTime();
+        Tracing.phase("lookup", start);
+        Tracing.download("download", start, 1000);
+        Tracing.upload("plan:execute", start, 300);
+
+        Tracing tracing = Tracing.current();
+        assertEquals(3, tracing.getPhases().size());
+        assertEquals("download", tracing.getPhases().get(1).getName());
+        assertEquals(1000, tracing.getPhases().get(1).getBytes());
+        assertEquals(1000, tracing.getDownloaded());
+        assertEquals(300, tracing.getUploaded());
+    }
+
+    @Test
+    public void shouldNotBeginNestedTrace() {
+        assertTrue(Tracing.begin());
+        Tracing outer = Tracing.current();
+
+        assertFalse(Tracing.begin());
+        assertSame(outer, Tracing.current());
+    }
+
+    @Test
+    public void shouldContinueWithFreshTraceAfterTake() {
+        Tracing.begin();
+        Tracing.phase("first", System.nanoTime());
+
+        Tracing taken = Tracing.take();
+        Tracing.phase("second", System.nanoTime());
+
+        assertEquals(1, taken.getPhases().size());
+        assertEquals("second", Tracing.current().getPhases().get(0).getName());
+    }
+
+    @Test
+    public void shouldLimitPhases() {
+        Tracing.begin();
+        for (int i = 0; i < Tracing.MAX_PHASES + 10; i++)
+            Tracing.phase("phase-" + i, System.nanoTime());
+
+        assertEquals(Tracing.MAX_PHASES, Tracing.current().getPhases().size());
+    }
+}
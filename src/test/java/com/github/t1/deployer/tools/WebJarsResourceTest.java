@@ -0,0 +1,212 @@
+package com.github.t1.deployer.tools;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import javax.ws.rs.core.*;
+
+import org.glassfish.jersey.internal.MapPropertiesDelegate;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.junit.Test;
+
+public class WebJarsResourceTest {
+    private static final String JQUERY = "jquery.min.js";
+    private static final String VERSION = "2.1.4";
+
+    private final WebJarsResource resource = new WebJarsResource();
+    private ContainerRequest request = request();
+
+    private static ContainerRequest request() {
+        URI base = URI.create("http://localhost/");
+        return new ContainerRequest(base, base.resolve("jquery/" + JQUERY), "GET", null, new MapPropertiesDelegate());
+    }
+
+    private void given(String name, String value) {
+        request.header(name, value);
+    }
+
+    private Response get(String filePath) {
+        resource.request = request;
+        resource.headers = request;
+        return resource.getStaticResource("jquery", filePath);
+    }
+
+    private static byte[] jquery() {
+        return WebJarsResource.resource("jquery", JQUERY).getBytes();
+    }
+
+    private static byte[] gunzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            byte[] buffer = new byte[8192];
+            for (int n = in.read(buffer); n >= 0; n = in.read(buffer))
+                out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void shouldServeWebjarResource() {
+        Response response = get(JQUERY);
+
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(jquery(), (byte[]) response.getEntity());
+        assertEquals("application/javascript", response.getHeaderString("Content-Type"));
+        assertEquals("public, no-cache", response.getHeaderString("Cache-Control"));
+        assertEquals("bytes", response.getHeaderString("Accept-Ranges"));
+        assertNull(response.getHeaderString("Content-Encoding"));
+    }
+
+    @Test
+    public void shouldCacheVersionedPathForAYear() {
+        Response response = get(VERSION + "/" + JQUERY);
+
+        assertEquals(200, response.getStatus());
+        assertEquals("public, max-age=31536000", response.getHeaderString("Cache-Control"));
+    }
+
+    @Test
+    public void shouldNotFindUnknownResource() {
+        Response response = get("unknown.js");
+
+        assertEquals(404, response.getStatus());
+    }
+
+    @Test
+    public void shouldServeGzipped() throws IOException {
+        given("Accept-Encoding", "deflate, gzip;q=0.8");
+
+        Response response = get(JQUERY);
+
+        assertEquals(200, response.getStatus());
+        assertEquals("gzip", response.getHeaderString("Content-Encoding"));
+        assertEquals("Accept-Encoding", response.getHeaderString("Vary"));
+        assertArrayEquals(jquery(), gunzip((byte[]) response.getEntity()));
+        assertTrue(response.getEntityTag().getValue().endsWith("-gz"));
+    }
+
+    @Test
+    public void shouldNotServeGzippedWithQZero() {
+        given("Accept-Encoding", "gzip;q=0, deflate");
+
+        Response response = get(JQUERY);
+
+        assertEquals(200, response.getStatus());
+        assertNull(response.getHeaderString("Content-Encoding"));
+        assertArrayEquals(jquery(), (byte[]) response.getEntity());
+    }
+
+    @Test
+    public void shouldNotServeGzippedWithWildcardQZero() {
+        given("Accept-Encoding", "*;q=0.0");
+
+        Response response = get(JQUERY);
+
+        assertNull(response.getHeaderString("Content-Encoding"));
+    }
+
+    @Test
+    public void shouldNotBeModifiedWithMatchingIfNoneMatch() {
+        EntityTag entityTag = get(JQUERY).getEntityTag();
+        request = request();
+        given("If-None-Match", entityTag.toString());
+
+        Response response = get(JQUERY);
+
+        assertEquals(304, response.getStatus());
+        assertNull(response.getEntity());
+        assertEquals(entityTag, response.getEntityTag());
+        assertEquals("public, no-cache", response.getHeaderString("Cache-Control"));
+    }
+
+    @Test
+    public void shouldServeWithOtherIfNoneMatch() {
+        given("If-None-Match", "\"other\"");
+
+        Response response = get(JQUERY);
+
+        assertEquals(200, response.getStatus());
+    }
+
+    @Test
+    public void shouldServeSingleRange() {
+        given("Range", "bytes=10-19");
+        given("Accept-Encoding", "gzip");
+
+        Response response = get(JQUERY);
+
+        byte[] jquery = jquery();
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 10-19/" + jquery.length, response.getHeaderString("Content-Range"));
+        assertArrayEquals(Arrays.copyOfRange(jquery, 10, 20), (byte[]) response.getEntity());
+        assertNull(response.getHeaderString("Content-Encoding"));
+    }
+
+    @Test
+    public void shouldServeSuffixRange() {
+        given("Range", "bytes=-5");
+
+        Response response = get(JQUERY);
+
+        byte[] jquery = jquery();
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes " + (jquery.length - 5) + "-" + (jquery.length - 1) + "/" + jquery.length,
+                response.getHeaderString("Content-Range"));
+        assertArrayEquals(Arrays.copyOfRange(jquery, jquery.length - 5, jquery.length),
+                (byte[]) response.getEntity());
+    }
+
+    @Test
+    public void shouldRejectUnsatisfiableRange() {
+        given("Range", "bytes=999999999-");
+
+        Response response = get(JQUERY);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */" + jquery().length, response.getHeaderString("Content-Range"));
+    }
+
+    @Test
+    public void shouldRejectReversedRange() {
+        given("Range", "bytes=20-10");
+
+        Response response = get(JQUERY);
+
+        assertEquals(416, response.getStatus());
+    }
+
+    @Test
+    public void shouldServeAllForMultipleRanges() {
+        given("Range", "bytes=0-9,20-29");
+
+        Response response = get(JQUERY);
+
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(jquery(), (byte[]) response.getEntity());
+    }
+
+    @Test
+    public void shouldServeAllForInvalidRange() {
+        given("Range", "bytes=a-b");
+
+        Response response = get(JQUERY);
+
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(jquery(), (byte[]) response.getEntity());
+    }
+
+    @Test
+    public void shouldServeAllForRangeWithOtherIfRange() {
+        given("Range", "bytes=10-19");
+        given("If-Range", "\"other\"");
+
+        Response response = get(JQUERY);
+
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(jquery(), (byte[]) response.getEntity());
+    }
+}